@@ -0,0 +1,88 @@
+package benchmarks;
+
+import exceptions.InsufficientFundsException;
+import exceptions.InvalidAmountException;
+import exceptions.OverdraftExceededException;
+import models.CheckingAccount;
+import models.Customer;
+import models.RegularCustomer;
+import org.openjdk.jmh.annotations.*;
+import services.AccountManager;
+import services.PostingRequest;
+import services.PostingResult;
+import services.TransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A file's worth of deposits and withdrawals posted one call at a time against the same
+ * postings sent through TransactionManager.applyBatch. Each invocation gets a fresh manager so
+ * the ledger does not grow across invocations. Scores are per posting.
+ *
+ * Run with: java -jar target/benchmarks.jar BatchPostingBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchPostingBenchmark {
+    private static final int POSTINGS = 20_000;
+
+    @Param({"16", "1024"})
+    private int accountCount;
+
+    private List<PostingRequest> requests;
+    private TransactionManager transactionManager;
+
+    @Setup(Level.Trial)
+    public void createPostings() {
+        Random random = new Random(42);
+        requests = new ArrayList<>(POSTINGS);
+        for (int i = 0; i < POSTINGS; i++) {
+            String accountNumber = String.format("ACC%03d", random.nextInt(accountCount) + 1);
+            requests.add(i % 3 == 2
+                    ? PostingRequest.withdrawal(accountNumber, 5.0)
+                    : PostingRequest.deposit(accountNumber, 10.0));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void createManager() {
+        AccountManager accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        Customer customer = new RegularCustomer("Benchmark", "CUST001");
+        for (int i = 0; i < accountCount; i++) {
+            accountManager.addAccount(new CheckingAccount(accountManager.generateAccountNumber(), 1000.0, customer));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSTINGS)
+    public int singleCalls() {
+        int succeeded = 0;
+        for (PostingRequest request : requests) {
+            try {
+                if (request.getType() == PostingRequest.Type.DEPOSIT) {
+                    transactionManager.deposit(request.getAccountNumber(), request.getAmount());
+                } else {
+                    transactionManager.withdraw(request.getAccountNumber(), request.getAmount());
+                }
+                succeeded++;
+            } catch (InvalidAmountException | InsufficientFundsException | OverdraftExceededException e) {
+                // counted as a failed posting
+            }
+        }
+        return succeeded;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POSTINGS)
+    public List<PostingResult> applyBatch() {
+        return transactionManager.applyBatch(requests);
+    }
+}
@@ -0,0 +1,129 @@
+package benchmarks;
+
+import com.bank.system.utils.BinaryCodec;
+import models.RegularCustomer;
+import models.SavingsAccount;
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-row cost of the binary codecs in both trees against the existing text form. Each
+ * invocation encodes or decodes a batch of transactions through one reused direct buffer, so
+ * scores are per row. The services rows look like generated ledger activity: sequential ids,
+ * 1,000 accounts, amounts up to $500 and a few milliseconds between postings.
+ *
+ * Run with: java -jar target/benchmarks.jar BinaryCodecBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryCodecBenchmark {
+    private static final int ROWS = 1024;
+
+    private Transaction[] transactions;
+    private com.bank.system.model.Transaction[] legacyTransactions;
+    private final services.BinaryCodec codec = new services.BinaryCodec();
+    private final BinaryCodec legacyCodec = new BinaryCodec();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(ROWS * 64);
+    private final ByteBuffer encoded = ByteBuffer.allocateDirect(ROWS * 64);
+    private final ByteBuffer legacyEncoded = ByteBuffer.allocateDirect(ROWS * 64);
+    private final SavingsAccount account = new SavingsAccount("ACC042", 1234.56, new RegularCustomer("John Smith", "CUST007"));
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactions = new Transaction[ROWS];
+        legacyTransactions = new com.bank.system.model.Transaction[ROWS];
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 9, 0);
+        long balance = 1_000_000;
+        for (int i = 0; i < ROWS; i++) {
+            long amount = 100 + (i * 7919L) % 50_000;
+            boolean deposit = i % 3 != 0;
+            balance += deposit ? amount : -amount;
+            time = time.plusNanos(1_000_000L + (i * 104_729L) % 5_000_000);
+            String accountNumber = String.format("ACC%03d", 1 + (i * 31) % 1000);
+            transactions[i] = new Transaction(String.format("TXN%03d", 100_000 + i), accountNumber,
+                    deposit ? "DEPOSIT" : "WITHDRAWAL", amount, balance, time);
+            legacyTransactions[i] = new com.bank.system.model.Transaction(transactions[i].getTransactionId(), accountNumber,
+                    transactions[i].getType(), amount, balance, 1_709_283_600_000L + i * 3L);
+        }
+        codec.reset();
+        for (Transaction transaction : transactions) {
+            codec.encode(encoded, transaction);
+        }
+        encoded.flip();
+        legacyCodec.reset();
+        for (com.bank.system.model.Transaction transaction : legacyTransactions) {
+            legacyCodec.encode(legacyEncoded, transaction);
+        }
+        legacyEncoded.flip();
+        System.out.printf("%nbytes per row: services %.1f, legacy %.1f, toString %.1f%n",
+                encoded.limit() / (double) ROWS, legacyEncoded.limit() / (double) ROWS,
+                transactions[0].toString().length() * 1.0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int encode() {
+        buffer.clear();
+        codec.reset();
+        for (Transaction transaction : transactions) {
+            codec.encode(buffer, transaction);
+        }
+        return buffer.position();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void decode(Blackhole blackhole) {
+        encoded.rewind();
+        codec.reset();
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(codec.decodeTransaction(encoded));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int encodeLegacy() {
+        buffer.clear();
+        legacyCodec.reset();
+        for (com.bank.system.model.Transaction transaction : legacyTransactions) {
+            legacyCodec.encode(buffer, transaction);
+        }
+        return buffer.position();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void decodeLegacy(Blackhole blackhole) {
+        legacyEncoded.rewind();
+        legacyCodec.reset();
+        for (int i = 0; i < ROWS; i++) {
+            blackhole.consume(legacyCodec.decodeTransaction(legacyEncoded));
+        }
+    }
+
+    // The only external form before the codec
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void toStringBaseline(Blackhole blackhole) {
+        for (Transaction transaction : transactions) {
+            blackhole.consume(transaction.toString());
+        }
+    }
+
+    @Benchmark
+    public int encodeAccount() {
+        buffer.clear();
+        codec.encode(buffer, account);
+        return buffer.position();
+    }
+}
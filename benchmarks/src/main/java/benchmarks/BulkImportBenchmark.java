@@ -0,0 +1,76 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import services.AccountManager;
+import services.BulkImporter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One bulk import of a generated CSV or NDJSON file into an empty account manager, with one
+ * row in a hundred rejected. Rows per second is the row count divided by the score; the gc
+ * profiler's allocation per operation divided by the row count should not grow with the file.
+ *
+ * Run with: java -jar target/benchmarks.jar BulkImportBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class BulkImportBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int rowCount;
+
+    @Param({"CSV", "NDJSON"})
+    private BulkImporter.Format format;
+
+    @Param({"1", "4"})
+    private int threads;
+
+    private Path input;
+    private Path rejects;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        input = Files.createTempFile("bulk-import", format == BulkImporter.Format.CSV ? ".csv" : ".ndjson");
+        rejects = Files.createTempFile("bulk-import", ".rejects");
+        try (BufferedWriter out = Files.newBufferedWriter(input)) {
+            if (format == BulkImporter.Format.CSV) {
+                out.write("account_number,account_type,balance,customer_id,customer_name,customer_type\n");
+            }
+            for (int i = 0; i < rowCount; i++) {
+                String number = "ACC" + (1000 + i);
+                String type = i % 2 == 0 ? "SAVINGS" : "CHECKING";
+                String balance = i % 100 == 0 ? "-1" : (i % 5000) + ".50";
+                String customerId = "CUS" + (i / 2);
+                String customerType = i % 10 < 2 ? "PREMIUM" : "REGULAR";
+                if (format == BulkImporter.Format.CSV) {
+                    out.write(number + ',' + type + ',' + balance + ',' + customerId + ",Customer " + (i / 2) + ',' + customerType + '\n');
+                } else {
+                    out.write("{\"account_number\":\"" + number + "\",\"account_type\":\"" + type + "\",\"balance\":" + balance
+                            + ",\"customer_id\":\"" + customerId + "\",\"customer_name\":\"Customer " + (i / 2)
+                            + "\",\"customer_type\":\"" + customerType + "\"}\n");
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(input);
+        Files.deleteIfExists(rejects);
+    }
+
+    @Benchmark
+    public BulkImporter.Report importFile() throws IOException {
+        return new BulkImporter(new AccountManager(), threads, BulkImporter.DEFAULT_CHUNK_LINES)
+                .importFile(input, format, rejects);
+    }
+}
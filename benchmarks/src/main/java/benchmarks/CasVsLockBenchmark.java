@@ -0,0 +1,86 @@
+package benchmarks;
+
+import exceptions.InsufficientFundsException;
+import exceptions.InvalidAmountException;
+import exceptions.OverdraftExceededException;
+import models.Account;
+import models.CheckingAccount;
+import models.Customer;
+import models.RegularCustomer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance updates on models.Account through the lock-free compare-and-set path, the
+ * ReentrantLock path and a plain synchronized block. Each operation deposits and then
+ * withdraws one cent so balances stay put. With one account every thread hits the same
+ * balance; with 1024 accounts contention is rare and the cost of the lock itself dominates.
+ *
+ * Run with: java -jar target/benchmarks.jar CasVsLockBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class CasVsLockBenchmark {
+    private static final long OPENING_BALANCE_IN_CENTS = 1_000_000_000L;
+
+    @Param({"1", "1024"})
+    private int accountCount;
+
+    private Account[] accounts;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Customer customer = new RegularCustomer("Benchmark", "CUST001");
+        accounts = new Account[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = new CheckingAccount(String.format("ACC%03d", i + 1), 0.0, customer);
+            accounts[i].setBalanceInCents(OPENING_BALANCE_IN_CENTS);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkBalances() {
+        for (Account account : accounts) {
+            if (account.getBalanceInCents() != OPENING_BALANCE_IN_CENTS) {
+                throw new IllegalStateException("Lost update on " + account.getAccountNumber());
+            }
+        }
+    }
+
+    @Benchmark
+    public long lockFree() throws InvalidAmountException, InsufficientFundsException, OverdraftExceededException {
+        Account account = pick();
+        account.depositLockFree(1);
+        return account.withdrawLockFree(1);
+    }
+
+    @Benchmark
+    public boolean reentrantLock() throws InvalidAmountException, InsufficientFundsException, OverdraftExceededException {
+        Account account = pick();
+        account.depositInCents(1);
+        return account.withdrawInCents(1);
+    }
+
+    @Benchmark
+    public long synchronizedBlock() {
+        Account account = pick();
+        synchronized (account) {
+            account.setBalanceInCents(account.getBalanceInCents() + 1);
+        }
+        synchronized (account) {
+            account.setBalanceInCents(account.getBalanceInCents() - 1);
+            return account.getBalanceInCents();
+        }
+    }
+
+    private Account pick() {
+        return accounts[accountCount == 1 ? 0 : ThreadLocalRandom.current().nextInt(accountCount)];
+    }
+}
@@ -0,0 +1,120 @@
+package benchmarks;
+
+import exceptions.InsufficientFundsException;
+import exceptions.InvalidAmountException;
+import exceptions.OverdraftExceededException;
+import models.Account;
+import models.CheckingAccount;
+import models.Customer;
+import models.RegularCustomer;
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import services.AccountManager;
+import services.StatementGenerator;
+import services.TransactionManager;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The services hot paths one call at a time: postings to random accounts, account lookup, and
+ * history and statement reads on the HOT_ACCOUNTS accounts that hold historyLength
+ * transactions each. Statements are measured through the default cache and with it off;
+ * nothing posts to the hot accounts, so the cache hits until their statements together
+ * outgrow its default bound, as they do at 10000 transactions.
+ *
+ * Every iteration starts from fresh accounts so the postings of earlier iterations neither
+ * lengthen the histories nor fill the heap. Balances start high enough that withdrawals never
+ * fail. {@link LegacyCoreOperationsBenchmark} measures the same operations on com.bank.system.
+ *
+ * Run with: java -jar target/benchmarks.jar CoreOperationsBenchmark -prof gc -t 4
+ * or sweep thread counts with: java -cp target/benchmarks.jar benchmarks.CoreOperationsRunner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CoreOperationsBenchmark {
+    static final int HOT_ACCOUNTS = 16;
+    static final long OPENING_BALANCE_IN_CENTS = 1_000_000_000_000L;
+
+    @Param({"1000", "100000"})
+    private int accountCount;
+
+    @Param({"100", "10000"})
+    private int historyLength;
+
+    private AccountManager accountManager;
+    private TransactionManager transactionManager;
+    private StatementGenerator statementGenerator;
+    private StatementGenerator uncachedStatementGenerator;
+    private String[] accountNumbers;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws InvalidAmountException {
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        accountNumbers = new String[accountCount];
+        Customer customer = new RegularCustomer("Benchmark Customer", "CUST001");
+        for (int i = 0; i < accountCount; i++) {
+            CheckingAccount account = new CheckingAccount(accountManager.generateAccountNumber(), 0.0, customer);
+            account.setBalanceInCents(OPENING_BALANCE_IN_CENTS);
+            accountManager.addAccount(account);
+            accountNumbers[i] = account.getAccountNumber();
+        }
+        for (int i = 0; i < HOT_ACCOUNTS * historyLength; i++) {
+            transactionManager.deposit(accountNumbers[i % HOT_ACCOUNTS], 1.0 + i % 100);
+        }
+        statementGenerator = new StatementGenerator(accountManager, transactionManager);
+        uncachedStatementGenerator = new StatementGenerator(accountManager, transactionManager, null);
+    }
+
+    @Benchmark
+    public boolean deposit() throws InvalidAmountException {
+        return transactionManager.deposit(anyAccount(), 1.0);
+    }
+
+    @Benchmark
+    public boolean withdraw() throws InvalidAmountException, InsufficientFundsException, OverdraftExceededException {
+        return transactionManager.withdraw(anyAccount(), 1.0);
+    }
+
+    @Benchmark
+    public boolean transfer() throws InvalidAmountException, InsufficientFundsException, OverdraftExceededException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accountCount);
+        int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+        return transactionManager.transfer(accountNumbers[from], accountNumbers[to], 1.0);
+    }
+
+    @Benchmark
+    public Account getAccount() {
+        return accountManager.getAccount(anyAccount());
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsForAccount() {
+        return transactionManager.getTransactionsForAccount(hotAccount());
+    }
+
+    @Benchmark
+    public String generateStatement() {
+        return statementGenerator.generateStatement(hotAccount());
+    }
+
+    @Benchmark
+    public String generateStatementUncached() {
+        return uncachedStatementGenerator.generateStatement(hotAccount());
+    }
+
+    private String anyAccount() {
+        return accountNumbers[ThreadLocalRandom.current().nextInt(accountCount)];
+    }
+
+    private String hotAccount() {
+        return accountNumbers[ThreadLocalRandom.current().nextInt(HOT_ACCOUNTS)];
+    }
+}
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs {@link CoreOperationsBenchmark} and {@link LegacyCoreOperationsBenchmark} once per thread
+ * count with the GC profiler, since JMH takes a single thread count per run. Arguments are the
+ * thread counts, 1, 2, 4 and 8 by default.
+ *
+ * Run with: java -cp target/benchmarks.jar benchmarks.CoreOperationsRunner 1 4
+ */
+public class CoreOperationsRunner {
+    private static final int[] DEFAULT_THREAD_COUNTS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws RunnerException {
+        int[] threadCounts = DEFAULT_THREAD_COUNTS;
+        if (args.length > 0) {
+            threadCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                threadCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                    .include(CoreOperationsBenchmark.class.getSimpleName())
+                    .include(LegacyCoreOperationsBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .result("core-operations-" + threads + "-threads.json")
+                    .resultFormat(ResultFormatType.JSON)
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package benchmarks;
+
+import models.RegularCustomer;
+import models.SavingsAccount;
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import services.AccountManager;
+import services.TransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A one-day window out of a growing ledger: per account and across all accounts through the
+ * time indexes, against filtering and sorting a full copy of the history as callers had to
+ * before. The indexed queries should depend on the window, not the ledger length.
+ *
+ * Run with: java -jar target/benchmarks.jar DateRangeQueryBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class DateRangeQueryBenchmark {
+    private static final int ACCOUNTS = 16;
+
+    @Param({"10000", "200000"})
+    private int historyLength;
+
+    private TransactionManager transactionManager;
+    private LocalDateTime from;
+    private LocalDateTime to;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        AccountManager accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        for (int i = 1; i <= ACCOUNTS; i++) {
+            accountManager.addAccount(new SavingsAccount(String.format("ACC%03d", i), 1000.0,
+                    new RegularCustomer("Benchmark Customer", String.format("CUST%03d", i))));
+        }
+        for (int i = 0; i < historyLength; i++) {
+            transactionManager.deposit(String.format("ACC%03d", 1 + i % ACCOUNTS), 1.0 + i % 100);
+        }
+        // A window of about 500 postings in the middle of the ledger
+        List<Transaction> all = transactionManager.getAllTransactions();
+        from = all.get(historyLength / 2).getTimestamp();
+        to = all.get(historyLength / 2 + 500).getTimestamp();
+    }
+
+    @Benchmark
+    public List<Transaction> accountIndexed() {
+        return transactionManager.getTransactionsForAccount("ACC001", from, to);
+    }
+
+    @Benchmark
+    public List<Transaction> accountScanAndSort() {
+        return scanAndSort(transactionManager.getTransactionsForAccount("ACC001"));
+    }
+
+    @Benchmark
+    public List<Transaction> allAccountsIndexed() {
+        return transactionManager.getTransactionsBetween(from, to);
+    }
+
+    @Benchmark
+    public List<Transaction> allAccountsScanAndSort() {
+        return scanAndSort(transactionManager.getAllTransactions());
+    }
+
+    private List<Transaction> scanAndSort(List<Transaction> transactions) {
+        List<Transaction> result = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            if (!transaction.getTimestamp().isBefore(from) && transaction.getTimestamp().isBefore(to)) {
+                result.add(transaction);
+            }
+        }
+        result.sort(Comparator.comparing(Transaction::getTimestamp));
+        return result;
+    }
+}
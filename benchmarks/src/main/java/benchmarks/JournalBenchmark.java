@@ -0,0 +1,82 @@
+package benchmarks;
+
+import exceptions.InvalidAmountException;
+import models.CheckingAccount;
+import models.Customer;
+import models.RegularCustomer;
+import org.openjdk.jmh.annotations.*;
+import services.AccountManager;
+import services.TransactionJournal;
+import services.TransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Postings per second from 16 threads with no journal, with a journal that forces after every
+ * record (batch size 1), and with group commit. The journal file goes to the system temp
+ * directory, so results depend on how fast that disk's fsync is. The flush interval only
+ * applies to group commit; with synchronous callers a zero interval does best.
+ *
+ * Run with: java -jar target/benchmarks.jar JournalBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+    private static final int ACCOUNTS = 256;
+
+    @Param({"none", "force-each", "group-commit"})
+    private String journalMode;
+
+    @Param({"512"})
+    private int batchSize;
+
+    @Param({"0", "1"})
+    private int flushIntervalMillis;
+
+    private Path journalPath;
+    private TransactionJournal journal;
+    private TransactionManager transactionManager;
+    private String[] accountNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        AccountManager accountManager = new AccountManager();
+        accountNumbers = new String[ACCOUNTS];
+        Customer customer = new RegularCustomer("Benchmark", "CUST001");
+        for (int i = 0; i < ACCOUNTS; i++) {
+            CheckingAccount account = new CheckingAccount(accountManager.generateAccountNumber(), 0.0, customer);
+            accountManager.addAccount(account);
+            accountNumbers[i] = account.getAccountNumber();
+        }
+        journalPath = Files.createTempFile("journal-benchmark", ".dat");
+        if (journalMode.equals("force-each")) {
+            journal = new TransactionJournal(journalPath, 1, Duration.ZERO);
+        } else if (journalMode.equals("group-commit")) {
+            journal = new TransactionJournal(journalPath, batchSize, Duration.ofMillis(flushIntervalMillis));
+        }
+        transactionManager = new TransactionManager(accountManager, journal);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        Files.deleteIfExists(journalPath);
+    }
+
+    @Benchmark
+    public boolean deposit() throws InvalidAmountException {
+        return transactionManager.deposit(accountNumbers[ThreadLocalRandom.current().nextInt(ACCOUNTS)], 1.0);
+    }
+}
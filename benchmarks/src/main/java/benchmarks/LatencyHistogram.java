@@ -0,0 +1,83 @@
+package benchmarks;
+
+/**
+ * Counts of latencies in nanoseconds, in buckets that are exact below 128 ns and then split
+ * each power of two into 64 steps, so any recorded value is reported within about 1.6%. The
+ * counts take 30 KB whatever the range, so one histogram per worker and operation is cheap;
+ * merge them with {@link #add} when the run is over. Not thread-safe.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKETS = 64;
+    private static final int EXACT_BELOW = 2 * SUB_BUCKETS;
+
+    private final long[] counts = new long[index(Long.MAX_VALUE) + 1];
+    private long count;
+    private long total;
+    private long max;
+
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts[index(value)]++;
+        count++;
+        total += value;
+        max = Math.max(max, value);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return count;
+    }
+
+    long max() {
+        return max;
+    }
+
+    double mean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * @param percentile e.g. 99.9
+     * @return the highest value of the bucket holding that percentile, never more than the max
+     */
+    long valueAt(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max);
+            }
+        }
+        return max;
+    }
+
+    // Values from 2^e * 64 up to 2^e * 128 share the exponent e and keep their top 7 bits
+    private static int index(long value) {
+        if (value < EXACT_BELOW) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - 6;
+        return SUB_BUCKETS * exponent + (int) (value >>> exponent);
+    }
+
+    private static long highestValue(int index) {
+        if (index < EXACT_BELOW) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS - 1;
+        long mantissa = index - (long) SUB_BUCKETS * exponent;
+        return ((mantissa + 1) << exponent) - 1;
+    }
+}
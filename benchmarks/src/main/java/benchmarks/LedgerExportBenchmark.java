@@ -0,0 +1,80 @@
+package benchmarks;
+
+import models.CheckingAccount;
+import models.RegularCustomer;
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import services.AccountManager;
+import services.LedgerExporter;
+import services.TransactionManager;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A full CSV export of the ledger through {@link LedgerExporter}, against copying it with
+ * getAllTransactions and writing the copy through a BufferedWriter. The gc profiler's
+ * allocation per operation shows the copy of the whole ledger the exporter avoids.
+ *
+ * Run with: java -jar target/benchmarks.jar LedgerExportBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LedgerExportBenchmark {
+    private static final int ACCOUNTS = 1000;
+
+    @Param({"100000", "1000000"})
+    private int historyLength;
+
+    @Param({"1", "4"})
+    private int partitions;
+
+    private TransactionManager transactionManager;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        AccountManager accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        RegularCustomer customer = new RegularCustomer("Benchmark Customer", "CUST001");
+        for (int i = 1; i <= ACCOUNTS; i++) {
+            accountManager.addAccount(new CheckingAccount(String.format("ACC%04d", i), 1000.0, customer));
+        }
+        for (int i = 0; i < historyLength; i++) {
+            transactionManager.deposit(String.format("ACC%04d", 1 + i % ACCOUNTS), 1.0 + i % 100);
+        }
+        file = Files.createTempFile("ledger-export", ".csv");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public LedgerExporter.Report exporter() throws IOException {
+        return new LedgerExporter(transactionManager, partitions, LedgerExporter.DEFAULT_BUFFER_BYTES)
+                .export(file, LedgerExporter.Format.CSV);
+    }
+
+    @Benchmark
+    public int copyAndWrite() throws IOException {
+        int rows = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("transaction_id,account_number,type,amount,balance_after,timestamp\n");
+            for (Transaction transaction : transactionManager.getAllTransactions()) {
+                out.write(transaction.getTransactionId() + "," + transaction.getAccountNumber() + "," + transaction.getType()
+                        + "," + transaction.getAmount() + "," + transaction.getBalanceAfter() + "," + transaction.getTimestamp() + "\n");
+                rows++;
+            }
+        }
+        return rows;
+    }
+}
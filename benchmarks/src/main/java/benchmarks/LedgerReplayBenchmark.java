@@ -0,0 +1,95 @@
+package benchmarks;
+
+import models.CheckingAccount;
+import models.RegularCustomer;
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import services.AccountManager;
+import services.LedgerIndex;
+import services.LedgerSegmentStore;
+import services.TransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup time: how long it takes before the managers can serve requests, i.e.
+ * LedgerSegmentStore.replay rebuilding balances, totals and per-account indexes from
+ * memory-mapped segments plus LedgerIndex.restoreInto handing them to fresh managers. The
+ * ledger is written once per trial to the system temp directory (64 bytes per row, so 100M
+ * rows need 6.4 GB of disk), and the accounts are registered before each measurement, which
+ * is one cold restart. Once the segments no longer fit in the page cache the score is bounded
+ * by disk read speed rather than by the scan. The restored history stays in the mapped
+ * segments, so the heap holds about four bytes per row.
+ *
+ * Run with: java -jar target/benchmarks.jar LedgerReplayBenchmark -p rows=100000000
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class LedgerReplayBenchmark {
+
+    @Param({"1000000", "10000000"})
+    private long rows;
+
+    @Param({"100000"})
+    private int accountCount;
+
+    private Path directory;
+    private AccountManager accountManager;
+
+    @Setup(Level.Trial)
+    public void writeLedger() throws IOException {
+        directory = Files.createTempDirectory("ledger-replay-benchmark");
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        long[] balances = new long[accountCount];
+        try (LedgerSegmentStore store = new LedgerSegmentStore(directory)) {
+            for (long row = 0; row < rows; row++) {
+                int account = (int) (row % accountCount);
+                balances[account] += 100;
+                store.append(new Transaction("TXN" + (row + 1), "ACC" + (account + 1), "DEPOSIT",
+                        100, balances[account], start.plusSeconds(row)));
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void registerAccounts() {
+        accountManager = new AccountManager();
+        RegularCustomer customer = new RegularCustomer("Benchmark Customer", "CUST001");
+        for (int account = 0; account < accountCount; account++) {
+            accountManager.addAccount(new CheckingAccount("ACC" + (account + 1), 0, customer));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteLedger() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public TransactionManager replayAndRestore() throws IOException {
+        TransactionManager transactionManager = new TransactionManager(accountManager);
+        try (LedgerSegmentStore store = new LedgerSegmentStore(directory)) {
+            LedgerIndex index = store.replay();
+            if (index.getRowCount() != rows) {
+                throw new IllegalStateException("Replayed " + index.getRowCount() + " of " + rows + " rows");
+            }
+            index.restoreInto(accountManager, transactionManager);
+        }
+        if (transactionManager.getTotalTransactions() != rows) {
+            throw new IllegalStateException("Restored " + transactionManager.getTotalTransactions() + " of " + rows + " rows");
+        }
+        return transactionManager;
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import com.bank.system.manager.AccountManager;
+import com.bank.system.model.Account;
+import com.bank.system.model.CheckingAccount;
+import com.bank.system.model.Customer;
+import com.bank.system.model.RegularCustomer;
+import com.bank.system.model.SavingsAccount;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup latency of com.bank.system.manager.AccountManager.findAccount as the registry grows.
+ * With the hash index the score should stay flat from a handful of accounts to millions.
+ *
+ * Run with: java -jar target/benchmarks.jar LegacyAccountLookupBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LegacyAccountLookupBenchmark {
+
+    @Param({"5", "1000", "100000", "1000000"})
+    private int accountCount;
+
+    private AccountManager accountManager;
+    private String[] accountNumbers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Account.resetAccountCounter();
+        Customer.resetCustomerCounter();
+        accountManager = new AccountManager();
+        accountNumbers = new String[accountCount];
+
+        Customer customer = new RegularCustomer("Benchmark Customer", 30, "+1-555-0100", "1 Bench Street");
+        for (int i = 0; i < accountCount; i++) {
+            Account account = (i % 2 == 0)
+                    ? new SavingsAccount(customer, 1000.0)
+                    : new CheckingAccount(customer, 1000.0);
+            accountManager.addAccount(account);
+            accountNumbers[i] = account.getAccountNumber();
+        }
+    }
+
+    @Benchmark
+    public Account findAccount() {
+        return accountManager.findAccount(accountNumbers[ThreadLocalRandom.current().nextInt(accountCount)]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Account findAccountConcurrentReaders() {
+        return accountManager.findAccount(accountNumbers[ThreadLocalRandom.current().nextInt(accountCount)]);
+    }
+}
@@ -0,0 +1,132 @@
+package benchmarks;
+
+import com.bank.system.exceptions.InsufficientFundsException;
+import com.bank.system.exceptions.InvalidAmountException;
+import com.bank.system.manager.AccountManager;
+import com.bank.system.manager.TransactionManager;
+import com.bank.system.model.Account;
+import com.bank.system.model.CheckingAccount;
+import com.bank.system.model.Customer;
+import com.bank.system.model.RegularCustomer;
+import com.bank.system.model.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same operations as {@link CoreOperationsBenchmark} on the com.bank.system tree. A posting
+ * is done as the console does it: change the balance on the account, then record a Transaction
+ * with the manager. That tree has no transfer, so a transfer is a withdrawal from one account
+ * and a deposit to another with a transaction for each. The statement is the history text the
+ * console prints for an account, through the default statement cache and with it off.
+ *
+ * Run with: java -jar target/benchmarks.jar LegacyCoreOperationsBenchmark -prof gc -t 4
+ * or sweep thread counts with: java -cp target/benchmarks.jar benchmarks.CoreOperationsRunner
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class LegacyCoreOperationsBenchmark {
+    private static final long AMOUNT_IN_CENTS = 100;
+
+    @Param({"1000", "100000"})
+    private int accountCount;
+
+    @Param({"100", "10000"})
+    private int historyLength;
+
+    private AccountManager accountManager;
+    private TransactionManager transactionManager;
+    private TransactionManager uncachedTransactionManager;
+    private Account[] accounts;
+    private String[] accountNumbers;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws InvalidAmountException {
+        Account.resetAccountCounter();
+        Customer.resetCustomerCounter();
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager();
+        uncachedTransactionManager = new TransactionManager(null);
+        accounts = new Account[accountCount];
+        accountNumbers = new String[accountCount];
+        Customer customer = new RegularCustomer("Benchmark Customer", 30, "+1-555-0100", "1 Bench Street");
+        for (int i = 0; i < accountCount; i++) {
+            Account account = new CheckingAccount(customer, 0.0);
+            account.setBalanceInCents(CoreOperationsBenchmark.OPENING_BALANCE_IN_CENTS);
+            accountManager.addAccount(account);
+            accounts[i] = account;
+            accountNumbers[i] = account.getAccountNumber();
+        }
+        for (int i = 0; i < CoreOperationsBenchmark.HOT_ACCOUNTS * historyLength; i++) {
+            Account account = accounts[i % CoreOperationsBenchmark.HOT_ACCOUNTS];
+            long amount = 100 + i % 100 * 100;
+            account.depositInCents(amount);
+            Transaction transaction = Transaction.ofCents(account.getAccountNumber(), "DEPOSIT", amount, account.getBalanceInCents());
+            transactionManager.addTransaction(transaction);
+            uncachedTransactionManager.addTransaction(transaction);
+        }
+    }
+
+    @Benchmark
+    public boolean deposit() throws InvalidAmountException {
+        return deposit(anyAccount());
+    }
+
+    @Benchmark
+    public boolean withdraw() throws InvalidAmountException, InsufficientFundsException {
+        return withdraw(anyAccount());
+    }
+
+    @Benchmark
+    public boolean transfer() throws InvalidAmountException, InsufficientFundsException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accountCount);
+        int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+        return withdraw(accounts[from]) && deposit(accounts[to]);
+    }
+
+    @Benchmark
+    public Account findAccount() {
+        return accountManager.findAccount(accountNumbers[ThreadLocalRandom.current().nextInt(accountCount)]);
+    }
+
+    @Benchmark
+    public List<Transaction> getTransactionsForAccount() {
+        return transactionManager.getTransactionsForAccount(hotAccountNumber());
+    }
+
+    @Benchmark
+    public String generateStatement() {
+        return transactionManager.getHistoryText(hotAccountNumber());
+    }
+
+    @Benchmark
+    public String generateStatementUncached() {
+        return uncachedTransactionManager.getHistoryText(hotAccountNumber());
+    }
+
+    private boolean deposit(Account account) throws InvalidAmountException {
+        account.depositInCents(AMOUNT_IN_CENTS);
+        return transactionManager.addTransaction(
+                Transaction.ofCents(account.getAccountNumber(), "DEPOSIT", AMOUNT_IN_CENTS, account.getBalanceInCents()));
+    }
+
+    private boolean withdraw(Account account) throws InvalidAmountException, InsufficientFundsException {
+        return account.withdrawInCents(AMOUNT_IN_CENTS) && transactionManager.addTransaction(
+                Transaction.ofCents(account.getAccountNumber(), "WITHDRAWAL", AMOUNT_IN_CENTS, account.getBalanceInCents()));
+    }
+
+    private Account anyAccount() {
+        return accounts[ThreadLocalRandom.current().nextInt(accountCount)];
+    }
+
+    private String hotAccountNumber() {
+        return accountNumbers[ThreadLocalRandom.current().nextInt(CoreOperationsBenchmark.HOT_ACCOUNTS)];
+    }
+}
@@ -0,0 +1,90 @@
+package benchmarks;
+
+import exceptions.InsufficientFundsException;
+import exceptions.InvalidAmountException;
+import exceptions.OverdraftExceededException;
+import models.RegularCustomer;
+import models.SavingsAccount;
+import org.openjdk.jmh.annotations.*;
+import utils.Money;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the savings withdraw-and-deposit cycle on doubles (the previous balance
+ * representation), long cents via utils.Money, and BigDecimal, plus the real
+ * SavingsAccount path which now runs on cents.
+ *
+ * Run with: java -jar target/benchmarks.jar MoneyArithmeticBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyArithmeticBenchmark {
+    private static final double MINIMUM_BALANCE = 100.0;
+    private static final double WITHDRAWAL_FEE = 2.0;
+    private static final long MINIMUM_BALANCE_IN_CENTS = 10_000;
+    private static final long WITHDRAWAL_FEE_IN_CENTS = 200;
+    private static final BigDecimal MINIMUM_BALANCE_DECIMAL = new BigDecimal("100.00");
+    private static final BigDecimal WITHDRAWAL_FEE_DECIMAL = new BigDecimal("2.00");
+
+    private double doubleBalance;
+    private long centsBalance;
+    private BigDecimal decimalBalance;
+    private SavingsAccount account;
+
+    private final double amount = 12.34;
+    private final long amountInCents = 1234;
+    private final BigDecimal decimalAmount = new BigDecimal("12.34");
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        doubleBalance = 5000.0;
+        centsBalance = 500_000;
+        decimalBalance = new BigDecimal("5000.00");
+        account = new SavingsAccount("ACC001", 5000.0, new RegularCustomer("Benchmark", "CUST001"));
+    }
+
+    @Benchmark
+    public double doubleWithdrawDeposit() {
+        double total = amount + WITHDRAWAL_FEE;
+        if (doubleBalance - total >= MINIMUM_BALANCE) {
+            doubleBalance -= total;
+        }
+        doubleBalance += total;
+        return doubleBalance;
+    }
+
+    @Benchmark
+    public long centsWithdrawDeposit() {
+        long total = Money.add(amountInCents, WITHDRAWAL_FEE_IN_CENTS);
+        long newBalance = Money.subtract(centsBalance, total);
+        if (newBalance >= MINIMUM_BALANCE_IN_CENTS) {
+            centsBalance = newBalance;
+        }
+        centsBalance = Money.add(centsBalance, total);
+        return centsBalance;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalWithdrawDeposit() {
+        BigDecimal total = decimalAmount.add(WITHDRAWAL_FEE_DECIMAL);
+        BigDecimal newBalance = decimalBalance.subtract(total);
+        if (newBalance.compareTo(MINIMUM_BALANCE_DECIMAL) >= 0) {
+            decimalBalance = newBalance;
+        }
+        decimalBalance = decimalBalance.add(total);
+        return decimalBalance;
+    }
+
+    @Benchmark
+    public long savingsAccountWithdrawDeposit() throws InsufficientFundsException, InvalidAmountException, OverdraftExceededException {
+        account.withdrawInCents(amountInCents);
+        account.depositInCents(amountInCents + WITHDRAWAL_FEE_IN_CENTS);
+        return account.getBalanceInCents();
+    }
+}
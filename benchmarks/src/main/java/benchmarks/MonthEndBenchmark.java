@@ -0,0 +1,90 @@
+package benchmarks;
+
+import com.bank.system.manager.AccountManager;
+import com.bank.system.manager.MonthEndProcessor;
+import com.bank.system.manager.TransactionManager;
+import com.bank.system.model.Account;
+import com.bank.system.model.CheckingAccount;
+import com.bank.system.model.Customer;
+import com.bank.system.model.RegularCustomer;
+import com.bank.system.model.SavingsAccount;
+import com.bank.system.model.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One month-end run over a registry of half savings, half checking accounts, against the same
+ * fees and interest applied in a plain loop. Each invocation starts from a fresh checkpoint and
+ * transaction history. Accounts per second is the account count divided by the score.
+ *
+ * Run with: java -jar target/benchmarks.jar MonthEndBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class MonthEndBenchmark {
+
+    @Param({"100000", "1000000"})
+    private int accountCount;
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private AccountManager accountManager;
+    private TransactionManager transactionManager;
+    private Path checkpointFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Account.resetAccountCounter();
+        Customer.resetCustomerCounter();
+        accountManager = new AccountManager();
+        Customer customer = new RegularCustomer("Benchmark Customer", 30, "+1-555-0100", "1 Bench Street");
+        for (int i = 0; i < accountCount; i++) {
+            accountManager.addAccount(i % 2 == 0
+                    ? new SavingsAccount(customer, 1000.0)
+                    : new CheckingAccount(customer, 1000.0));
+        }
+        checkpointFile = Files.createTempFile("month-end", ".checkpoint");
+    }
+
+    @Setup(Level.Invocation)
+    public void resetRun() throws IOException {
+        transactionManager = new TransactionManager(null);
+        Files.deleteIfExists(checkpointFile);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(checkpointFile);
+    }
+
+    @Benchmark
+    public MonthEndProcessor.Report monthEnd() throws IOException {
+        return new MonthEndProcessor(accountManager, transactionManager, checkpointFile, parallelism,
+                MonthEndProcessor.DEFAULT_CHUNK_SIZE).run(YearMonth.of(2024, 1));
+    }
+
+    @Benchmark
+    public int sequentialLoop() {
+        int adjustments = 0;
+        for (Account account : accountManager.getAccounts()) {
+            Transaction transaction = account instanceof CheckingAccount
+                    ? ((CheckingAccount) account).chargeMonthlyFee()
+                    : ((SavingsAccount) account).creditMonthlyInterest();
+            if (transaction != null) {
+                transactionManager.addTransaction(transaction);
+                adjustments++;
+            }
+        }
+        return adjustments;
+    }
+}
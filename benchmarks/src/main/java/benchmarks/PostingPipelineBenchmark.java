@@ -0,0 +1,102 @@
+package benchmarks;
+
+import exceptions.InvalidAmountException;
+import models.CheckingAccount;
+import models.Customer;
+import models.RegularCustomer;
+import models.Transaction;
+import org.openjdk.jmh.annotations.*;
+import services.AccountManager;
+import services.PostingPipeline;
+import services.PostingRequest;
+import services.TransactionManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deposits from several producer threads, either through the locked TransactionManager.deposit
+ * or published into a PostingPipeline with a shared, reusable listener. Each pipeline invocation
+ * publishes a batch and waits until the recorders have reported all of it, so the score is
+ * end-to-end postings per millisecond. Run with -prof gc to see the per-posting allocation:
+ * for the pipeline it is only the ledger row.
+ *
+ * Run with: java -jar target/benchmarks.jar PostingPipelineBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(4)
+@State(Scope.Benchmark)
+public class PostingPipelineBenchmark {
+    private static final int BATCH = 1_000;
+
+    @Param({"64"})
+    private int accountCount;
+
+    @Param({"2"})
+    private int partitionCount;
+
+    private TransactionManager transactionManager;
+    private PostingPipeline pipeline;
+    private String[] accountNumbers;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        AccountManager accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        pipeline = new PostingPipeline(accountManager, transactionManager, partitionCount, 4096);
+        accountNumbers = new String[accountCount];
+        Customer customer = new RegularCustomer("Benchmark", "CUST001");
+        for (int i = 0; i < accountCount; i++) {
+            CheckingAccount account = new CheckingAccount(accountManager.generateAccountNumber(), 0.0, customer);
+            accountManager.addAccount(account);
+            accountNumbers[i] = account.getAccountNumber();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        pipeline.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Producer implements PostingPipeline.PostingListener {
+        private final AtomicLong completed = new AtomicLong();
+
+        @Override
+        public void onPosted(Transaction transaction) {
+            completed.incrementAndGet();
+        }
+
+        @Override
+        public void onRejected(Exception error) {
+            completed.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void lockedDeposits() throws InvalidAmountException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < BATCH; i++) {
+            transactionManager.deposit(accountNumbers[random.nextInt(accountCount)], 1.0);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void pipelinedDeposits(Producer producer) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long target = producer.completed.get() + BATCH;
+        for (int i = 0; i < BATCH; i++) {
+            pipeline.publish(accountNumbers[random.nextInt(accountCount)], PostingRequest.Type.DEPOSIT, 100, producer);
+        }
+        while (producer.completed.get() < target) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package benchmarks;
+
+import models.RegularCustomer;
+import models.SavingsAccount;
+import org.openjdk.jmh.annotations.*;
+import services.AccountManager;
+import services.StatementGenerator;
+import services.TransactionManager;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a statement as an account's history grows: the whole statement built as a string,
+ * the whole statement streamed, and only the first page. The first page should stay flat.
+ *
+ * Run with: java -jar target/benchmarks.jar StatementBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class StatementBenchmark {
+
+    @Param({"1000", "100000"})
+    private int historyLength;
+
+    private StatementGenerator statementGenerator;
+    private final CountingWriter sink = new CountingWriter();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        AccountManager accountManager = new AccountManager();
+        TransactionManager transactionManager = new TransactionManager(accountManager);
+        accountManager.addAccount(new SavingsAccount("ACC001", 1000.0, new RegularCustomer("Benchmark Customer", "CUST001")));
+        for (int i = 0; i < historyLength; i++) {
+            transactionManager.deposit("ACC001", 1.0 + i % 100);
+        }
+        statementGenerator = new StatementGenerator(accountManager, transactionManager);
+    }
+
+    @Benchmark
+    public String generateStatement() {
+        return statementGenerator.generateStatement("ACC001");
+    }
+
+    @Benchmark
+    public long writeStatement() throws IOException {
+        statementGenerator.writeStatement("ACC001", sink);
+        return sink.count;
+    }
+
+    @Benchmark
+    public int firstPage() throws IOException {
+        return statementGenerator.writeStatementPage("ACC001", StatementGenerator.LATEST, StatementGenerator.DEFAULT_PAGE_SIZE, sink);
+    }
+
+    // Stands in for a socket or file: consumes the characters without keeping them
+    private static final class CountingWriter extends Writer {
+        private long count;
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void write(String text, int offset, int length) {
+            count += length;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
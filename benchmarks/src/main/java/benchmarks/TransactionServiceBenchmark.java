@@ -0,0 +1,82 @@
+package benchmarks;
+
+import models.CheckingAccount;
+import models.Customer;
+import models.RegularCustomer;
+import org.openjdk.jmh.annotations.*;
+import services.AccountManager;
+import services.TransactionManager;
+import services.TransactionService;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TransactionService on virtual threads against the same service on a fixed pool of platform
+ * threads. Each invocation keeps IN_FLIGHT deposits outstanding and waits for all of them; half
+ * go to one hot account and the rest spread over the pool. On platform threads, workers parked
+ * behind the hot account's turn cannot serve other accounts, so the pool drains; virtual threads
+ * park without holding a carrier.
+ *
+ * Throughput is reported per request. Sample mode reports the time for one full batch, whose
+ * percentiles show the tail latency of the slowest request in it.
+ *
+ * Run with: java -jar target/benchmarks.jar TransactionServiceBenchmark
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionServiceBenchmark {
+    private static final int IN_FLIGHT = 10_000;
+    private static final int PLATFORM_THREADS = 64;
+
+    @Param({"virtual", "platform"})
+    private String threads;
+
+    @Param({"1", "1024"})
+    private int accountCount;
+
+    private TransactionService transactionService;
+    private String[] accountNumbers;
+    private CompletableFuture<?>[] results;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AccountManager accountManager = new AccountManager();
+        TransactionManager transactionManager = new TransactionManager(accountManager);
+        ExecutorService executor = threads.equals("virtual")
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+        transactionService = new TransactionService(transactionManager, executor, IN_FLIGHT);
+        accountNumbers = new String[accountCount];
+        Customer customer = new RegularCustomer("Benchmark", "CUST001");
+        for (int i = 0; i < accountCount; i++) {
+            CheckingAccount account = new CheckingAccount(accountManager.generateAccountNumber(), 0.0, customer);
+            accountManager.addAccount(account);
+            accountNumbers[i] = account.getAccountNumber();
+        }
+        results = new CompletableFuture<?>[IN_FLIGHT];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        transactionService.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(IN_FLIGHT)
+    public void depositBatch() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            String accountNumber = (i % 2 == 0) ? accountNumbers[0] : accountNumbers[random.nextInt(accountCount)];
+            results[i] = transactionService.deposit(accountNumber, 1.0);
+        }
+        CompletableFuture.allOf(results).join();
+    }
+}
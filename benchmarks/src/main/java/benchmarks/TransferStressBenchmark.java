@@ -0,0 +1,72 @@
+package benchmarks;
+
+import exceptions.InsufficientFundsException;
+import exceptions.InvalidAmountException;
+import exceptions.OverdraftExceededException;
+import models.CheckingAccount;
+import models.Customer;
+import models.RegularCustomer;
+import org.openjdk.jmh.annotations.*;
+import services.AccountManager;
+import services.TransactionManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random bidirectional transfers between a pool of accounts from many threads. A small pool
+ * means most transfers contend on the same pair of locks in opposite orders; the teardown
+ * fails the run if money was created or destroyed.
+ *
+ * Run with: java -jar target/benchmarks.jar TransferStressBenchmark -t 8
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TransferStressBenchmark {
+    private static final long OPENING_BALANCE_IN_CENTS = 1_000_000_000L;
+
+    @Param({"2", "16", "1024"})
+    private int accountCount;
+
+    private AccountManager accountManager;
+    private TransactionManager transactionManager;
+    private String[] accountNumbers;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        accountNumbers = new String[accountCount];
+        Customer customer = new RegularCustomer("Benchmark", "CUST001");
+        for (int i = 0; i < accountCount; i++) {
+            CheckingAccount account = new CheckingAccount(accountManager.generateAccountNumber(), 0.0, customer);
+            account.setBalanceInCents(OPENING_BALANCE_IN_CENTS);
+            accountManager.addAccount(account);
+            accountNumbers[i] = account.getAccountNumber();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void verifyConservation() {
+        long total = 0;
+        for (String accountNumber : accountNumbers) {
+            total += accountManager.getAccount(accountNumber).getBalanceInCents();
+        }
+        if (total != OPENING_BALANCE_IN_CENTS * accountCount) {
+            throw new IllegalStateException("Transfers did not conserve money: " + total);
+        }
+    }
+
+    @Benchmark
+    public boolean randomTransfer() throws InsufficientFundsException, InvalidAmountException, OverdraftExceededException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int from = random.nextInt(accountCount);
+        int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+        return transactionManager.transfer(accountNumbers[from], accountNumbers[to], 1 + random.nextInt(100));
+    }
+}
@@ -0,0 +1,467 @@
+package benchmarks;
+
+import exceptions.InsufficientFundsException;
+import exceptions.InvalidAmountException;
+import exceptions.OverdraftExceededException;
+import models.CheckingAccount;
+import models.Customer;
+import models.RegularCustomer;
+import services.AccountManager;
+import services.StatementGenerator;
+import services.TransactionManager;
+import utils.ValidationUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives production-like load at the services tree outside JMH. It opens N checking accounts
+ * through AccountManager, then issues deposits, withdrawals, transfers and statement requests
+ * in a chosen mix at a fixed target rate, picking accounts with Zipf-skewed popularity (rank 0,
+ * ACC001, is the most popular). A generated run can be recorded to a file and replayed later
+ * at the same or a scaled pace.
+ *
+ * Every operation has an intended start time on the rate's schedule. A dispatcher thread hands
+ * operations to worker threads, which wait for the intended time and run them. Latency is
+ * measured from the intended start, not from when a worker got to it, so a stall delays every
+ * operation queued behind it and shows up in the percentiles instead of silently lowering the
+ * rate (coordinated omission). Service time, measured from the actual start, is reported next
+ * to it; the gap between the two is time spent queued.
+ *
+ * Operations in the warmup are run but not recorded. Withdrawals and transfers that the
+ * accounts refuse count as errors. The ledger keeps every posting in memory, so size the heap
+ * for rate times duration postings.
+ *
+ * Run with: java -cp target/benchmarks.jar benchmarks.WorkloadDriver --accounts 100000 --rate 20000
+ *           --duration 30 --mix deposit=50,withdraw=30,transfer=15,statement=5 --zipf 0.99 --record run.csv
+ * and replay with: java -cp target/benchmarks.jar benchmarks.WorkloadDriver --accounts 100000 --replay run.csv
+ */
+public class WorkloadDriver {
+    private static final long OPENING_BALANCE_IN_CENTS = 1_000_000_000L;
+    private static final String RECORDING_HEADER = "offset_nanos,operation,account,to_account,amount";
+
+    enum Kind {
+        DEPOSIT, WITHDRAW, TRANSFER, STATEMENT
+    }
+
+    // One request; accounts are indexes into the driver's accounts
+    static final class Operation {
+        final long offsetNanos;
+        final Kind kind;
+        final int account;
+        final int toAccount;
+        final long amountInCents;
+
+        Operation(long offsetNanos, Kind kind, int account, int toAccount, long amountInCents) {
+            this.offsetNanos = offsetNanos;
+            this.kind = kind;
+            this.account = account;
+            this.toAccount = toAccount;
+            this.amountInCents = amountInCents;
+        }
+    }
+
+    /**
+     * Where a run's operations come from, in order of intended start; null once there are no more
+     */
+    interface OperationSource {
+        Operation next() throws IOException;
+    }
+
+    private static final Operation END = new Operation(0, Kind.DEPOSIT, 0, 0, 0);
+
+    private final AccountManager accountManager;
+    private final TransactionManager transactionManager;
+    private final StatementGenerator statementGenerator;
+    private final String[] accountNumbers;
+
+    public WorkloadDriver(int accountCount) {
+        if (accountCount < 2) {
+            throw new IllegalArgumentException("A workload needs at least two accounts");
+        }
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        statementGenerator = new StatementGenerator(accountManager, transactionManager);
+        accountNumbers = new String[accountCount];
+        Customer customer = new RegularCustomer("Workload Customer", "CUST001");
+        for (int i = 0; i < accountCount; i++) {
+            CheckingAccount account = new CheckingAccount(accountManager.generateAccountNumber(), 0.0, customer);
+            account.setBalanceInCents(OPENING_BALANCE_IN_CENTS);
+            accountManager.addAccount(account);
+            accountNumbers[i] = account.getAccountNumber();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int accounts = Integer.parseInt(options.getOrDefault("accounts", "10000"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        double warmupSeconds = Double.parseDouble(options.getOrDefault("warmup", "5"));
+        WorkloadDriver driver = new WorkloadDriver(accounts);
+
+        Result result;
+        if (options.containsKey("replay")) {
+            double speed = Double.parseDouble(options.getOrDefault("speed", "1"));
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(options.get("replay")), StandardCharsets.UTF_8)) {
+                result = driver.run(driver.replay(reader, speed), threads, (long) (warmupSeconds * 1e9 / speed));
+            }
+        } else {
+            double rate = Double.parseDouble(options.getOrDefault("rate", "10000"));
+            double durationSeconds = Double.parseDouble(options.getOrDefault("duration", "30"));
+            Map<Kind, Integer> mix = parseMix(options.getOrDefault("mix", "deposit=50,withdraw=30,transfer=15,statement=5"));
+            double zipf = Double.parseDouble(options.getOrDefault("zipf", "0.99"));
+            long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+            OperationSource source = generate(accounts, mix, zipf, rate, warmupSeconds + durationSeconds, seed);
+            if (options.containsKey("record")) {
+                try (BufferedWriter recording = Files.newBufferedWriter(Paths.get(options.get("record")), StandardCharsets.UTF_8)) {
+                    result = driver.run(driver.record(source, recording), threads, (long) (warmupSeconds * 1e9));
+                }
+            } else {
+                result = driver.run(source, threads, (long) (warmupSeconds * 1e9));
+            }
+        }
+        System.out.print(result);
+    }
+
+    /**
+     * Operations at a fixed rate for a duration, each picking its kind by weight and its
+     * accounts from a Zipf distribution with the given exponent
+     * @param mix relative weight of each kind; kinds left out are not issued
+     */
+    static OperationSource generate(int accountCount, Map<Kind, Integer> mix, double zipfExponent,
+                                    double ratePerSecond, double durationSeconds, long seed) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be greater than 0");
+        }
+        Kind[] kinds = mix.keySet().toArray(new Kind[0]);
+        int[] cumulativeWeights = new int[kinds.length];
+        int totalWeight = 0;
+        for (int i = 0; i < kinds.length; i++) {
+            totalWeight += mix.get(kinds[i]);
+            cumulativeWeights[i] = totalWeight;
+        }
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("The operation mix needs a positive weight");
+        }
+        int weights = totalWeight;
+        ZipfDistribution popularity = new ZipfDistribution(accountCount, zipfExponent);
+        SplittableRandom random = new SplittableRandom(seed);
+        double intervalNanos = 1e9 / ratePerSecond;
+        long total = (long) (ratePerSecond * durationSeconds);
+        return new OperationSource() {
+            private long issued;
+
+            @Override
+            public Operation next() {
+                if (issued == total) {
+                    return null;
+                }
+                long offset = (long) (issued++ * intervalNanos);
+                int pick = random.nextInt(weights);
+                int k = 0;
+                while (cumulativeWeights[k] <= pick) {
+                    k++;
+                }
+                int account = popularity.sample(random);
+                int toAccount = account;
+                if (kinds[k] == Kind.TRANSFER) {
+                    while (toAccount == account) {
+                        toAccount = popularity.sample(random);
+                    }
+                }
+                return new Operation(offset, kinds[k], account, toAccount, 100 * (1 + random.nextInt(100)));
+            }
+        };
+    }
+
+    // Passes operations through while writing each one to the recording
+    OperationSource record(OperationSource source, BufferedWriter recording) throws IOException {
+        recording.write(RECORDING_HEADER);
+        recording.newLine();
+        return () -> {
+            Operation operation = source.next();
+            if (operation != null) {
+                recording.write(operation.offsetNanos + "," + operation.kind.name().toLowerCase(Locale.ROOT) + ","
+                        + accountNumbers[operation.account] + ","
+                        + (operation.kind == Kind.TRANSFER ? accountNumbers[operation.toAccount] : "") + ","
+                        + operation.amountInCents);
+                recording.newLine();
+            }
+            return operation;
+        };
+    }
+
+    /**
+     * Reads a recording back; speed 2 issues it twice as fast as it was recorded
+     */
+    OperationSource replay(BufferedReader reader, double speed) throws IOException {
+        if (speed <= 0) {
+            throw new IllegalArgumentException("Replay speed must be greater than 0");
+        }
+        String header = reader.readLine();
+        if (!RECORDING_HEADER.equals(header)) {
+            throw new IOException("Not a workload recording: expected header " + RECORDING_HEADER);
+        }
+        return () -> {
+            String line = reader.readLine();
+            while (line != null && line.isBlank()) {
+                line = reader.readLine();
+            }
+            if (line == null) {
+                return null;
+            }
+            String[] fields = line.split(",", -1);
+            if (fields.length != 5) {
+                throw new IOException("Bad recording line: " + line);
+            }
+            Kind kind = Kind.valueOf(fields[1].toUpperCase(Locale.ROOT));
+            int account = accountIndex(fields[2]);
+            int toAccount = kind == Kind.TRANSFER ? accountIndex(fields[3]) : account;
+            return new Operation((long) (Long.parseLong(fields[0]) / speed), kind, account, toAccount, Long.parseLong(fields[4]));
+        };
+    }
+
+    private int accountIndex(String accountNumber) throws IOException {
+        int index = ValidationUtils.idNumber(accountNumber, "ACC") - 1;
+        if (index < 0 || index >= accountNumbers.length) {
+            throw new IOException("Recording uses account " + accountNumber + " but only "
+                    + accountNumbers.length + " accounts were opened");
+        }
+        return index;
+    }
+
+    /**
+     * Runs every operation of a source and returns the latencies of those after the warmup
+     * @param warmupNanos operations intended to start earlier than this are run but not recorded
+     */
+    Result run(OperationSource source, int threads, long warmupNanos) throws IOException, InterruptedException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be greater than 0");
+        }
+        // Bounded so a long run or recording is never read far ahead of the workers
+        BlockingQueue<Operation> queue = new ArrayBlockingQueue<>(threads * 1024);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+        List<Worker> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(queue, start, warmupNanos);
+            worker.thread = new Thread(worker, "workload-" + i);
+            worker.thread.start();
+            workers.add(worker);
+        }
+        try {
+            for (Operation operation = source.next(); operation != null; operation = source.next()) {
+                queue.put(operation);
+            }
+        } finally {
+            for (int i = 0; i < threads; i++) {
+                queue.put(END);
+            }
+            for (Worker worker : workers) {
+                worker.thread.join();
+            }
+        }
+
+        Result result = new Result();
+        long lastEnd = start + warmupNanos;
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new IllegalStateException("Workload worker failed", worker.failure);
+            }
+            result.add(worker);
+            lastEnd = Math.max(lastEnd, worker.lastEnd);
+        }
+        result.elapsedNanos = lastEnd - (start + warmupNanos);
+        return result;
+    }
+
+    private final class Worker implements Runnable {
+        private final BlockingQueue<Operation> queue;
+        private final long start;
+        private final long warmupNanos;
+        private final Map<Kind, LatencyHistogram> responseTimes = new EnumMap<>(Kind.class);
+        private final Map<Kind, LatencyHistogram> serviceTimes = new EnumMap<>(Kind.class);
+        private final Map<Kind, Long> errors = new EnumMap<>(Kind.class);
+        private Thread thread;
+        private long lastEnd;
+        private Throwable failure;
+
+        Worker(BlockingQueue<Operation> queue, long start, long warmupNanos) {
+            this.queue = queue;
+            this.start = start;
+            this.warmupNanos = warmupNanos;
+            for (Kind kind : Kind.values()) {
+                responseTimes.put(kind, new LatencyHistogram());
+                serviceTimes.put(kind, new LatencyHistogram());
+                errors.put(kind, 0L);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (Operation operation = queue.take(); operation != END; operation = queue.take()) {
+                    long intended = start + operation.offsetNanos;
+                    for (long wait = intended - System.nanoTime(); wait > 0; wait = intended - System.nanoTime()) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    long began = System.nanoTime();
+                    boolean succeeded = execute(operation);
+                    long ended = System.nanoTime();
+                    if (operation.offsetNanos >= warmupNanos) {
+                        responseTimes.get(operation.kind).record(ended - intended);
+                        serviceTimes.get(operation.kind).record(ended - began);
+                        if (!succeeded) {
+                            errors.merge(operation.kind, 1L, Long::sum);
+                        }
+                        lastEnd = ended;
+                    }
+                }
+            } catch (Throwable t) {
+                failure = t;
+                // Keep draining so the dispatcher is never blocked on a full queue
+                try {
+                    while (queue.take() != END) {
+                        continue;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        // Returns false if the account refused the posting
+        private boolean execute(Operation operation) {
+            double amount = operation.amountInCents / 100.0;
+            try {
+                switch (operation.kind) {
+                    case DEPOSIT:
+                        return transactionManager.deposit(accountNumbers[operation.account], amount);
+                    case WITHDRAW:
+                        return transactionManager.withdraw(accountNumbers[operation.account], amount);
+                    case TRANSFER:
+                        return transactionManager.transfer(accountNumbers[operation.account], accountNumbers[operation.toAccount], amount);
+                    default:
+                        return statementGenerator.generateStatement(accountNumbers[operation.account]) != null;
+                }
+            } catch (InsufficientFundsException | OverdraftExceededException | InvalidAmountException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Latencies and throughput of the recorded part of a run
+     */
+    static final class Result {
+        private final Map<Kind, LatencyHistogram> responseTimes = new EnumMap<>(Kind.class);
+        private final Map<Kind, LatencyHistogram> serviceTimes = new EnumMap<>(Kind.class);
+        private final Map<Kind, Long> errors = new EnumMap<>(Kind.class);
+        private long elapsedNanos;
+
+        Result() {
+            for (Kind kind : Kind.values()) {
+                responseTimes.put(kind, new LatencyHistogram());
+                serviceTimes.put(kind, new LatencyHistogram());
+                errors.put(kind, 0L);
+            }
+        }
+
+        private void add(Worker worker) {
+            for (Kind kind : Kind.values()) {
+                responseTimes.get(kind).add(worker.responseTimes.get(kind));
+                serviceTimes.get(kind).add(worker.serviceTimes.get(kind));
+                errors.merge(kind, worker.errors.get(kind), Long::sum);
+            }
+        }
+
+        long operations() {
+            long operations = 0;
+            for (LatencyHistogram histogram : responseTimes.values()) {
+                operations += histogram.count();
+            }
+            return operations;
+        }
+
+        double operationsPerSecond() {
+            return elapsedNanos <= 0 ? 0 : operations() * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            text.append(String.format("%d operations in %.3f s: %.0f ops/s%n", operations(), elapsedNanos / 1e9, operationsPerSecond()));
+            text.append(String.format("%nResponse time from intended start, corrected for coordinated omission (us)%n"));
+            table(text, responseTimes, true);
+            text.append(String.format("%nService time from actual start (us)%n"));
+            table(text, serviceTimes, false);
+            return text.toString();
+        }
+
+        private void table(StringBuilder text, Map<Kind, LatencyHistogram> histograms, boolean withErrors) {
+            text.append(String.format("%-10s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                    "operation", "count", "errors", "mean", "p50", "p90", "p99", "p99.9", "max"));
+            LatencyHistogram all = new LatencyHistogram();
+            long allErrors = 0;
+            for (Kind kind : Kind.values()) {
+                LatencyHistogram histogram = histograms.get(kind);
+                if (histogram.count() > 0) {
+                    row(text, kind.name().toLowerCase(Locale.ROOT), histogram, withErrors ? errors.get(kind) : 0);
+                    all.add(histogram);
+                    allErrors += errors.get(kind);
+                }
+            }
+            row(text, "all", all, withErrors ? allErrors : 0);
+        }
+
+        private static void row(StringBuilder text, String name, LatencyHistogram histogram, long errors) {
+            text.append(String.format("%-10s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    name, histogram.count(), errors, histogram.mean() / 1e3,
+                    histogram.valueAt(50) / 1e3, histogram.valueAt(90) / 1e3, histogram.valueAt(99) / 1e3,
+                    histogram.valueAt(99.9) / 1e3, histogram.max() / 1e3));
+        }
+    }
+
+    // --name value pairs
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                throw new IllegalArgumentException("Expected --option value pairs but got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+
+    // e.g. deposit=50,withdraw=30,transfer=15,statement=5
+    static Map<Kind, Integer> parseMix(String mix) {
+        Map<Kind, Integer> weights = new EnumMap<>(Kind.class);
+        for (String part : mix.split(",")) {
+            String[] pair = part.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected kind=weight in the mix but got " + part);
+            }
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Mix weights must not be negative: " + part);
+            }
+            weights.put(Kind.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,35 @@
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Picks ranks 0 to n - 1 with probability proportional to 1 / (rank + 1)^exponent, so a few
+ * ranks get most picks: with exponent 1 and a million ranks the top 1% get about 70% of them. An
+ * exponent of 0 is uniform. Holds the cumulative weights, 8 bytes per rank, and samples with a
+ * binary search. Thread-safe as long as each thread passes its own random source.
+ */
+final class ZipfDistribution {
+    private final double[] cumulative;
+
+    ZipfDistribution(int n, double exponent) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Zipf needs at least one rank");
+        }
+        if (exponent < 0) {
+            throw new IllegalArgumentException("Zipf exponent must not be negative");
+        }
+        cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+    }
+
+    int sample(SplittableRandom random) {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int position = Arrays.binarySearch(cumulative, target);
+        return Math.min(position >= 0 ? position : -position - 1, cumulative.length - 1);
+    }
+}
@@ -0,0 +1,266 @@
+package com.bank.system.manager;
+
+import com.bank.system.model.Account;
+import com.bank.system.model.CheckingAccount;
+import com.bank.system.model.Customer;
+import com.bank.system.model.RegularCustomer;
+import com.bank.system.model.SavingsAccount;
+import com.bank.system.model.Transaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MonthEndProcessorTest {
+    private static final int CHUNK_SIZE = 3;
+    private static final long OPENING_BALANCE_IN_CENTS = 100_000;
+    private static final long FEE_IN_CENTS = 1_000;
+    // 3.5% a year on $1,000 for the 31 days of January
+    private static final long JANUARY_INTEREST_IN_CENTS = 297;
+    private static final YearMonth MONTH = YearMonth.of(2024, 1);
+
+    @TempDir
+    Path tempDir;
+
+    private final Customer customer = new RegularCustomer("John Smith", 30, "+1-555-0100", "1 Main Street");
+    private final TestClock clock = new TestClock(Instant.parse("2024-01-01T00:00:00Z"));
+    private AccountManager accountManager;
+    private TransactionManager transactionManager;
+    private Path checkpointFile;
+
+    @BeforeEach
+    void setUp() {
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager();
+        checkpointFile = tempDir.resolve("month-end.checkpoint");
+    }
+
+    @Test
+    void testFullRunChargesEveryCheckingAccountOnce() throws Exception {
+        List<Account> checking = openCheckingAccounts(10);
+        SavingsAccount savings = new SavingsAccount(customer, OPENING_BALANCE_IN_CENTS / 100.0, clock);
+        accountManager.addAccount(savings);
+        clock.advance(Duration.ofDays(31));
+
+        MonthEndProcessor.Report report = newProcessor().run(MONTH);
+
+        assertFalse(report.isResumed());
+        assertEquals(0, report.getAccountsSkipped());
+        assertEquals(11, report.getAccountsProcessed());
+        assertEquals(10, report.getFeesCharged());
+        assertEquals(10 * FEE_IN_CENTS, report.getFeesInCents());
+        assertEquals(1, report.getInterestCredits());
+        assertEquals(JANUARY_INTEREST_IN_CENTS, report.getInterestInCents());
+        for (Account account : checking) {
+            assertChargedOnce(account);
+        }
+        assertEquals(OPENING_BALANCE_IN_CENTS + JANUARY_INTEREST_IN_CENTS, savings.getBalanceInCents());
+        assertEquals(0, savings.getAccruedInterestInCents());
+        assertEquals(11, transactionManager.getTransactionCount());
+        assertTrue(Files.exists(checkpointFile));
+    }
+
+    @Test
+    void testRerunInSameMonthPostsNothing() throws Exception {
+        List<Account> checking = openCheckingAccounts(10);
+        MonthEndProcessor processor = newProcessor();
+        processor.run(MONTH);
+
+        MonthEndProcessor.Report rerun = processor.run(MONTH);
+
+        assertTrue(rerun.isResumed());
+        assertEquals(10, rerun.getAccountsSkipped());
+        assertEquals(0, rerun.getAccountsProcessed());
+        assertEquals(0, rerun.getFeesCharged());
+        for (Account account : checking) {
+            assertChargedOnce(account);
+        }
+        assertEquals(10, transactionManager.getTransactionCount());
+    }
+
+    @Test
+    void testChunkWhoseHistoryFailsIsUndoneAndFinishedOnResume() throws Exception {
+        List<Account> checking = openCheckingAccounts(10);
+        Account inFailingChunk = checking.get(CHUNK_SIZE + 1);
+        AtomicBoolean failing = new AtomicBoolean(true);
+        transactionManager = new TransactionManager() {
+            @Override
+            public synchronized void addTransactions(List<Transaction> batch) {
+                boolean hit = batch.stream().anyMatch(t -> t.getAccountNumber().equals(inFailingChunk.getAccountNumber()));
+                if (hit && failing.getAndSet(false)) {
+                    throw new IllegalStateException("history unavailable");
+                }
+                super.addTransactions(batch);
+            }
+        };
+
+        assertThrows(IllegalStateException.class, () -> newProcessor().run(MONTH));
+        // The failed chunk was reversed: no fee without its transaction
+        for (int i = CHUNK_SIZE; i < 2 * CHUNK_SIZE; i++) {
+            Account account = checking.get(i);
+            assertEquals(OPENING_BALANCE_IN_CENTS, account.getBalanceInCents(), account.getAccountNumber());
+            assertTrue(transactionManager.getTransactionsForAccount(account.getAccountNumber()).isEmpty());
+            assertNull(account.getLastMonthEnd());
+        }
+
+        MonthEndProcessor.Report report = newProcessor().run(MONTH);
+
+        assertTrue(report.isResumed());
+        assertEquals(10, report.getAccountsSkipped() + report.getAccountsProcessed());
+        assertTrue(report.getFeesCharged() >= CHUNK_SIZE);
+        for (Account account : checking) {
+            assertChargedOnce(account);
+        }
+        assertEquals(10, transactionManager.getTransactionCount());
+    }
+
+    @Test
+    void testAccountFailingMidChunkLeavesNoFeeBehind() throws Exception {
+        List<Account> checking = openCheckingAccounts(CHUNK_SIZE + 1);
+        AtomicBoolean failing = new AtomicBoolean(true);
+        Account failingAccount = new CheckingAccount(customer, OPENING_BALANCE_IN_CENTS / 100.0) {
+            @Override
+            public Transaction chargeMonthlyFee() {
+                if (failing.getAndSet(false)) {
+                    throw new IllegalStateException("account unavailable");
+                }
+                return super.chargeMonthlyFee();
+            }
+        };
+        // Second in its chunk, after an account the chunk has already charged
+        accountManager.addAccount(failingAccount);
+        checking.add(failingAccount);
+        checking.addAll(openCheckingAccounts(4));
+
+        assertThrows(IllegalStateException.class, () -> newProcessor().run(MONTH));
+        assertEquals(OPENING_BALANCE_IN_CENTS, checking.get(CHUNK_SIZE).getBalanceInCents());
+        assertTrue(transactionManager.getTransactionsForAccount(checking.get(CHUNK_SIZE).getAccountNumber()).isEmpty());
+
+        newProcessor().run(MONTH);
+
+        for (Account account : checking) {
+            assertChargedOnce(account);
+        }
+        assertEquals(9, transactionManager.getTransactionCount());
+    }
+
+    @Test
+    void testRestartFromSnapshotTakenBeforeTheRunChargesAgain() throws Exception {
+        openCheckingAccounts(7);
+        SnapshotManager snapshots = new SnapshotManager(accountManager, tempDir.resolve("snapshots"), 2);
+        snapshots.takeSnapshot();
+        newProcessor().run(MONTH);
+
+        // The run's balances were never saved; the checkpoint it finished must not stop them being charged
+        restart();
+        MonthEndProcessor.Report report = newProcessor().run(MONTH);
+
+        assertTrue(report.isResumed());
+        assertEquals(7, report.getFeesCharged());
+        for (Account account : accountManager.getAccounts()) {
+            assertChargedOnce(account);
+        }
+    }
+
+    @Test
+    void testRestartFromSnapshotTakenAfterTheRunChargesNothing() throws Exception {
+        openCheckingAccounts(7);
+        SnapshotManager snapshots = new SnapshotManager(accountManager, tempDir.resolve("snapshots"), 2);
+        newProcessor().run(MONTH);
+        snapshots.takeSnapshot();
+
+        restart();
+        MonthEndProcessor.Report report = newProcessor().run(MONTH);
+
+        assertEquals(0, report.getFeesCharged());
+        assertEquals(7, report.getAccountsSkipped());
+        for (Account account : accountManager.getAccounts()) {
+            assertEquals(OPENING_BALANCE_IN_CENTS - FEE_IN_CENTS, account.getBalanceInCents());
+            assertEquals(MONTH, account.getLastMonthEnd());
+        }
+    }
+
+    @Test
+    void testAccruedInterestSurvivesARestart() throws Exception {
+        SavingsAccount savings = new SavingsAccount(customer, OPENING_BALANCE_IN_CENTS / 100.0, clock);
+        accountManager.addAccount(savings);
+        clock.advance(Duration.ofDays(31));
+        assertEquals(JANUARY_INTEREST_IN_CENTS, savings.getAccruedInterestInCents());
+        SnapshotManager snapshots = new SnapshotManager(accountManager, tempDir.resolve("snapshots"), 2);
+        snapshots.takeSnapshot();
+
+        // Registered before restoring so the restarted account runs on the same clock
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager();
+        SavingsAccount restored = new SavingsAccount(savings.getAccountNumber(), customer, 0, "Active", clock);
+        accountManager.addAccount(restored);
+        assertEquals(1, new SnapshotManager(accountManager, tempDir.resolve("snapshots"), 2).restoreLatest());
+        MonthEndProcessor.Report report = newProcessor().run(MONTH);
+
+        assertEquals(JANUARY_INTEREST_IN_CENTS, report.getInterestInCents());
+        assertEquals(OPENING_BALANCE_IN_CENTS + JANUARY_INTEREST_IN_CENTS, restored.getBalanceInCents());
+    }
+
+    @Test
+    void testNewMonthStartsAfresh() throws Exception {
+        List<Account> checking = openCheckingAccounts(4);
+        MonthEndProcessor processor = newProcessor();
+        processor.run(MONTH);
+
+        MonthEndProcessor.Report report = processor.run(MONTH.plusMonths(1));
+
+        assertFalse(report.isResumed());
+        assertEquals(4, report.getFeesCharged());
+        for (Account account : checking) {
+            assertEquals(OPENING_BALANCE_IN_CENTS - 2 * FEE_IN_CENTS, account.getBalanceInCents());
+        }
+    }
+
+    @Test
+    void testHistoryShowsFeesAsDebits() throws Exception {
+        Account account = openCheckingAccounts(1).get(0);
+        newProcessor().run(MONTH);
+
+        String history = transactionManager.getHistoryText(account.getAccountNumber());
+
+        assertTrue(history.contains("MONTHLY_FEE | -$"), history);
+        assertTrue(history.contains("Total Fees: $10.00"), history);
+        assertTrue(history.contains("Net Change: -$10.00"), history);
+    }
+
+    // Starts over as a new run of the program would: accounts from the newest snapshot, an empty history
+    private void restart() throws Exception {
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager();
+        assertEquals(7, new SnapshotManager(accountManager, tempDir.resolve("snapshots"), 2).restoreLatest());
+    }
+
+    private MonthEndProcessor newProcessor() {
+        return new MonthEndProcessor(accountManager, transactionManager, checkpointFile, 2, CHUNK_SIZE);
+    }
+
+    private List<Account> openCheckingAccounts(int count) {
+        List<Account> opened = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Account account = new CheckingAccount(customer, OPENING_BALANCE_IN_CENTS / 100.0);
+            assertTrue(accountManager.addAccount(account));
+            opened.add(account);
+        }
+        return opened;
+    }
+
+    private void assertChargedOnce(Account account) {
+        assertEquals(OPENING_BALANCE_IN_CENTS - FEE_IN_CENTS, account.getBalanceInCents(), account.getAccountNumber());
+        assertEquals(1, transactionManager.getTransactionsForAccount(account.getAccountNumber()).size(), account.getAccountNumber());
+    }
+}
\ No newline at end of file
@@ -1,9 +1,12 @@
 // Java
 package com.bank.system;
 
+import com.bank.system.exceptions.InsufficientFundsException;
+import com.bank.system.exceptions.InvalidAmountException;
 import com.bank.system.manager.AccountManager;
 import com.bank.system.manager.TransactionManager;
 import com.bank.system.model.*;
+import com.bank.system.utils.Money;
 
 import static com.bank.system.utils.ConsoleUtil.*;
 import static com.bank.system.utils.ConsoleFormatter.*;
@@ -84,7 +87,7 @@ public class Main {
         if (accountManager.addAccount(account)) {
             displayAccountCreatedInfo(account, customer);
         } else {
-            print("Failed to create account. Maximum account limit reached.");
+            print("Failed to create account. Account number already exists.");
         }
         print(" ");
         pressEnterToContinue();
@@ -149,9 +152,13 @@ public class Main {
                 "Amount must be greater than zero.");
 
         boolean success = false;
-        double previousBalance = account.getBalance();
+        long previousBalance = account.getBalanceInCents();
 
-        success = account.processTransaction(amount, typeStr);
+        try {
+            success = account.processTransaction(amount, typeStr);
+        } catch (InvalidAmountException | InsufficientFundsException e) {
+            print(e.getMessage());
+        }
 
         if (!success) {
             handleFailedTransaction(transactionType, account);
@@ -160,17 +167,17 @@ public class Main {
         }
 
         // Create transaction record
-        Transaction transaction = new Transaction(
+        Transaction transaction = Transaction.ofCents(
                 accountNumber,
                 typeStr,
-                amount,
-                account.getBalance()
+                Money.fromDollars(amount),
+                account.getBalanceInCents()
         );
 
         transactionManager.addTransaction(transaction);
 
         // Display transaction confirmation
-        transaction.displayTransactionDetails(previousBalance);
+        transaction.displayTransactionDetails(Money.toDollars(previousBalance));
 
         print(" ");
 
@@ -191,13 +198,13 @@ public class Main {
         }
     }
 
-    private static void handleTransactionConfirmation(boolean confirmed, Account account, double previousBalance) {
+    private static void handleTransactionConfirmation(boolean confirmed, Account account, long previousBalance) {
             if (confirmed) {
                 print(" ");
                 print("✓ Transaction completed successfully!");
             } else {
                 // Rollback transaction
-                account.setBalance(previousBalance); // works for deposit or withdrawal
+                account.setBalanceInCents(previousBalance); // works for deposit or withdrawal
                 print(" ");
                 print("Transaction cancelled.");
             }
@@ -298,11 +305,11 @@ public class Main {
 
     }
     public static void seedTransuctions(){
-        Transaction transaction1 = new Transaction("ACC005", "DEPOSIT", 345.00, account.getBalance());
-        Transaction transaction2 = new Transaction("ACC005", "DEPOSIT", 120.00, account.getBalance());
-        Transaction transaction3 = new Transaction("ACC005", "DEPOSIT", 75.50, account.getBalance());
-        Transaction transaction4 = new Transaction("ACC005", "DEPOSIT", 200.00, account.getBalance());
-        Transaction transaction5 = new Transaction("ACC005", "WITHDRAWAL", 50.00, account.getBalance());
+        Transaction transaction1 = Transaction.ofDollars("ACC005", "DEPOSIT", 345.00, account.getBalance());
+        Transaction transaction2 = Transaction.ofDollars("ACC005", "DEPOSIT", 120.00, account.getBalance());
+        Transaction transaction3 = Transaction.ofDollars("ACC005", "DEPOSIT", 75.50, account.getBalance());
+        Transaction transaction4 = Transaction.ofDollars("ACC005", "DEPOSIT", 200.00, account.getBalance());
+        Transaction transaction5 = Transaction.ofDollars("ACC005", "WITHDRAWAL", 50.00, account.getBalance());
         transactionManager.addTransaction(transaction1);
         transactionManager.addTransaction(transaction2);
         transactionManager.addTransaction(transaction3);
@@ -2,6 +2,6 @@ package com.bank.system.interfaces;
 
 public interface Transactable {
     // type: "DEPOSIT" or "WITHDRAWAL"
-    boolean processTransaction(double amount, String type);
+    boolean processTransaction(double amount, String type) throws com.bank.system.exceptions.InvalidAmountException, com.bank.system.exceptions.InsufficientFundsException;
 
 }
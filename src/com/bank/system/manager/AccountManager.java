@@ -2,35 +2,52 @@ package com.bank.system.manager;
 import static com.bank.system.utils.ConsoleFormatter.*;
 import static com.bank.system.utils.ConsoleUtil.*;
 import com.bank.system.model.Account;
+import com.bank.system.utils.Money;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
 public class AccountManager {
-    private final Account[] accounts;
-    private int accountCount;
+    // Hash index by account number for O(1) lookups, safe for concurrent readers
+    private final Map<String, Account> accountIndex;
+    // Insertion order for listings; iteration never blocks writers
+    private final Queue<Account> accounts;
+    // Tells this registry apart from one built by another run of the program, e.g. from a snapshot
+    private final long registryId = ThreadLocalRandom.current().nextLong();
 
 
     public AccountManager() {
-        accounts = new Account[50]; // Array to hold up to 50 accounts
-        accountCount = 0;
+        accountIndex = new ConcurrentHashMap<>();
+        accounts = new ConcurrentLinkedQueue<>();
 
     }
 
-    // Method to add an account
+    // Method to add an account (fails only for null or duplicate account numbers)
     public boolean addAccount(Account account) {
-        if (accountCount < accounts.length) {
-            accounts[accountCount] = account;
-            accountCount++;
-            return true;
+        if (account == null) {
+            return false;
         }
-        return false;
+        if (accountIndex.putIfAbsent(account.getAccountNumber(), account) != null) {
+            return false;
+        }
+        accounts.add(account);
+        return true;
+    }
+
+    // Getter for the number that identifies this registry while the program runs
+    public long getRegistryId() {
+        return registryId;
     }
 
     // Method to find an account by account number
     public Account findAccount(String accountNumber) {
-        for (int i = 0; i < accountCount; i++) {
-            if (accounts[i] != null && accounts[i].getAccountNumber().equals(accountNumber)) {
-                return accounts[i];
-            }
+        if (accountNumber == null) {
+            return null;
         }
-        return null; // Account not found
+        return accountIndex.get(accountNumber); // null if account not found
     }
 
     // Method to view all accounts
@@ -41,11 +58,9 @@ public class AccountManager {
         System.out.printf("%-8s | %-15s | %-9s | %-10s | %-8s%n",
                 "ACC NO", "CUSTOMER NAME", "TYPE", "BALANCE", "STATUS");
         printSeparator();
-        for (int i = 0; i < accountCount; i++) {
-            if (accounts[i] != null) {
-                accounts[i].displayAccountDetails();
-              printSeparator();
-            }
+        for (Account account : accounts) {
+            account.displayAccountDetails();
+            printSeparator();
         }
 
         System.out.printf("Total Accounts: %d%n", getAccountCount());
@@ -55,28 +70,26 @@ public class AccountManager {
 
     // Method to get total balance of all accounts
     public double getTotalBalance() {
-        double total = 0;
-        for (int i = 0; i < accountCount; i++) {
-            if (accounts[i] != null) {
-                total += accounts[i].getBalance();
-            }
+        long totalInCents = 0;
+        for (Account account : accounts) {
+            totalInCents += account.getBalanceInCents();
         }
-        return total;
+        return Money.toDollars(totalInCents);
     }
 
     // Method to get the number of accounts
     public int getAccountCount() {
-        return accountCount;
+        return accountIndex.size();
     }
 
-    // Getter for accounts array
+    // Getter for accounts in insertion order (snapshot copy)
     public Account[] getAccounts() {
-        return accounts;
+        return accounts.toArray(new Account[0]);
     }
 
     // Getter for account count
     public int getAccountCountActual() {
-        return accountCount;
+        return accountIndex.size();
     }
     public  void displayAccountDetails(Account account) {
         if (account == null) {
@@ -93,4 +106,4 @@ public class AccountManager {
     }
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,425 @@
+package com.bank.system.manager;
+
+import com.bank.system.model.Account;
+import com.bank.system.model.CheckingAccount;
+import com.bank.system.model.SavingsAccount;
+import com.bank.system.model.Transaction;
+import com.bank.system.utils.Money;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static com.bank.system.utils.ConsoleFormatter.printHeader;
+import static com.bank.system.utils.ConsoleUtil.printf;
+
+// Month-end batch run: charges the monthly fee on checking accounts and credits the interest savings
+// accounts have accrued, recording a transaction for each adjustment. The registry is split into
+// fixed-size chunks in insertion order, which fork/join workers process in parallel; each chunk's
+// transactions are added under one lock.
+//
+// Each account remembers the last month a run adjusted it. The month is changed together with the
+// balance, under the account's monitor, and account snapshots save the two together, so a run for a
+// month an account already has leaves it alone, whatever point its state was restored from. A chunk is
+// all or nothing: if an account or the history fails part-way, the adjustments the chunk had made are
+// reversed before the error is passed on. History lives in memory only, like the rest of the legacy
+// ledger, so after a restart it holds just what has been posted since.
+//
+// After a chunk's transactions are added its number is appended to a checkpoint file and forced to
+// disk, so a run that stops part-way can be started again for the same month and skip the chunks it
+// had finished. Accounts opened since are appended to the registry, so the chunk numbers of the
+// earlier ones do not move. The checkpoint only vouches for the registry that wrote it: after a
+// restart the accounts come back from a snapshot that may predate those chunks, so every account is
+// visited again and its month decides.
+public class MonthEndProcessor {
+    public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private static final int MAGIC = 0x4D454E44; // "MEND"
+    private static final int VERSION = 2;
+
+    private final AccountManager accountManager;
+    private final TransactionManager transactionManager;
+    private final Path checkpointFile;
+    private final int parallelism;
+    private final int chunkSize;
+
+    public MonthEndProcessor(AccountManager accountManager, TransactionManager transactionManager, Path checkpointFile) {
+        this(accountManager, transactionManager, checkpointFile, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public MonthEndProcessor(AccountManager accountManager, TransactionManager transactionManager, Path checkpointFile,
+                             int parallelism, int chunkSize) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be greater than 0");
+        }
+        this.accountManager = accountManager;
+        this.transactionManager = transactionManager;
+        this.checkpointFile = checkpointFile;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    // Method to run month-end for a month, resuming from the checkpoint if an earlier run for it stopped
+    // A checkpoint for any other month is replaced; running a finished month again changes nothing
+    public synchronized Report run(YearMonth month) throws IOException {
+        long started = System.nanoTime();
+        Account[] accounts = accountManager.getAccounts();
+        int chunkCount = (accounts.length + chunkSize - 1) / chunkSize;
+
+        long registryId = accountManager.getRegistryId();
+        Checkpoint checkpoint = readCheckpoint(month.toString());
+        boolean resumed = checkpoint != null;
+        if (!resumed || checkpoint.registryId != registryId) {
+            checkpoint = new Checkpoint(registryId, new BitSet());
+            writeHeader(month.toString(), registryId);
+        }
+
+        int[] pendingChunks = new int[chunkCount];
+        int pending = 0;
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            if (!checkpoint.completedChunks.get(chunk)) {
+                pendingChunks[pending++] = chunk;
+            }
+        }
+        int skippedAccounts = 0;
+        for (int chunk = checkpoint.completedChunks.nextSetBit(0); chunk >= 0 && chunk < chunkCount;
+             chunk = checkpoint.completedChunks.nextSetBit(chunk + 1)) {
+            skippedAccounts += Math.min(chunkSize, accounts.length - chunk * chunkSize);
+        }
+
+        Totals totals;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try (FileChannel channel = FileChannel.open(checkpointFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            totals = pool.invoke(new ChunkTask(month, accounts, pendingChunks, 0, pending, channel));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+        return new Report(month, resumed, skippedAccounts + totals.alreadyDone, totals, System.nanoTime() - started, parallelism);
+    }
+
+    // Applies the pending chunks in [from, to), splitting the range until one chunk is left
+    // Fork/join tasks are serializable in name only; this one is never written out, so its handles are transient
+    private class ChunkTask extends RecursiveTask<Totals> {
+        private static final long serialVersionUID = 1L;
+
+        private final YearMonth month;
+        private final transient Account[] accounts;
+        private final int[] chunks;
+        private final int from;
+        private final int to;
+        private final transient FileChannel checkpoint;
+
+        ChunkTask(YearMonth month, Account[] accounts, int[] chunks, int from, int to, FileChannel checkpoint) {
+            this.month = month;
+            this.accounts = accounts;
+            this.chunks = chunks;
+            this.from = from;
+            this.to = to;
+            this.checkpoint = checkpoint;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                ChunkTask left = new ChunkTask(month, accounts, chunks, from, middle, checkpoint);
+                left.fork();
+                Totals right;
+                try {
+                    right = new ChunkTask(month, accounts, chunks, middle, to, checkpoint).compute();
+                } catch (RuntimeException | Error e) {
+                    left.quietlyJoin(); // nothing may still be running once the run has failed
+                    throw e;
+                }
+                return right.add(left.join());
+            }
+            Totals totals = new Totals();
+            if (to == from) {
+                return totals;
+            }
+            int chunk = chunks[from];
+            int first = chunk * chunkSize;
+            int last = Math.min(first + chunkSize, accounts.length);
+            List<Adjustment> applied = new ArrayList<>(last - first);
+            List<Transaction> adjustments = new ArrayList<>(last - first);
+            try {
+                for (int i = first; i < last; i++) {
+                    adjust(accounts[i], applied, totals);
+                }
+                for (Adjustment adjustment : applied) {
+                    if (adjustment.transaction != null) {
+                        adjustments.add(adjustment.transaction);
+                    }
+                }
+                transactionManager.addTransactions(adjustments);
+            } catch (RuntimeException | Error e) {
+                for (int i = applied.size() - 1; i >= 0; i--) {
+                    applied.get(i).undo();
+                }
+                throw e;
+            }
+            // The chunk stands from here on; if the checkpoint cannot be written, a rerun finds it by the month
+            try {
+                recordCompleted(checkpoint, chunk);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return totals;
+        }
+
+        private void adjust(Account account, List<Adjustment> applied, Totals totals) {
+            Transaction transaction = null;
+            YearMonth previous;
+            synchronized (account) {
+                previous = account.getLastMonthEnd();
+                if (previous != null && !previous.isBefore(month)) {
+                    totals.alreadyDone++;
+                    return;
+                }
+                if (account instanceof CheckingAccount) {
+                    transaction = ((CheckingAccount) account).chargeMonthlyFee();
+                } else if (account instanceof SavingsAccount) {
+                    transaction = ((SavingsAccount) account).creditMonthlyInterest();
+                }
+                account.setLastMonthEnd(month);
+            }
+            applied.add(new Adjustment(account, previous, transaction));
+            totals.accounts++;
+            if (transaction == null) {
+                return;
+            }
+            if (account instanceof CheckingAccount) {
+                totals.fees++;
+                totals.feesInCents += transaction.getAmountInCents();
+            } else {
+                totals.interestCredits++;
+                totals.interestInCents += transaction.getAmountInCents();
+            }
+        }
+    }
+
+    // One account's change in a chunk, kept until the chunk stands so it can be reversed
+    private static final class Adjustment {
+        private final Account account;
+        private final YearMonth previousMonthEnd;
+        private final Transaction transaction; // null if nothing was charged or credited
+
+        Adjustment(Account account, YearMonth previousMonthEnd, Transaction transaction) {
+            this.account = account;
+            this.previousMonthEnd = previousMonthEnd;
+            this.transaction = transaction;
+        }
+
+        void undo() {
+            synchronized (account) {
+                if (transaction != null) {
+                    if (account instanceof CheckingAccount) {
+                        ((CheckingAccount) account).refundMonthlyFee(transaction);
+                    } else {
+                        ((SavingsAccount) account).reverseMonthlyInterest(transaction);
+                    }
+                }
+                account.setLastMonthEnd(previousMonthEnd);
+            }
+        }
+    }
+
+    // Method to append a finished chunk's number to the checkpoint and force it to disk
+    // A torn last record is ignored on reading
+    private static void recordCompleted(FileChannel channel, int chunk) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES).putInt(chunk).flip();
+        synchronized (channel) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            channel.force(false);
+        }
+    }
+
+    // Method to start a new checkpoint, written to a temporary name and renamed so it is never half there
+    private void writeHeader(String month, long registryId) throws IOException {
+        Path temporary = checkpointFile.resolveSibling(checkpointFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temporary))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(month);
+            out.writeLong(registryId);
+            out.writeInt(chunkSize);
+        }
+        Files.move(temporary, checkpointFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Method to read the checkpoint for a month; null if there is none, or it belongs to another month
+    private Checkpoint readCheckpoint(String month) throws IOException {
+        if (!Files.exists(checkpointFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpointFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " month-end checkpoint: " + checkpointFile);
+            }
+            String savedMonth = in.readUTF();
+            long registryId = in.readLong();
+            int savedChunkSize = in.readInt();
+            if (!savedMonth.equals(month)) {
+                return null;
+            }
+            if (savedChunkSize != chunkSize) {
+                throw new IOException("Checkpoint for " + month + " was written with chunks of " + savedChunkSize
+                        + " accounts; resume it with the same chunk size");
+            }
+            BitSet completedChunks = new BitSet();
+            while (true) {
+                int chunk;
+                try {
+                    chunk = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                completedChunks.set(chunk);
+            }
+            return new Checkpoint(registryId, completedChunks);
+        } catch (EOFException e) {
+            return null; // header cut short, so no chunk was finished
+        }
+    }
+
+    private static final class Checkpoint {
+        // The registry whose accounts the completed chunks were applied to
+        private final long registryId;
+        private final BitSet completedChunks;
+
+        Checkpoint(long registryId, BitSet completedChunks) {
+            this.registryId = registryId;
+            this.completedChunks = completedChunks;
+        }
+    }
+
+    // Counts from one part of a run, added together as the fork/join tasks complete
+    private static final class Totals {
+        private long accounts;
+        private long alreadyDone;
+        private long fees;
+        private long feesInCents;
+        private long interestCredits;
+        private long interestInCents;
+
+        Totals add(Totals other) {
+            accounts += other.accounts;
+            alreadyDone += other.alreadyDone;
+            fees += other.fees;
+            feesInCents += other.feesInCents;
+            interestCredits += other.interestCredits;
+            interestInCents += other.interestInCents;
+            return this;
+        }
+    }
+
+    // Outcome of one run
+    public static class Report {
+        private final YearMonth month;
+        private final boolean resumed;
+        private final long accountsSkipped;
+        private final long accountsProcessed;
+        private final long feesCharged;
+        private final long feesInCents;
+        private final long interestCredits;
+        private final long interestInCents;
+        private final long elapsedNanos;
+        private final int parallelism;
+
+        private Report(YearMonth month, boolean resumed, long accountsSkipped, Totals totals, long elapsedNanos, int parallelism) {
+            this.month = month;
+            this.resumed = resumed;
+            this.accountsSkipped = accountsSkipped;
+            this.accountsProcessed = totals.accounts;
+            this.feesCharged = totals.fees;
+            this.feesInCents = totals.feesInCents;
+            this.interestCredits = totals.interestCredits;
+            this.interestInCents = totals.interestInCents;
+            this.elapsedNanos = elapsedNanos;
+            this.parallelism = parallelism;
+        }
+
+        public YearMonth getMonth() {
+            return month;
+        }
+
+        // Getter for whether this run picked up a checkpoint left by an earlier one
+        public boolean isResumed() {
+            return resumed;
+        }
+
+        // Getter for accounts left alone because an earlier run had already adjusted them this month
+        public long getAccountsSkipped() {
+            return accountsSkipped;
+        }
+
+        public long getAccountsProcessed() {
+            return accountsProcessed;
+        }
+
+        public long getFeesCharged() {
+            return feesCharged;
+        }
+
+        public long getFeesInCents() {
+            return feesInCents;
+        }
+
+        public long getInterestCredits() {
+            return interestCredits;
+        }
+
+        public long getInterestInCents() {
+            return interestInCents;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        // Getter for accounts processed per second of wall-clock time
+        public double getAccountsPerSecond() {
+            return elapsedNanos == 0 ? 0 : accountsProcessed * 1e9 / elapsedNanos;
+        }
+
+        // Method to print the report
+        public void display() {
+            printHeader("MONTH-END PROCESSING " + month);
+            printf("Accounts processed: %,d%s%n", accountsProcessed,
+                    resumed ? String.format(" (resumed; %,d already done)", accountsSkipped) : "");
+            printf("Monthly fees charged: %,d totalling $%s%n", feesCharged, Money.format(feesInCents));
+            printf("Interest credited: %,d totalling $%s%n", interestCredits, Money.format(interestInCents));
+            printf("Elapsed: %.1f ms on %d threads (%,.0f accounts/sec)%n",
+                    elapsedNanos / 1e6, parallelism, getAccountsPerSecond());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Report{month=%s, resumed=%b, processed=%d, skipped=%d, fees=%d ($%s), interest=%d ($%s), accountsPerSecond=%.0f}",
+                    month, resumed, accountsProcessed, accountsSkipped, feesCharged, Money.format(feesInCents),
+                    interestCredits, Money.format(interestInCents), getAccountsPerSecond());
+        }
+    }
+}
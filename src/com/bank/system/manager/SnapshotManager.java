@@ -0,0 +1,294 @@
+package com.bank.system.manager;
+
+import com.bank.system.model.Account;
+import com.bank.system.model.CheckingAccount;
+import com.bank.system.model.Customer;
+import com.bank.system.model.PremiumCustomer;
+import com.bank.system.model.RegularCustomer;
+import com.bank.system.model.SavingsAccount;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Writes periodic snapshots of every account and its customer, and restores the newest one on startup.
+// Balances are read one account at a time while deposits and withdrawals carry on, so a snapshot is
+// taken without pausing the bank. Each balance is saved with the last month-end applied to it, read
+// together under the account's monitor, so a restored account is never charged that month twice, and a
+// savings account's balance with the interest it has accrued and not yet been credited. Files are written to a temporary name and renamed, so a crash never
+// leaves a half-written snapshot in place; each file ends with a CRC32 of its contents.
+public class SnapshotManager {
+    private static final int MAGIC = 0x41434353; // "ACCS"
+    private static final int VERSION = 2;
+    private static final String SNAPSHOT_PREFIX = "accounts-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private final AccountManager accountManager;
+    private final Path directory;
+    private final int snapshotsToKeep;
+    private ScheduledExecutorService scheduler;
+    private volatile IOException lastFailure;
+    private long lastSnapshotMillis;
+
+    public SnapshotManager(AccountManager accountManager, Path directory, int snapshotsToKeep) throws IOException {
+        if (snapshotsToKeep <= 0) {
+            throw new IllegalArgumentException("At least one snapshot must be kept");
+        }
+        this.accountManager = accountManager;
+        this.directory = directory;
+        this.snapshotsToKeep = snapshotsToKeep;
+        Files.createDirectories(directory);
+    }
+
+    // Method to take a snapshot every interval on a background thread until stop is called
+    public synchronized void start(Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Snapshot interval must be greater than 0");
+        }
+        if (scheduler != null) {
+            throw new IllegalStateException("Snapshots are already scheduled");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "account-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                takeSnapshot();
+            } catch (IOException e) {
+                lastFailure = e; // kept for the caller; the next snapshot is still attempted
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    // Method to stop scheduled snapshots, letting one in progress finish
+    public void stop() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = scheduler;
+            scheduler = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Method to write a snapshot of all accounts now and delete the ones beyond snapshotsToKeep
+    public synchronized Path takeSnapshot() throws IOException {
+        Account[] accounts = accountManager.getAccounts();
+        // File names sort by time; never reuse one within the same millisecond
+        long takenAt = Math.max(System.currentTimeMillis(), lastSnapshotMillis + 1);
+        lastSnapshotMillis = takenAt;
+
+        Path target = directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, takenAt, SNAPSHOT_SUFFIX));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(takenAt);
+            out.writeInt(accounts.length);
+            for (Account account : accounts) {
+                Customer customer = account.getCustomer();
+                long balanceInCents;
+                YearMonth lastMonthEnd;
+                long lastAccrualDay = 0;
+                long accruedUnits = 0;
+                synchronized (account) {
+                    balanceInCents = account.getBalanceInCents();
+                    lastMonthEnd = account.getLastMonthEnd();
+                    if (account instanceof SavingsAccount) {
+                        lastAccrualDay = ((SavingsAccount) account).getLastAccrualDate().toEpochDay();
+                        accruedUnits = ((SavingsAccount) account).getAccruedUnits();
+                    }
+                }
+                out.writeUTF(account.getAccountNumber());
+                out.writeUTF(account.getAccountType());
+                out.writeUTF(text(account.getStatus()));
+                out.writeLong(balanceInCents);
+                out.writeUTF(lastMonthEnd == null ? "" : lastMonthEnd.toString());
+                if (account instanceof SavingsAccount) {
+                    out.writeLong(lastAccrualDay);
+                    out.writeLong(accruedUnits);
+                }
+                out.writeUTF(customer.getCustomerId());
+                out.writeUTF(customer.getCustomerType());
+                out.writeUTF(text(customer.getName()));
+                out.writeInt(customer.getAge());
+                out.writeUTF(text(customer.getContact()));
+                out.writeUTF(text(customer.getAddress()));
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        List<Path> snapshots = snapshotFiles();
+        for (int i = 0; i < snapshots.size() - snapshotsToKeep; i++) {
+            Files.delete(snapshots.get(i));
+        }
+        return target;
+    }
+
+    // Method to load the newest intact snapshot into the account manager
+    // Returns the number of accounts restored, 0 if there is no readable snapshot
+    public int restoreLatest() throws IOException {
+        List<Path> snapshots = snapshotFiles();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            List<Account> accounts;
+            try {
+                accounts = read(snapshots.get(i));
+            } catch (IOException e) {
+                continue; // damaged or cut short; try the one before it
+            }
+            for (Account account : accounts) {
+                if (!accountManager.addAccount(account)) {
+                    Account existing = accountManager.findAccount(account.getAccountNumber());
+                    synchronized (existing) {
+                        if (existing instanceof SavingsAccount && account instanceof SavingsAccount) {
+                            // Taken before reading the balance, which would accrue the saved account up to today
+                            SavingsAccount saved = (SavingsAccount) account;
+                            LocalDate lastAccrualDate = saved.getLastAccrualDate();
+                            long accruedUnits = saved.getAccruedUnits();
+                            existing.setBalanceInCents(saved.getBalanceInCents());
+                            ((SavingsAccount) existing).restoreAccrual(lastAccrualDate, accruedUnits);
+                        } else {
+                            existing.setBalanceInCents(account.getBalanceInCents());
+                        }
+                        existing.setLastMonthEnd(account.getLastMonthEnd());
+                    }
+                    existing.setStatus(account.getStatus());
+                }
+            }
+            return accounts.size();
+        }
+        return 0;
+    }
+
+    public IOException getLastFailure() {
+        return lastFailure;
+    }
+
+    // Getter for snapshot files, oldest first
+    public List<Path> snapshotFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX);
+                    })
+                    .sorted()
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    // Builds every account before returning, so nothing is restored from a file that fails its checksum
+    private static List<Account> read(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " account snapshot: " + file);
+            }
+            in.readLong(); // time taken
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Corrupt account snapshot: " + file);
+            }
+            Map<String, Customer> customers = new HashMap<>();
+            List<Account> accounts = new ArrayList<>(Math.min(count, 1 << 20));
+            for (int i = 0; i < count; i++) {
+                String accountNumber = in.readUTF();
+                String accountType = in.readUTF();
+                String status = in.readUTF();
+                long balanceInCents = in.readLong();
+                String lastMonthEnd = in.readUTF();
+                boolean savings = !accountType.equals("Checking");
+                long lastAccrualDay = savings ? in.readLong() : 0;
+                long accruedUnits = savings ? in.readLong() : 0;
+                if (accruedUnits < 0 || lastAccrualDay < LocalDate.MIN.toEpochDay() || lastAccrualDay > LocalDate.MAX.toEpochDay()) {
+                    throw new IOException("Corrupt account snapshot: " + file);
+                }
+                String customerId = in.readUTF();
+                String customerType = in.readUTF();
+                String name = in.readUTF();
+                int age = in.readInt();
+                String contact = in.readUTF();
+                String address = in.readUTF();
+
+                // Accounts that shared a customer share it again
+                Customer customer = customers.get(customerId);
+                if (customer == null) {
+                    customer = customerType.equals("Premium")
+                            ? new PremiumCustomer(customerId, name, age, contact, address)
+                            : new RegularCustomer(customerId, name, age, contact, address);
+                    customers.put(customerId, customer);
+                }
+                Account account;
+                if (savings) {
+                    SavingsAccount savingsAccount = new SavingsAccount(accountNumber, customer, balanceInCents, status);
+                    savingsAccount.restoreAccrual(LocalDate.ofEpochDay(lastAccrualDay), accruedUnits);
+                    account = savingsAccount;
+                } else {
+                    account = new CheckingAccount(accountNumber, customer, balanceInCents, status);
+                }
+                if (!lastMonthEnd.isEmpty()) {
+                    account.setLastMonthEnd(parseMonth(lastMonthEnd, file));
+                }
+                accounts.add(account);
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Account snapshot checksum mismatch: " + file);
+            }
+            return accounts;
+        }
+    }
+
+    private static YearMonth parseMonth(String month, Path file) throws IOException {
+        try {
+            return YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            throw new IOException("Corrupt account snapshot: " + file, e);
+        }
+    }
+
+    private static String text(String value) {
+        return value == null ? "" : value;
+    }
+}
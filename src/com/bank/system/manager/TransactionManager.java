@@ -6,25 +6,64 @@ import static com.bank.system.utils.ConsoleFormatter.printSubSeparator;
 import static com.bank.system.utils.ConsoleUtil.*;
 
 import com.bank.system.model.Account;
+import com.bank.system.model.AccountSummary;
 import com.bank.system.model.Transaction;
+import com.bank.system.utils.Money;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class TransactionManager {
-    private final Transaction[] transactions;
-    private int transactionCount;
+    private static final String HISTORY_VIEW = "history";
+
+    // Append-only log of every transaction in recording order
+    private final List<Transaction> transactions;
+    // Per-account index into the log, each list in recording order
+    private final Map<String, List<Transaction>> transactionsByAccount;
+    // Per-account running totals, updated on every addTransaction
+    private final Map<String, AccountSummary> summariesByAccount;
+    // Per-account version, bumped on every addTransaction so cached histories can tell they are stale
+    private final Map<String, Long> versionsByAccount;
+    // Rendered histories, or null to render every view from scratch
+    private final StatementCache statementCache;
 
     public TransactionManager() {
-        transactions = new Transaction[200]; // Array to hold up to 200 transactions
-        transactionCount = 0;
+        this(new StatementCache());
+    }
+
+    public TransactionManager(StatementCache statementCache) {
+        transactions = new ArrayList<>();
+        transactionsByAccount = new HashMap<>();
+        summariesByAccount = new HashMap<>();
+        versionsByAccount = new HashMap<>();
+        this.statementCache = statementCache;
     }
 
     // Method to add a transaction
-    public boolean addTransaction(Transaction transaction) {
-        if (transactionCount < transactions.length) {
-            transactions[transactionCount] = transaction;
-            transactionCount++;
-            return true;
+    public synchronized boolean addTransaction(Transaction transaction) {
+        if (transaction == null) {
+            return false;
+        }
+        transactions.add(transaction);
+        transactionsByAccount
+                .computeIfAbsent(transaction.getAccountNumber(), key -> new ArrayList<>())
+                .add(transaction);
+        summariesByAccount
+                .computeIfAbsent(transaction.getAccountNumber(), key -> new AccountSummary())
+                .record(transaction);
+        versionsByAccount.merge(transaction.getAccountNumber(), 1L, Long::sum);
+        return true;
+    }
+
+    // Method to add many transactions under one lock, e.g. a batch run's adjustments for a group of accounts
+    public synchronized void addTransactions(List<Transaction> batch) {
+        for (Transaction transaction : batch) {
+            addTransaction(transaction);
         }
-        return false;
     }
 
     // Method to view transactions by account
@@ -37,96 +76,130 @@ public class TransactionManager {
         print("Account Type: " + account.getAccountType());
         printf("Current Balance: $,%.2f%n", account.getBalance());
         print("");
-        boolean hasTransactions = false;
-
-        // Display transactions in reverse chronological order (newest first)
-        for (int i = transactionCount - 1; i >= 0; i--) {
-            if (transactions[i] != null && transactions[i].getAccountNumber().equals(accountNumber)) {
-                if (!hasTransactions) {
-                    print("TRANSUCTION HISTROY");
-                    printSubSeparator(85);
-
-                    printf("%-12s | %-20s | %-10s | %-14s | %-15s%n",
-                            "TXN ID", "DATE/TIME", "TYPE", "AMOUNT", "BALANCE AFTER");
-                    hasTransactions = true;
-                    printSubSeparator(85);
-                }
-                double amount = transactions[i].getAmount();
 
-                // Determine sign
-                String sign = transactions[i].getType().equalsIgnoreCase("WITHDRAWAL") ? "-" : "+";
-                printf("%-12s | %-20s | %-10s | %s$%,12.2f | $%,15.2f%n",
-                        transactions[i].getTransactionId(),
-                        transactions[i].getTimestamp(),
-                        transactions[i].getType(),
-                        sign,
-                        amount,
-                        transactions[i].getBalanceAfter());
+        // The header shows the live balance; the history and summary below it only change with a new transaction
+        pr(getHistoryText(accountNumber));
+
+        pressEnterToContinue();
+    }
 
+    // Method to get the history and summary printed by viewTransactionsByAccount, from the statement cache when current
+    public String getHistoryText(String accountNumber) {
+        if (statementCache == null) {
+            return renderHistory(accountNumber);
+        }
+        long version = getAccountVersion(accountNumber);
+        String history = statementCache.get(accountNumber, HISTORY_VIEW, version);
+        if (history == null) {
+            history = renderHistory(accountNumber);
+            statementCache.put(accountNumber, HISTORY_VIEW, version, history);
+        }
+        return history;
+    }
 
+    // Method to render the history and summary shown by viewTransactionsByAccount, line for line as printed
+    private String renderHistory(String accountNumber) {
+        List<Transaction> accountTransactions = getTransactionsForAccount(accountNumber);
+        StringBuilder history = new StringBuilder(512 + 96 * accountTransactions.size());
+        Formatter out = new Formatter(history);
+        String separator = "-".repeat(63);
+        String subSeparator = "-".repeat(85);
+
+        if (accountTransactions.isEmpty()) {
+            out.format("%s%n", separator);
+            out.format("No transactions found for this account.%n");
+            out.format("%s%n", separator);
+        } else {
+            out.format("TRANSUCTION HISTROY%n");
+            out.format("%s%n", subSeparator);
+
+            out.format("%-12s | %-20s | %-10s | %-14s | %-15s%n",
+                    "TXN ID", "DATE/TIME", "TYPE", "AMOUNT", "BALANCE AFTER");
+            out.format("%s%n", subSeparator);
 
+            // Display transactions in reverse chronological order (newest first)
+            for (int i = accountTransactions.size() - 1; i >= 0; i--) {
+                Transaction transaction = accountTransactions.get(i);
 
+                // Determine sign
+                String sign = AccountSummary.isDebit(transaction.getType()) ? "-" : "+";
+                out.format("%-12s | %-20s | %-10s | %s$%,12.2f | $%,15.2f%n",
+                        transaction.getTransactionId(),
+                        transaction.getTimestamp(),
+                        transaction.getType(),
+                        sign,
+                        transaction.getAmount(),
+                        transaction.getBalanceAfter());
             }
 
-        }
-       // printSubSeparator(85);
-        if (!hasTransactions) {
-            printSeparator();
-            print("No transactions found for this account.");
-            printSeparator();
-        } else {
-            printSubSeparator(85);
+            out.format("%s%n", subSeparator);
             // Display summary
-            print(" ");
-            print("SUMMARY:");
-            print("Total Transactions: "+ transactionCount );
-            printf("Total Deposits: $%,.2f%n", calculateTotalDeposits(accountNumber));
-            printf("Total Withdrawals: $%,.2f%n", calculateTotalWithdrawals(accountNumber));
-            printf("Net Change: +$%,.2f%n",
-                    calculateTotalDeposits(accountNumber) - calculateTotalWithdrawals(accountNumber));
+            AccountSummary summary = getAccountSummary(accountNumber);
+            out.format(" %n");
+            out.format("SUMMARY:%n");
+            out.format("Total Transactions: %d%n", summary.getTransactionCount());
+            out.format("Total Deposits: $%,.2f%n", summary.getTotalDeposits());
+            out.format("Total Withdrawals: $%,.2f%n", summary.getTotalWithdrawals());
+            // Only accounts the month-end run has touched have these
+            if (summary.getTotalInterest() > 0) {
+                out.format("Total Interest: $%,.2f%n", summary.getTotalInterest());
+            }
+            if (summary.getTotalFees() > 0) {
+                out.format("Total Fees: $%,.2f%n", summary.getTotalFees());
+            }
+            long netChange = summary.getNetChangeInCents();
+            out.format("Net Change: %s$%,.2f%n", netChange < 0 ? "-" : "+", Money.toDollars(Math.abs(netChange)));
         }
+        return history.toString();
+    }
 
-        pressEnterToContinue();
+    // Method to get an account's version, which changes whenever a transaction is added for it
+    public synchronized long getAccountVersion(String accountNumber) {
+        return versionsByAccount.getOrDefault(accountNumber, 0L);
+    }
+
+    // Getter for the cache of rendered histories, null if caching is off
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+
+    // Method to get the transactions of one account in recording order
+    public synchronized List<Transaction> getTransactionsForAccount(String accountNumber) {
+        List<Transaction> accountTransactions = transactionsByAccount.get(accountNumber);
+        if (accountTransactions == null) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(accountTransactions);
+    }
+
+    // Method to get the running totals for an account (snapshot copy)
+    public synchronized AccountSummary getAccountSummary(String accountNumber) {
+        AccountSummary summary = summariesByAccount.get(accountNumber);
+        return summary == null ? new AccountSummary() : summary.snapshot();
     }
 
     // Method to calculate total deposits for an account
     public double calculateTotalDeposits(String accountNumber) {
-        double total = 0;
-        for (int i = 0; i < transactionCount; i++) {
-            if (transactions[i] != null &&
-                    transactions[i].getAccountNumber().equals(accountNumber) &&
-                    transactions[i].getType().equals("DEPOSIT")) {
-                total += transactions[i].getAmount();
-            }
-        }
-        return total;
+        return getAccountSummary(accountNumber).getTotalDeposits();
     }
 
     // Method to calculate total withdrawals for an account
     public double calculateTotalWithdrawals(String accountNumber) {
-        double total = 0;
-        for (int i = 0; i < transactionCount; i++) {
-            if (transactions[i] != null &&
-                    transactions[i].getAccountNumber().equals(accountNumber) &&
-                    transactions[i].getType().equals("WITHDRAWAL")) {
-                total += transactions[i].getAmount();
-            }
-        }
-        return total;
+        return getAccountSummary(accountNumber).getTotalWithdrawals();
     }
 
     // Method to get the number of transactions
-    public int getTransactionCount() {
-        return transactionCount;
+    public synchronized int getTransactionCount() {
+        return transactions.size();
     }
 
-    // Getter for transactions array
-    public Transaction[] getTransactions() {
-        return transactions;
+    // Getter for transactions (snapshot copy in recording order)
+    public synchronized Transaction[] getTransactions() {
+        return transactions.toArray(new Transaction[0]);
     }
 
     // Getter for transaction count
-    public int getTransactionCountActual() {
-        return transactionCount;
+    public synchronized int getTransactionCountActual() {
+        return transactions.size();
     }
-}
\ No newline at end of file
+}
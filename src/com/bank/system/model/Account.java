@@ -1,23 +1,50 @@
 package com.bank.system.model;
 import com.bank.system.interfaces.Transactable;
 import com.bank.system.exceptions.InvalidAmountException;
+import com.bank.system.utils.Money;
+import com.bank.system.utils.ValidationUtils;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.YearMonth;
 
 
 public abstract class Account implements Transactable {
     private final String accountNumber;
     private Customer customer;
-    private double balance;
+    // Updated only through compareAndSetBalance or setBalanceInCents, never read-modify-write
+    private volatile long balanceInCents;
     private String status;
+    // Month of the last month-end run that adjusted this account, or null; changed under this object's monitor
+    private YearMonth lastMonthEnd;
     private static int accountCounter = 0;
 
+    private static final VarHandle BALANCE;
+
+    static {
+        try {
+            BALANCE = MethodHandles.lookup().findVarHandle(Account.class, "balanceInCents", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     public Account(Customer customer, double initialDeposit) {
         this.customer = customer;
-        this.balance = initialDeposit;
+        this.balanceInCents = Money.fromDollars(initialDeposit);
         this.status = "Active";
         this.accountNumber = generateAccountNumber();
     }
 
+    // Constructor for restoring a saved account: keeps its number and moves the counter past it
+    protected Account(String accountNumber, Customer customer, long balanceInCents, String status) {
+        this.customer = customer;
+        this.balanceInCents = balanceInCents;
+        this.status = status;
+        this.accountNumber = accountNumber;
+        accountCounter = Math.max(accountCounter, ValidationUtils.idNumber(accountNumber, "ACC"));
+    }
+
     private String generateAccountNumber() {
         accountCounter++;
         return String.format("ACC%03d", accountCounter);
@@ -30,16 +57,43 @@ public abstract class Account implements Transactable {
 
     // Deposit method - common for all account types
     public boolean deposit(double amount) throws InvalidAmountException {
+        return depositInCents(Money.fromDollars(amount));
+    }
+
+    public boolean depositInCents(long amount) throws InvalidAmountException {
         if (amount <= 0) {
             throw new InvalidAmountException("Invalid amount. Amount must be greater than 0.");
         }
-        this.balance += amount;
+        accrueInterest();
+        long current;
+        do {
+            current = getBalanceInCents();
+        } while (!compareAndSetBalance(current, Money.add(current, amount)));
         return true;
     }
 
+    // Atomically replaces the balance if it still equals expected; subclasses retry on false
+    protected boolean compareAndSetBalance(long expected, long newBalanceInCents) {
+        return BALANCE.compareAndSet(this, expected, newBalanceInCents);
+    }
+
+    // Called before every balance read and deposit, so accounts that earn interest can bring it up to
+    // date only when they are used. Must not change the balance.
+    protected void accrueInterest() {
+    }
+
+    // Getter for the balance as stored, without accruing interest first
+    protected long storedBalanceInCents() {
+        return balanceInCents;
+    }
+
 
     // Withdraw method - to be overridden by subclasses
-    public abstract boolean withdraw(double amount) throws com.bank.system.exceptions.InsufficientFundsException;
+    public boolean withdraw(double amount) throws InvalidAmountException, com.bank.system.exceptions.InsufficientFundsException {
+        return withdrawInCents(Money.fromDollars(amount));
+    }
+
+    public abstract boolean withdrawInCents(long amount) throws InvalidAmountException, com.bank.system.exceptions.InsufficientFundsException;
 
     // Getters and setters
     public String getAccountNumber() {
@@ -55,11 +109,20 @@ public abstract class Account implements Transactable {
     }
 
     public double getBalance() {
-        return balance;
+        return Money.toDollars(getBalanceInCents());
+    }
+
+    public long getBalanceInCents() {
+        accrueInterest();
+        return balanceInCents;
     }
 
     public void setBalance(double balance) {
-        this.balance = balance;
+        this.balanceInCents = Money.fromDollars(balance);
+    }
+
+    public void setBalanceInCents(long balanceInCents) {
+        this.balanceInCents = balanceInCents;
     }
 
     public String getStatus() {
@@ -70,6 +133,14 @@ public abstract class Account implements Transactable {
         this.status = status;
     }
 
+    public synchronized YearMonth getLastMonthEnd() {
+        return lastMonthEnd;
+    }
+
+    public synchronized void setLastMonthEnd(YearMonth lastMonthEnd) {
+        this.lastMonthEnd = lastMonthEnd;
+    }
+
     public static int getAccountCounter() {
         return accountCounter;
     }
@@ -0,0 +1,104 @@
+package com.bank.system.model;
+
+import com.bank.system.utils.Money;
+
+// Running totals (in cents) of one account's transactions, updated as each transaction is recorded
+public class AccountSummary {
+    private long totalDeposits;
+    private long totalWithdrawals;
+    private long totalTransfersIn;
+    private long totalTransfersOut;
+    private long totalInterest;
+    private long totalFees;
+    private int transactionCount;
+
+    public AccountSummary() {
+    }
+
+    private AccountSummary(AccountSummary other) {
+        this.totalDeposits = other.totalDeposits;
+        this.totalWithdrawals = other.totalWithdrawals;
+        this.totalTransfersIn = other.totalTransfersIn;
+        this.totalTransfersOut = other.totalTransfersOut;
+        this.totalInterest = other.totalInterest;
+        this.totalFees = other.totalFees;
+        this.transactionCount = other.transactionCount;
+    }
+
+    // Method to add one transaction to the totals
+    public void record(Transaction transaction) {
+        long amount = transaction.getAmountInCents();
+        switch (transaction.getType().toUpperCase()) {
+            case "DEPOSIT" -> totalDeposits += amount;
+            case "WITHDRAWAL" -> totalWithdrawals += amount;
+            case "TRANSFER_IN" -> totalTransfersIn += amount;
+            case "TRANSFER_OUT" -> totalTransfersOut += amount;
+            case "INTEREST" -> totalInterest += amount;
+            case "MONTHLY_FEE" -> totalFees += amount;
+            default -> { }
+        }
+        transactionCount++;
+    }
+
+    // Method to copy the current totals
+    public AccountSummary snapshot() {
+        return new AccountSummary(this);
+    }
+
+    // Getters
+    public double getTotalDeposits() {
+        return Money.toDollars(totalDeposits);
+    }
+
+    public double getTotalWithdrawals() {
+        return Money.toDollars(totalWithdrawals);
+    }
+
+    public double getTotalTransfersIn() {
+        return Money.toDollars(totalTransfersIn);
+    }
+
+    public double getTotalTransfersOut() {
+        return Money.toDollars(totalTransfersOut);
+    }
+
+    public long getTotalDepositsInCents() {
+        return totalDeposits;
+    }
+
+    public long getTotalWithdrawalsInCents() {
+        return totalWithdrawals;
+    }
+
+    public double getTotalInterest() {
+        return Money.toDollars(totalInterest);
+    }
+
+    public double getTotalFees() {
+        return Money.toDollars(totalFees);
+    }
+
+    // Getter for money in: deposits, incoming transfers and credited interest
+    public long getTotalCreditsInCents() {
+        return totalDeposits + totalTransfersIn + totalInterest;
+    }
+
+    // Getter for money out: withdrawals, outgoing transfers and monthly fees
+    public long getTotalDebitsInCents() {
+        return totalWithdrawals + totalTransfersOut + totalFees;
+    }
+
+    public long getNetChangeInCents() {
+        return getTotalCreditsInCents() - getTotalDebitsInCents();
+    }
+
+    // Method to tell whether a transaction type takes money out of the account
+    public static boolean isDebit(String type) {
+        return type.equalsIgnoreCase("WITHDRAWAL") || type.equalsIgnoreCase("TRANSFER_OUT")
+                || type.equalsIgnoreCase("MONTHLY_FEE");
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+}
@@ -3,15 +3,23 @@ import static com.bank.system.utils.ConsoleUtil.printf;
 import com.bank.system.exceptions.InsufficientFundsException;
 import com.bank.system.exceptions.InvalidAmountException;
 import com.bank.system.exceptions.OverdraftExceededException;
+import com.bank.system.utils.Money;
 
 public class CheckingAccount extends Account {
-    private final double overdraftLimit;
-    private final double monthlyFee;
+    private final long overdraftLimitInCents;
+    private final long monthlyFeeInCents;
 
     public CheckingAccount(Customer customer, double initialBalance) {
         super(customer, initialBalance);
-        this.overdraftLimit = 1000.0; // $1000 overdraft limit
-        this.monthlyFee = 10.0; // $10 monthly fee
+        this.overdraftLimitInCents = 100_000; // $1000 overdraft limit
+        this.monthlyFeeInCents = 1_000; // $10 monthly fee
+    }
+
+    // Restores a saved account without generating a new number
+    public CheckingAccount(String accountNumber, Customer customer, long balanceInCents, String status) {
+        super(accountNumber, customer, balanceInCents, status);
+        this.overdraftLimitInCents = 100_000;
+        this.monthlyFeeInCents = 1_000;
     }
 
     @Override
@@ -24,8 +32,8 @@ public class CheckingAccount extends Account {
                 getStatus());
         printf("%-8s | Overdraft Limit: $%.2f | Monthly Fee: $,%.2f%n",
                 "",
-                overdraftLimit,
-                monthlyFee);
+                getOverdraftLimit(),
+                getMonthlyFee());
     }
 
     @Override
@@ -34,51 +42,76 @@ public class CheckingAccount extends Account {
     }
 
     @Override
-    public boolean withdraw(double amount) {
+    public boolean withdrawInCents(long amount) {
         if (amount <= 0) {
             return false;
         }
 
-        // Check if withdrawal is within balance + overdraft limit
-        if (getBalance() + overdraftLimit < amount) {
-            return false;
-        }
-
-        setBalance(getBalance() - amount);
+        // Check if withdrawal is within balance + overdraft limit, re-checked on every retry
+        long current;
+        do {
+            current = getBalanceInCents();
+            if (current + overdraftLimitInCents < amount) {
+                return false;
+            }
+        } while (!compareAndSetBalance(current, current - amount));
         return true;
     }
 
     // Method to apply monthly fee
     public void applyMonthlyFee() {
+        chargeMonthlyFee();
+    }
+
+    // Method to apply monthly fee and return its transaction, or null if the fee was waived or not charged
+    public Transaction chargeMonthlyFee() {
         // Check if customer is premium - they have waived fees
         if (getCustomer() instanceof PremiumCustomer) {
             // Premium customers have waived fees
-            return;
+            return null;
         }
 
         // Apply monthly fee only if balance is sufficient
-        if (getBalance() >= monthlyFee) {
-            setBalance(getBalance() - monthlyFee);
-        }
+        long current;
+        do {
+            current = getBalanceInCents();
+            if (current < monthlyFeeInCents) {
+                return null;
+            }
+        } while (!compareAndSetBalance(current, current - monthlyFeeInCents));
+        // The balance the fee produced, even if another posting has changed it since
+        return Transaction.ofCents(getAccountNumber(), "MONTHLY_FEE", monthlyFeeInCents, current - monthlyFeeInCents);
+    }
+
+    // Method to give back a fee charged by chargeMonthlyFee, when the batch that charged it is undone
+    public void refundMonthlyFee(Transaction fee) {
+        long current;
+        do {
+            current = getBalanceInCents();
+        } while (!compareAndSetBalance(current, Money.add(current, fee.getAmountInCents())));
     }
 
     // Getters
     public double getOverdraftLimit() {
-        return overdraftLimit;
+        return Money.toDollars(overdraftLimitInCents);
     }
 
     public double getMonthlyFee() {
-        return monthlyFee;
+        return Money.toDollars(monthlyFeeInCents);
+    }
+
+    public long getMonthlyFeeInCents() {
+        return monthlyFeeInCents;
     }
     @Override
-    public boolean processTransaction(double amount, String type) {
+    public boolean processTransaction(double amount, String type) throws InvalidAmountException {
 
         if (type.equalsIgnoreCase("DEPOSIT")) {
 
             return deposit(amount);
 
         } else if (type.equalsIgnoreCase("WITHDRAWAL")) {
-            return withdraw(amount);
+            return withdrawInCents(Money.fromDollars(amount));
         }
         return false;
     }
@@ -1,5 +1,7 @@
 package com.bank.system.model;
 
+import com.bank.system.utils.ValidationUtils;
+
 public abstract class Customer {
     private final String customerId;
     private String name;
@@ -16,6 +18,16 @@ public abstract class Customer {
         this.customerId = generateCustomerId();
     }
 
+    // Constructor for restoring a saved customer: keeps its id and moves the counter past it
+    protected Customer(String customerId, String name, int age, String contact, String address) {
+        this.name = name;
+        this.age = age;
+        this.contact = contact;
+        this.address = address;
+        this.customerId = customerId;
+        customerCounter = Math.max(customerCounter, ValidationUtils.idNumber(customerId, "CUS"));
+    }
+
     private String generateCustomerId() {
         customerCounter++;
         return String.format("CUS%03d", customerCounter);
@@ -11,6 +11,11 @@ public class PremiumCustomer extends Customer {
         this.minimumBalance = 10000.0; // $10,000 minimum balance for premium status
     }
 
+    public PremiumCustomer(String customerId, String name, int age, String contact, String address) {
+        super(customerId, name, age, contact, address);
+        this.minimumBalance = 10000.0;
+    }
+
     @Override
     public void displayCustomerDetails() {
         print("Customer: " + getName() + " (Premium)");
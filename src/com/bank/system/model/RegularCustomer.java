@@ -5,6 +5,10 @@ public class RegularCustomer extends Customer {
         super(name, age, contact, address);
     }
 
+    public RegularCustomer(String customerId, String name, int age, String contact, String address) {
+        super(customerId, name, age, contact, address);
+    }
+
     @Override
     public void displayCustomerDetails() {
         print("Customer: " + getName() + " (Regular)");
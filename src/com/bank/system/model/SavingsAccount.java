@@ -3,15 +3,54 @@ package com.bank.system.model;
 import static com.bank.system.utils.ConsoleUtil.printf;
 import com.bank.system.exceptions.InsufficientFundsException;
 import com.bank.system.exceptions.InvalidAmountException;
+import com.bank.system.utils.Money;
 
+import java.time.Clock;
+import java.time.LocalDate;
+
+// Interest accrues daily and lazily: the account remembers the day it last accrued and, the first time it
+// is read or deposited to on a later day, adds interest on its balance for each day in between, so a
+// dormant account costs nothing until it is touched. Accrued interest is kept apart from the balance, in
+// ten-thousandths of a cent, until creditMonthlyInterest moves the whole cents in. Days are UTC days.
 public class SavingsAccount extends Account  {
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final long DAYS_PER_YEAR = 365;
+    private static final long ACCRUAL_UNITS_PER_CENT = 10_000;
+
     private final double interestRate;
-    private final double minimumBalance;
+    private final long interestRateBasisPoints;
+    private final long minimumBalanceInCents;
+    private final Clock clock;
+    // Written only under this object's monitor; read without it on the fast path
+    private volatile long lastAccrualDay;
+    private long accruedUnits;
 
     public SavingsAccount(Customer customer, double initialBalance) {
+        this(customer, initialBalance, Clock.systemUTC());
+    }
+
+    // The clock decides which day it is; interest starts accruing from today
+    public SavingsAccount(Customer customer, double initialBalance, Clock clock) {
         super(customer, initialBalance);
         this.interestRate = 3.5; // 3.5% annually
-        this.minimumBalance = 50.0; // $50 minimum balance
+        this.interestRateBasisPoints = Money.toBasisPoints(interestRate / 100);
+        this.minimumBalanceInCents = 5_000; // $50 minimum balance
+        this.clock = clock;
+        this.lastAccrualDay = today();
+    }
+
+    // Restores a saved account without generating a new number
+    public SavingsAccount(String accountNumber, Customer customer, long balanceInCents, String status) {
+        this(accountNumber, customer, balanceInCents, status, Clock.systemUTC());
+    }
+
+    public SavingsAccount(String accountNumber, Customer customer, long balanceInCents, String status, Clock clock) {
+        super(accountNumber, customer, balanceInCents, status);
+        this.interestRate = 3.5;
+        this.interestRateBasisPoints = Money.toBasisPoints(interestRate / 100);
+        this.minimumBalanceInCents = 5_000;
+        this.clock = clock;
+        this.lastAccrualDay = today();
     }
 
     @Override
@@ -25,7 +64,7 @@ public class SavingsAccount extends Account  {
         printf("%-8s | Interest Rate: %.1f%% | Min Balance: $,%.2f%n",
                 "",
                 interestRate,
-                minimumBalance);
+                getMinimumBalance());
     }
 
     @Override
@@ -34,25 +73,124 @@ public class SavingsAccount extends Account  {
     }
 
     @Override
-    public boolean withdraw(double amount) throws InsufficientFundsException {
+    public boolean withdrawInCents(long amount) throws InvalidAmountException, InsufficientFundsException {
         if (amount <= 0) {
             throw new InvalidAmountException("Invalid amount. Amount must be greater than 0.");
         }
 
-        // Check if withdrawal would bring balance below minimum
-        if (getBalance() - amount < minimumBalance) {
-            throw new InsufficientFundsException(
-                String.format("Withdrawal failed. Insufficient funds. Current balance: $%.2f, Minimum balance: $%.2f", 
-                             getBalance(), minimumBalance));
-        }
-
-        setBalance(getBalance() - amount);
+        // Check if withdrawal would bring balance below minimum, re-checked on every retry
+        long current;
+        long newBalance;
+        do {
+            current = getBalanceInCents();
+            newBalance = Money.subtract(current, amount);
+            if (newBalance < minimumBalanceInCents) {
+                throw new InsufficientFundsException(
+                    String.format("Withdrawal failed. Insufficient funds. Current balance: $%s, Minimum balance: $%s", 
+                                 Money.format(current), Money.format(minimumBalanceInCents)));
+            }
+        } while (!compareAndSetBalance(current, newBalance));
         return true;
     }
 
     // Method to calculate interest
     public double calculateInterest() {
-        return getBalance() * (interestRate / 100);
+        return Money.toDollars(calculateInterestInCents());
+    }
+
+    public long calculateInterestInCents() {
+        return Money.applyRate(getBalanceInCents(), interestRateBasisPoints);
+    }
+
+    // Method to credit the interest accrued since the last credit, keeping any fraction of a cent for later
+    // Returns its transaction, or null if less than a cent has accrued
+    public Transaction creditMonthlyInterest() {
+        accrueInterest();
+        long interest;
+        synchronized (this) {
+            interest = accruedUnits / ACCRUAL_UNITS_PER_CENT;
+            accruedUnits -= interest * ACCRUAL_UNITS_PER_CENT;
+        }
+        if (interest <= 0) {
+            return null;
+        }
+        long current;
+        do {
+            current = storedBalanceInCents();
+        } while (!compareAndSetBalance(current, Money.add(current, interest)));
+        return Transaction.ofCents(getAccountNumber(), "INTEREST", interest, current + interest);
+    }
+
+    // Method to take back interest paid by creditMonthlyInterest, when the batch that paid it is undone
+    // The cents go back to the accrued interest, so the next credit pays them again
+    public void reverseMonthlyInterest(Transaction credit) {
+        long interest = credit.getAmountInCents();
+        long current;
+        do {
+            current = storedBalanceInCents();
+        } while (!compareAndSetBalance(current, Money.subtract(current, interest)));
+        synchronized (this) {
+            accruedUnits = Math.addExact(accruedUnits, Math.multiplyExact(interest, ACCRUAL_UNITS_PER_CENT));
+        }
+    }
+
+    // Method to add interest for the days since the last accrual on the balance held through them
+    // Every withdrawal and deposit accrues first, so the balance cannot have changed since that day ended
+    @Override
+    protected void accrueInterest() {
+        long today = today();
+        if (today <= lastAccrualDay) {
+            return;
+        }
+        synchronized (this) {
+            long days = today - lastAccrualDay;
+            if (days <= 0) {
+                return;
+            }
+            long balance = storedBalanceInCents();
+            if (balance > 0) {
+                long dailyUnits = Math.multiplyExact(Math.multiplyExact(balance, interestRateBasisPoints), ACCRUAL_UNITS_PER_CENT)
+                        / (Money.BASIS_POINTS_PER_UNIT * DAYS_PER_YEAR);
+                accruedUnits = Math.addExact(accruedUnits, Math.multiplyExact(dailyUnits, days));
+            }
+            lastAccrualDay = today;
+        }
+    }
+
+    // Getter for interest accrued up to today and not yet credited, in whole cents
+    public long getAccruedInterestInCents() {
+        accrueInterest();
+        synchronized (this) {
+            return accruedUnits / ACCRUAL_UNITS_PER_CENT;
+        }
+    }
+
+    public double getAccruedInterest() {
+        return Money.toDollars(getAccruedInterestInCents());
+    }
+
+    // Getter for the day interest was last brought up to date
+    public LocalDate getLastAccrualDate() {
+        return LocalDate.ofEpochDay(lastAccrualDay);
+    }
+
+    // Getter for interest accrued and not yet credited in ten-thousandths of a cent, as of the last accrual day
+    // Nothing is accrued first, so it can be saved together with getLastAccrualDate
+    public synchronized long getAccruedUnits() {
+        return accruedUnits;
+    }
+
+    // Method to put back the accrual state a snapshot saved, so interest earned before a restart is kept
+    public synchronized void restoreAccrual(LocalDate lastAccrualDate, long accruedUnits) {
+        if (accruedUnits < 0) {
+            throw new IllegalArgumentException("Accrued interest cannot be negative");
+        }
+        this.lastAccrualDay = lastAccrualDate.toEpochDay();
+        this.accruedUnits = accruedUnits;
+    }
+
+    private long today() {
+        return Math.floorDiv(clock.millis(), MILLIS_PER_DAY);
     }
 
     // Getters
@@ -61,7 +199,11 @@ public class SavingsAccount extends Account  {
     }
 
     public double getMinimumBalance() {
-        return minimumBalance;
+        return Money.toDollars(minimumBalanceInCents);
+    }
+
+    public long getMinimumBalanceInCents() {
+        return minimumBalanceInCents;
     }
     @Override
     public boolean processTransaction(double amount, String type) throws InvalidAmountException, InsufficientFundsException {
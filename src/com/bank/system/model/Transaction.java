@@ -1,36 +1,66 @@
 package com.bank.system.model;
 import static com.bank.system.utils.ConsoleFormatter.printSubSeparator;
 import static com.bank.system.utils.ConsoleUtil.*;
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import com.bank.system.utils.Money;
+import com.bank.system.utils.ValidationUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Transaction {
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy hh:mm a");
     private final String transactionId;
     private final String accountNumber;
     private final String type; // "DEPOSIT" or "WITHDRAWAL"
-    private final double amount;
-    private final double balanceAfter;
-    private final String timestamp;
-    private static int transactionCounter = 0;
+    private final long amountInCents;
+    private final long balanceAfterInCents;
+    private final long timestampMillis; // formatted on demand instead of holding a String per row
+    // Shared by every thread that records transactions, so ids stay unique under parallel batch runs
+    private static final AtomicInteger transactionCounter = new AtomicInteger();
 
-    public Transaction(String accountNumber, String type, double amount, double balanceAfter) {
+    private Transaction(String accountNumber, String type, long amountInCents, long balanceAfterInCents) {
         this.accountNumber = accountNumber;
         this.type = type;
-        this.amount = amount;
-        this.balanceAfter = balanceAfter;
+        this.amountInCents = amountInCents;
+        this.balanceAfterInCents = balanceAfterInCents;
         this.transactionId = generateTransactionId();
-        this.timestamp = getCurrentTimestamp();
+        this.timestampMillis = System.currentTimeMillis();
+    }
+
+    // Method to record a new transaction from amounts in cents
+    public static Transaction ofCents(String accountNumber, String type, long amountInCents, long balanceAfterInCents) {
+        return new Transaction(accountNumber, type, amountInCents, balanceAfterInCents);
+    }
+
+    // Method to record a new transaction from amounts in dollars
+    public static Transaction ofDollars(String accountNumber, String type, double amount, double balanceAfter) {
+        return new Transaction(accountNumber, type, Money.fromDollars(amount), Money.fromDollars(balanceAfter));
+    }
+
+    // Constructor for restoring a saved transaction: keeps its id and time and moves the counter past it
+    public Transaction(String transactionId, String accountNumber, String type, long amountInCents, long balanceAfterInCents, long timestampMillis) {
+        this.transactionId = transactionId;
+        this.accountNumber = accountNumber;
+        this.type = type;
+        this.amountInCents = amountInCents;
+        this.balanceAfterInCents = balanceAfterInCents;
+        this.timestampMillis = timestampMillis;
+        transactionCounter.accumulateAndGet(ValidationUtils.idNumber(transactionId, "TXN"), Math::max);
     }
 
     private String generateTransactionId() {
-        transactionCounter++;
-        return String.format("TXN%03d", transactionCounter);
+        // Same text as String.format("TXN%03d", n) without the formatter's parsing and garbage
+        int sequence = transactionCounter.incrementAndGet();
+        if (sequence >= 100) {
+            return "TXN" + sequence;
+        }
+        return (sequence >= 10 ? "TXN0" : "TXN00") + sequence;
     }
 
-    private String getCurrentTimestamp() {
-        LocalDateTime now = LocalDateTime.now();
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy hh:mm a");
-        return now.format(formatter);
+    private String formatTimestamp() {
+        return TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(timestampMillis).atZone(ZoneId.systemDefault()));
     }
 
     // Method to display transaction details
@@ -41,10 +71,10 @@ public class Transaction {
         print("Transaction ID: " + transactionId);
         print("Account: " + accountNumber);
         print("Type: " + type);
-        System.out.printf("Amount: $%.2f%n", amount);
+        print("Amount: $" + Money.format(amountInCents));
         printf("Previous Balance: $%.2f%n", previousBalance);
-        System.out.printf("NewBalance : $%.2f%n", balanceAfter);
-        print("Date/Time: " + timestamp);
+        print("NewBalance : $" + Money.format(balanceAfterInCents));
+        print("Date/Time: " + formatTimestamp());
         printSubSeparator(60);
     }
 
@@ -62,22 +92,34 @@ public class Transaction {
     }
 
     public double getAmount() {
-        return amount;
+        return Money.toDollars(amountInCents);
+    }
+
+    public long getAmountInCents() {
+        return amountInCents;
     }
 
     public double getBalanceAfter() {
-        return balanceAfter;
+        return Money.toDollars(balanceAfterInCents);
+    }
+
+    public long getBalanceAfterInCents() {
+        return balanceAfterInCents;
     }
 
     public String getTimestamp() {
-        return timestamp;
+        return formatTimestamp();
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
     }
 
     public static int getTransactionCounter() {
-        return transactionCounter;
+        return transactionCounter.get();
     }
 
     public static void resetTransactionCounter() {
-        transactionCounter = 0;
+        transactionCounter.set(0);
     }
 }
\ No newline at end of file
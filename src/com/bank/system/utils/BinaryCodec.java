@@ -0,0 +1,326 @@
+package com.bank.system.utils;
+
+import com.bank.system.model.Account;
+import com.bank.system.model.CheckingAccount;
+import com.bank.system.model.Customer;
+import com.bank.system.model.PremiumCustomer;
+import com.bank.system.model.RegularCustomer;
+import com.bank.system.model.SavingsAccount;
+import com.bank.system.model.Transaction;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+// Compact binary encoding of transactions, accounts and customers for persistence and bulk export.
+// Rows are written at the position of a caller's ByteBuffer, so one buffer can be reused for any number
+// of rows. Numbers are varints (zigzag for signed ones), generated ids (TXN001, ACC001, CUS001) are
+// stored as just their number, and each transaction's time is the difference from the previous one's.
+//
+// transaction: type code (0 deposit, 1 withdrawal, 0x7F then text), id, account number,
+//              amount, balance after, time in millis minus the previous transaction's
+// account:     kind (0 savings, 1 checking), account number, status, balance, then for savings the epoch
+//              day interest was accrued to and the uncredited interest in ten-thousandths of a cent, customer
+// customer:    kind (0 regular, 1 premium), id, name, age, contact, address
+//
+// Decoding uses the restore constructors, which keep the saved ids and move the id counters past them.
+// A codec carries the previous timestamp in each direction, so a stream must be decoded in order by a
+// codec starting from the same state as the encoder; call reset between streams. Not thread-safe.
+public class BinaryCodec {
+    private static final int CUSTOM_TYPE = 0x7F;
+    private static final byte DEPOSIT = 0;
+    private static final byte WITHDRAWAL = 1;
+    private static final byte SAVINGS = 0;
+    private static final byte CHECKING = 1;
+    private static final byte REGULAR = 0;
+    private static final byte PREMIUM = 1;
+
+    private long previousEncodedMillis;
+    private long previousDecodedMillis;
+    private byte[] scratch = new byte[64];
+
+    // Method to start a new stream: timestamps are no longer relative to earlier rows
+    public void reset() {
+        previousEncodedMillis = 0;
+        previousDecodedMillis = 0;
+    }
+
+    // Method to write a transaction; returns false, leaving the buffer as it was, if it does not fit
+    public boolean encode(ByteBuffer buffer, Transaction transaction) {
+        int start = buffer.position();
+        try {
+            String type = transaction.getType();
+            if (type.equals("DEPOSIT")) {
+                buffer.put(DEPOSIT);
+            } else if (type.equals("WITHDRAWAL")) {
+                buffer.put(WITHDRAWAL);
+            } else {
+                buffer.put((byte) CUSTOM_TYPE);
+                putText(buffer, type);
+            }
+            putId(buffer, "TXN", transaction.getTransactionId());
+            putId(buffer, "ACC", transaction.getAccountNumber());
+            putSignedVarLong(buffer, transaction.getAmountInCents());
+            putSignedVarLong(buffer, transaction.getBalanceAfterInCents());
+            putSignedVarLong(buffer, transaction.getTimestampMillis() - previousEncodedMillis);
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            return false;
+        }
+        previousEncodedMillis = transaction.getTimestampMillis();
+        return true;
+    }
+
+    // Method to read a transaction; returns null, leaving the buffer as it was, if the row is cut short
+    public Transaction decodeTransaction(ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            byte typeCode = buffer.get();
+            String type;
+            if (typeCode == DEPOSIT) {
+                type = "DEPOSIT";
+            } else if (typeCode == WITHDRAWAL) {
+                type = "WITHDRAWAL";
+            } else if (typeCode == CUSTOM_TYPE) {
+                type = getText(buffer);
+            } else {
+                throw new IllegalArgumentException("Unknown transaction type code " + typeCode + " at position " + start);
+            }
+            String transactionId = getId(buffer, "TXN");
+            String accountNumber = getId(buffer, "ACC");
+            long amountInCents = getSignedVarLong(buffer);
+            long balanceAfterInCents = getSignedVarLong(buffer);
+            long timestampMillis = previousDecodedMillis + getSignedVarLong(buffer);
+            previousDecodedMillis = timestampMillis;
+            return new Transaction(transactionId, accountNumber, type, amountInCents, balanceAfterInCents, timestampMillis);
+        } catch (BufferUnderflowException e) {
+            buffer.position(start);
+            return null;
+        }
+    }
+
+    // Method to write an account with its customer; returns false, leaving the buffer as it was, if it does not fit
+    public boolean encode(ByteBuffer buffer, Account account) {
+        int start = buffer.position();
+        try {
+            buffer.put(account instanceof CheckingAccount ? CHECKING : SAVINGS);
+            putId(buffer, "ACC", account.getAccountNumber());
+            putText(buffer, account.getStatus());
+            if (account instanceof SavingsAccount) {
+                SavingsAccount savings = (SavingsAccount) account;
+                // Read together, so the interest written is the interest on the balance written
+                synchronized (savings) {
+                    putSignedVarLong(buffer, savings.getBalanceInCents());
+                    putSignedVarLong(buffer, savings.getLastAccrualDate().toEpochDay());
+                    putVarLong(buffer, savings.getAccruedUnits());
+                }
+            } else {
+                putSignedVarLong(buffer, account.getBalanceInCents());
+            }
+            putCustomer(buffer, account.getCustomer());
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            return false;
+        }
+        return true;
+    }
+
+    // Method to read an account; returns null, leaving the buffer as it was, if it is cut short
+    public Account decodeAccount(ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            byte kind = buffer.get();
+            String accountNumber = getId(buffer, "ACC");
+            String status = getText(buffer);
+            long balanceInCents = getSignedVarLong(buffer);
+            long lastAccrualDay = 0;
+            long accruedUnits = 0;
+            if (kind == SAVINGS) {
+                lastAccrualDay = getSignedVarLong(buffer);
+                accruedUnits = getVarLong(buffer);
+            }
+            Customer customer = getCustomer(buffer);
+            if (kind == SAVINGS) {
+                SavingsAccount savings = new SavingsAccount(accountNumber, customer, balanceInCents, status);
+                savings.restoreAccrual(LocalDate.ofEpochDay(lastAccrualDay), accruedUnits);
+                return savings;
+            } else if (kind == CHECKING) {
+                return new CheckingAccount(accountNumber, customer, balanceInCents, status);
+            }
+            throw new IllegalArgumentException("Unknown account kind " + kind + " at position " + start);
+        } catch (BufferUnderflowException e) {
+            buffer.position(start);
+            return null;
+        }
+    }
+
+    // Method to write a customer; returns false, leaving the buffer as it was, if it does not fit
+    public boolean encode(ByteBuffer buffer, Customer customer) {
+        int start = buffer.position();
+        try {
+            putCustomer(buffer, customer);
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            return false;
+        }
+        return true;
+    }
+
+    // Method to read a customer; returns null, leaving the buffer as it was, if it is cut short
+    public Customer decodeCustomer(ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            return getCustomer(buffer);
+        } catch (BufferUnderflowException e) {
+            buffer.position(start);
+            return null;
+        }
+    }
+
+    private void putCustomer(ByteBuffer buffer, Customer customer) {
+        buffer.put(customer instanceof PremiumCustomer ? PREMIUM : REGULAR);
+        putId(buffer, "CUS", customer.getCustomerId());
+        putText(buffer, customer.getName());
+        putVarLong(buffer, customer.getAge());
+        putText(buffer, customer.getContact());
+        putText(buffer, customer.getAddress());
+    }
+
+    private Customer getCustomer(ByteBuffer buffer) {
+        byte kind = buffer.get();
+        String customerId = getId(buffer, "CUS");
+        String name = getText(buffer);
+        int age = (int) getVarLong(buffer);
+        String contact = getText(buffer);
+        String address = getText(buffer);
+        if (kind == REGULAR) {
+            return new RegularCustomer(customerId, name, age, contact, address);
+        } else if (kind == PREMIUM) {
+            return new PremiumCustomer(customerId, name, age, contact, address);
+        }
+        throw new IllegalArgumentException("Unknown customer kind " + kind);
+    }
+
+    // Generated ids (prefix plus a number padded to three digits) are stored as number << 1,
+    // anything else as (length << 1) | 1 followed by the UTF-8 text
+    private void putId(ByteBuffer buffer, String prefix, String id) {
+        long number = generatedNumber(prefix, id);
+        if (number >= 0) {
+            putVarLong(buffer, number << 1);
+        } else {
+            putString(buffer, id, true);
+        }
+    }
+
+    private String getId(ByteBuffer buffer, String prefix) {
+        long tag = getVarLong(buffer);
+        if ((tag & 1) == 0) {
+            long number = tag >>> 1;
+            if (number >= 100) {
+                return prefix + number;
+            }
+            return (number >= 10 ? prefix + "0" : prefix + "00") + number;
+        }
+        return getString(buffer, tag >>> 1);
+    }
+
+    // Returns -1 unless decoding the number gives back exactly the same id
+    private static long generatedNumber(String prefix, String id) {
+        int digits = id.length() - prefix.length();
+        if (digits < 3 || digits > 18 || !id.startsWith(prefix)) {
+            return -1;
+        }
+        if (digits > 3 && id.charAt(prefix.length()) == '0') {
+            return -1;
+        }
+        long number = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    // Null text is written as empty
+    private void putText(ByteBuffer buffer, String text) {
+        putString(buffer, text == null ? "" : text, false);
+    }
+
+    private String getText(ByteBuffer buffer) {
+        return getString(buffer, getVarLong(buffer));
+    }
+
+    // ASCII text, the usual case, is copied char by char without an intermediate array
+    private static void putString(ByteBuffer buffer, String text, boolean idTag) {
+        int length = text.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            putVarLong(buffer, idTag ? ((long) length << 1) | 1 : length);
+            for (int i = 0; i < length; i++) {
+                buffer.put((byte) text.charAt(i));
+            }
+        } else {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            putVarLong(buffer, idTag ? ((long) bytes.length << 1) | 1 : bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private String getString(ByteBuffer buffer, long length) {
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Corrupt text length " + length);
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        int size = (int) length;
+        if (buffer.hasArray()) {
+            String text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), size, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + size);
+            return text;
+        }
+        if (scratch.length < size) {
+            scratch = new byte[Math.max(size, scratch.length * 2)];
+        }
+        buffer.get(scratch, 0, size);
+        return new String(scratch, 0, size, StandardCharsets.UTF_8);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt varint");
+    }
+
+    // Zigzag keeps small negative numbers small: 0, -1, 1, -2 become 0, 1, 2, 3
+    private static void putSignedVarLong(ByteBuffer buffer, long value) {
+        putVarLong(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    private static long getSignedVarLong(ByteBuffer buffer) {
+        long encoded = getVarLong(buffer);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+}
@@ -37,4 +37,26 @@ public class ValidationUtils {
             throw new InvalidAmountException(fieldName + " cannot be null or empty.");
         }
     }
+    
+    /**
+     * Reads the number of a generated id such as ACC007 without compiling a regular expression
+     * @param id the id to read
+     * @param prefix the expected prefix, e.g. "ACC"
+     * @return the number after the prefix, or -1 if the rest of the id is not 1 to 9 digits
+     */
+    public static int idNumber(String id, String prefix) {
+        int digits = id.length() - prefix.length();
+        if (digits < 1 || digits > 9 || !id.startsWith(prefix)) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
 }
\ No newline at end of file
@@ -1,27 +1,195 @@
 package models;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import exceptions.InsufficientFundsException;
 import exceptions.InvalidAmountException;
 import exceptions.OverdraftExceededException;
+import utils.Money;
 
 public abstract class Account {
+    private static final VarHandle BALANCE;
+    
+    static {
+        try {
+            BALANCE = MethodHandles.lookup().findVarHandle(Account.class, "balanceInCents", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
     protected String accountNumber;
-    protected double balance;
+    // Every posting changes it with a compare-and-set, so locked and lock-free updates never lose each other;
+    // only the restore-time setters store it outright
+    protected volatile long balanceInCents;
     protected Customer customer;
     protected List<Transaction> transactions;
+    // Set once a ledger records this account's history; it then replaces the list above
+    private volatile Supplier<List<Transaction>> history;
+    private final ReentrantLock lock = new ReentrantLock();
     
     public Account(String accountNumber, double initialBalance, Customer customer) {
         this.accountNumber = accountNumber;
-        this.balance = initialBalance;
+        this.balanceInCents = Money.fromDollars(initialBalance);
         this.customer = customer;
         this.transactions = new ArrayList<>();
     }
     
-    // Abstract methods to be implemented by subclasses
-    public abstract boolean withdraw(double amount) throws InsufficientFundsException, InvalidAmountException, OverdraftExceededException;
-    public abstract void deposit(double amount) throws InvalidAmountException;
+    /**
+     * Returns the balance left after withdrawing the given amount, applying any fees and limits
+     * of the account type. Implementations must not modify the account.
+     * @param balance the current balance in cents
+     * @param amount the requested amount in cents, already validated as positive
+     * @return the new balance in cents
+     */
+    protected abstract long balanceAfterWithdrawal(long balance, long amount) throws InsufficientFundsException, OverdraftExceededException;
+    
+    /**
+     * Returns the balance left after transferring the given amount out. Transfers are not
+     * charged withdrawal fees; accounts that charge fees override this.
+     */
+    protected long balanceAfterTransferOut(long balance, long amount) throws InsufficientFundsException, OverdraftExceededException {
+        return balanceAfterWithdrawal(balance, amount);
+    }
+    
+    /**
+     * Called before every balance read and posting, so accounts that earn interest can bring
+     * it up to date only when they are used. Must not change the balance.
+     */
+    protected void accrueInterest() {
+    }
+    
+    public boolean withdraw(double amount) throws InsufficientFundsException, InvalidAmountException, OverdraftExceededException {
+        return withdrawInCents(Money.fromDollars(amount));
+    }
+    
+    public boolean withdrawInCents(long amount) throws InsufficientFundsException, InvalidAmountException, OverdraftExceededException {
+        if (amount <= 0) {
+            throw new InvalidAmountException("Withdrawal amount must be greater than 0");
+        }
+        accrueInterest();
+        lock.lock();
+        try {
+            applyWithdrawal(amount, false);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+    
+    /**
+     * Withdraws without taking the account lock, retrying a compare-and-set on the balance until
+     * it wins. The account type's fee and limit rules are re-checked against every balance read.
+     * @param amount the amount in cents
+     * @return the balance after this withdrawal
+     */
+    public long withdrawLockFree(long amount) throws InsufficientFundsException, InvalidAmountException, OverdraftExceededException {
+        if (amount <= 0) {
+            throw new InvalidAmountException("Withdrawal amount must be greater than 0");
+        }
+        accrueInterest();
+        return applyWithdrawal(amount, false);
+    }
+    
+    public void deposit(double amount) throws InvalidAmountException {
+        depositInCents(Money.fromDollars(amount));
+    }
+    
+    public void depositInCents(long amount) throws InvalidAmountException {
+        if (amount <= 0) {
+            throw new InvalidAmountException("Deposit amount must be greater than 0");
+        }
+        accrueInterest();
+        lock.lock();
+        try {
+            applyDeposit(amount);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Deposits without taking the account lock
+     * @param amount the amount in cents
+     * @return the balance after this deposit
+     */
+    public long depositLockFree(long amount) throws InvalidAmountException {
+        if (amount <= 0) {
+            throw new InvalidAmountException("Deposit amount must be greater than 0");
+        }
+        accrueInterest();
+        return applyDeposit(amount);
+    }
+    
+    /**
+     * Takes back a deposit that could not be recorded, e.g. because the journal refused it. The
+     * compare-and-set keeps any posting made since, and no limits apply: the deposit never
+     * really happened.
+     * @param amount the deposited amount in cents
+     */
+    public void reverseDepositInCents(long amount) {
+        accrueInterest();
+        applyDeposit(Money.subtract(0, amount));
+    }
+    
+    /**
+     * Puts back a withdrawal that could not be recorded, fees included
+     * @param amount the requested amount in cents
+     */
+    public void reverseWithdrawalInCents(long amount) {
+        accrueInterest();
+        applyDeposit(withdrawalChargeInCents(amount));
+    }
+    
+    /**
+     * Returns how much withdrawing the given amount takes from the balance. Accounts that
+     * charge a withdrawal fee add it here and in {@link #balanceAfterWithdrawal}.
+     */
+    protected long withdrawalChargeInCents(long amount) {
+        return amount;
+    }
+    
+    public boolean transferOut(double amount) throws InsufficientFundsException, InvalidAmountException, OverdraftExceededException {
+        return transferOutInCents(Money.fromDollars(amount));
+    }
+    
+    public boolean transferOutInCents(long amount) throws InsufficientFundsException, InvalidAmountException, OverdraftExceededException {
+        if (amount <= 0) {
+            throw new InvalidAmountException("Transfer amount must be greater than 0");
+        }
+        accrueInterest();
+        lock.lock();
+        try {
+            applyWithdrawal(amount, true);
+        } finally {
+            lock.unlock();
+        }
+        return true;
+    }
+    
+    private long applyWithdrawal(long amount, boolean transfer) throws InsufficientFundsException, OverdraftExceededException {
+        while (true) {
+            long current = (long) BALANCE.getVolatile(this);
+            long updated = transfer ? balanceAfterTransferOut(current, amount) : balanceAfterWithdrawal(current, amount);
+            if (BALANCE.compareAndSet(this, current, updated)) {
+                return updated;
+            }
+        }
+    }
+    
+    private long applyDeposit(long amount) {
+        while (true) {
+            long current = (long) BALANCE.getVolatile(this);
+            long updated = Money.add(current, amount);
+            if (BALANCE.compareAndSet(this, current, updated)) {
+                return updated;
+            }
+        }
+    }
     
     // Common methods
     public String getAccountNumber() {
@@ -29,7 +197,12 @@ public abstract class Account {
     }
     
     public double getBalance() {
-        return balance;
+        return Money.toDollars(getBalanceInCents());
+    }
+    
+    public long getBalanceInCents() {
+        accrueInterest();
+        return balanceInCents;
     }
     
     public Customer getCustomer() {
@@ -37,20 +210,62 @@ public abstract class Account {
     }
     
     public List<Transaction> getTransactions() {
-        return new ArrayList<>(transactions);
+        Supplier<List<Transaction>> bound = history;
+        if (bound != null) {
+            return bound.get();
+        }
+        lock.lock();
+        try {
+            return new ArrayList<>(transactions);
+        } finally {
+            lock.unlock();
+        }
     }
     
     public void addTransaction(Transaction transaction) {
-        this.transactions.add(transaction);
+        lock.lock();
+        try {
+            this.transactions.add(transaction);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * Reads this account's history from a ledger that records it, such as the transaction
+     * manager's, instead of from transactions added to the account itself
+     * @param history returns a copy of the history, oldest first
+     */
+    public void bindHistory(Supplier<List<Transaction>> history) {
+        this.history = history;
+    }
+    
+    /**
+     * Returns the lock that serializes balance changes on this account. Callers that read the
+     * balance and record a transaction must hold it across both steps.
+     */
+    public ReentrantLock getLock() {
+        return lock;
     }
     
+    /**
+     * Replaces the balance outright, for loading or restoring an account before it takes
+     * postings. Not for adjusting a live account: a posting made at the same time is lost.
+     */
     public void setBalance(double balance) {
-        this.balance = balance;
+        setBalanceInCents(Money.fromDollars(balance));
+    }
+    
+    /**
+     * Replaces the balance outright; see {@link #setBalance}
+     */
+    public void setBalanceInCents(long balanceInCents) {
+        this.balanceInCents = balanceInCents;
     }
     
     @Override
     public String toString() {
-        return String.format("Account Number: %s, Balance: $%.2f, Customer: %s", 
-                           accountNumber, balance, customer.getName());
+        return String.format("Account Number: %s, Balance: $%s, Customer: %s", 
+                           accountNumber, Money.format(balanceInCents), customer.getName());
     }
 }
\ No newline at end of file
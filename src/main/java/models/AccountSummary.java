@@ -0,0 +1,152 @@
+package models;
+
+import utils.Money;
+
+/**
+ * Running totals of an account's transactions, updated as each transaction is recorded
+ * so summaries never have to walk the account's history. Totals are kept in cents.
+ */
+public class AccountSummary {
+    private long totalDeposits;
+    private long totalWithdrawals;
+    private long totalTransfersIn;
+    private long totalTransfersOut;
+    private long totalInterest;
+    private int transactionCount;
+    
+    public AccountSummary() {
+    }
+    
+    /**
+     * Totals saved earlier, e.g. in a snapshot; amounts in cents
+     */
+    public AccountSummary(long totalDeposits, long totalWithdrawals, long totalTransfersIn, long totalTransfersOut,
+                          long totalInterest, int transactionCount) {
+        this.totalDeposits = totalDeposits;
+        this.totalWithdrawals = totalWithdrawals;
+        this.totalTransfersIn = totalTransfersIn;
+        this.totalTransfersOut = totalTransfersOut;
+        this.totalInterest = totalInterest;
+        this.transactionCount = transactionCount;
+    }
+    
+    private AccountSummary(AccountSummary other) {
+        this.totalDeposits = other.totalDeposits;
+        this.totalWithdrawals = other.totalWithdrawals;
+        this.totalTransfersIn = other.totalTransfersIn;
+        this.totalTransfersOut = other.totalTransfersOut;
+        this.totalInterest = other.totalInterest;
+        this.transactionCount = other.transactionCount;
+    }
+    
+    /**
+     * Adds one transaction to the running totals
+     * @param transaction the transaction that was just recorded
+     */
+    public void record(Transaction transaction) {
+        record(transaction.getType(), transaction.getAmountInCents());
+    }
+    
+    /**
+     * Adds one transaction to the running totals from its fields, e.g. while scanning a ledger
+     * without building transactions
+     * @param type the transaction type, such as "DEPOSIT"
+     * @param amount the amount in cents
+     */
+    public void record(String type, long amount) {
+        switch (type) {
+            case "DEPOSIT" -> totalDeposits += amount;
+            case "WITHDRAWAL" -> totalWithdrawals += amount;
+            case "TRANSFER_IN" -> totalTransfersIn += amount;
+            case "TRANSFER_OUT" -> totalTransfersOut += amount;
+            case "INTEREST" -> totalInterest += amount;
+            default -> { }
+        }
+        transactionCount++;
+    }
+    
+    /**
+     * Returns an independent copy of the current totals
+     * @return a snapshot that does not change when more transactions are recorded
+     */
+    public AccountSummary snapshot() {
+        return new AccountSummary(this);
+    }
+    
+    public double getTotalDeposits() {
+        return Money.toDollars(totalDeposits);
+    }
+    
+    public double getTotalWithdrawals() {
+        return Money.toDollars(totalWithdrawals);
+    }
+    
+    public double getTotalTransfersIn() {
+        return Money.toDollars(totalTransfersIn);
+    }
+    
+    public double getTotalTransfersOut() {
+        return Money.toDollars(totalTransfersOut);
+    }
+    
+    public double getTotalInterest() {
+        return Money.toDollars(totalInterest);
+    }
+    
+    public long getTotalDepositsInCents() {
+        return totalDeposits;
+    }
+    
+    public long getTotalWithdrawalsInCents() {
+        return totalWithdrawals;
+    }
+    
+    public long getTotalTransfersInInCents() {
+        return totalTransfersIn;
+    }
+    
+    public long getTotalTransfersOutInCents() {
+        return totalTransfersOut;
+    }
+    
+    public long getTotalInterestInCents() {
+        return totalInterest;
+    }
+    
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+    
+    // Money in: deposits, incoming transfers and credited interest
+    public long getTotalCreditsInCents() {
+        return totalDeposits + totalTransfersIn + totalInterest;
+    }
+    
+    // Money out: withdrawals plus outgoing transfers
+    public long getTotalDebitsInCents() {
+        return totalWithdrawals + totalTransfersOut;
+    }
+    
+    public long getNetChangeInCents() {
+        return getTotalCreditsInCents() - getTotalDebitsInCents();
+    }
+    
+    public double getTotalCredits() {
+        return Money.toDollars(getTotalCreditsInCents());
+    }
+    
+    public double getTotalDebits() {
+        return Money.toDollars(getTotalDebitsInCents());
+    }
+    
+    public double getNetChange() {
+        return Money.toDollars(getNetChangeInCents());
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("AccountSummary{deposits=%s, withdrawals=%s, transfersIn=%s, transfersOut=%s, interest=%s, count=%d}",
+                           Money.format(totalDeposits), Money.format(totalWithdrawals),
+                           Money.format(totalTransfersIn), Money.format(totalTransfersOut), Money.format(totalInterest), transactionCount);
+    }
+}
@@ -2,41 +2,181 @@ package models;
 
 import exceptions.InsufficientFundsException;
 import exceptions.InvalidAmountException;
+import utils.Money;
 
+import java.time.Clock;
+import java.time.LocalDate;
+
+/**
+ * Savings account earning daily interest at its customer's rate. Interest accrues lazily: the
+ * account remembers the day it last accrued and, the first time it is read or posted to on a
+ * later day, adds interest on its balance for every day in between. A dormant account costs
+ * nothing until it is touched again. Accrued interest is kept apart from the balance, to the
+ * ten-thousandth of a cent, until {@link #creditAccruedInterest} moves it in. Days are UTC days.
+ */
 public class SavingsAccount extends Account {
-    private static final double MINIMUM_BALANCE = 100.0;
-    private static final double WITHDRAWAL_FEE = 2.0;
+    private static final long MINIMUM_BALANCE = 10_000; // $100.00
+    private static final long WITHDRAWAL_FEE = 200; // $2.00
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final long DAYS_PER_YEAR = 365;
+    // Accrual is tracked in ten-thousandths of a cent so small daily amounts are not rounded away
+    private static final long ACCRUAL_UNITS_PER_CENT = 10_000;
+    
+    private final Clock clock;
+    // Written only under this object's monitor; read without it on the fast path
+    private volatile long lastAccrualDay;
+    private long accruedUnits;
     
     public SavingsAccount(String accountNumber, double initialBalance, Customer customer) {
+        this(accountNumber, initialBalance, customer, Clock.systemUTC());
+    }
+    
+    /**
+     * @param clock decides which day it is; interest starts accruing from today
+     */
+    public SavingsAccount(String accountNumber, double initialBalance, Customer customer, Clock clock) {
         super(accountNumber, initialBalance, customer);
+        this.clock = clock;
+        this.lastAccrualDay = today();
     }
     
     @Override
-    public boolean withdraw(double amount) throws InsufficientFundsException, InvalidAmountException {
-        if (amount <= 0) {
-            throw new InvalidAmountException("Withdrawal amount must be greater than 0");
-        }
-        
-        double totalAmount = amount + WITHDRAWAL_FEE;
-        if (balance - totalAmount < MINIMUM_BALANCE) {
+    protected long balanceAfterWithdrawal(long balance, long amount) throws InsufficientFundsException {
+        return debit(balance, withdrawalChargeInCents(amount));
+    }
+    
+    @Override
+    protected long withdrawalChargeInCents(long amount) {
+        return Money.add(amount, WITHDRAWAL_FEE);
+    }
+    
+    @Override
+    protected long balanceAfterTransferOut(long balance, long amount) throws InsufficientFundsException {
+        return debit(balance, amount);
+    }
+    
+    private long debit(long balance, long totalAmount) throws InsufficientFundsException {
+        long newBalance = Money.subtract(balance, totalAmount);
+        if (newBalance < MINIMUM_BALANCE) {
             throw new InsufficientFundsException(
-                String.format("Insufficient funds. Current balance: $%.2f, Requested: $%.2f, Min required: $%.2f", 
-                            balance, totalAmount, MINIMUM_BALANCE));
+                String.format("Insufficient funds. Current balance: $%s, Requested: $%s, Min required: $%s", 
+                            Money.format(balance), Money.format(totalAmount), Money.format(MINIMUM_BALANCE)));
         }
-        
-        balance -= totalAmount;
-        return true;
+        return newBalance;
     }
     
+    /**
+     * Adds interest for the days since the last accrual on the balance held through them. Every
+     * posting accrues first, so the balance cannot have changed since that day ended.
+     */
     @Override
-    public void deposit(double amount) throws InvalidAmountException {
-        if (amount <= 0) {
-            throw new InvalidAmountException("Deposit amount must be greater than 0");
+    protected void accrueInterest() {
+        long today = today();
+        if (today <= lastAccrualDay) {
+            return;
+        }
+        synchronized (this) {
+            long days = today - lastAccrualDay;
+            if (days <= 0) {
+                return;
+            }
+            long balance = balanceInCents;
+            if (balance > 0) {
+                long rateInBasisPoints = Money.toBasisPoints(customer.getInterestRate());
+                long dailyUnits = Math.multiplyExact(Math.multiplyExact(balance, rateInBasisPoints), ACCRUAL_UNITS_PER_CENT)
+                        / (Money.BASIS_POINTS_PER_UNIT * DAYS_PER_YEAR);
+                accruedUnits = Math.addExact(accruedUnits, Math.multiplyExact(dailyUnits, days));
+            }
+            lastAccrualDay = today;
         }
-        balance += amount;
+    }
+    
+    /**
+     * Moves the whole cents of accrued interest into the balance, keeping any fraction of a
+     * cent for later. Hold the account lock if the credit is being recorded as a transaction.
+     * @return the amount credited in cents, 0 if less than a cent has accrued
+     */
+    public long creditAccruedInterest() {
+        accrueInterest();
+        long cents;
+        synchronized (this) {
+            cents = accruedUnits / ACCRUAL_UNITS_PER_CENT;
+            accruedUnits -= cents * ACCRUAL_UNITS_PER_CENT;
+        }
+        if (cents > 0) {
+            try {
+                depositLockFree(cents);
+            } catch (InvalidAmountException e) {
+                throw new IllegalStateException(e); // cannot happen for a positive amount
+            }
+        }
+        return cents;
+    }
+    
+    /**
+     * Undoes a {@link #creditAccruedInterest} that could not be recorded: takes the amount back
+     * out of the balance and returns it to the accrued interest
+     * @param cents the amount that was credited
+     */
+    public void reverseInterestCredit(long cents) {
+        reverseDepositInCents(cents);
+        synchronized (this) {
+            accruedUnits = Math.addExact(accruedUnits, Math.multiplyExact(cents, ACCRUAL_UNITS_PER_CENT));
+        }
+    }
+    
+    /**
+     * @return interest accrued up to today and not yet credited, in whole cents
+     */
+    public long getAccruedInterestInCents() {
+        accrueInterest();
+        synchronized (this) {
+            return accruedUnits / ACCRUAL_UNITS_PER_CENT;
+        }
+    }
+    
+    public double getAccruedInterest() {
+        return Money.toDollars(getAccruedInterestInCents());
+    }
+    
+    /**
+     * @return the day interest was last brought up to date; the account's opening day if it has not been touched since
+     */
+    public LocalDate getLastAccrualDate() {
+        return LocalDate.ofEpochDay(lastAccrualDay);
+    }
+    
+    /**
+     * @return interest accrued and not yet credited, in ten-thousandths of a cent, as of
+     *         {@link #getLastAccrualDate}; nothing is accrued first
+     */
+    public synchronized long getAccruedUnits() {
+        return accruedUnits;
+    }
+    
+    /**
+     * Puts back the accrual state a snapshot saved, so interest accrued before a restart is
+     * neither lost nor counted again
+     * @param lastAccrualDate the day interest had been brought up to
+     * @param accruedUnits interest accrued by then and not yet credited, in ten-thousandths of a cent
+     */
+    public synchronized void restoreAccrual(LocalDate lastAccrualDate, long accruedUnits) {
+        if (accruedUnits < 0) {
+            throw new IllegalArgumentException("Accrued interest cannot be negative");
+        }
+        this.lastAccrualDay = lastAccrualDate.toEpochDay();
+        this.accruedUnits = accruedUnits;
+    }
+    
+    private long today() {
+        return Math.floorDiv(clock.millis(), MILLIS_PER_DAY);
     }
     
     public double getMinimumBalance() {
-        return MINIMUM_BALANCE;
+        return Money.toDollars(MINIMUM_BALANCE);
+    }
+    
+    public double getWithdrawalFee() {
+        return Money.toDollars(WITHDRAWAL_FEE);
     }
 }
\ No newline at end of file
@@ -2,22 +2,37 @@ package models;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import utils.Money;
 
+/**
+ * One recorded posting. Subclasses may be flyweights that keep their fields elsewhere and
+ * override the getters; everything else here reads through the getters.
+ */
 public class Transaction {
     private String transactionId;
     private String accountNumber;
     private String type; // "DEPOSIT", "WITHDRAWAL", "TRANSFER"
-    private double amount;
-    private double balanceAfter;
+    private long amountInCents;
+    private long balanceAfterInCents;
     private LocalDateTime timestamp;
     
     public Transaction(String transactionId, String accountNumber, String type, double amount, double balanceAfter) {
+        this(transactionId, accountNumber, type, Money.fromDollars(amount), Money.fromDollars(balanceAfter), LocalDateTime.now());
+    }
+    
+    public Transaction(String transactionId, String accountNumber, String type, long amountInCents, long balanceAfterInCents, LocalDateTime timestamp) {
         this.transactionId = transactionId;
         this.accountNumber = accountNumber;
         this.type = type;
-        this.amount = amount;
-        this.balanceAfter = balanceAfter;
-        this.timestamp = LocalDateTime.now();
+        this.amountInCents = amountInCents;
+        this.balanceAfterInCents = balanceAfterInCents;
+        this.timestamp = timestamp;
+    }
+    
+    /**
+     * For flyweight subclasses, which override every getter instead of filling the fields
+     */
+    protected Transaction() {
     }
     
     // Getters
@@ -34,11 +49,19 @@ public class Transaction {
     }
     
     public double getAmount() {
-        return amount;
+        return Money.toDollars(getAmountInCents());
+    }
+    
+    public long getAmountInCents() {
+        return amountInCents;
     }
     
     public double getBalanceAfter() {
-        return balanceAfter;
+        return Money.toDollars(getBalanceAfterInCents());
+    }
+    
+    public long getBalanceAfterInCents() {
+        return balanceAfterInCents;
     }
     
     public LocalDateTime getTimestamp() {
@@ -47,12 +70,13 @@ public class Transaction {
     
     public String getFormattedTimestamp() {
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        return timestamp.format(formatter);
+        return getTimestamp().format(formatter);
     }
     
     @Override
     public String toString() {
-        return String.format("Transaction{id='%s', account='%s', type='%s', amount=%.2f, balanceAfter=%.2f, timestamp='%s'}",
-                           transactionId, accountNumber, type, amount, balanceAfter, getFormattedTimestamp());
+        return String.format("Transaction{id='%s', account='%s', type='%s', amount=%s, balanceAfter=%s, timestamp='%s'}",
+                           getTransactionId(), getAccountNumber(), getType(), Money.format(getAmountInCents()),
+                           Money.format(getBalanceAfterInCents()), getFormattedTimestamp());
     }
 }
\ No newline at end of file
@@ -0,0 +1,199 @@
+package services;
+
+import models.Account;
+import models.AccountSummary;
+import models.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * One account's slice of the ledger: the store rows of its transactions in recording order
+ * plus running totals. Holding row numbers rather than transactions keeps four bytes per
+ * transaction here; transactions are read back as {@link ColumnarTransactionStore.Row}s.
+ * Appends happen while the owning account is locked; readers only take this object's monitor,
+ * so fetching a history never blocks postings to other accounts.
+ *
+ * After recovery from a snapshot the rows start at the snapshot, but the totals still cover
+ * the account's whole history: they start from the totals saved in the snapshot.
+ */
+class AccountLedger {
+    private final ColumnarTransactionStore store;
+    private int[] rows;
+    private int size;
+    private AccountSummary summary;
+    // Highest sequence the saved totals a recovery started from cover, 0 if none
+    private long savedThroughSequence;
+    // Bumped by every recorded transaction, so anything rendered from this ledger can tell it is stale
+    private long version;
+    // Postings are timestamped under the account lock, so recording order is time order unless the clock steps back
+    private boolean timeOrdered;
+    // The account object whose own history reads from this ledger
+    private Account boundAccount;
+
+    AccountLedger(ColumnarTransactionStore store) {
+        this(store, new int[4], 0, new AccountSummary(), true);
+    }
+
+    /**
+     * A ledger that starts with rows already recorded, e.g. recovered from ledger segments
+     * @param rows the rows, in recording order, in the first {@code size} slots; adopted, not copied
+     * @param summary their running totals; adopted, not copied
+     */
+    AccountLedger(ColumnarTransactionStore store, int[] rows, int size, AccountSummary summary, boolean timeOrdered) {
+        this.store = store;
+        this.rows = rows;
+        this.size = size;
+        this.summary = summary;
+        this.timeOrdered = timeOrdered;
+        this.version = size;
+    }
+
+    /**
+     * @param row the store row of a transaction just appended for this account
+     */
+    synchronized void append(int row) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        checkTimeOrder(row);
+        rows[size++] = row;
+        summary.record(store.row(row));
+        version++;
+    }
+
+    /**
+     * Appends rows that readers see together, e.g. a batch posted to this account
+     * @param firstRow the store row of the first; the rest follow it
+     */
+    synchronized void appendRange(int firstRow, int count) {
+        if (rows.length - size < count) {
+            rows = Arrays.copyOf(rows, Math.max(rows.length * 2, size + count));
+        }
+        for (int row = firstRow; row < firstRow + count; row++) {
+            checkTimeOrder(row);
+            rows[size++] = row;
+            summary.record(store.row(row));
+        }
+        version += count;
+    }
+
+    /**
+     * Points the account's {@link Account#getTransactions} at this ledger, once per account object
+     */
+    synchronized void bind(Account account) {
+        if (boundAccount != account) {
+            account.bindHistory(this::copyTransactions);
+            boundAccount = account;
+        }
+    }
+
+    private void checkTimeOrder(int row) {
+        if (timeOrdered && size > 0 && store.getEpochNanos(row) < store.getEpochNanos(rows[size - 1])) {
+            timeOrdered = false;
+        }
+    }
+
+    synchronized List<Transaction> copyTransactions() {
+        return copyRange(0, size);
+    }
+
+    synchronized List<Transaction> copyRange(int fromIndex, int toIndex) {
+        int from = Math.max(0, fromIndex);
+        int to = Math.min(toIndex, size);
+        List<Transaction> result = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            result.add(store.row(rows[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Transactions with from <= timestamp < to, oldest first. Two binary searches and a copy of
+     * the matches; only a history recorded while the clock stepped back is scanned and sorted.
+     */
+    synchronized List<Transaction> copyTimeRange(LocalDateTime from, LocalDateTime to) {
+        long fromNanos = ColumnarTransactionStore.toEpochNanosBound(from);
+        long toNanos = ColumnarTransactionStore.toEpochNanosBound(to);
+        if (!timeOrdered) {
+            List<Transaction> result = new ArrayList<>();
+            for (int i = 0; i < size; i++) {
+                long timestamp = store.getEpochNanos(rows[i]);
+                if (timestamp >= fromNanos && timestamp < toNanos) {
+                    result.add(store.row(rows[i]));
+                }
+            }
+            result.sort(Comparator.comparing(Transaction::getTimestamp));
+            return result;
+        }
+        return copyRange(firstAtOrAfter(fromNanos), firstAtOrAfter(toNanos));
+    }
+
+    /**
+     * Positions {start, end} bounding the transactions with from <= timestamp < to, for reading
+     * them a page at a time with {@link #copyRange}. A history recorded while the clock stepped
+     * back is not bounded; callers must then check each transaction's time themselves.
+     */
+    synchronized int[] positionsBetween(LocalDateTime from, LocalDateTime to) {
+        if (!timeOrdered) {
+            return new int[] {0, size};
+        }
+        return new int[] {firstAtOrAfter(ColumnarTransactionStore.toEpochNanosBound(from)),
+                firstAtOrAfter(ColumnarTransactionStore.toEpochNanosBound(to))};
+    }
+
+    // Position of the first transaction not older than the given time, or the size if there is none
+    private int firstAtOrAfter(long epochNanos) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (store.getEpochNanos(rows[middle]) < epochNanos) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Starts the totals from ones saved in a snapshot, adding only the rows newer than the
+     * saved totals cover. Rows recovered from the ledger after the snapshot's position may
+     * already be in them, since the snapshot read the totals after noting its position.
+     * @param savedThroughSequence the sequence of the last transaction in the saved totals
+     */
+    synchronized void restoreTotals(AccountSummary saved, long savedThroughSequence) {
+        AccountSummary totals = saved.snapshot();
+        for (int i = 0; i < size; i++) {
+            if (store.getSequence(rows[i]) > savedThroughSequence) {
+                totals.record(ColumnarTransactionStore.typeName(store.getTypeCode(rows[i])), store.getAmountInCents(rows[i]));
+            }
+        }
+        summary = totals;
+        this.savedThroughSequence = savedThroughSequence;
+    }
+
+    /**
+     * @return the sequence of the newest transaction the totals cover; an account's sequences
+     *         rise in recording order, since each is taken under the account's lock
+     */
+    synchronized long lastSequence() {
+        return size == 0 ? savedThroughSequence : Math.max(savedThroughSequence, store.getSequence(rows[size - 1]));
+    }
+
+    synchronized AccountSummary snapshotSummary() {
+        return summary.snapshot();
+    }
+
+    synchronized long version() {
+        return version;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
@@ -1,33 +1,61 @@
 package services;
 
 import models.*;
+import utils.ValidationUtils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class AccountManager {
     private Map<String, Account> accounts;
-    private int nextAccountId;
+    private AtomicInteger nextAccountId;
     
     public AccountManager() {
-        this.accounts = new HashMap<>();
-        this.nextAccountId = 1;
+        this.accounts = new ConcurrentHashMap<>();
+        this.nextAccountId = new AtomicInteger(1);
     }
     
     public String generateAccountNumber() {
-        String accountNumber = String.format("ACC%03d", nextAccountId);
-        nextAccountId++;
-        return accountNumber;
+        return String.format("ACC%03d", nextAccountId.getAndIncrement());
+    }
+    
+    // Used when restoring saved accounts so new numbers continue after the restored ones
+    void advanceAccountIds(String restoredAccountNumber) {
+        int restoredId = ValidationUtils.idNumber(restoredAccountNumber, "ACC");
+        if (restoredId >= 0) {
+            nextAccountId.accumulateAndGet(restoredId + 1, Math::max);
+        }
     }
     
     public boolean addAccount(Account account) {
-        if (account != null && !accounts.containsKey(account.getAccountNumber())) {
-            accounts.put(account.getAccountNumber(), account);
-            return true;
+        if (account != null) {
+            return accounts.putIfAbsent(account.getAccountNumber(), account) == null;
         }
         return false;
     }
     
+    /**
+     * Adds many accounts at once, e.g. from a bulk import. Numbers generated afterwards
+     * continue past any added account's number.
+     * @param batch the accounts to add
+     * @return the accounts that were not added because their number is already taken, in batch order
+     */
+    public List<Account> addAccounts(List<Account> batch) {
+        List<Account> rejected = new ArrayList<>();
+        for (Account account : batch) {
+            if (accounts.putIfAbsent(account.getAccountNumber(), account) == null) {
+                advanceAccountIds(account.getAccountNumber());
+            } else {
+                rejected.add(account);
+            }
+        }
+        return rejected;
+    }
+    
     public Account getAccount(String accountNumber) {
         return accounts.get(accountNumber);
     }
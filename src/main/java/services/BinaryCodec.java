@@ -0,0 +1,361 @@
+package services;
+
+import models.Account;
+import models.CheckingAccount;
+import models.Customer;
+import models.PremiumCustomer;
+import models.RegularCustomer;
+import models.SavingsAccount;
+import models.Transaction;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact binary encoding of transactions, accounts and customers, written to and read from
+ * the current position of a caller's {@link ByteBuffer} so one buffer can be reused for any
+ * number of rows. Numbers are varints (signed ones zigzag-encoded), so small amounts take one
+ * or two bytes. Ids in the generated {@code TXN001}/{@code ACC001}/{@code CUST001} forms are
+ * stored as just their number; any other id is stored as text.
+ * <pre>
+ * transaction  type code (1)           as in {@link ColumnarTransactionStore}, or 0x7F then the type as text
+ *              transaction id          id with prefix TXN
+ *              account number          id with prefix ACC
+ *              amount in cents         signed varint
+ *              balance after in cents  signed varint
+ *              timestamp               signed varint of epoch millis (UTC) minus the previous row's,
+ *                                      then varint of the nanoseconds within the millisecond
+ * account      kind (1)                0 savings, 1 checking
+ *              account number, balance in cents (signed varint),
+ *              savings only: day interest was accrued to (signed varint of the epoch day),
+ *              uncredited interest in ten-thousandths of a cent (varint), then the customer
+ * customer     kind (1)                0 regular, 1 premium
+ *              customer id (prefix CUST), name
+ * id           varint n &lt;&lt; 1 for prefix + n padded to three digits, or (length &lt;&lt; 1) | 1 then UTF-8
+ * text         varint length, then UTF-8
+ * </pre>
+ *
+ * Timestamps are deltas against the previous transaction this codec encoded or decoded, so a
+ * stream must be decoded in order by a codec that starts in the same state as the encoder's
+ * did; {@link #reset} starts a new stream. Instances are not thread-safe. An account is
+ * encoded without its history, and each decoded account gets its own customer object.
+ */
+public class BinaryCodec {
+    private static final int CUSTOM_TYPE = 0x7F;
+    private static final byte SAVINGS = 0;
+    private static final byte CHECKING = 1;
+    private static final byte REGULAR = 0;
+    private static final byte PREMIUM = 1;
+    private static final int NANOS_PER_MILLI = 1_000_000;
+
+    private long previousEncodedMillis;
+    private long previousDecodedMillis;
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Forgets the previous timestamps, as at the start of a new stream
+     */
+    public void reset() {
+        previousEncodedMillis = 0;
+        previousDecodedMillis = 0;
+    }
+
+    /**
+     * Writes a transaction at the buffer's position
+     * @return false, leaving the buffer as it was, if the row does not fit in the remaining space
+     */
+    public boolean encode(ByteBuffer buffer, Transaction transaction) {
+        int start = buffer.position();
+        LocalDateTime timestamp = transaction.getTimestamp();
+        long epochMillis = timestamp.toEpochSecond(ZoneOffset.UTC) * 1000 + timestamp.getNano() / NANOS_PER_MILLI;
+        try {
+            int typeCode = ColumnarTransactionStore.findTypeCode(transaction.getType());
+            if (typeCode < 0) {
+                buffer.put((byte) CUSTOM_TYPE);
+                putText(buffer, transaction.getType());
+            } else {
+                buffer.put((byte) typeCode);
+            }
+            putId(buffer, "TXN", transaction.getTransactionId());
+            putId(buffer, "ACC", transaction.getAccountNumber());
+            putSignedVarLong(buffer, transaction.getAmountInCents());
+            putSignedVarLong(buffer, transaction.getBalanceAfterInCents());
+            putSignedVarLong(buffer, epochMillis - previousEncodedMillis);
+            putVarLong(buffer, timestamp.getNano() % NANOS_PER_MILLI);
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            return false;
+        }
+        previousEncodedMillis = epochMillis;
+        return true;
+    }
+
+    /**
+     * Reads the transaction at the buffer's position
+     * @return the transaction, or null, leaving the buffer as it was, if the row is cut short
+     * @throws IllegalArgumentException if the bytes are not a valid row
+     */
+    public Transaction decodeTransaction(ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            int typeCode = buffer.get();
+            String type = typeCode == CUSTOM_TYPE ? getText(buffer) : ColumnarTransactionStore.typeName(checkTypeCode(typeCode));
+            String transactionId = getId(buffer, "TXN");
+            String accountNumber = getId(buffer, "ACC");
+            long amountInCents = getSignedVarLong(buffer);
+            long balanceAfterInCents = getSignedVarLong(buffer);
+            long epochMillis = previousDecodedMillis + getSignedVarLong(buffer);
+            long subMillisNanos = getVarLong(buffer);
+            if (subMillisNanos >= NANOS_PER_MILLI) {
+                throw new IllegalArgumentException("Corrupt timestamp at position " + start);
+            }
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000),
+                    (int) (Math.floorMod(epochMillis, 1000) * NANOS_PER_MILLI + subMillisNanos), ZoneOffset.UTC);
+            previousDecodedMillis = epochMillis;
+            return new Transaction(transactionId, accountNumber, type, amountInCents, balanceAfterInCents, timestamp);
+        } catch (BufferUnderflowException e) {
+            buffer.position(start);
+            return null;
+        }
+    }
+
+    /**
+     * Writes an account and its customer, without the account's transactions
+     * @return false, leaving the buffer as it was, if the account does not fit
+     */
+    public boolean encode(ByteBuffer buffer, Account account) {
+        int start = buffer.position();
+        try {
+            buffer.put(account instanceof CheckingAccount ? CHECKING : SAVINGS);
+            putId(buffer, "ACC", account.getAccountNumber());
+            if (account instanceof SavingsAccount) {
+                SavingsAccount savings = (SavingsAccount) account;
+                // Read together, so the interest written is the interest on the balance written
+                synchronized (savings) {
+                    putSignedVarLong(buffer, savings.getBalanceInCents());
+                    putSignedVarLong(buffer, savings.getLastAccrualDate().toEpochDay());
+                    putVarLong(buffer, savings.getAccruedUnits());
+                }
+            } else {
+                putSignedVarLong(buffer, account.getBalanceInCents());
+            }
+            putCustomer(buffer, account.getCustomer());
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the account, or null, leaving the buffer as it was, if it is cut short
+     */
+    public Account decodeAccount(ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            byte kind = buffer.get();
+            String accountNumber = getId(buffer, "ACC");
+            long balanceInCents = getSignedVarLong(buffer);
+            long lastAccrualDay = 0;
+            long accruedUnits = 0;
+            if (kind == SAVINGS) {
+                lastAccrualDay = getSignedVarLong(buffer);
+                accruedUnits = getVarLong(buffer);
+            }
+            Customer customer = getCustomer(buffer);
+            Account account;
+            if (kind == SAVINGS) {
+                SavingsAccount savings = new SavingsAccount(accountNumber, 0, customer);
+                savings.restoreAccrual(LocalDate.ofEpochDay(lastAccrualDay), accruedUnits);
+                account = savings;
+            } else if (kind == CHECKING) {
+                account = new CheckingAccount(accountNumber, 0, customer);
+            } else {
+                throw new IllegalArgumentException("Unknown account kind " + kind + " at position " + start);
+            }
+            account.setBalanceInCents(balanceInCents);
+            return account;
+        } catch (BufferUnderflowException e) {
+            buffer.position(start);
+            return null;
+        }
+    }
+
+    /**
+     * @return false, leaving the buffer as it was, if the customer does not fit
+     */
+    public boolean encode(ByteBuffer buffer, Customer customer) {
+        int start = buffer.position();
+        try {
+            putCustomer(buffer, customer);
+        } catch (BufferOverflowException e) {
+            buffer.position(start);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return the customer, or null, leaving the buffer as it was, if it is cut short
+     */
+    public Customer decodeCustomer(ByteBuffer buffer) {
+        int start = buffer.position();
+        try {
+            return getCustomer(buffer);
+        } catch (BufferUnderflowException e) {
+            buffer.position(start);
+            return null;
+        }
+    }
+
+    private void putCustomer(ByteBuffer buffer, Customer customer) {
+        buffer.put(customer instanceof PremiumCustomer ? PREMIUM : REGULAR);
+        putId(buffer, "CUST", customer.getCustomerId());
+        putText(buffer, customer.getName());
+    }
+
+    private Customer getCustomer(ByteBuffer buffer) {
+        byte kind = buffer.get();
+        String customerId = getId(buffer, "CUST");
+        String name = getText(buffer);
+        if (kind == REGULAR) {
+            return new RegularCustomer(name, customerId);
+        } else if (kind == PREMIUM) {
+            return new PremiumCustomer(name, customerId);
+        }
+        throw new IllegalArgumentException("Unknown customer kind " + kind);
+    }
+
+    private static byte checkTypeCode(int typeCode) {
+        if (typeCode < ColumnarTransactionStore.DEPOSIT || typeCode > ColumnarTransactionStore.INTEREST) {
+            throw new IllegalArgumentException("Unknown transaction type code: " + typeCode);
+        }
+        return (byte) typeCode;
+    }
+
+    // Ids in the generated form (prefix, then a number padded to three digits) become just the number
+    private void putId(ByteBuffer buffer, String prefix, String id) {
+        long number = generatedNumber(prefix, id);
+        if (number >= 0) {
+            putVarLong(buffer, number << 1);
+        } else {
+            putString(buffer, id, true);
+        }
+    }
+
+    private String getId(ByteBuffer buffer, String prefix) {
+        long tag = getVarLong(buffer);
+        if ((tag & 1) == 0) {
+            long number = tag >>> 1;
+            if (number >= 100) {
+                return prefix + number;
+            }
+            return (number >= 10 ? prefix + "0" : prefix + "00") + number;
+        }
+        return getString(buffer, tag >>> 1);
+    }
+
+    // The number in prefix + zero-padded digits, or -1 if decoding would not give back the same text
+    private static long generatedNumber(String prefix, String id) {
+        int digits = id.length() - prefix.length();
+        if (digits < 3 || digits > 18 || !id.startsWith(prefix)) {
+            return -1;
+        }
+        if (digits > 3 && id.charAt(prefix.length()) == '0') {
+            return -1;
+        }
+        long number = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
+
+    private void putText(ByteBuffer buffer, String text) {
+        putString(buffer, text, false);
+    }
+
+    private String getText(ByteBuffer buffer) {
+        return getString(buffer, getVarLong(buffer));
+    }
+
+    // Length-prefixed UTF-8; ASCII text, the usual case, is written without an intermediate array
+    private static void putString(ByteBuffer buffer, String text, boolean idTag) {
+        int length = text.length();
+        boolean ascii = true;
+        for (int i = 0; i < length && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        if (ascii) {
+            putVarLong(buffer, idTag ? ((long) length << 1) | 1 : length);
+            for (int i = 0; i < length; i++) {
+                buffer.put((byte) text.charAt(i));
+            }
+        } else {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            putVarLong(buffer, idTag ? ((long) bytes.length << 1) | 1 : bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private String getString(ByteBuffer buffer, long length) {
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Corrupt text length " + length);
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        int size = (int) length;
+        String text;
+        if (buffer.hasArray()) {
+            text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), size, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + size);
+        } else {
+            if (scratch.length < size) {
+                scratch = new byte[Math.max(size, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, size);
+            text = new String(scratch, 0, size, StandardCharsets.UTF_8);
+        }
+        return text;
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Corrupt varint");
+    }
+
+    // Zigzag keeps small negative numbers small: 0, -1, 1, -2 become 0, 1, 2, 3
+    private static void putSignedVarLong(ByteBuffer buffer, long value) {
+        putVarLong(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    private static long getSignedVarLong(ByteBuffer buffer) {
+        long encoded = getVarLong(buffer);
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+}
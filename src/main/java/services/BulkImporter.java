@@ -0,0 +1,689 @@
+package services;
+
+import models.Account;
+import models.CheckingAccount;
+import models.Customer;
+import models.PremiumCustomer;
+import models.RegularCustomer;
+import models.SavingsAccount;
+import utils.ValidationUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads customers and accounts from a CSV or NDJSON file into an {@link AccountManager}.
+ * Each line is one account together with its customer:
+ * <pre>
+ * account_number,account_type,balance,customer_id,customer_name,customer_type
+ * ACC1001,SAVINGS,250.00,CUS001,Alice Smith,PREMIUM
+ * {"account_type":"CHECKING","balance":75,"customer_id":"CUS002","customer_name":"Bob Jones","customer_type":"REGULAR"}
+ * </pre>
+ * A CSV file starts with a header naming its columns in any order; NDJSON objects name them
+ * as keys. Unknown columns are ignored. A blank account number gets a generated one. Account
+ * types are SAVINGS or CHECKING and customer types REGULAR or PREMIUM, in any case. Quoted CSV
+ * fields may contain commas and doubled quotes but not line breaks.
+ *
+ * The file is read once, in chunks of lines that worker threads parse, validate with
+ * {@link ValidationUtils} and add to the manager a chunk at a time. Only a few chunks are
+ * held at once, so memory use does not grow with the size of the file beyond the accounts
+ * themselves. Rows from different chunks are added in no particular order.
+ *
+ * A row is rejected, and written with its line number and reason to the rejects file, if it
+ * fails validation, its account number is already taken, or it repeats a customer id with a
+ * different name or customer type. Rows naming a customer id already in the manager or seen
+ * earlier in the file share that customer. A customer is created once one of its rows is
+ * accepted; if every row naming it is rejected, it is forgotten, and a later row may use its
+ * id with another name.
+ */
+public class BulkImporter {
+    public static final int DEFAULT_CHUNK_LINES = 2048;
+
+    /**
+     * Input file format; {@link #of} picks it from the file name
+     */
+    public enum Format {
+        CSV,
+        /** One JSON object per line, with string or number values */
+        NDJSON;
+
+        /**
+         * @return NDJSON for names ending in .ndjson or .jsonl, otherwise CSV
+         */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+            return name.endsWith(".ndjson") || name.endsWith(".jsonl") ? NDJSON : CSV;
+        }
+    }
+
+    private static final int ACCOUNT_NUMBER = 0;
+    private static final int ACCOUNT_TYPE = 1;
+    private static final int BALANCE = 2;
+    private static final int CUSTOMER_ID = 3;
+    private static final int CUSTOMER_NAME = 4;
+    private static final int CUSTOMER_TYPE = 5;
+    private static final String[] COLUMN_NAMES = {
+            "account_number", "account_type", "balance", "customer_id", "customer_name", "customer_type"
+    };
+
+    private final AccountManager accountManager;
+    private final int threads;
+    private final int chunkLines;
+
+    public BulkImporter(AccountManager accountManager) {
+        this(accountManager, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_LINES);
+    }
+
+    /**
+     * @param threads how many chunks are parsed at once
+     * @param chunkLines lines handed to a worker at a time; also the size of each batch added to the manager
+     */
+    public BulkImporter(AccountManager accountManager, int threads, int chunkLines) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be greater than 0");
+        }
+        if (chunkLines <= 0) {
+            throw new IllegalArgumentException("Chunk size must be greater than 0");
+        }
+        this.accountManager = accountManager;
+        this.threads = threads;
+        this.chunkLines = chunkLines;
+    }
+
+    /**
+     * Imports a file whose format is taken from its name
+     * @see #importFile(Path, Format, Path)
+     */
+    public Report importFile(Path input, Path rejectsFile) throws IOException {
+        return importFile(input, Format.of(input), rejectsFile);
+    }
+
+    /**
+     * Imports every row of a file, returning once all accepted rows are in the manager.
+     * @param rejectsFile replaced with a CSV of the rejected rows: line, reason and the original line
+     * @throws IOException if either file cannot be read or written, or a CSV file has no header
+     *         naming the required columns; rows already added stay in the manager
+     */
+    public Report importFile(Path input, Format format, Path rejectsFile) throws IOException {
+        long started = System.nanoTime();
+        Import run;
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter rejects = Files.newBufferedWriter(rejectsFile, StandardCharsets.UTF_8)) {
+            rejects.write("line,reason,record");
+            rejects.newLine();
+            run = new Import(format, rejectsFile, rejects);
+            try {
+                run.readAll(reader);
+            } finally {
+                // Lets chunks already handed out finish before the rejects file is closed
+                run.shutdown();
+            }
+        }
+        return new Report(run.rowsRead.get(), run.accountsImported.get(), run.rowsRejected.get(),
+                run.customersCreated.get(), System.nanoTime() - started, rejectsFile);
+    }
+
+    /**
+     * State of one call to {@link #importFile}
+     */
+    private final class Import {
+        private final Format format;
+        private final Path rejectsFile;
+        private final Map<String, CustomerEntry> customers = new ConcurrentHashMap<>();
+        private final ExecutorService workers;
+        // Bounds the chunks read but not yet finished, which is what keeps memory flat
+        private final int maxChunksInFlight = threads * 2;
+        private final Semaphore chunksInFlight = new Semaphore(maxChunksInFlight);
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final AtomicLong rowsRead = new AtomicLong();
+        private final AtomicLong accountsImported = new AtomicLong();
+        private final AtomicLong rowsRejected = new AtomicLong();
+        private final AtomicLong customersCreated = new AtomicLong();
+        private final BufferedWriter rejects;
+        // For CSV, the column each field of a row holds, -1 for ignored fields
+        private int[] csvColumns;
+
+        Import(Format format, Path rejectsFile, BufferedWriter rejects) {
+            this.format = format;
+            this.rejectsFile = rejectsFile;
+            this.rejects = rejects;
+            for (Account account : accountManager.getAllAccounts().values()) {
+                customers.putIfAbsent(account.getCustomer().getCustomerId(), new CustomerEntry(account.getCustomer(), true));
+            }
+            this.workers = Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "bulk-import");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        void readAll(BufferedReader reader) throws IOException {
+            long lineNumber = 0;
+            String line;
+            if (format == Format.CSV) {
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (!line.isBlank()) {
+                        csvColumns = header(line);
+                        break;
+                    }
+                }
+                if (csvColumns == null) {
+                    return;
+                }
+            }
+            List<String> chunk = new ArrayList<>(chunkLines);
+            long chunkStart = lineNumber + 1;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                lineNumber++;
+                if (chunk.size() == chunkLines) {
+                    submit(chunk, chunkStart);
+                    chunk = new ArrayList<>(chunkLines);
+                    chunkStart = lineNumber + 1;
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(chunk, chunkStart);
+            }
+            awaitChunks();
+        }
+
+        private void submit(List<String> chunk, long firstLine) throws IOException {
+            try {
+                chunksInFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while importing " + format + " rows");
+            }
+            rethrowFailure();
+            workers.execute(() -> {
+                try {
+                    importChunk(chunk, firstLine);
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    chunksInFlight.release();
+                }
+            });
+        }
+
+        private void awaitChunks() throws IOException {
+            try {
+                chunksInFlight.acquire(maxChunksInFlight);
+                chunksInFlight.release(maxChunksInFlight);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while importing " + format + " rows");
+            }
+            rethrowFailure();
+        }
+
+        private void rethrowFailure() throws IOException {
+            Throwable t = failure.get();
+            if (t instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) t).getCause();
+            } else if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            } else if (t instanceof Error) {
+                throw (Error) t;
+            }
+        }
+
+        void shutdown() {
+            workers.shutdown();
+            try {
+                workers.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void importChunk(List<String> lines, long firstLine) {
+            List<Account> batch = new ArrayList<>(lines.size());
+            int[] batchLines = new int[lines.size()];
+            long read = 0;
+            for (int i = 0; i < lines.size(); i++) {
+                String line = lines.get(i);
+                if (line.isBlank()) {
+                    continue;
+                }
+                read++;
+                String[] values;
+                try {
+                    values = format == Format.CSV ? csvRow(line, csvColumns) : jsonRow(line);
+                } catch (IllegalArgumentException e) {
+                    reject(firstLine + i, e.getMessage(), line);
+                    continue;
+                }
+                String problem = validate(values);
+                if (problem != null) {
+                    reject(firstLine + i, problem, line);
+                    continue;
+                }
+                Customer customer;
+                try {
+                    customer = claimCustomer(values);
+                } catch (IllegalArgumentException e) {
+                    reject(firstLine + i, e.getMessage(), line);
+                    continue;
+                }
+                batchLines[batch.size()] = i;
+                batch.add(toAccount(values, customer));
+            }
+            rowsRead.addAndGet(read);
+
+            List<Account> taken = batch.isEmpty() ? List.of() : accountManager.addAccounts(batch);
+            // Taken accounts come back in batch order, so one pass pairs them with their lines
+            int next = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                Account account = batch.get(i);
+                boolean accepted = next == taken.size() || account != taken.get(next);
+                if (!accepted) {
+                    int line = batchLines[i];
+                    reject(firstLine + line, "Account number " + account.getAccountNumber() + " already exists", lines.get(line));
+                    next++;
+                }
+                releaseCustomer(account.getCustomer(), accepted);
+            }
+            accountsImported.addAndGet(batch.size() - taken.size());
+        }
+
+        private String validate(String[] values) {
+            String accountNumber = values[ACCOUNT_NUMBER];
+            if (accountNumber != null && !accountNumber.isEmpty() && !ValidationUtils.isValidAccountNumber(accountNumber)) {
+                return "Invalid account number";
+            }
+            String accountType = values[ACCOUNT_TYPE];
+            if (!"SAVINGS".equalsIgnoreCase(accountType) && !"CHECKING".equalsIgnoreCase(accountType)) {
+                return "Account type must be SAVINGS or CHECKING";
+            }
+            double balance;
+            try {
+                balance = values[BALANCE] == null ? 0 : Double.parseDouble(values[BALANCE]);
+            } catch (NumberFormatException e) {
+                return "Invalid balance";
+            }
+            if (!ValidationUtils.isValidAmount(balance) || Double.isInfinite(balance)) {
+                return "Balance must be greater than 0";
+            }
+            if (!ValidationUtils.isValidCustomerId(values[CUSTOMER_ID])) {
+                return "Missing customer id";
+            }
+            if (!ValidationUtils.isValidCustomerName(values[CUSTOMER_NAME])) {
+                return "Missing customer name";
+            }
+            String customerType = values[CUSTOMER_TYPE];
+            if (!"REGULAR".equalsIgnoreCase(customerType) && !"PREMIUM".equalsIgnoreCase(customerType)) {
+                return "Customer type must be REGULAR or PREMIUM";
+            }
+            return null;
+        }
+
+        // Returns the row's customer, registering it if its id is new, and holds it until releaseCustomer
+        // Throws IllegalArgumentException if it conflicts with the customer already known
+        private Customer claimCustomer(String[] values) {
+            String customerId = values[CUSTOMER_ID];
+            String name = values[CUSTOMER_NAME];
+            boolean premium = "PREMIUM".equalsIgnoreCase(values[CUSTOMER_TYPE]);
+            CustomerEntry entry = customers.compute(customerId, (id, existing) -> {
+                if (existing == null) {
+                    existing = new CustomerEntry(premium ? new PremiumCustomer(name, id) : new RegularCustomer(name, id), false);
+                }
+                if (existing.matches(name, premium)) {
+                    existing.rowsInFlight++;
+                }
+                return existing;
+            });
+            if (!entry.matches(name, premium)) {
+                throw new IllegalArgumentException("Customer " + customerId + " already exists with a different name or type");
+            }
+            return entry.customer;
+        }
+
+        // Counts the customer the first time one of its accounts is accepted, and drops a new one
+        // once every row that named it has been rejected
+        private void releaseCustomer(Customer customer, boolean accepted) {
+            customers.computeIfPresent(customer.getCustomerId(), (id, entry) -> {
+                entry.rowsInFlight--;
+                if (accepted && !entry.hasAccount) {
+                    entry.hasAccount = true;
+                    customersCreated.incrementAndGet();
+                }
+                return entry.rowsInFlight == 0 && !entry.hasAccount ? null : entry;
+            });
+        }
+
+        private Account toAccount(String[] values, Customer customer) {
+            String accountNumber = values[ACCOUNT_NUMBER];
+            if (accountNumber == null || accountNumber.isEmpty()) {
+                accountNumber = accountManager.generateAccountNumber();
+            }
+            double balance = Double.parseDouble(values[BALANCE]);
+            return "SAVINGS".equalsIgnoreCase(values[ACCOUNT_TYPE])
+                    ? new SavingsAccount(accountNumber, balance, customer)
+                    : new CheckingAccount(accountNumber, balance, customer);
+        }
+
+        private void reject(long lineNumber, String reason, String line) {
+            rowsRejected.incrementAndGet();
+            try {
+                synchronized (rejects) {
+                    rejects.write(Long.toString(lineNumber));
+                    rejects.write(',');
+                    rejects.write(quote(reason));
+                    rejects.write(',');
+                    rejects.write(quote(line));
+                    rejects.newLine();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write rejects file " + rejectsFile, e);
+            }
+        }
+    }
+
+    // A customer id's customer; the counts are only read or changed inside the customers map's compute calls
+    private static final class CustomerEntry {
+        private final Customer customer;
+        // Rows naming this customer whose account has been neither added nor rejected yet
+        private int rowsInFlight;
+        // Whether the manager holds one of its accounts; true from the start for customers already there
+        private boolean hasAccount;
+
+        CustomerEntry(Customer customer, boolean hasAccount) {
+            this.customer = customer;
+            this.hasAccount = hasAccount;
+        }
+
+        boolean matches(String name, boolean premium) {
+            return customer.getName().equals(name) && (customer instanceof PremiumCustomer) == premium;
+        }
+    }
+
+    // Maps each CSV field position to a column, checking every required column is present
+    private static int[] header(String line) throws IOException {
+        List<String> names = csvFields(line);
+        int[] columns = new int[names.size()];
+        boolean[] seen = new boolean[COLUMN_NAMES.length];
+        for (int i = 0; i < names.size(); i++) {
+            columns[i] = column(names.get(i).trim().toLowerCase(Locale.ROOT));
+            if (columns[i] >= 0) {
+                seen[columns[i]] = true;
+            }
+        }
+        for (int column = 0; column < COLUMN_NAMES.length; column++) {
+            if (!seen[column] && column != ACCOUNT_NUMBER) {
+                throw new IOException("CSV header is missing the " + COLUMN_NAMES[column] + " column");
+            }
+        }
+        return columns;
+    }
+
+    private static int column(String name) {
+        for (int column = 0; column < COLUMN_NAMES.length; column++) {
+            if (COLUMN_NAMES[column].equals(name)) {
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    private static String[] csvRow(String line, int[] columns) {
+        List<String> fields = csvFields(line);
+        if (fields.size() > columns.length) {
+            throw new IllegalArgumentException("Expected " + columns.length + " fields but found " + fields.size());
+        }
+        String[] values = new String[COLUMN_NAMES.length];
+        for (int i = 0; i < fields.size(); i++) {
+            if (columns[i] >= 0) {
+                values[columns[i]] = fields.get(i).trim();
+            }
+        }
+        return values;
+    }
+
+    private static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>(COLUMN_NAMES.length);
+        if (line.indexOf('"') < 0) {
+            int start = 0;
+            for (int comma; (comma = line.indexOf(',', start)) >= 0; start = comma + 1) {
+                fields.add(line.substring(start, comma));
+            }
+            fields.add(line.substring(start));
+            return fields;
+        }
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"') {
+                quoted = true;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    // Reads one flat JSON object; nested objects and arrays are rejected
+    private static String[] jsonRow(String line) {
+        String[] values = new String[COLUMN_NAMES.length];
+        JsonCursor json = new JsonCursor(line);
+        json.expect('{');
+        if (!json.skipIf('}')) {
+            do {
+                String key = json.string();
+                json.expect(':');
+                String value = json.value();
+                int column = column(key);
+                if (column >= 0) {
+                    values[column] = value == null ? null : value.trim();
+                }
+            } while (json.skipIf(','));
+            json.expect('}');
+        }
+        json.end();
+        return values;
+    }
+
+    private static final class JsonCursor {
+        private final String text;
+        private int position;
+
+        JsonCursor(String text) {
+            this.text = text;
+        }
+
+        void expect(char c) {
+            if (!skipIf(c)) {
+                throw new IllegalArgumentException("Expected '" + c + "' at column " + (position + 1));
+            }
+        }
+
+        boolean skipIf(char c) {
+            skipSpace();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        void end() {
+            skipSpace();
+            if (position < text.length()) {
+                throw new IllegalArgumentException("Unexpected text after the object at column " + (position + 1));
+            }
+        }
+
+        // Returns strings unquoted, numbers and booleans as written, and null for null
+        String value() {
+            skipSpace();
+            if (position >= text.length()) {
+                throw new IllegalArgumentException("Missing value at column " + (position + 1));
+            }
+            char c = text.charAt(position);
+            if (c == '"') {
+                return string();
+            }
+            if (c == '{' || c == '[') {
+                throw new IllegalArgumentException("Nested value at column " + (position + 1));
+            }
+            int start = position;
+            while (position < text.length() && ",} \t".indexOf(text.charAt(position)) < 0) {
+                position++;
+            }
+            String literal = text.substring(start, position);
+            return literal.equals("null") ? null : literal;
+        }
+
+        String string() {
+            skipSpace();
+            expect('"');
+            // Most strings have no escapes and are copied out in one piece
+            int close = text.indexOf('"', position);
+            if (close >= 0 && text.lastIndexOf('\\', close) < position) {
+                String value = text.substring(position, close);
+                position = close + 1;
+                return value;
+            }
+            StringBuilder value = new StringBuilder();
+            while (position < text.length()) {
+                char c = text.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position >= text.length()) {
+                    break;
+                }
+                char escaped = text.charAt(position++);
+                switch (escaped) {
+                    case 'b': value.append('\b'); break;
+                    case 'f': value.append('\f'); break;
+                    case 'n': value.append('\n'); break;
+                    case 'r': value.append('\r'); break;
+                    case 't': value.append('\t'); break;
+                    case 'u':
+                        if (position + 4 > text.length()) {
+                            throw new IllegalArgumentException("Bad unicode escape at column " + position);
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Bad unicode escape at column " + position);
+                        }
+                        position += 4;
+                        break;
+                    default: value.append(escaped);
+                }
+            }
+            throw new IllegalArgumentException("Unterminated string");
+        }
+
+        private void skipSpace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+    }
+
+    private static String quote(String text) {
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * What {@link #importFile} did
+     */
+    public static final class Report {
+        private final long rowsRead;
+        private final long accountsImported;
+        private final long rowsRejected;
+        private final long customersCreated;
+        private final long elapsedNanos;
+        private final Path rejectsFile;
+
+        Report(long rowsRead, long accountsImported, long rowsRejected, long customersCreated,
+               long elapsedNanos, Path rejectsFile) {
+            this.rowsRead = rowsRead;
+            this.accountsImported = accountsImported;
+            this.rowsRejected = rowsRejected;
+            this.customersCreated = customersCreated;
+            this.elapsedNanos = elapsedNanos;
+            this.rejectsFile = rejectsFile;
+        }
+
+        /**
+         * @return rows in the file, not counting the CSV header or blank lines
+         */
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getAccountsImported() {
+            return accountsImported;
+        }
+
+        public long getRowsRejected() {
+            return rowsRejected;
+        }
+
+        public long getCustomersCreated() {
+            return customersCreated;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead * 1e9 / elapsedNanos;
+        }
+
+        public Path getRejectsFile() {
+            return rejectsFile;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Imported %d of %d rows (%d rejected, %d new customers) in %.3f s, %.0f rows/s",
+                    accountsImported, rowsRead, rowsRejected, customersCreated, elapsedNanos / 1e9, getRowsPerSecond());
+        }
+    }
+}
@@ -0,0 +1,408 @@
+package services;
+
+import models.Transaction;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only transaction ledger stored as parallel primitive columns instead of one
+ * object per row. A row costs 37 bytes of array space (sequence number, int account id,
+ * byte type code, amount and balance after in cents, timestamp in nanoseconds since the
+ * epoch, UTC), and the heap holds a handful of arrays per page rather than millions of
+ * small objects. {@link TransactionManager} keeps its ledger here; its per-account
+ * histories and time index hold row numbers, not transactions.
+ *
+ * Rows are read through {@link Row} flyweights: transactions that hold only a row number
+ * and read every field from the columns, made when a row is read and dropped after. Account
+ * numbers are interned once into int ids.
+ *
+ * Columns are split into fixed-size pages that are never copied or moved, so the store
+ * grows without copying the rows it holds. Appends are serialized on the store; a row
+ * never changes once appended, and rows below {@link #size} are read without locking.
+ *
+ * After a restart the store can start with the rows of a {@link LedgerIndex}: those rows are
+ * read in place from the mapped ledger segments and take no heap at all, and new rows are
+ * appended after them.
+ */
+public class ColumnarTransactionStore {
+    public static final byte DEPOSIT = 0;
+    public static final byte WITHDRAWAL = 1;
+    public static final byte TRANSFER_IN = 2;
+    public static final byte TRANSFER_OUT = 3;
+    public static final byte INTEREST = 4;
+
+    public static final int BYTES_PER_ROW = Integer.BYTES + Byte.BYTES + 4 * Long.BYTES;
+
+    private static final String[] TYPE_NAMES = {"DEPOSIT", "WITHDRAWAL", "TRANSFER_IN", "TRANSFER_OUT", "INTEREST"};
+    private static final int DEFAULT_PAGE_SIZE = 1 << 14;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final int pageSize;
+    // Rows [0, recoveredRows) are read from this index; both are written before size and never change after
+    private LedgerIndex recovered;
+    private int recoveredRows;
+    // Replaced, never changed, when a page is added; pages themselves are only ever appended to
+    private volatile Page[] pages = new Page[0];
+    // Written last by an append, so every row below it is fully visible to a reader that reads it first
+    private volatile int size;
+
+    private final Map<String, Integer> accountIdsByNumber = new HashMap<>();
+    // Replaced, never changed, when it grows; an id is written before any row that uses it
+    private volatile String[] accountNumbers = new String[16];
+    private int accountCount;
+
+    public ColumnarTransactionStore() {
+        this(DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * @param pageSize rows per page; each page allocates its columns in full
+     */
+    public ColumnarTransactionStore(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Starts an empty store with the rows of a ledger index, in its order, without copying them
+     * @throws IllegalStateException if the store already holds rows
+     */
+    synchronized void restore(LedgerIndex index) {
+        if (size != 0) {
+            throw new IllegalStateException("Recovered rows must come first; the store already holds " + size);
+        }
+        recovered = index;
+        recoveredRows = (int) index.getRowCount();
+        size = recoveredRows;
+    }
+
+    /**
+     * Appends a transaction as a row. Its id must be {@code TXN<sequence>} and its type one
+     * with a code.
+     * @return the row number
+     */
+    public synchronized int append(Transaction transaction) {
+        checkAppendable(transaction);
+        int row = size;
+        write(row, transaction);
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * Appends transactions as consecutive rows that become visible together, e.g. a
+     * transfer's two legs
+     * @return the row number of the first
+     */
+    public synchronized int appendAll(List<Transaction> transactions) {
+        int first = size;
+        for (Transaction transaction : transactions) {
+            checkAppendable(transaction);
+        }
+        for (int i = 0; i < transactions.size(); i++) {
+            write(first + i, transactions.get(i));
+        }
+        size = first + transactions.size();
+        return first;
+    }
+
+    private void write(int row, Transaction transaction) {
+        int accountId = accountId(transaction.getAccountNumber());
+        Page page = pageFor(row);
+        int slot = slot(row);
+        page.sequences[slot] = LedgerRecord.parseSequence(transaction.getTransactionId());
+        page.accountIds[slot] = accountId;
+        page.typeCodes[slot] = typeCode(transaction.getType());
+        page.amountsInCents[slot] = transaction.getAmountInCents();
+        page.balancesAfterInCents[slot] = transaction.getBalanceAfterInCents();
+        page.timestamps[slot] = toEpochNanos(transaction.getTimestamp());
+    }
+
+    // Throws what write would before anything is written, so a group is appended whole or not at all
+    private static void checkAppendable(Transaction transaction) {
+        LedgerRecord.parseSequence(transaction.getTransactionId());
+        typeCode(transaction.getType());
+        toEpochNanos(transaction.getTimestamp());
+    }
+
+    private Page pageFor(int row) {
+        int index = (row - recoveredRows) / pageSize;
+        Page[] current = pages;
+        if (index < current.length) {
+            return current[index];
+        }
+        Page[] grown = Arrays.copyOf(current, index + 1);
+        grown[index] = new Page(pageSize);
+        pages = grown;
+        return grown[index];
+    }
+
+    private int accountId(String accountNumber) {
+        Integer id = accountIdsByNumber.get(accountNumber);
+        if (id == null) {
+            id = accountCount;
+            String[] numbers = accountNumbers;
+            if (id == numbers.length) {
+                numbers = Arrays.copyOf(numbers, numbers.length * 2);
+            }
+            numbers[id] = accountNumber;
+            accountNumbers = numbers;
+            accountIdsByNumber.put(accountNumber, id);
+            accountCount++;
+        }
+        return id;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a flyweight transaction reading the row from the columns
+     */
+    public Transaction row(int row) {
+        checkRow(row);
+        return new Row(row);
+    }
+
+    /**
+     * @return flyweights for rows [from, to), in row order
+     */
+    public List<Transaction> rows(int from, int to) {
+        int current = size;
+        if (from < 0 || from > to || to > current) {
+            throw new IndexOutOfBoundsException("Rows " + from + "-" + to + " out of range for size " + current);
+        }
+        List<Transaction> rows = new ArrayList<>(to - from);
+        for (int row = from; row < to; row++) {
+            rows.add(new Row(row));
+        }
+        return rows;
+    }
+
+    public long getSequence(int row) {
+        if (isRecovered(row)) {
+            return recovered.getSequence(row);
+        }
+        return page(row).sequences[slot(row)];
+    }
+
+    public String getTransactionId(int row) {
+        return TransactionManager.formatTransactionId(getSequence(row));
+    }
+
+    public String getAccountNumber(int row) {
+        if (isRecovered(row)) {
+            return recovered.getAccountNumber(row);
+        }
+        return accountNumbers[page(row).accountIds[slot(row)]];
+    }
+
+    public byte getTypeCode(int row) {
+        if (isRecovered(row)) {
+            return recovered.getTypeCode(row);
+        }
+        return page(row).typeCodes[slot(row)];
+    }
+
+    public long getAmountInCents(int row) {
+        if (isRecovered(row)) {
+            return recovered.getAmountInCents(row);
+        }
+        return page(row).amountsInCents[slot(row)];
+    }
+
+    public long getBalanceAfterInCents(int row) {
+        if (isRecovered(row)) {
+            return recovered.getBalanceAfterInCents(row);
+        }
+        return page(row).balancesAfterInCents[slot(row)];
+    }
+
+    /**
+     * @return the row's timestamp in nanoseconds since the epoch, UTC
+     */
+    public long getEpochNanos(int row) {
+        if (isRecovered(row)) {
+            // Segments keep milliseconds
+            return recovered.getEpochMillis(row) * (NANOS_PER_SECOND / 1000);
+        }
+        return page(row).timestamps[slot(row)];
+    }
+
+    public LocalDateTime getTimestamp(int row) {
+        return fromEpochNanos(getEpochNanos(row));
+    }
+
+    // Checks the row first: size is read before anything else, so what it covers is visible
+    private boolean isRecovered(int row) {
+        checkRow(row);
+        return row < recoveredRows;
+    }
+
+    // Called after isRecovered; rows below size are complete and their page is there too
+    private Page page(int row) {
+        return pages[(row - recoveredRows) / pageSize];
+    }
+
+    private int slot(int row) {
+        return (row - recoveredRows) % pageSize;
+    }
+
+    private void checkRow(int row) {
+        int current = size;
+        if (row < 0 || row >= current) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of range for size " + current);
+        }
+    }
+
+    public static byte typeCode(String type) {
+        int code = findTypeCode(type);
+        if (code < 0) {
+            throw new IllegalArgumentException("Unknown transaction type: " + type);
+        }
+        return (byte) code;
+    }
+
+    // -1 for a type without a code
+    static int findTypeCode(String type) {
+        for (int code = 0; code < TYPE_NAMES.length; code++) {
+            if (TYPE_NAMES[code].equals(type)) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    public static String typeName(byte typeCode) {
+        return TYPE_NAMES[typeCode];
+    }
+
+    static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime fromEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+
+    /**
+     * @throws IllegalArgumentException for a time outside the years 1677-2262, which nanoseconds in a long cannot hold
+     */
+    static long toEpochNanos(LocalDateTime timestamp) {
+        try {
+            return Math.addExact(Math.multiplyExact(timestamp.toEpochSecond(ZoneOffset.UTC), NANOS_PER_SECOND),
+                    timestamp.getNano());
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Timestamp out of range: " + timestamp);
+        }
+    }
+
+    /**
+     * Like {@link #toEpochNanos}, but a time out of range becomes the earliest or latest one,
+     * for the bounds of a range query such as {@link LocalDateTime#MIN}
+     */
+    static long toEpochNanosBound(LocalDateTime timestamp) {
+        long seconds = timestamp.toEpochSecond(ZoneOffset.UTC);
+        if (seconds >= Long.MAX_VALUE / NANOS_PER_SECOND) {
+            return Long.MAX_VALUE;
+        }
+        if (seconds < Long.MIN_VALUE / NANOS_PER_SECOND) {
+            return Long.MIN_VALUE;
+        }
+        return seconds * NANOS_PER_SECOND + timestamp.getNano();
+    }
+
+    static LocalDateTime fromEpochNanos(long epochNanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochNanos, NANOS_PER_SECOND),
+                (int) Math.floorMod(epochNanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    // One page of every column; allocated whole and only ever appended to
+    private static final class Page {
+        private final long[] sequences;
+        private final int[] accountIds;
+        private final byte[] typeCodes;
+        private final long[] amountsInCents;
+        private final long[] balancesAfterInCents;
+        private final long[] timestamps;
+
+        Page(int size) {
+            sequences = new long[size];
+            accountIds = new int[size];
+            typeCodes = new byte[size];
+            amountsInCents = new long[size];
+            balancesAfterInCents = new long[size];
+            timestamps = new long[size];
+        }
+    }
+
+    /**
+     * A transaction that is one row of the store: it holds the row number and reads each field
+     * from the columns when asked. Two rows are equal if they are the same row of the same store.
+     */
+    public final class Row extends Transaction {
+        private final int row;
+
+        private Row(int row) {
+            this.row = row;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        @Override
+        public String getTransactionId() {
+            return ColumnarTransactionStore.this.getTransactionId(row);
+        }
+
+        @Override
+        public String getAccountNumber() {
+            return ColumnarTransactionStore.this.getAccountNumber(row);
+        }
+
+        @Override
+        public String getType() {
+            return typeName(getTypeCode(row));
+        }
+
+        @Override
+        public long getAmountInCents() {
+            return ColumnarTransactionStore.this.getAmountInCents(row);
+        }
+
+        @Override
+        public long getBalanceAfterInCents() {
+            return ColumnarTransactionStore.this.getBalanceAfterInCents(row);
+        }
+
+        @Override
+        public LocalDateTime getTimestamp() {
+            return ColumnarTransactionStore.this.getTimestamp(row);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Row && ((Row) other).row == row && ((Row) other).store() == store();
+        }
+
+        @Override
+        public int hashCode() {
+            return Integer.hashCode(row);
+        }
+
+        private ColumnarTransactionStore store() {
+            return ColumnarTransactionStore.this;
+        }
+    }
+}
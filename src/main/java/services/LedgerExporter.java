@@ -0,0 +1,439 @@
+package services;
+
+import models.Transaction;
+import utils.Money;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Streams the ledger of a {@link TransactionManager} to a CSV or NDJSON file, optionally only
+ * one account, one transaction type or a period, e.g. for a daily extract:
+ * <pre>
+ * transaction_id,account_number,type,amount,balance_after,timestamp
+ * TXN001,ACC001,DEPOSIT,100.00,600.00,2024-03-01T09:15:02.113
+ * {"transaction_id":"TXN001","account_number":"ACC001","type":"DEPOSIT","amount":100.00,"balance_after":600.00,"timestamp":"2024-03-01T09:15:02.113"}
+ * </pre>
+ * Accounts are split into partitions by account number, and each partition is written by its
+ * own thread. A thread reads its accounts' histories a page at a time, encodes rows into its own
+ * buffer and writes each full buffer to the file at a position reserved for it, so threads never
+ * wait on each other. Memory use is one buffer and one page per thread however long the ledger
+ * is, and a history's monitor is only held while a page is copied, so postings carry on.
+ *
+ * Each account's rows appear in recording order, which is time order unless the clock stepped
+ * back, but rows of different accounts interleave a buffer at a time. Transactions recorded
+ * after an account's export has started are left out of it.
+ */
+public class LedgerExporter {
+    public static final int DEFAULT_BUFFER_BYTES = 64 * 1024;
+    // Transactions copied out of a history at a time
+    static final int PAGE_SIZE = 256;
+
+    /**
+     * Output file format
+     */
+    public enum Format {
+        CSV,
+        /** One JSON object per line */
+        NDJSON
+    }
+
+    private static final byte[] CSV_HEADER =
+            "transaction_id,account_number,type,amount,balance_after,timestamp\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final TransactionManager transactionManager;
+    private final int partitions;
+    private final int bufferBytes;
+
+    public LedgerExporter(TransactionManager transactionManager) {
+        this(transactionManager, Runtime.getRuntime().availableProcessors(), DEFAULT_BUFFER_BYTES);
+    }
+
+    /**
+     * @param partitions how many threads write at once, each for its share of the accounts
+     * @param bufferBytes size of each thread's write buffer
+     */
+    public LedgerExporter(TransactionManager transactionManager, int partitions, int bufferBytes) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Partition count must be greater than 0");
+        }
+        if (bufferBytes < 1024) {
+            throw new IllegalArgumentException("Buffer must be at least 1024 bytes");
+        }
+        this.transactionManager = transactionManager;
+        this.partitions = partitions;
+        this.bufferBytes = bufferBytes;
+    }
+
+    /**
+     * Exports every transaction
+     * @see #export(Path, Format, String, String, LocalDateTime, LocalDateTime)
+     */
+    public Report export(Path file, Format format) throws IOException {
+        return export(file, format, null, null, null, null);
+    }
+
+    /**
+     * Writes the matching transactions to a file, replacing it if it exists
+     * @param accountNumber only this account's transactions, or null for every account
+     * @param type only transactions of this type, such as "DEPOSIT", or null for every type
+     * @param from start of the period, inclusive, or null for no start
+     * @param to end of the period, exclusive, or null for no end
+     * @return how many rows were written and how fast
+     */
+    public Report export(Path file, Format format, String accountNumber, String type,
+                         LocalDateTime from, LocalDateTime to) throws IOException {
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new IllegalArgumentException("Period end must not be before its start");
+        }
+        long started = System.nanoTime();
+        Collection<String> accounts = accountNumber == null
+                ? transactionManager.getAccountsWithHistory()
+                : List.of(accountNumber);
+        int threads = accountNumber == null ? partitions : 1;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            AtomicLong position = new AtomicLong();
+            if (format == Format.CSV) {
+                writeFully(channel, ByteBuffer.wrap(CSV_HEADER), position);
+            }
+            List<PartitionWriter> writers = new ArrayList<>(threads);
+            for (int partition = 0; partition < threads; partition++) {
+                writers.add(new PartitionWriter(channel, position, format, accounts, partition, threads, type, from, to));
+            }
+            run(writers);
+            long rows = 0;
+            long accountsExported = 0;
+            for (PartitionWriter writer : writers) {
+                rows += writer.rows;
+                accountsExported += writer.accounts;
+            }
+            return new Report(rows, accountsExported, position.get(), System.nanoTime() - started, file);
+        }
+    }
+
+    // The calling thread writes the first partition itself, so a single partition needs no pool
+    private static void run(List<PartitionWriter> writers) throws IOException {
+        if (writers.size() == 1) {
+            writers.get(0).call();
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(writers.size() - 1, task -> {
+            Thread thread = new Thread(task, "ledger-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Void>> results = new ArrayList<>(writers.size() - 1);
+            for (int i = 1; i < writers.size(); i++) {
+                results.add(pool.submit(writers.get(i)));
+            }
+            writers.get(0).call();
+            for (Future<Void> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    } else if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while exporting the ledger");
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Reserves room at the end of the file and writes the whole buffer there
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, AtomicLong position) throws IOException {
+        long at = position.getAndAdd(buffer.remaining());
+        while (buffer.hasRemaining()) {
+            at += channel.write(buffer, at);
+        }
+    }
+
+    /**
+     * Exports the accounts whose number hashes to one partition
+     */
+    private final class PartitionWriter implements Callable<Void> {
+        private final FileChannel channel;
+        private final AtomicLong position;
+        private final Format format;
+        private final Collection<String> accountNumbers;
+        private final int partition;
+        private final int partitionCount;
+        private final String type;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(bufferBytes);
+        private final StringBuilder row = new StringBuilder(160);
+        private long rows;
+        private long accounts;
+
+        PartitionWriter(FileChannel channel, AtomicLong position, Format format, Collection<String> accountNumbers,
+                        int partition, int partitionCount, String type, LocalDateTime from, LocalDateTime to) {
+            this.channel = channel;
+            this.position = position;
+            this.format = format;
+            this.accountNumbers = accountNumbers;
+            this.partition = partition;
+            this.partitionCount = partitionCount;
+            this.type = type;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            for (String accountNumber : accountNumbers) {
+                if (partitionCount > 1 && Math.floorMod(accountNumber.hashCode(), partitionCount) != partition) {
+                    continue;
+                }
+                AccountLedger ledger = transactionManager.getLedger(accountNumber);
+                if (ledger != null && exportAccount(ledger)) {
+                    accounts++;
+                }
+            }
+            flush();
+            return null;
+        }
+
+        // Returns whether any of the account's transactions matched
+        private boolean exportAccount(AccountLedger ledger) throws IOException {
+            int[] bounds = ledger.positionsBetween(from == null ? LocalDateTime.MIN : from,
+                    to == null ? LocalDateTime.MAX : to);
+            long before = rows;
+            for (int start = bounds[0]; start < bounds[1]; start += PAGE_SIZE) {
+                for (Transaction transaction : ledger.copyRange(start, Math.min(start + PAGE_SIZE, bounds[1]))) {
+                    if (matches(transaction)) {
+                        write(transaction);
+                        rows++;
+                    }
+                }
+            }
+            return rows > before;
+        }
+
+        private boolean matches(Transaction transaction) {
+            if (type != null && !type.equals(transaction.getType())) {
+                return false;
+            }
+            LocalDateTime timestamp = transaction.getTimestamp();
+            return (from == null || !timestamp.isBefore(from)) && (to == null || timestamp.isBefore(to));
+        }
+
+        private void write(Transaction transaction) throws IOException {
+            row.setLength(0);
+            if (format == Format.CSV) {
+                csvText(transaction.getTransactionId()).append(',');
+                csvText(transaction.getAccountNumber()).append(',');
+                csvText(transaction.getType()).append(',');
+                Money.append(row, transaction.getAmountInCents()).append(',');
+                Money.append(row, transaction.getBalanceAfterInCents()).append(',');
+                timestamp(transaction.getTimestamp());
+            } else {
+                row.append("{\"transaction_id\":");
+                jsonText(transaction.getTransactionId());
+                row.append(",\"account_number\":");
+                jsonText(transaction.getAccountNumber());
+                row.append(",\"type\":");
+                jsonText(transaction.getType());
+                Money.append(row.append(",\"amount\":"), transaction.getAmountInCents());
+                Money.append(row.append(",\"balance_after\":"), transaction.getBalanceAfterInCents());
+                row.append(",\"timestamp\":\"");
+                timestamp(transaction.getTimestamp());
+                row.append("\"}");
+            }
+            row.append('\n');
+            put(row);
+        }
+
+        // ASCII, the usual case, is copied char by char; anything else is encoded as UTF-8
+        private void put(CharSequence text) throws IOException {
+            int length = text.length();
+            boolean ascii = true;
+            for (int i = 0; i < length && ascii; i++) {
+                ascii = text.charAt(i) < 0x80;
+            }
+            if (!ascii) {
+                byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > buffer.remaining()) {
+                    flush();
+                }
+                if (bytes.length > buffer.capacity()) {
+                    writeFully(channel, ByteBuffer.wrap(bytes), position);
+                } else {
+                    buffer.put(bytes);
+                }
+                return;
+            }
+            if (length > buffer.remaining()) {
+                flush();
+            }
+            if (length > buffer.capacity()) {
+                writeFully(channel, ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.US_ASCII)), position);
+                return;
+            }
+            for (int i = 0; i < length; i++) {
+                buffer.put((byte) text.charAt(i));
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            if (buffer.hasRemaining()) {
+                writeFully(channel, buffer, position);
+            }
+            buffer.clear();
+        }
+
+        // Same text as LocalDateTime.toString, without building a string per row
+        private void timestamp(LocalDateTime time) {
+            int year = time.getYear();
+            if (year < 1000 || year > 9999) {
+                row.append(time);
+                return;
+            }
+            row.append(year);
+            twoDigits(row.append('-'), time.getMonthValue());
+            twoDigits(row.append('-'), time.getDayOfMonth());
+            twoDigits(row.append('T'), time.getHour());
+            twoDigits(row.append(':'), time.getMinute());
+            int second = time.getSecond();
+            int nano = time.getNano();
+            if (second == 0 && nano == 0) {
+                return;
+            }
+            twoDigits(row.append(':'), second);
+            if (nano == 0) {
+                return;
+            }
+            row.append('.');
+            if (nano % 1_000_000 == 0) {
+                digits(nano / 1_000_000, 100);
+            } else if (nano % 1000 == 0) {
+                digits(nano / 1000, 100_000);
+            } else {
+                digits(nano, 100_000_000);
+            }
+        }
+
+        private void twoDigits(StringBuilder builder, int value) {
+            builder.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+        }
+
+        // Writes value zero-padded to the width of the leading divisor
+        private void digits(int value, int leadingDivisor) {
+            for (int divisor = leadingDivisor; divisor > 0; divisor /= 10) {
+                row.append((char) ('0' + value / divisor % 10));
+            }
+        }
+
+        private StringBuilder csvText(String text) {
+            boolean quote = false;
+            for (int i = 0; i < text.length() && !quote; i++) {
+                char c = text.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                return row.append(text);
+            }
+            row.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"') {
+                    row.append('"');
+                }
+                row.append(c);
+            }
+            return row.append('"');
+        }
+
+        private void jsonText(String text) {
+            row.append('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    row.append('\\').append(c);
+                } else if (c < 0x20) {
+                    row.append(String.format("\\u%04x", (int) c));
+                } else {
+                    row.append(c);
+                }
+            }
+            row.append('"');
+        }
+    }
+
+    /**
+     * What {@link #export} wrote
+     */
+    public static final class Report {
+        private final long rowsWritten;
+        private final long accountsExported;
+        private final long bytesWritten;
+        private final long elapsedNanos;
+        private final Path file;
+
+        Report(long rowsWritten, long accountsExported, long bytesWritten, long elapsedNanos, Path file) {
+            this.rowsWritten = rowsWritten;
+            this.accountsExported = accountsExported;
+            this.bytesWritten = bytesWritten;
+            this.elapsedNanos = elapsedNanos;
+            this.file = file;
+        }
+
+        public long getRowsWritten() {
+            return rowsWritten;
+        }
+
+        /**
+         * @return accounts with at least one row in the file
+         */
+        public long getAccountsExported() {
+            return accountsExported;
+        }
+
+        public long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsWritten * 1e9 / elapsedNanos;
+        }
+
+        public Path getFile() {
+            return file;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Exported %d rows of %d accounts (%d bytes) in %.3f s, %.0f rows/s",
+                    rowsWritten, accountsExported, bytesWritten, elapsedNanos / 1e9, getRowsPerSecond());
+        }
+    }
+}
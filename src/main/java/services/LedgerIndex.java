@@ -0,0 +1,367 @@
+package services;
+
+import models.Account;
+import models.AccountSummary;
+import models.Transaction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.zip.CRC32;
+
+/**
+ * Balances, running totals and per-account row indexes rebuilt from ledger segments. Building
+ * it maps each segment read-only and reads the fields of every row in place: accounts are
+ * matched on their raw record bytes, so the only objects created are a few per distinct
+ * account. Row contents stay in the mapped segments. {@link #restoreInto} hands the mapped
+ * rows to the transaction manager as the start of its ledger, so a restart decodes a row only
+ * when a history, statement or query reads it.
+ *
+ * The scan stops at the first row that is empty or fails its checksum, which is where the
+ * last write before a crash ended, and leaves out a transfer's first leg if the crash came
+ * before its second.
+ */
+public class LedgerIndex {
+    private static final int INITIAL_ACCOUNTS = 1024;
+
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private final int rowsPerSegment;
+    // Rows at the start of the first mapped segment that are covered by a snapshot and not indexed
+    private final int skippedRows;
+    // Row at which the scan stops even if more are intact, counted like the rows above
+    private final long endRow;
+    private long rowCount;
+    private long lastSequence;
+
+    // Account numbers as four packed words of the record's account field, looked up by open addressing
+    private int accountCount;
+    private long[] keyWords = new long[INITIAL_ACCOUNTS * 4];
+    private int[] table = new int[INITIAL_ACCOUNTS * 2];
+    private String[] accountNumbers = new String[INITIAL_ACCOUNTS];
+    private long[] balances = new long[INITIAL_ACCOUNTS];
+    private int[] rowCounts = new int[INITIAL_ACCOUNTS];
+    // Row numbers counted from the first indexed row, per account, in ledger order
+    private int[][] rows = new int[INITIAL_ACCOUNTS][];
+    private AccountSummary[] summaries = new AccountSummary[INITIAL_ACCOUNTS];
+    private long[] lastEpochMillis = new long[INITIAL_ACCOUNTS];
+    // Whether each account's rows are in time order, so its history can be binary-searched by time
+    private boolean[] timeOrdered = new boolean[INITIAL_ACCOUNTS];
+
+    private LedgerIndex(int rowsPerSegment, int skippedRows, long endRow) {
+        this.rowsPerSegment = rowsPerSegment;
+        this.skippedRows = skippedRows;
+        this.endRow = endRow;
+    }
+
+    static LedgerIndex build(List<Path> segmentFiles, int rowsPerSegment) throws IOException {
+        return build(segmentFiles, rowsPerSegment, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param skippedRows rows at the start of the first segment to leave out of the index
+     * @param endRow the row, counted from the start of the first segment, to stop before
+     */
+    static LedgerIndex build(List<Path> segmentFiles, int rowsPerSegment, int skippedRows, long endRow) throws IOException {
+        LedgerIndex index = new LedgerIndex(rowsPerSegment, skippedRows, endRow);
+        for (Path segmentFile : segmentFiles) {
+            try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ)) {
+                // The mapping stays valid after the channel is closed
+                index.segments.add(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN));
+            }
+        }
+        index.scan(new CRC32());
+        return index;
+    }
+
+    // Stops at the first row that is missing or torn, or at a transfer's first leg whose second leg is
+    private void scan(CRC32 crc) {
+        for (long row = skippedRows; row < endRow && isIntact(row, crc); row++) {
+            ByteBuffer segment = segments.get((int) (row / rowsPerSegment));
+            int start = (int) (row % rowsPerSegment) * LedgerRecord.SIZE;
+            if (LedgerRecord.isTransferOut(segment, start) && !isIntact(row + 1, crc)) {
+                return;
+            }
+            int account = accountIdAt(segment, start);
+            balances[account] = segment.getLong(start + LedgerRecord.BALANCE_OFFSET);
+            summaries[account].record(ColumnarTransactionStore.typeName(segment.get(start + LedgerRecord.TYPE_OFFSET)),
+                    segment.getLong(start + LedgerRecord.AMOUNT_OFFSET));
+            long epochMillis = segment.getLong(start + LedgerRecord.TIMESTAMP_OFFSET);
+            if (rowCounts[account] > 0 && epochMillis < lastEpochMillis[account]) {
+                timeOrdered[account] = false;
+            }
+            lastEpochMillis[account] = epochMillis;
+            addRow(account, row - skippedRows);
+            lastSequence = Math.max(lastSequence, segment.getLong(start + LedgerRecord.SEQUENCE_OFFSET));
+            rowCount++;
+        }
+    }
+
+    private boolean isIntact(long row, CRC32 crc) {
+        int segment = (int) (row / rowsPerSegment);
+        int start = (int) (row % rowsPerSegment) * LedgerRecord.SIZE;
+        return segment < segments.size() && start + LedgerRecord.SIZE <= segments.get(segment).capacity()
+                && LedgerRecord.isIntact(segments.get(segment), start, crc);
+    }
+
+    /**
+     * @return the number of rows indexed, not counting rows skipped at the start
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public int getAccountCount() {
+        return accountCount;
+    }
+
+    /**
+     * @return the highest transaction sequence number in the ledger, 0 if it is empty
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public List<String> getAccountNumbers() {
+        return Collections.unmodifiableList(Arrays.asList(accountNumbers).subList(0, accountCount));
+    }
+
+    public boolean containsAccount(String accountNumber) {
+        return find(accountNumber) >= 0;
+    }
+
+    /**
+     * @return the balance after the account's last row, 0 if the ledger has no rows for it
+     */
+    public long getBalanceInCents(String accountNumber) {
+        int account = find(accountNumber);
+        return account < 0 ? 0 : balances[account];
+    }
+
+    public int getTransactionCount(String accountNumber) {
+        int account = find(accountNumber);
+        return account < 0 ? 0 : rowCounts[account];
+    }
+
+    /**
+     * Decodes one account's rows from the mapped segments
+     * @return the account's transactions, oldest first
+     */
+    public List<Transaction> getTransactionsForAccount(String accountNumber) {
+        int account = find(accountNumber);
+        if (account < 0) {
+            return Collections.emptyList();
+        }
+        List<Transaction> transactions = new ArrayList<>(rowCounts[account]);
+        for (int i = 0; i < rowCounts[account]; i++) {
+            int row = rows[account][i];
+            transactions.add(LedgerRecord.decode(segmentOf(row), startOf(row)));
+        }
+        return transactions;
+    }
+
+    /**
+     * @return the running totals of the account's indexed rows, all zero if it has none
+     */
+    public AccountSummary getAccountSummary(String accountNumber) {
+        int account = find(accountNumber);
+        return account < 0 ? new AccountSummary() : summaries[account].snapshot();
+    }
+
+    /**
+     * Sets the recovered balance on every registered account that appears in the ledger, hands
+     * the indexed rows to the transaction manager as its history so statements and queries see
+     * them, and makes its new ids continue after the last recovered one. The rows stay in the
+     * mapped segments; nothing is decoded here. An index built after a snapshot covers only the
+     * tail, so history from before the snapshot is not reloaded.
+     * @return the number of accounts whose balance was restored
+     */
+    public int restoreInto(AccountManager accountManager, TransactionManager transactionManager) {
+        int restored = 0;
+        for (int account = 0; account < accountCount; account++) {
+            Account target = accountManager.getAccount(accountNumbers[account]);
+            if (target != null) {
+                target.setBalanceInCents(balances[account]);
+                restored++;
+            }
+        }
+        transactionManager.restoreHistory(this);
+        transactionManager.advanceTransactionIds(lastSequence);
+        return restored;
+    }
+
+    /**
+     * Adopts each account's rows as its ledger over a store whose first rows are this index's
+     * rows. A ledger appends after the rows it adopts, which this index never reads.
+     */
+    void forEachLedger(ColumnarTransactionStore store, BiConsumer<String, AccountLedger> consumer) {
+        for (int account = 0; account < accountCount; account++) {
+            consumer.accept(accountNumbers[account],
+                    new AccountLedger(store, rows[account], rowCounts[account], summaries[account], timeOrdered[account]));
+        }
+    }
+
+    // Every indexed row in ledger order
+    List<Transaction> decodeAll() {
+        List<Transaction> transactions = new ArrayList<>((int) rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            transactions.add(LedgerRecord.decode(segmentOf(row), startOf(row)));
+        }
+        return transactions;
+    }
+
+    // Fields of one indexed row, read in place for ColumnarTransactionStore
+
+    long getSequence(int row) {
+        return segmentOf(row).getLong(startOf(row) + LedgerRecord.SEQUENCE_OFFSET);
+    }
+
+    long getEpochMillis(int row) {
+        return segmentOf(row).getLong(startOf(row) + LedgerRecord.TIMESTAMP_OFFSET);
+    }
+
+    long getAmountInCents(int row) {
+        return segmentOf(row).getLong(startOf(row) + LedgerRecord.AMOUNT_OFFSET);
+    }
+
+    long getBalanceAfterInCents(int row) {
+        return segmentOf(row).getLong(startOf(row) + LedgerRecord.BALANCE_OFFSET);
+    }
+
+    byte getTypeCode(int row) {
+        return segmentOf(row).get(startOf(row) + LedgerRecord.TYPE_OFFSET);
+    }
+
+    String getAccountNumber(int row) {
+        return accountNumbers[accountIdAt(segmentOf(row), startOf(row))];
+    }
+
+    private ByteBuffer segmentOf(int row) {
+        return segments.get((int) (((long) row + skippedRows) / rowsPerSegment));
+    }
+
+    private int startOf(int row) {
+        return (int) (((long) row + skippedRows) % rowsPerSegment) * LedgerRecord.SIZE;
+    }
+
+    private void addRow(int account, long row) {
+        if (row > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Ledger too large to index: more than " + Integer.MAX_VALUE + " rows");
+        }
+        int[] accountRows = rows[account];
+        int count = rowCounts[account];
+        if (accountRows == null) {
+            accountRows = rows[account] = new int[16];
+        } else if (count == accountRows.length) {
+            accountRows = rows[account] = Arrays.copyOf(accountRows, count * 2);
+        }
+        accountRows[count] = (int) row;
+        rowCounts[account] = count + 1;
+    }
+
+    private int accountIdAt(ByteBuffer segment, int start) {
+        int base = start + LedgerRecord.ACCOUNT_OFFSET;
+        long w0 = segment.getLong(base);
+        long w1 = segment.getLong(base + 8);
+        long w2 = segment.getLong(base + 16);
+        long w3 = segment.getShort(base + 24) & 0xFFFFL;
+        int mask = table.length - 1;
+        for (int slot = hash(w0, w1, w2, w3) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return addAccount(slot, w0, w1, w2, w3, LedgerRecord.accountNumber(segment, start));
+            }
+            int account = entry - 1;
+            if (keyWords[account * 4] == w0 && keyWords[account * 4 + 1] == w1
+                    && keyWords[account * 4 + 2] == w2 && keyWords[account * 4 + 3] == w3) {
+                return account;
+            }
+        }
+    }
+
+    private int find(String accountNumber) {
+        if (accountNumber == null || accountNumber.isEmpty() || accountNumber.length() > LedgerRecord.MAX_ACCOUNT_NUMBER_LENGTH) {
+            return -1;
+        }
+        long w0 = pack(accountNumber, 0, 8);
+        long w1 = pack(accountNumber, 8, 8);
+        long w2 = pack(accountNumber, 16, 8);
+        long w3 = pack(accountNumber, 24, 2);
+        int mask = table.length - 1;
+        for (int slot = hash(w0, w1, w2, w3) & mask; ; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            int account = entry - 1;
+            if (keyWords[account * 4] == w0 && keyWords[account * 4 + 1] == w1
+                    && keyWords[account * 4 + 2] == w2 && keyWords[account * 4 + 3] == w3) {
+                return account;
+            }
+        }
+    }
+
+    private int addAccount(int slot, long w0, long w1, long w2, long w3, String accountNumber) {
+        int account = accountCount++;
+        if (account == accountNumbers.length) {
+            int capacity = accountNumbers.length * 2;
+            keyWords = Arrays.copyOf(keyWords, capacity * 4);
+            accountNumbers = Arrays.copyOf(accountNumbers, capacity);
+            balances = Arrays.copyOf(balances, capacity);
+            rowCounts = Arrays.copyOf(rowCounts, capacity);
+            rows = Arrays.copyOf(rows, capacity);
+            summaries = Arrays.copyOf(summaries, capacity);
+            lastEpochMillis = Arrays.copyOf(lastEpochMillis, capacity);
+            timeOrdered = Arrays.copyOf(timeOrdered, capacity);
+        }
+        keyWords[account * 4] = w0;
+        keyWords[account * 4 + 1] = w1;
+        keyWords[account * 4 + 2] = w2;
+        keyWords[account * 4 + 3] = w3;
+        accountNumbers[account] = accountNumber;
+        summaries[account] = new AccountSummary();
+        timeOrdered[account] = true;
+        table[slot] = account + 1;
+        // Keep the table at most half full
+        if (accountCount * 2 > table.length) {
+            rehash(table.length * 2);
+        }
+        return account;
+    }
+
+    private void rehash(int size) {
+        table = new int[size];
+        int mask = size - 1;
+        for (int account = 0; account < accountCount; account++) {
+            int slot = hash(keyWords[account * 4], keyWords[account * 4 + 1], keyWords[account * 4 + 2], keyWords[account * 4 + 3]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = account + 1;
+        }
+    }
+
+    // Packs ASCII characters little-endian, matching how the record's bytes read as longs
+    private static long pack(String accountNumber, int from, int width) {
+        long word = 0;
+        for (int i = Math.min(width, accountNumber.length() - from) - 1; i >= 0; i--) {
+            word = (word << 8) | (accountNumber.charAt(from + i) & 0xFF);
+        }
+        return word;
+    }
+
+    private static int hash(long w0, long w1, long w2, long w3) {
+        long h = w0 * 0x9E3779B97F4A7C15L;
+        h = (h ^ w1) * 0x9E3779B97F4A7C15L;
+        h = (h ^ w2) * 0x9E3779B97F4A7C15L;
+        h = (h ^ w3) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
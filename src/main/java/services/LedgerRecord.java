@@ -0,0 +1,121 @@
+package services;
+
+import models.Transaction;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * The fixed 64-byte on-disk layout shared by the transaction journal and ledger segments.
+ * All fields are little-endian and read in place, so a scan can work directly on a mapped
+ * file without building objects:
+ * <pre>
+ *  0  sequence number (8)       the digits of the transaction id "TXN&lt;sequence&gt;"
+ *  8  epoch millis, UTC (8)
+ * 16  amount in cents (8)
+ * 24  balance after in cents (8)
+ * 32  type code (1)             as in {@link ColumnarTransactionStore}
+ * 33  account number length (1) never 0 for a written record
+ * 34  account number (26)       ASCII, zero-padded
+ * 60  CRC32 of bytes 0-59 (4)
+ * </pre>
+ *
+ * A transfer is written as its TRANSFER_OUT record directly followed by its TRANSFER_IN
+ * record. A log whose last intact record is a TRANSFER_OUT was cut between the two legs, so
+ * readers leave that record out and writers overwrite it.
+ */
+final class LedgerRecord {
+    static final int SIZE = 64;
+    static final int MAX_ACCOUNT_NUMBER_LENGTH = 26;
+
+    static final int SEQUENCE_OFFSET = 0;
+    static final int TIMESTAMP_OFFSET = 8;
+    static final int AMOUNT_OFFSET = 16;
+    static final int BALANCE_OFFSET = 24;
+    static final int TYPE_OFFSET = 32;
+    static final int ACCOUNT_LENGTH_OFFSET = 33;
+    static final int ACCOUNT_OFFSET = 34;
+    static final int CHECKSUM_OFFSET = 60;
+
+    private LedgerRecord() {
+    }
+
+    /**
+     * Writes a transaction as one record at an absolute offset
+     */
+    static void encode(ByteBuffer buffer, int start, Transaction transaction, CRC32 crc) {
+        checkEncodable(transaction);
+        String accountNumber = transaction.getAccountNumber();
+        buffer.putLong(start + SEQUENCE_OFFSET, parseSequence(transaction.getTransactionId()));
+        buffer.putLong(start + TIMESTAMP_OFFSET, ColumnarTransactionStore.toEpochMillis(transaction.getTimestamp()));
+        buffer.putLong(start + AMOUNT_OFFSET, transaction.getAmountInCents());
+        buffer.putLong(start + BALANCE_OFFSET, transaction.getBalanceAfterInCents());
+        buffer.put(start + TYPE_OFFSET, ColumnarTransactionStore.typeCode(transaction.getType()));
+        int length = accountNumber.length();
+        buffer.put(start + ACCOUNT_LENGTH_OFFSET, (byte) length);
+        for (int i = 0; i < MAX_ACCOUNT_NUMBER_LENGTH; i++) {
+            buffer.put(start + ACCOUNT_OFFSET + i, i < length ? (byte) accountNumber.charAt(i) : 0);
+        }
+        buffer.putInt(start + CHECKSUM_OFFSET, checksum(buffer, start, crc));
+    }
+
+    /**
+     * @return true if the record at this offset was fully written: it has an account number and its checksum matches
+     */
+    static boolean isIntact(ByteBuffer buffer, int start, CRC32 crc) {
+        return buffer.get(start + ACCOUNT_LENGTH_OFFSET) != 0
+                && buffer.getInt(start + CHECKSUM_OFFSET) == checksum(buffer, start, crc);
+    }
+
+    /**
+     * Throws the exception {@link #encode} would, without writing anything, so a group of
+     * records can be checked before any of it is written
+     */
+    static void checkEncodable(Transaction transaction) {
+        String accountNumber = transaction.getAccountNumber();
+        if (accountNumber.isEmpty() || accountNumber.length() > MAX_ACCOUNT_NUMBER_LENGTH) {
+            throw new IllegalArgumentException("Account number does not fit a ledger record: " + accountNumber);
+        }
+        parseSequence(transaction.getTransactionId());
+        ColumnarTransactionStore.typeCode(transaction.getType());
+    }
+
+    static boolean isTransferOut(ByteBuffer buffer, int start) {
+        return buffer.get(start + TYPE_OFFSET) == ColumnarTransactionStore.TRANSFER_OUT;
+    }
+
+    static Transaction decode(ByteBuffer buffer, int start) {
+        return new Transaction(TransactionManager.formatTransactionId(buffer.getLong(start + SEQUENCE_OFFSET)),
+                accountNumber(buffer, start),
+                ColumnarTransactionStore.typeName(buffer.get(start + TYPE_OFFSET)),
+                buffer.getLong(start + AMOUNT_OFFSET),
+                buffer.getLong(start + BALANCE_OFFSET),
+                ColumnarTransactionStore.fromEpochMillis(buffer.getLong(start + TIMESTAMP_OFFSET)));
+    }
+
+    static String accountNumber(ByteBuffer buffer, int start) {
+        byte[] bytes = new byte[buffer.get(start + ACCOUNT_LENGTH_OFFSET)];
+        buffer.get(start + ACCOUNT_OFFSET, bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    // Computed in place: moves the buffer's position and limit, then puts them back
+    private static int checksum(ByteBuffer buffer, int start, CRC32 crc) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        buffer.limit(buffer.capacity()).position(start).limit(start + CHECKSUM_OFFSET);
+        crc.reset();
+        crc.update(buffer);
+        buffer.limit(limit).position(position);
+        return (int) crc.getValue();
+    }
+
+    // Transaction ids are "TXN" followed by the sequence number, zero-padded to three digits
+    static long parseSequence(String transactionId) {
+        if (!transactionId.startsWith("TXN")) {
+            throw new IllegalArgumentException("Unexpected transaction id: " + transactionId);
+        }
+        return Long.parseLong(transactionId, 3, transactionId.length(), 10);
+    }
+}
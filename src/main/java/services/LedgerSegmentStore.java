@@ -0,0 +1,298 @@
+package services;
+
+import models.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent ledger made of fixed-size, memory-mapped segment files. Each segment holds
+ * {@code rowsPerSegment} rows in the {@link LedgerRecord} layout; appends are plain stores into
+ * the mapped file, and a full segment rolls over to the next one. Segment {@code n} is named
+ * {@code segment-<n>.ldg} and starts at row {@code n * rowsPerSegment}.
+ *
+ * Mapped writes reach the operating system as soon as they are made, so they survive a crash
+ * of this process; {@link #flush()} also forces them to the device. {@link #awaitDurable} does
+ * not wait; pair the store with a {@link TransactionJournal} if every posting must be forced.
+ *
+ * On startup, {@link #replay()} maps the segments read-only and rebuilds balances and
+ * per-account row indexes straight from the mapped bytes. Once a {@link SnapshotManager} has
+ * captured the balances up to some row, {@link #replayFrom} scans only the rows after it and
+ * {@link #compactBefore} archives or deletes the segments that no longer need replaying.
+ */
+public class LedgerSegmentStore implements TransactionLog, AutoCloseable {
+    public static final int DEFAULT_ROWS_PER_SEGMENT = 1 << 20;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".ldg";
+
+    private final Path directory;
+    private final int rowsPerSegment;
+    private final CRC32 crc = new CRC32();
+
+    private long activeSegment;
+    private FileChannel activeChannel;
+    private MappedByteBuffer active;
+    private int activeRows;
+    private long rowCount;
+
+    public LedgerSegmentStore(Path directory) throws IOException {
+        this(directory, DEFAULT_ROWS_PER_SEGMENT);
+    }
+
+    /**
+     * Opens the segments in a directory, creating it if needed, and continues after the last
+     * intact row
+     * @param rowsPerSegment rows per segment file; must match the existing segments
+     */
+    public LedgerSegmentStore(Path directory, int rowsPerSegment) throws IOException {
+        if (rowsPerSegment <= 0 || (long) rowsPerSegment * LedgerRecord.SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Rows per segment must be between 1 and " + Integer.MAX_VALUE / LedgerRecord.SIZE);
+        }
+        this.directory = directory;
+        this.rowsPerSegment = rowsPerSegment;
+        Files.createDirectories(directory);
+
+        List<Path> segments = segmentFiles(directory);
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            if (Files.size(last) != (long) rowsPerSegment * LedgerRecord.SIZE) {
+                throw new IllegalArgumentException("Existing segments do not hold " + rowsPerSegment + " rows: " + last);
+            }
+            openSegment(segmentNumber(last));
+            while (activeRows < rowsPerSegment && LedgerRecord.isIntact(active, activeRows * LedgerRecord.SIZE, crc)) {
+                activeRows++;
+            }
+            // A roll-over that wrote nothing before a crash: continue from the full segment before it
+            if (activeRows == 0 && segments.size() > 1) {
+                activeChannel.close();
+                openSegment(segmentNumber(segments.get(segments.size() - 2)));
+                activeRows = rowsPerSegment;
+            }
+            // The first leg of a transfer whose second leg was never written is overwritten by the next append
+            if (activeRows > 0 && LedgerRecord.isTransferOut(active, (activeRows - 1) * LedgerRecord.SIZE)) {
+                activeRows--;
+            }
+        }
+        rowCount = activeSegment * rowsPerSegment + activeRows;
+    }
+
+    /**
+     * Writes a transaction into the active segment
+     * @return the number of rows in the ledger, which doubles as the ticket
+     */
+    @Override
+    public synchronized long append(Transaction transaction) {
+        if (activeRows == rowsPerSegment) {
+            try {
+                rollOver();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open ledger segment " + (activeSegment + 1), e);
+            }
+        }
+        LedgerRecord.encode(active, activeRows * LedgerRecord.SIZE, transaction, crc);
+        activeRows++;
+        return ++rowCount;
+    }
+
+    /**
+     * Writes a group of transactions as consecutive rows. Every row is checked before the first
+     * is written. If a roll-over fails part-way, the group's rows in the active segment are
+     * cleared and the next append reuses them.
+     * @return the number of rows in the ledger after the group
+     */
+    @Override
+    public synchronized long appendAll(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            LedgerRecord.checkEncodable(transaction);
+        }
+        long firstRow = rowCount;
+        try {
+            for (Transaction transaction : transactions) {
+                append(transaction);
+            }
+        } catch (UncheckedIOException e) {
+            long segmentStart = activeSegment * rowsPerSegment;
+            int keptRows = (int) (Math.max(firstRow, segmentStart) - segmentStart);
+            for (int row = keptRows; row < activeRows; row++) {
+                active.put(row * LedgerRecord.SIZE + LedgerRecord.ACCOUNT_LENGTH_OFFSET, (byte) 0);
+            }
+            activeRows = keptRows;
+            rowCount = segmentStart + keptRows;
+            throw e;
+        }
+        return rowCount;
+    }
+
+    @Override
+    public void awaitDurable(long ticket) {
+        // Mapped stores are already visible to the operating system; see flush()
+    }
+
+    /**
+     * Forces the active segment to the storage device
+     */
+    public synchronized void flush() {
+        active.force();
+    }
+
+    public synchronized long getRowCount() {
+        return rowCount;
+    }
+
+    public int getRowsPerSegment() {
+        return rowsPerSegment;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Scans every segment in the directory and indexes it without building transaction objects
+     */
+    public LedgerIndex replay() throws IOException {
+        return LedgerIndex.build(segmentFiles(directory), rowsPerSegment);
+    }
+
+    /**
+     * Indexes only the rows from a given row onwards, the tail left to replay after a snapshot
+     * @param firstRow the first row to index, counted from the start of the ledger
+     * @throws IOException if the segment holding that row has already been compacted away
+     */
+    public LedgerIndex replayFrom(long firstRow) throws IOException {
+        long firstSegment = firstRow / rowsPerSegment;
+        List<Path> tail = new ArrayList<>();
+        for (Path segment : segmentFiles(directory)) {
+            if (segmentNumber(segment) >= firstSegment) {
+                tail.add(segment);
+            }
+        }
+        if (tail.isEmpty() ? firstRow < getRowCount() : segmentNumber(tail.get(0)) != firstSegment) {
+            throw new IOException("Ledger segment " + firstSegment + " holding row " + firstRow + " is missing from " + directory);
+        }
+        return LedgerIndex.build(tail, rowsPerSegment, (int) (firstRow % rowsPerSegment), Long.MAX_VALUE);
+    }
+
+    /**
+     * Indexes only the rows before a given row, e.g. the history a snapshot stands in for,
+     * from the segments still in the directory and those compaction moved to an archive
+     * @param endRow the row to stop before, counted from the start of the ledger
+     * @param archiveDirectory where {@link #compactBefore} archived old segments, or null
+     * @throws IOException if a segment holding one of those rows was deleted or is damaged
+     */
+    public LedgerIndex replayBefore(long endRow, Path archiveDirectory) throws IOException {
+        long segmentCount = (endRow + rowsPerSegment - 1) / rowsPerSegment;
+        List<Path> head = new ArrayList<>();
+        for (long segment = 0; segment < segmentCount; segment++) {
+            Path live = segmentPath(directory, segment);
+            Path archived = archiveDirectory == null ? null : segmentPath(archiveDirectory, segment);
+            if (Files.exists(live)) {
+                head.add(live);
+            } else if (archived != null && Files.exists(archived)) {
+                head.add(archived);
+            } else {
+                throw new IOException("Ledger segment " + segment + " is in neither " + directory + " nor the archive");
+            }
+        }
+        LedgerIndex index = LedgerIndex.build(head, rowsPerSegment, 0, endRow);
+        if (index.getRowCount() != endRow) {
+            throw new IOException("Ledger segments hold only " + index.getRowCount() + " intact rows of the " + endRow + " expected");
+        }
+        return index;
+    }
+
+    /**
+     * Removes the segments whose rows all come before a given row. The active segment is never
+     * removed.
+     * @param row the first row that must stay replayable
+     * @param archiveDirectory where to move the old segments, or null to delete them
+     * @return the number of segments removed
+     */
+    public int compactBefore(long row, Path archiveDirectory) throws IOException {
+        long keepFrom;
+        synchronized (this) {
+            keepFrom = Math.min(row / rowsPerSegment, activeSegment);
+        }
+        if (archiveDirectory != null) {
+            Files.createDirectories(archiveDirectory);
+        }
+        int removed = 0;
+        for (Path segment : segmentFiles(directory)) {
+            if (segmentNumber(segment) >= keepFrom) {
+                break;
+            }
+            if (archiveDirectory == null) {
+                Files.delete(segment);
+            } else {
+                Files.move(segment, archiveDirectory.resolve(segment.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+            removed++;
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        active.force();
+        activeChannel.close();
+    }
+
+    /**
+     * @return the segment files in a directory, oldest first
+     */
+    public static List<Path> segmentFiles(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(LedgerSegmentStore::isSegmentFile)
+                    .sorted((a, b) -> Long.compare(segmentNumber(a), segmentNumber(b)))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name, SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length(), 10);
+    }
+
+    static Path segmentPath(Path directory, long segmentNumber) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, segmentNumber, SEGMENT_SUFFIX));
+    }
+
+    private static boolean isSegmentFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)
+                && name.length() > SEGMENT_PREFIX.length() + SEGMENT_SUFFIX.length();
+    }
+
+    private void rollOver() throws IOException {
+        active.force();
+        activeChannel.close();
+        openSegment(activeSegment + 1);
+    }
+
+    private void openSegment(long segmentNumber) throws IOException {
+        activeChannel = FileChannel.open(segmentPath(directory, segmentNumber),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        active = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, (long) rowsPerSegment * LedgerRecord.SIZE);
+        active.order(ByteOrder.LITTLE_ENDIAN);
+        activeSegment = segmentNumber;
+        activeRows = 0;
+    }
+}
@@ -0,0 +1,372 @@
+package services;
+
+import exceptions.InsufficientFundsException;
+import exceptions.InvalidAmountException;
+import exceptions.OverdraftExceededException;
+import models.Account;
+import models.Transaction;
+import utils.Money;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pipelined alternative to calling {@link TransactionManager} directly. Accounts are split
+ * into partitions by account number, and each partition owns a preallocated ring of slots
+ * that producers publish into. Two threads per partition consume the ring in sequence order:
+ * <ol>
+ *   <li>the writer validates each posting and applies it to the account with the lock-free
+ *       compare-and-set path, so it never waits on an account lock;</li>
+ *   <li>the recorder appends the resulting transactions to the ledger and notifies the callers.
+ *       With a journal it records everything the writer has applied, waits for one commit,
+ *       then notifies the whole group.</li>
+ * </ol>
+ *
+ * Slots are reused once the recorder has passed them, so {@link #publish} allocates nothing
+ * beyond the ledger's own transaction row. {@link #submit} is the convenient variant and
+ * allocates a future and result per posting. A full ring makes producers wait.
+ *
+ * Postings to one account are applied and recorded in publish order. Accounts posted through
+ * a pipeline should not be posted through the locked TransactionManager methods at the same
+ * time: every posting path changes the balance with a compare-and-set, so balances stay
+ * correct, but their history order could differ from balance order.
+ */
+public class PostingPipeline implements AutoCloseable {
+    public static final int DEFAULT_RING_SIZE = 4096;
+
+    /**
+     * Receives the outcome of a published posting on the partition's recorder thread.
+     * Implementations should return quickly; the next posting waits for them.
+     */
+    public interface PostingListener {
+        void onPosted(Transaction transaction);
+
+        void onRejected(Exception error);
+    }
+
+    private final AccountManager accountManager;
+    private final TransactionManager transactionManager;
+    private final Partition[] partitions;
+
+    public PostingPipeline(AccountManager accountManager, TransactionManager transactionManager) {
+        this(accountManager, transactionManager, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * Creates the pipeline and starts two threads per partition
+     * @param partitionCount number of independent writer/recorder pairs
+     * @param ringSize slots per partition, a power of two
+     */
+    public PostingPipeline(AccountManager accountManager, TransactionManager transactionManager, int partitionCount, int ringSize) {
+        if (partitionCount <= 0) {
+            throw new IllegalArgumentException("Partition count must be greater than 0");
+        }
+        if (ringSize <= 0 || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two");
+        }
+        this.accountManager = accountManager;
+        this.transactionManager = transactionManager;
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i, ringSize);
+        }
+    }
+
+    /**
+     * Publishes a posting without allocating. The listener is called once, on the recorder
+     * thread, and may be shared across postings.
+     * @param amountInCents the amount in cents
+     * @throws RejectedExecutionException if the pipeline has been closed
+     */
+    public void publish(String accountNumber, PostingRequest.Type type, long amountInCents, PostingListener listener) {
+        if (type == null || listener == null) {
+            throw new IllegalArgumentException("Posting type and listener are required");
+        }
+        Partition partition = partitions[partitionOf(accountNumber)];
+        long sequence = partition.claim();
+        Slot slot = partition.slots[(int) (sequence & partition.mask)];
+        slot.accountNumber = accountNumber;
+        slot.type = type;
+        slot.amountInCents = amountInCents;
+        slot.listener = listener;
+        slot.published = sequence;
+    }
+
+    /**
+     * Publishes a posting and returns a future for its result
+     * @throws RejectedExecutionException if the pipeline has been closed
+     */
+    public CompletableFuture<PostingResult> submit(PostingRequest request) {
+        FutureListener listener = new FutureListener(request);
+        long amountInCents;
+        try {
+            amountInCents = Money.fromDollars(request.getAmount());
+        } catch (ArithmeticException e) {
+            listener.onRejected(new InvalidAmountException("Amount must be a finite number"));
+            return listener.future;
+        }
+        publish(request.getAccountNumber(), request.getType(), amountInCents, listener);
+        return listener.future;
+    }
+
+    /**
+     * Stops accepting postings, waits until every published posting has been recorded and
+     * notified, then stops the pipeline threads
+     */
+    @Override
+    public void close() {
+        for (Partition partition : partitions) {
+            partition.close();
+        }
+        for (Partition partition : partitions) {
+            partition.join();
+        }
+    }
+
+    private int partitionOf(String accountNumber) {
+        return accountNumber == null ? 0 : (accountNumber.hashCode() & Integer.MAX_VALUE) % partitions.length;
+    }
+
+    // Stage 1 and 2, on the writer thread
+    private void validateAndApply(Slot slot) {
+        try {
+            if (slot.amountInCents <= 0) {
+                throw new InvalidAmountException(slot.type == PostingRequest.Type.DEPOSIT
+                        ? "Deposit amount must be greater than 0"
+                        : "Withdrawal amount must be greater than 0");
+            }
+            Account account = slot.accountNumber == null ? null : accountManager.getAccount(slot.accountNumber);
+            if (account == null) {
+                throw new InvalidAmountException("Account not found: " + slot.accountNumber);
+            }
+            transactionManager.checkNotFenced();
+            slot.account = account;
+            slot.balanceAfterInCents = slot.type == PostingRequest.Type.DEPOSIT
+                    ? account.depositLockFree(slot.amountInCents)
+                    : account.withdrawLockFree(slot.amountInCents);
+        } catch (InvalidAmountException | InsufficientFundsException | OverdraftExceededException | RuntimeException e) {
+            slot.error = e;
+        }
+    }
+
+    // Stage 3, on the recorder thread; returns the journal ticket, 0 if nothing was journaled.
+    // A posting the journal refuses is undone and rejected, so the recorder keeps going.
+    // The account lock is only held for the record, as every other recording path holds it, so
+    // a snapshot reading the account's totals never sees a logged posting missing from them.
+    private long record(Slot slot) {
+        if (slot.error != null) {
+            return 0;
+        }
+        ReentrantLock lock = slot.account.getLock();
+        lock.lock();
+        try {
+            Transaction transaction = new Transaction(transactionManager.generateTransactionId(), slot.accountNumber,
+                    slot.type.name(), slot.amountInCents, slot.balanceAfterInCents, LocalDateTime.now());
+            long logTicket = transactionManager.recordPosting(slot.account, transaction);
+            slot.transaction = transaction;
+            return logTicket;
+        } catch (RuntimeException e) {
+            if (slot.type == PostingRequest.Type.DEPOSIT) {
+                slot.account.reverseDepositInCents(slot.amountInCents);
+            } else {
+                slot.account.reverseWithdrawalInCents(slot.amountInCents);
+            }
+            slot.error = e;
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Stage 4, on the recorder thread
+    private void notifyListener(Slot slot) {
+        PostingListener listener = slot.listener;
+        Exception error = slot.error;
+        Transaction transaction = slot.transaction;
+        slot.clear();
+        try {
+            if (error == null) {
+                listener.onPosted(transaction);
+            } else {
+                listener.onRejected(error);
+            }
+        } catch (RuntimeException e) {
+            // A failing listener must not stall the partition
+        }
+    }
+
+    // Spin first for low latency, then back off so an idle partition does not burn a core
+    private static int idle(int idleCount) {
+        if (idleCount < 256) {
+            Thread.onSpinWait();
+        } else if (idleCount < 512) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(50_000);
+        }
+        return idleCount + 1;
+    }
+
+    private final class Partition {
+        private final Slot[] slots;
+        private final long mask;
+        // Next sequence to hand out; the sign bit is set once the partition is closed
+        private final AtomicLong claimed = new AtomicLong();
+        // Number of postings the writer has applied and the recorder has finished
+        private final AtomicLong applied = new AtomicLong();
+        private final AtomicLong recorded = new AtomicLong();
+        private final Thread writer;
+        private final Thread recorder;
+
+        Partition(int index, int ringSize) {
+            this.slots = new Slot[ringSize];
+            for (int i = 0; i < ringSize; i++) {
+                slots[i] = new Slot();
+            }
+            this.mask = ringSize - 1;
+            this.writer = new Thread(this::runWriter, "posting-writer-" + index);
+            this.recorder = new Thread(this::runRecorder, "posting-recorder-" + index);
+            writer.setDaemon(true);
+            recorder.setDaemon(true);
+            writer.start();
+            recorder.start();
+        }
+
+        long claim() {
+            long sequence;
+            do {
+                sequence = claimed.get();
+                if (sequence < 0) {
+                    throw new RejectedExecutionException("Posting pipeline is closed");
+                }
+            } while (!claimed.compareAndSet(sequence, sequence + 1));
+            // Wait for the recorder to free this slot from its previous lap
+            int idleCount = 0;
+            while (sequence - recorded.get() >= slots.length) {
+                idleCount = idle(idleCount);
+            }
+            return sequence;
+        }
+
+        void close() {
+            long sequence;
+            do {
+                sequence = claimed.get();
+            } while (sequence >= 0 && !claimed.compareAndSet(sequence, sequence | Long.MIN_VALUE));
+        }
+
+        void join() {
+            try {
+                writer.join();
+                recorder.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private boolean drained(long next) {
+            long sequence = claimed.get();
+            return sequence < 0 && next == (sequence & Long.MAX_VALUE);
+        }
+
+        private void runWriter() {
+            long next = 0;
+            int idleCount = 0;
+            while (true) {
+                Slot slot = slots[(int) (next & mask)];
+                if (slot.published != next) {
+                    if (drained(next)) {
+                        return;
+                    }
+                    idleCount = idle(idleCount);
+                    continue;
+                }
+                idleCount = 0;
+                validateAndApply(slot);
+                applied.lazySet(++next);
+            }
+        }
+
+        // Records every applied posting available, waits once for the journal, then notifies them all
+        private void runRecorder() {
+            long next = 0;
+            int idleCount = 0;
+            while (true) {
+                long available = applied.get();
+                if (next >= available) {
+                    if (drained(next)) {
+                        return;
+                    }
+                    idleCount = idle(idleCount);
+                    continue;
+                }
+                idleCount = 0;
+                long logTicket = 0;
+                for (long sequence = next; sequence < available; sequence++) {
+                    logTicket = Math.max(logTicket, record(slots[(int) (sequence & mask)]));
+                }
+                // A failed commit is reported to the group's callers, as awaitDurable would throw to a direct caller.
+                // It also fences the manager, so the writer refuses every later posting before applying it.
+                RuntimeException commitFailure = null;
+                try {
+                    transactionManager.awaitDurable(logTicket);
+                } catch (RuntimeException e) {
+                    commitFailure = e;
+                }
+                for (long sequence = next; sequence < available; sequence++) {
+                    Slot slot = slots[(int) (sequence & mask)];
+                    if (commitFailure != null && slot.error == null) {
+                        slot.error = commitFailure;
+                    }
+                    notifyListener(slot);
+                }
+                next = available;
+                recorded.lazySet(next);
+            }
+        }
+    }
+
+    // One reusable ring entry; fields are handed from producer to writer to recorder through the cursors
+    private static final class Slot {
+        private volatile long published = -1;
+        private String accountNumber;
+        private PostingRequest.Type type;
+        private long amountInCents;
+        private PostingListener listener;
+        private Account account;
+        private long balanceAfterInCents;
+        private Exception error;
+        private Transaction transaction;
+
+        void clear() {
+            accountNumber = null;
+            listener = null;
+            account = null;
+            error = null;
+            transaction = null;
+        }
+    }
+
+    private static final class FutureListener implements PostingListener {
+        private final PostingRequest request;
+        private final CompletableFuture<PostingResult> future = new CompletableFuture<>();
+
+        FutureListener(PostingRequest request) {
+            this.request = request;
+        }
+
+        @Override
+        public void onPosted(Transaction transaction) {
+            future.complete(PostingResult.success(request, transaction));
+        }
+
+        @Override
+        public void onRejected(Exception error) {
+            future.complete(PostingResult.failure(request, error));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package services;
+
+/**
+ * One deposit or withdrawal submitted through {@link TransactionManager#applyBatch}.
+ */
+public class PostingRequest {
+    public enum Type { DEPOSIT, WITHDRAWAL }
+    
+    private final String accountNumber;
+    private final Type type;
+    private final double amount;
+    
+    public PostingRequest(String accountNumber, Type type, double amount) {
+        if (type == null) {
+            throw new IllegalArgumentException("Posting type is required");
+        }
+        this.accountNumber = accountNumber;
+        this.type = type;
+        this.amount = amount;
+    }
+    
+    public static PostingRequest deposit(String accountNumber, double amount) {
+        return new PostingRequest(accountNumber, Type.DEPOSIT, amount);
+    }
+    
+    public static PostingRequest withdrawal(String accountNumber, double amount) {
+        return new PostingRequest(accountNumber, Type.WITHDRAWAL, amount);
+    }
+    
+    public String getAccountNumber() {
+        return accountNumber;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public double getAmount() {
+        return amount;
+    }
+    
+    @Override
+    public String toString() {
+        return type + " " + accountNumber + " " + amount;
+    }
+}
\ No newline at end of file
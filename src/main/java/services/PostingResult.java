@@ -0,0 +1,49 @@
+package services;
+
+import models.Transaction;
+
+/**
+ * Outcome of one {@link PostingRequest}: the recorded transaction on success, otherwise the
+ * exception the matching single-posting call would have thrown.
+ */
+public class PostingResult {
+    private final PostingRequest request;
+    private final Transaction transaction;
+    private final Exception error;
+    
+    private PostingResult(PostingRequest request, Transaction transaction, Exception error) {
+        this.request = request;
+        this.transaction = transaction;
+        this.error = error;
+    }
+    
+    static PostingResult success(PostingRequest request, Transaction transaction) {
+        return new PostingResult(request, transaction, null);
+    }
+    
+    static PostingResult failure(PostingRequest request, Exception error) {
+        return new PostingResult(request, null, error);
+    }
+    
+    public PostingRequest getRequest() {
+        return request;
+    }
+    
+    public boolean isSuccess() {
+        return error == null;
+    }
+    
+    /**
+     * @return the recorded transaction, or null if the posting failed
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+    
+    /**
+     * @return the reason the posting failed, or null if it succeeded
+     */
+    public Exception getError() {
+        return error;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,507 @@
+package services;
+
+import models.Account;
+import models.AccountSummary;
+import models.CheckingAccount;
+import models.Customer;
+import models.PremiumCustomer;
+import models.RegularCustomer;
+import models.SavingsAccount;
+import models.Transaction;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Periodic snapshots of every account's balance and metadata, taken while postings continue.
+ * A savings account's uncredited interest and the day it was accrued to are saved with it, so
+ * interest earned before a restart is still credited after it.
+ * A snapshot first notes the ledger's row count and then reads the balances, so it is fuzzy:
+ * postings made while it runs may or may not be in it, but all of them are in the ledger from
+ * that row on. Because each ledger row carries the balance after it, replaying that tail over
+ * the snapshot always ends at the right balances, whichever postings the snapshot caught.
+ *
+ * {@link #recover} loads the newest readable snapshot, recreates its accounts and replays only
+ * the ledger rows after it. Once a snapshot is written, ledger segments older than every kept
+ * snapshot are no longer needed and are archived or deleted according to the retention policy.
+ *
+ * Each account's running totals are saved too, with the sequence of the newest transaction
+ * they cover. They are read under the account's lock, after which every posting logged before
+ * the snapshot's row is in them, and recovery adds only the replayed rows with a higher
+ * sequence, so totals after a recovery still cover the account's whole history. The history
+ * itself starts at the snapshot: the transaction manager holds only the replayed rows, and
+ * {@link #getHistoryBeforeRecovery} reads older ones from the segments and the archive when
+ * asked, which fails once the retention policy has deleted them.
+ *
+ * The ledger records postings, not account openings: an account opened after the last
+ * snapshot must be registered again before recovery, or a snapshot taken after opening it.
+ *
+ * Snapshot files are named {@code snapshot-<row>.snap} after the ledger row they start from
+ * and hold, in order: magic, version, ledger row, last transaction sequence, time taken,
+ * account count, one entry per account, then a CRC32 of everything before it. An entry holds
+ * the account's number, type and customer, its balance (and a savings account's accrual),
+ * then the sequence its totals run to, the five totals in cents and the transaction count.
+ */
+public class SnapshotManager implements AutoCloseable {
+    public static final int DEFAULT_SNAPSHOTS_TO_KEEP = 2;
+
+    /**
+     * What happens to ledger segments that every kept snapshot already covers
+     */
+    public enum SegmentRetention {
+        KEEP,
+        /** Moved to the {@code archive} directory next to the segments */
+        ARCHIVE,
+        DELETE
+    }
+
+    private static final int MAGIC = 0x534E4150; // "SNAP"
+    private static final int VERSION = 3;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+
+    private static final byte SAVINGS = 1;
+    private static final byte CHECKING = 2;
+    private static final byte REGULAR = 1;
+    private static final byte PREMIUM = 2;
+
+    private final Path directory;
+    private final AccountManager accountManager;
+    private final TransactionManager transactionManager;
+    private final LedgerSegmentStore ledger;
+    private final int snapshotsToKeep;
+    private final SegmentRetention retention;
+
+    private ScheduledExecutorService scheduler;
+    private volatile IOException lastFailure;
+    private volatile long snapshotCount;
+    // The ledger row the last recovery replayed from, and the rows before it once indexed on request
+    private volatile long recoveredFromRow;
+    private final Object olderHistoryLock = new Object();
+    private LedgerIndex olderHistory;
+
+    public SnapshotManager(Path directory, AccountManager accountManager, TransactionManager transactionManager,
+                           LedgerSegmentStore ledger) throws IOException {
+        this(directory, accountManager, transactionManager, ledger, DEFAULT_SNAPSHOTS_TO_KEEP, SegmentRetention.ARCHIVE);
+    }
+
+    /**
+     * @param directory where snapshot files are kept, created if needed
+     * @param ledger the ledger the transaction manager writes to
+     * @param snapshotsToKeep how many of the newest snapshots to keep; older ones are deleted
+     * @param retention what to do with segments that no kept snapshot needs
+     */
+    public SnapshotManager(Path directory, AccountManager accountManager, TransactionManager transactionManager,
+                           LedgerSegmentStore ledger, int snapshotsToKeep, SegmentRetention retention) throws IOException {
+        if (snapshotsToKeep <= 0) {
+            throw new IllegalArgumentException("At least one snapshot must be kept");
+        }
+        this.directory = directory;
+        this.accountManager = accountManager;
+        this.transactionManager = transactionManager;
+        this.ledger = ledger;
+        this.snapshotsToKeep = snapshotsToKeep;
+        this.retention = retention;
+        Files.createDirectories(directory);
+    }
+
+    /**
+     * Takes a snapshot every interval on a background thread until {@link #close} is called.
+     * A failed snapshot is kept in {@link #getLastFailure} and the next one is still attempted.
+     */
+    public synchronized void start(Duration interval) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Snapshot interval must be greater than 0");
+        }
+        if (scheduler != null) {
+            throw new IllegalStateException("Snapshots are already scheduled");
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException e) {
+                lastFailure = e;
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Writes a snapshot of all accounts, removes snapshots beyond the number to keep and
+     * compacts the ledger segments they no longer need. Postings are not paused.
+     * @return the snapshot file
+     */
+    public synchronized Path snapshot() throws IOException {
+        // Position first, balances second: everything the snapshot might miss is at or after this row
+        long ledgerRow = ledger.getRowCount();
+        long lastSequence = transactionManager.getLastTransactionSequence();
+        List<Account> accounts = new ArrayList<>(accountManager.getAllAccounts().values());
+
+        Path target = snapshotPath(ledgerRow);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(ledgerRow);
+            out.writeLong(lastSequence);
+            out.writeLong(System.currentTimeMillis());
+            out.writeInt(accounts.size());
+            for (Account account : accounts) {
+                writeAccount(out, account);
+                writeTotals(out, account);
+            }
+            out.flush();
+            out.writeLong(crc.getValue());
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        snapshotCount++;
+
+        List<Path> snapshots = snapshotFiles(directory);
+        for (int i = 0; i < snapshots.size() - snapshotsToKeep; i++) {
+            Files.delete(snapshots.get(i));
+        }
+        if (retention != SegmentRetention.KEEP) {
+            long oldestKeptRow = ledgerRowOf(snapshots.get(Math.max(0, snapshots.size() - snapshotsToKeep)));
+            ledger.compactBefore(oldestKeptRow, retention == SegmentRetention.ARCHIVE ? archiveDirectory() : null);
+        }
+        return target;
+    }
+
+    /**
+     * Restores the newest readable snapshot into the account manager, then replays the ledger
+     * rows written after it. Without a snapshot the whole ledger is replayed over the accounts
+     * already registered. Accounts in the snapshot that are already registered keep their
+     * object and take the recovered balance.
+     */
+    public Recovery recover() throws IOException {
+        for (Path file : reversed(snapshotFiles(directory))) {
+            Snapshot snapshot;
+            try {
+                snapshot = read(file);
+            } catch (IOException e) {
+                // Damaged or cut short; fall back to the previous one
+                continue;
+            }
+            for (Account account : snapshot.accounts) {
+                if (!accountManager.addAccount(account)) {
+                    Account existing = accountManager.getAccount(account.getAccountNumber());
+                    if (existing instanceof SavingsAccount && account instanceof SavingsAccount) {
+                        // Taken before reading the balance, which would accrue the saved account up to today
+                        SavingsAccount saved = (SavingsAccount) account;
+                        LocalDate lastAccrualDate = saved.getLastAccrualDate();
+                        long accruedUnits = saved.getAccruedUnits();
+                        existing.setBalanceInCents(saved.getBalanceInCents());
+                        ((SavingsAccount) existing).restoreAccrual(lastAccrualDate, accruedUnits);
+                    } else {
+                        existing.setBalanceInCents(account.getBalanceInCents());
+                    }
+                }
+                accountManager.advanceAccountIds(account.getAccountNumber());
+            }
+            transactionManager.advanceTransactionIds(snapshot.lastSequence);
+            LedgerIndex tail = ledger.replayFrom(snapshot.ledgerRow);
+            tail.restoreInto(accountManager, transactionManager);
+            for (Map.Entry<String, SavedTotals> entry : snapshot.totals.entrySet()) {
+                SavedTotals saved = entry.getValue();
+                transactionManager.restoreTotals(entry.getKey(), saved.summary, saved.throughSequence);
+            }
+            recoveredFromRow = snapshot.ledgerRow;
+            return new Recovery(file, snapshot.accounts.size(), tail.getRowCount());
+        }
+        LedgerIndex index = ledger.replay();
+        index.restoreInto(accountManager, transactionManager);
+        recoveredFromRow = 0;
+        return new Recovery(null, 0, index.getRowCount());
+    }
+
+    /**
+     * Returns one account's transactions from before the snapshot that {@link #recover} loaded,
+     * oldest first; the transaction manager's history starts after them. They are read from the
+     * ledger segments and the archive: the first call indexes those rows in place, and later
+     * calls reuse the index.
+     * @return the older transactions, empty if the whole ledger was replayed
+     * @throws IOException if the retention policy deleted segments holding those rows
+     */
+    public List<Transaction> getHistoryBeforeRecovery(String accountNumber) throws IOException {
+        long endRow = recoveredFromRow;
+        if (endRow == 0) {
+            return new ArrayList<>();
+        }
+        synchronized (olderHistoryLock) {
+            if (olderHistory == null) {
+                olderHistory = ledger.replayBefore(endRow, archiveDirectory());
+            }
+            return olderHistory.getTransactionsForAccount(accountNumber);
+        }
+    }
+
+    public IOException getLastFailure() {
+        return lastFailure;
+    }
+
+    public long getSnapshotCount() {
+        return snapshotCount;
+    }
+
+    public Path getArchiveDirectory() {
+        return archiveDirectory();
+    }
+
+    /**
+     * Stops scheduled snapshots, letting one that is being written finish
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = scheduler;
+            scheduler = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return the snapshot files in a directory, oldest first
+     */
+    public static List<Path> snapshotFiles(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(SnapshotManager::isSnapshotFile)
+                    .sorted(Comparator.comparingLong(SnapshotManager::ledgerRowOf))
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+    }
+
+    private Path archiveDirectory() {
+        return ledger.getDirectory().resolve("archive");
+    }
+
+    private Path snapshotPath(long ledgerRow) {
+        return directory.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, ledgerRow, SNAPSHOT_SUFFIX));
+    }
+
+    private static long ledgerRowOf(Path snapshot) {
+        String name = snapshot.getFileName().toString();
+        return Long.parseLong(name, SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length(), 10);
+    }
+
+    private static boolean isSnapshotFile(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)
+                && name.length() > SNAPSHOT_PREFIX.length() + SNAPSHOT_SUFFIX.length();
+    }
+
+    private static List<Path> reversed(List<Path> files) {
+        List<Path> newestFirst = new ArrayList<>(files);
+        Collections.reverse(newestFirst);
+        return newestFirst;
+    }
+
+    private static void writeAccount(DataOutputStream out, Account account) throws IOException {
+        Customer customer = account.getCustomer();
+        out.writeUTF(account.getAccountNumber());
+        out.writeByte(account instanceof CheckingAccount ? CHECKING : SAVINGS);
+        out.writeUTF(customer.getCustomerId());
+        out.writeUTF(customer.getName());
+        out.writeByte(customer instanceof PremiumCustomer ? PREMIUM : REGULAR);
+        if (!(account instanceof SavingsAccount)) {
+            out.writeLong(account.getBalanceInCents());
+            return;
+        }
+        // Read together, so the interest saved is the interest on the balance saved
+        SavingsAccount savings = (SavingsAccount) account;
+        long balanceInCents;
+        long lastAccrualDay;
+        long accruedUnits;
+        synchronized (savings) {
+            balanceInCents = savings.getBalanceInCents();
+            lastAccrualDay = savings.getLastAccrualDate().toEpochDay();
+            accruedUnits = savings.getAccruedUnits();
+        }
+        out.writeLong(balanceInCents);
+        out.writeLong(lastAccrualDay);
+        out.writeLong(accruedUnits);
+    }
+
+    // Under the account's lock, which every recording path holds, so no posting is half recorded
+    private void writeTotals(DataOutputStream out, Account account) throws IOException {
+        AccountSummary totals;
+        long throughSequence;
+        ReentrantLock lock = account.getLock();
+        lock.lock();
+        try {
+            totals = transactionManager.getAccountSummary(account.getAccountNumber());
+            throughSequence = transactionManager.getLastSequence(account.getAccountNumber());
+        } finally {
+            lock.unlock();
+        }
+        out.writeLong(throughSequence);
+        out.writeLong(totals.getTotalDepositsInCents());
+        out.writeLong(totals.getTotalWithdrawalsInCents());
+        out.writeLong(totals.getTotalTransfersInInCents());
+        out.writeLong(totals.getTotalTransfersOutInCents());
+        out.writeLong(totals.getTotalInterestInCents());
+        out.writeInt(totals.getTransactionCount());
+    }
+
+    // Builds the accounts only; nothing is registered until the whole file has checked out
+    private static Snapshot read(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a version " + VERSION + " snapshot: " + file);
+            }
+            long ledgerRow = in.readLong();
+            long lastSequence = in.readLong();
+            in.readLong(); // time taken
+            int count = in.readInt();
+            if (count < 0) {
+                throw new IOException("Corrupt snapshot: " + file);
+            }
+            Map<String, Customer> customers = new HashMap<>();
+            List<Account> accounts = new ArrayList<>(Math.min(count, 1 << 20));
+            Map<String, SavedTotals> totals = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String accountNumber = in.readUTF();
+                byte accountType = in.readByte();
+                String customerId = in.readUTF();
+                String name = in.readUTF();
+                byte customerType = in.readByte();
+                long balanceInCents = in.readLong();
+                // Accounts that shared a customer share it again
+                Customer customer = customers.computeIfAbsent(customerId, id -> customerType == PREMIUM
+                        ? new PremiumCustomer(name, id)
+                        : new RegularCustomer(name, id));
+                Account account = accountType == CHECKING
+                        ? new CheckingAccount(accountNumber, 0, customer)
+                        : new SavingsAccount(accountNumber, 0, customer);
+                account.setBalanceInCents(balanceInCents);
+                if (account instanceof SavingsAccount) {
+                    long lastAccrualDay = in.readLong();
+                    long accruedUnits = in.readLong();
+                    if (accruedUnits < 0 || lastAccrualDay < LocalDate.MIN.toEpochDay() || lastAccrualDay > LocalDate.MAX.toEpochDay()) {
+                        throw new IOException("Corrupt snapshot: " + file);
+                    }
+                    ((SavingsAccount) account).restoreAccrual(LocalDate.ofEpochDay(lastAccrualDay), accruedUnits);
+                }
+                accounts.add(account);
+                long throughSequence = in.readLong();
+                AccountSummary summary = new AccountSummary(in.readLong(), in.readLong(), in.readLong(),
+                        in.readLong(), in.readLong(), in.readInt());
+                if (throughSequence < 0 || summary.getTransactionCount() < 0) {
+                    throw new IOException("Corrupt snapshot: " + file);
+                }
+                // An account without transactions needs no ledger
+                if (summary.getTransactionCount() > 0) {
+                    totals.put(accountNumber, new SavedTotals(summary, throughSequence));
+                }
+            }
+            long expected = crc.getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+            return new Snapshot(ledgerRow, lastSequence, accounts, totals);
+        }
+    }
+
+    /**
+     * What {@link #recover} restored
+     */
+    public static final class Recovery {
+        private final Path snapshotFile;
+        private final int accountsLoaded;
+        private final long tailRowsReplayed;
+
+        Recovery(Path snapshotFile, int accountsLoaded, long tailRowsReplayed) {
+            this.snapshotFile = snapshotFile;
+            this.accountsLoaded = accountsLoaded;
+            this.tailRowsReplayed = tailRowsReplayed;
+        }
+
+        /**
+         * @return the snapshot loaded, or null if the whole ledger was replayed
+         */
+        public Path getSnapshotFile() {
+            return snapshotFile;
+        }
+
+        public int getAccountsLoaded() {
+            return accountsLoaded;
+        }
+
+        public long getTailRowsReplayed() {
+            return tailRowsReplayed;
+        }
+    }
+
+    private static final class Snapshot {
+        private final long ledgerRow;
+        private final long lastSequence;
+        private final List<Account> accounts;
+        private final Map<String, SavedTotals> totals;
+
+        Snapshot(long ledgerRow, long lastSequence, List<Account> accounts, Map<String, SavedTotals> totals) {
+            this.ledgerRow = ledgerRow;
+            this.lastSequence = lastSequence;
+            this.accounts = accounts;
+            this.totals = totals;
+        }
+    }
+
+    private static final class SavedTotals {
+        private final AccountSummary summary;
+        private final long throughSequence;
+
+        SavedTotals(AccountSummary summary, long throughSequence) {
+            this.summary = summary;
+            this.throughSequence = throughSequence;
+        }
+    }
+}
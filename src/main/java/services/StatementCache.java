@@ -0,0 +1,151 @@
+package services;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Bounded cache of rendered statement text, keyed by account and view and tagged with the
+ * account's version when it was rendered. A lookup only hits if the tag matches the version
+ * passed in, so once a posting has bumped the account's version the old text is never served
+ * again; it is dropped on the next lookup or evicted.
+ *
+ * The bound is the total length of the cached text in characters, so a few long histories
+ * cannot crowd out memory the way a count bound would allow. When it is exceeded the least
+ * recently used entries are evicted; text longer than the whole bound is not cached at all.
+ * All methods are thread-safe.
+ */
+public class StatementCache {
+    public static final long DEFAULT_MAX_CHARACTERS = 4L << 20;
+
+    private final long maxCharacters;
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long characters;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public StatementCache() {
+        this(DEFAULT_MAX_CHARACTERS);
+    }
+
+    /**
+     * @param maxCharacters most characters of text held at once
+     */
+    public StatementCache(long maxCharacters) {
+        if (maxCharacters <= 0) {
+            throw new IllegalArgumentException("Cache size must be greater than 0");
+        }
+        this.maxCharacters = maxCharacters;
+    }
+
+    /**
+     * @param view which rendering of the account, e.g. a full statement
+     * @param version the account's current version
+     * @return the cached text if it was rendered at this version, otherwise null
+     */
+    public synchronized String get(String accountNumber, String view, long version) {
+        String key = key(accountNumber, view);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version == version) {
+            hits++;
+            return entry.text;
+        }
+        if (entry != null) {
+            // Rendered before the latest posting; it can never hit again
+            entries.remove(key);
+            characters -= entry.text.length();
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Caches text rendered at a version, replacing an older version for the same account and
+     * view. Read the version before rendering, so a posting made while rendering leaves the
+     * entry behind rather than ahead.
+     */
+    public synchronized void put(String accountNumber, String view, long version, String text) {
+        if (text.length() > maxCharacters) {
+            return;
+        }
+        String key = key(accountNumber, view);
+        Entry previous = entries.get(key);
+        if (previous != null) {
+            if (previous.version > version) {
+                // A slower renderer finishing late must not replace newer text
+                return;
+            }
+            characters -= previous.text.length();
+        }
+        entries.put(key, new Entry(version, text));
+        characters += text.length();
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (characters > maxCharacters) {
+            Entry evicted = eldest.next();
+            eldest.remove();
+            characters -= evicted.text.length();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        characters = 0;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return hits as a fraction of lookups, 0 before the first lookup
+     */
+    public synchronized double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return the number of entries removed to stay within the size bound
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getCharacterCount() {
+        return characters;
+    }
+
+    public long getMaxCharacters() {
+        return maxCharacters;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("StatementCache{entries=%d, characters=%d/%d, hits=%d, misses=%d, hitRatio=%.2f, evictions=%d}",
+                entries.size(), characters, maxCharacters, hits, misses, getHitRatio(), evictions);
+    }
+
+    private static String key(String accountNumber, String view) {
+        return accountNumber + '\u0000' + view;
+    }
+
+    private static final class Entry {
+        private final long version;
+        private final String text;
+
+        Entry(long version, String text) {
+            this.version = version;
+            this.text = text;
+        }
+    }
+}
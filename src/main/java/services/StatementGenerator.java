@@ -1,73 +1,264 @@
 package services;
 
 import models.*;
+import utils.Money;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.stream.Collectors;
 
+/**
+ * Renders account statements, newest transactions first. Statements can be built as a string,
+ * streamed to a {@link Writer} or {@link OutputStream}, or written a page at a time. Streaming
+ * copies the account's history a chunk at a time instead of all at once, and a page copies only
+ * its own rows, so the first page of a long history costs the same as that of a short one.
+ *
+ * Pages are addressed by cursor: a position in the account's history, counted from its oldest
+ * transaction. A page lists the transactions just before its cursor and returns the cursor of
+ * the next, older page. Histories only grow at the newest end, so cursors stay valid while new
+ * postings arrive; start from {@link #LATEST} to include them.
+ */
 public class StatementGenerator {
+    /** Cursor of the page holding an account's newest transactions */
+    public static final int LATEST = Integer.MAX_VALUE;
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    
+    // Transactions copied out of the history at a time while streaming
+    private static final int CHUNK_SIZE = 1024;
+    
+    private static final String FULL_STATEMENT = "statement";
+    private static final String NOT_FOUND = "Error: Account not found. Please check the account number and try again.";
+    private static final String FOOTER = "\n✓ Statement generated successfully.";
+    
     private AccountManager accountManager;
     private TransactionManager transactionManager;
+    private StatementCache statementCache;
     
     public StatementGenerator(AccountManager accountManager, TransactionManager transactionManager) {
+        this(accountManager, transactionManager, new StatementCache());
+    }
+    
+    /**
+     * @param statementCache where rendered transaction lists and summaries are kept between
+     *                       requests, or null to render every statement from scratch
+     */
+    public StatementGenerator(AccountManager accountManager, TransactionManager transactionManager, StatementCache statementCache) {
         this.accountManager = accountManager;
         this.transactionManager = transactionManager;
+        this.statementCache = statementCache;
     }
     
+    /**
+     * Builds an account's full statement. The transaction list and summary are served from the
+     * cache while no transaction has been recorded for the account since they were rendered;
+     * the header, with the current balance, is always fresh.
+     */
     public String generateStatement(String accountNumber) {
+        // Sized for the usual row length so long histories do not regrow the buffer repeatedly
+        StatementBuilder statement = new StatementBuilder(256 + 48 * transactionManager.getTransactionCount(accountNumber));
+        try {
+            writeFull(accountNumber, true, statement);
+        } catch (IOException e) {
+            // StatementBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return statement.toString();
+    }
+    
+    /**
+     * Streams an account's full statement, the same text as {@link #generateStatement}. A cached
+     * transaction list is used if there is one, but a streamed one is not added to the cache,
+     * since that would hold the whole statement in memory.
+     */
+    public void writeStatement(String accountNumber, Writer out) throws IOException {
+        writeFull(accountNumber, false, out);
+    }
+    
+    /**
+     * Streams an account's full statement as UTF-8. The stream is flushed, not closed.
+     */
+    public void writeStatement(String accountNumber, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeStatement(accountNumber, writer);
+        writer.flush();
+    }
+    
+    /**
+     * Writes one page of an account's statement: the header, up to {@code pageSize} transactions
+     * before the cursor, newest first, and the summary
+     * @param cursor {@link #LATEST}, or the cursor returned for the previous page
+     * @param pageSize most transactions to list
+     * @return the cursor of the next page, or 0 if this page reached the oldest transaction
+     */
+    public int writeStatementPage(String accountNumber, int cursor, int pageSize, Writer out) throws IOException {
+        if (cursor < 0) {
+            throw new IllegalArgumentException("Cursor must not be negative");
+        }
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be greater than 0");
+        }
+        return writePage(accountNumber, cursor, pageSize, out);
+    }
+    
+    /**
+     * Writes one page as UTF-8; see {@link #writeStatementPage(String, int, int, Writer)}. The
+     * stream is flushed, not closed.
+     */
+    public int writeStatementPage(String accountNumber, int cursor, int pageSize, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        int next = writeStatementPage(accountNumber, cursor, pageSize, writer);
+        writer.flush();
+        return next;
+    }
+    
+    public StatementCache getStatementCache() {
+        return statementCache;
+    }
+    
+    private void writeFull(String accountNumber, boolean addToCache, Writer out) throws IOException {
         Account account = accountManager.getAccount(accountNumber);
         if (account == null) {
-            return "Error: Account not found. Please check the account number and try again.";
+            out.write(NOT_FOUND);
+            return;
         }
+        writeHeader(account, out);
+        String body = null;
+        if (statementCache != null) {
+            // Read before rendering, so text cached from a history that grew meanwhile is tagged too old, never too new
+            long version = transactionManager.getAccountVersion(accountNumber);
+            body = statementCache.get(accountNumber, FULL_STATEMENT, version);
+            long expectedLength = 128 + 48L * transactionManager.getTransactionCount(accountNumber);
+            // Histories too long to be kept are written straight out instead of rendered twice
+            if (body == null && addToCache && expectedLength <= statementCache.getMaxCharacters()) {
+                StatementBuilder rendered = new StatementBuilder((int) expectedLength);
+                writeBody(accountNumber, LATEST, Integer.MAX_VALUE, rendered);
+                body = rendered.toString();
+                statementCache.put(accountNumber, FULL_STATEMENT, version, body);
+            }
+        }
+        if (body != null) {
+            out.write(body);
+        } else {
+            writeBody(accountNumber, LATEST, Integer.MAX_VALUE, out);
+        }
+        out.write(FOOTER);
+    }
+    
+    private int writePage(String accountNumber, int cursor, int limit, Writer out) throws IOException {
+        Account account = accountManager.getAccount(accountNumber);
+        if (account == null) {
+            out.write(NOT_FOUND);
+            return 0;
+        }
+        writeHeader(account, out);
+        int next = writeBody(accountNumber, cursor, limit, out);
+        out.write(FOOTER);
+        return next;
+    }
+    
+    private static void writeHeader(Account account, Writer out) throws IOException {
+        out.write("GENERATE ACCOUNT STATEMENT\n\n");
+        out.append("Account: ").append(account.getCustomer().getName()).append(" (");
+        out.append(account.getClass().getSimpleName()).append(")\n");
+        out.append("Current Balance: $").append(Money.format(account.getBalanceInCents())).append("\n\n");
+    }
+    
+    // The transaction list and summary; returns the cursor of the next page
+    private int writeBody(String accountNumber, int cursor, int limit, Writer out) throws IOException {
+        int count = transactionManager.getTransactionCount(accountNumber);
+        int end = Math.min(cursor, count);
+        int start = Math.max(0, end - limit);
         
-        List<models.Transaction> transactions = transactionManager.getTransactionsForAccount(accountNumber);
-        
-        StringBuilder statement = new StringBuilder();
-        statement.append("GENERATE ACCOUNT STATEMENT\n\n");
-        statement.append("Account: ").append(account.getCustomer().getName()).append(" (");
-        statement.append(account.getClass().getSimpleName()).append(")\n");
-        statement.append("Current Balance: $").append(String.format("%.2f", account.getBalance())).append("\n\n");
+        if (count == 0) {
+            out.write("No transactions found for this account.\n");
+            return 0;
+        }
+        out.write("Transactions:\n\n");
         
-        if (transactions.isEmpty()) {
-            statement.append("No transactions found for this account.\n");
-        } else {
-            statement.append("Transactions:\n\n");
-            
-            // Sort transactions by timestamp (newest first)
-            List<models.Transaction> sortedTransactions = transactions.stream()
-                    .sorted((t1, t2) -> t2.getTimestamp().compareTo(t1.getTimestamp()))
-                    .collect(Collectors.toList());
-            
-            for (models.Transaction transaction : sortedTransactions) {
-                String sign = transaction.getType().equals("DEPOSIT") || transaction.getType().equals("TRANSFER_IN") ? "+" : "-";
-                statement.append(String.format("%s | %s | %s$%.2f | $%.2f\n",
-                        transaction.getTransactionId(),
-                        transaction.getType(),
-                        sign,
-                        transaction.getAmount(),
-                        transaction.getBalanceAfter()));
+        // History is kept in time order, so walk it backwards for newest first, one chunk at a time
+        for (int chunkEnd = end; chunkEnd > start; chunkEnd -= CHUNK_SIZE) {
+            List<Transaction> chunk = transactionManager.getTransactionsForAccount(accountNumber, Math.max(start, chunkEnd - CHUNK_SIZE), chunkEnd);
+            for (int i = chunk.size() - 1; i >= 0; i--) {
+                writeRow(chunk.get(i), out);
             }
-            
-            // Calculate summary
-            double totalDeposits = transactions.stream()
-                    .filter(t -> t.getType().equals("DEPOSIT") || t.getType().equals("TRANSFER_IN"))
-                    .mapToDouble(models.Transaction::getAmount)
-                    .sum();
-            
-            double totalWithdrawals = transactions.stream()
-                    .filter(t -> t.getType().equals("WITHDRAWAL") || t.getType().equals("TRANSFER_OUT"))
-                    .mapToDouble(models.Transaction::getAmount)
-                    .sum();
-            
-            double netChange = totalDeposits - totalWithdrawals;
-            
-            statement.append("\nSummary:\n");
-            statement.append("Total Deposits: $").append(String.format("%.2f", totalDeposits)).append("\n");
-            statement.append("Total Withdrawals: $").append(String.format("%.2f", totalWithdrawals)).append("\n");
-            statement.append("Net Change: $").append(String.format("%.2f", netChange)).append("\n");
+        }
+        if (start > 0) {
+            out.append("\n").append(String.valueOf(start)).append(" older transactions; next page cursor: ")
+                    .append(String.valueOf(start)).append("\n");
         }
         
-        statement.append("\n✓ Statement generated successfully.");
-        return statement.toString();
+        // Summary comes from the running totals kept by the transaction manager
+        AccountSummary summary = transactionManager.getAccountSummary(accountNumber);
+        out.write("\nSummary:\n");
+        out.append("Total Deposits: $").append(Money.format(summary.getTotalCreditsInCents())).append("\n");
+        out.append("Total Withdrawals: $").append(Money.format(summary.getTotalDebitsInCents())).append("\n");
+        out.append("Net Change: $").append(Money.format(summary.getNetChangeInCents())).append("\n");
+        return start;
+    }
+    
+    private static void writeRow(Transaction transaction, Writer out) throws IOException {
+        // Money in, as AccountSummary counts it
+        String sign = switch (transaction.getType()) {
+            case "DEPOSIT", "TRANSFER_IN", "INTEREST" -> "+";
+            default -> "-";
+        };
+        out.append(transaction.getTransactionId()).append(" | ")
+                .append(transaction.getType()).append(" | ")
+                .append(sign).append('$').append(Money.format(transaction.getAmountInCents())).append(" | $")
+                .append(Money.format(transaction.getBalanceAfterInCents())).append('\n');
+    }
+    
+    // Unsynchronized StringWriter: appends straight into a StringBuilder
+    private static final class StatementBuilder extends Writer {
+        private final StringBuilder text;
+        
+        StatementBuilder(int capacity) {
+            this.text = new StringBuilder(capacity);
+        }
+        
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            text.append(buffer, offset, length);
+        }
+        
+        @Override
+        public void write(String string) {
+            text.append(string);
+        }
+        
+        @Override
+        public void write(String string, int offset, int length) {
+            text.append(string, offset, offset + length);
+        }
+        
+        @Override
+        public Writer append(CharSequence sequence) {
+            text.append(sequence);
+            return this;
+        }
+        
+        @Override
+        public Writer append(char c) {
+            text.append(c);
+            return this;
+        }
+        
+        @Override
+        public void flush() {
+        }
+        
+        @Override
+        public void close() {
+        }
+        
+        @Override
+        public String toString() {
+            return text.toString();
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,362 @@
+package services;
+
+import models.Transaction;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal of postings on a {@link FileChannel}, with group commit. Appenders
+ * encode their transaction into a shared buffer and get back a ticket; a single flusher
+ * thread writes whole batches and makes each one durable with one {@code force()}. A caller
+ * that needs durability waits for its ticket with {@link #awaitDurable}, so many concurrent
+ * postings share the cost of one fsync.
+ *
+ * A batch is committed as soon as it holds {@code batchSize} records, or once its oldest
+ * record has waited {@code flushInterval}. With the default zero interval the flusher commits
+ * whatever is pending as soon as the previous force returns, which groups every posting that
+ * arrived during that force. A longer interval only pays off when appenders do not wait for
+ * their own commit; callers blocked in awaitDurable cannot add to the batch meanwhile.
+ *
+ * Records have the fixed 64-byte ledger layout. {@link #appendAll} puts a group of records
+ * into the same batch, so they are written and forced together. A torn record at the end of
+ * the file, or the first leg of a transfer whose second leg was lost with it, is ignored by
+ * {@link #readAll} and cut off when the journal is reopened. A batch whose write or force
+ * fails is cut off the file too, as far as the file still allows, and the journal refuses
+ * every later append.
+ */
+public class TransactionJournal implements TransactionLog, AutoCloseable {
+    /** Bytes per record; the layout is shared with ledger segments (see LedgerRecord) */
+    public static final int RECORD_SIZE = LedgerRecord.SIZE;
+    public static final int MAX_ACCOUNT_NUMBER_LENGTH = LedgerRecord.MAX_ACCOUNT_NUMBER_LENGTH;
+    public static final int DEFAULT_BATCH_SIZE = 512;
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ZERO;
+
+    private final FileChannel channel;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Thread flusher;
+
+    private final CRC32 crc = new CRC32();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasWork = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+
+    // Guarded by lock
+    private ByteBuffer pending;
+    private ByteBuffer writing;
+    private int pendingCount;
+    private long firstPendingNanos;
+    private long appendedCount;
+    private long durableCount;
+    private long forceCount;
+    // Length of the file up to the last committed batch
+    private long committedBytes;
+    private IOException failure;
+    private boolean closing;
+
+    public TransactionJournal(Path path) throws IOException {
+        this(path, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Opens or creates a journal and starts its flusher thread
+     * @param path the journal file; new records are appended after the existing ones
+     * @param batchSize most records committed by one force, and the buffer size in records
+     * @param flushInterval longest a record waits for its batch to fill
+     */
+    public TransactionJournal(Path path, int batchSize, Duration flushInterval) throws IOException {
+        this(open(path, batchSize, flushInterval), batchSize, flushInterval);
+    }
+
+    /**
+     * Starts a journal on a channel the caller has opened for reading and writing, e.g. one that
+     * wraps a file channel; the journal closes it
+     * @param channel the journal file; new records are appended after the existing ones
+     * @param batchSize most records committed by one force, and the buffer size in records
+     * @param flushInterval longest a record waits for its batch to fill
+     */
+    public TransactionJournal(FileChannel channel, int batchSize, Duration flushInterval) throws IOException {
+        checkSettings(batchSize, flushInterval);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.pending = ByteBuffer.allocateDirect(batchSize * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.writing = ByteBuffer.allocateDirect(batchSize * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        this.channel = channel;
+        // Drop whatever a crash left after the last intact record so new records follow it
+        this.committedBytes = readIntact(channel, null) * RECORD_SIZE;
+        channel.truncate(committedBytes);
+        channel.position(committedBytes);
+        this.flusher = new Thread(this::runFlusher, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Queues a transaction for the next commit. Blocks only while the buffer is full.
+     * @return the ticket to pass to {@link #awaitDurable}
+     * @throws UncheckedIOException if an earlier commit failed or the journal is closed
+     */
+    @Override
+    public long append(Transaction transaction) {
+        return appendAll(List.of(transaction));
+    }
+
+    /**
+     * Queues a group of transactions for the same commit. Waits until the buffer has room for
+     * the whole group; a group larger than a batch waits for an empty buffer and widens it.
+     * @return the ticket of the group's last record
+     * @throws UncheckedIOException if an earlier commit failed or the journal is closed
+     */
+    @Override
+    public long appendAll(List<Transaction> transactions) {
+        int count = transactions.size();
+        for (Transaction transaction : transactions) {
+            LedgerRecord.checkEncodable(transaction);
+        }
+        lock.lock();
+        try {
+            checkOpen();
+            while (pendingCount > 0 && pendingCount + count > batchSize) {
+                notFull.awaitUninterruptibly();
+                checkOpen();
+            }
+            if (pending.remaining() < count * RECORD_SIZE) {
+                ByteBuffer wider = ByteBuffer.allocateDirect((pendingCount + count) * RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                pending = wider.put(pending.flip());
+            }
+            for (Transaction transaction : transactions) {
+                LedgerRecord.encode(pending, pending.position(), transaction, crc);
+                pending.position(pending.position() + RECORD_SIZE);
+            }
+            if (pendingCount == 0 && count > 0) {
+                firstPendingNanos = System.nanoTime();
+                hasWork.signal();
+            } else if (pendingCount < batchSize && pendingCount + count >= batchSize) {
+                hasWork.signal();
+            }
+            pendingCount += count;
+            appendedCount += count;
+            return appendedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the record with this ticket, and every record before it, is on disk
+     * @throws UncheckedIOException if the commit failed
+     */
+    @Override
+    public void awaitDurable(long ticket) {
+        lock.lock();
+        try {
+            while (durableCount < ticket) {
+                if (failure != null) {
+                    throw new UncheckedIOException("Journal commit failed", failure);
+                }
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getDurableCount() {
+        lock.lock();
+        try {
+            return durableCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return how many times the journal has called force, one per committed batch
+     */
+    public long getForceCount() {
+        lock.lock();
+        try {
+            return forceCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Commits everything appended so far, stops the flusher and closes the file
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            closing = true;
+            hasWork.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * Reads every whole, intact record in a journal file, stopping at the first torn one
+     * @return the journaled transactions in commit order
+     */
+    public static List<Transaction> readAll(Path path) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            readIntact(channel, transactions);
+        }
+        return transactions;
+    }
+
+    // Counts the records before the first torn one, leaving out an unpaired transfer leg at the end,
+    // and decodes them into the list if one is given
+    private static long readIntact(FileChannel channel, List<Transaction> transactions) throws IOException {
+        long records = channel.size() / RECORD_SIZE;
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE * 256).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        long intact = 0;
+        boolean endsWithTransferOut = false;
+        scan:
+        while (intact < records) {
+            int count = (int) Math.min(256, records - intact);
+            buffer.clear().limit(count * RECORD_SIZE);
+            while (buffer.hasRemaining() && channel.read(buffer, intact * RECORD_SIZE + buffer.position()) >= 0) {
+                // keep reading until the chunk is full
+            }
+            for (int i = 0; i < count; i++) {
+                if (!LedgerRecord.isIntact(buffer, i * RECORD_SIZE, crc)) {
+                    break scan;
+                }
+                if (transactions != null) {
+                    transactions.add(LedgerRecord.decode(buffer, i * RECORD_SIZE));
+                }
+                endsWithTransferOut = LedgerRecord.isTransferOut(buffer, i * RECORD_SIZE);
+                intact++;
+            }
+        }
+        if (endsWithTransferOut) {
+            intact--;
+            if (transactions != null) {
+                transactions.remove(transactions.size() - 1);
+            }
+        }
+        return intact;
+    }
+
+    private static FileChannel open(Path path, int batchSize, Duration flushInterval) throws IOException {
+        checkSettings(batchSize, flushInterval);
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static void checkSettings(int batchSize, Duration flushInterval) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        if (flushInterval.isNegative()) {
+            throw new IllegalArgumentException("Flush interval must not be negative");
+        }
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new UncheckedIOException("Journal commit failed", failure);
+        }
+        if (closing) {
+            throw new UncheckedIOException(new IOException("Journal is closed"));
+        }
+    }
+
+    private void runFlusher() {
+        while (true) {
+            long batchEnd;
+            lock.lock();
+            try {
+                while (!readyToCommit()) {
+                    if (pendingCount > 0) {
+                        hasWork.awaitNanos(firstPendingNanos + flushIntervalNanos - System.nanoTime());
+                    } else if (closing) {
+                        return;
+                    } else {
+                        hasWork.await();
+                    }
+                }
+                ByteBuffer full = pending;
+                pending = writing;
+                writing = full;
+                pendingCount = 0;
+                batchEnd = appendedCount;
+                notFull.signalAll();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            IOException error = null;
+            long written = 0;
+            try {
+                writing.flip();
+                written = writing.remaining();
+                while (writing.hasRemaining()) {
+                    channel.write(writing);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                error = e;
+                // Take the batch back off the file, so a journal reopened after this reads as if it was never written
+                try {
+                    channel.truncate(committedBytes);
+                } catch (IOException truncateError) {
+                    error.addSuppressed(truncateError);
+                }
+            } finally {
+                writing.clear();
+            }
+
+            lock.lock();
+            try {
+                if (error != null) {
+                    failure = error;
+                } else {
+                    committedBytes += written;
+                    durableCount = batchEnd;
+                    forceCount++;
+                }
+                durable.signalAll();
+                notFull.signalAll();
+                if (error != null) {
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Called with lock held
+    private boolean readyToCommit() {
+        if (pendingCount == 0) {
+            return false;
+        }
+        return pendingCount >= batchSize || closing || System.nanoTime() - firstPendingNanos >= flushIntervalNanos;
+    }
+}
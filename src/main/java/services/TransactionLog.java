@@ -0,0 +1,31 @@
+package services;
+
+import models.Transaction;
+
+import java.util.List;
+
+/**
+ * Durable destination for recorded transactions. {@link TransactionManager} appends each
+ * transaction while it still holds the account lock, so the log sees every account's postings
+ * in balance order, and waits for the returned ticket only after releasing the lock.
+ */
+public interface TransactionLog {
+    /**
+     * Adds a transaction to the log
+     * @return a ticket for {@link #awaitDurable}; tickets increase with every append
+     */
+    long append(Transaction transaction);
+
+    /**
+     * Adds transactions to the log as one unit, e.g. the two legs of a transfer: either all of
+     * them are appended, or the call throws and none are. No close or failure of the log can
+     * fall between them.
+     * @return the ticket of the last transaction, which covers the whole group
+     */
+    long appendAll(List<Transaction> transactions);
+
+    /**
+     * Blocks until the append with this ticket, and every earlier one, is durable
+     */
+    void awaitDurable(long ticket);
+}
@@ -2,46 +2,107 @@ package services;
 
 import models.*;
 import exceptions.*;
+import utils.Money;
 
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Posts deposits, withdrawals and transfers. Safe for concurrent use: every posting runs under
+ * the lock of the account it changes, so postings to different accounts proceed in parallel
+ * while postings to the same account are serialized in the order their balances changed.
+ * Transfers lock both accounts in account-number order and apply both legs or neither.
+ *
+ * With a {@link TransactionLog} such as {@link TransactionJournal}, each posting is logged under
+ * the account lock and the call returns once the log has made it durable; the wait happens
+ * after the lock is released, so concurrent postings share one group commit. A transfer's two
+ * legs are logged as one group. A posting the log refuses to append is undone before the log's
+ * exception is thrown, so no balance changes without a record.
+ *
+ * A posting whose commit fails cannot be undone the same way: by then the lock is released
+ * and later postings may build on its balance. Instead the first failure of the log fences the
+ * manager. The failed call throws the log's exception, and every later posting is refused with
+ * an {@link java.io.UncheckedIOException} before it changes anything, so a client's retry cannot
+ * post twice. Balances and history read from a fenced manager may still include postings
+ * whose commit failed; the log is the record of what happened, and a new manager recovered from
+ * it, e.g. by {@link SnapshotManager}, takes over.
+ */
 public class TransactionManager {
-    private List<Transaction> allTransactions;
-    private int nextTransactionId;
+    // Global ledger, one row per transaction in recording order; the indexes below hold row numbers into it
+    private ColumnarTransactionStore rows;
+    // Secondary index: each account's rows in recording (and therefore time) order, with running totals
+    private Map<String, AccountLedger> ledgersByAccount;
+    // Secondary index: all rows by timestamp, overall and per type, for date-range queries; sorted lazily by queries
+    private TransactionTimeIndex timeIndex;
+    private AtomicLong nextTransactionId;
     private AccountManager accountManager;
+    // Optional durable log (journal or ledger segments); when set, postings return only once their records are durable
+    private TransactionLog transactionLog;
+    // The log's first failure; once set, every posting is refused until a new manager is recovered from the log
+    private volatile UncheckedIOException logFailure;
     
     public TransactionManager(AccountManager accountManager) {
+        this(accountManager, null);
+    }
+    
+    public TransactionManager(AccountManager accountManager, TransactionLog transactionLog) {
         this.accountManager = accountManager;
-        this.allTransactions = new ArrayList<>();
-        this.nextTransactionId = 1;
+        this.transactionLog = transactionLog;
+        this.rows = new ColumnarTransactionStore();
+        this.ledgersByAccount = new ConcurrentHashMap<>();
+        this.timeIndex = new TransactionTimeIndex(rows);
+        this.nextTransactionId = new AtomicLong(1);
     }
     
     public String generateTransactionId() {
-        return String.format("TXN%03d", nextTransactionId++);
+        return formatTransactionId(nextTransactionId.getAndIncrement());
+    }
+    
+    // Same text as String.format("TXN%03d", sequence) without the formatter's parsing and garbage
+    static String formatTransactionId(long sequence) {
+        if (sequence >= 100) {
+            return "TXN" + sequence;
+        }
+        return (sequence >= 10 ? "TXN0" : "TXN00") + sequence;
     }
     
-    public boolean deposit(String accountNumber, double amount) throws InvalidAmountException, InsufficientFundsException, OverdraftExceededException {
+    public boolean deposit(String accountNumber, double amount) throws InvalidAmountException {
         Account account = accountManager.getAccount(accountNumber);
         if (account == null) {
             throw new InvalidAmountException("Account not found: " + accountNumber);
         }
         
-        if (amount <= 0) {
-            throw new InvalidAmountException("Deposit amount must be greater than 0");
+        long amountInCents = toPositiveCents(amount, "Deposit amount must be greater than 0");
+        long logTicket;
+        ReentrantLock lock = account.getLock();
+        lock.lock();
+        try {
+            account.depositInCents(amountInCents);
+            long newBalance = account.getBalanceInCents();
+            
+            // Create and record the transaction
+            String transactionId = generateTransactionId();
+            Transaction transaction = new Transaction(transactionId, accountNumber, "DEPOSIT", amountInCents, newBalance, LocalDateTime.now());
+            try {
+                logTicket = recordTransaction(account, transaction);
+            } catch (RuntimeException e) {
+                account.reverseDepositInCents(amountInCents);
+                throw e;
+            }
+        } finally {
+            lock.unlock();
         }
         
-        double previousBalance = account.getBalance();
-        account.deposit(amount);
-        double newBalance = account.getBalance();
-        
-        // Create and record the transaction
-        String transactionId = generateTransactionId();
-        Transaction transaction = new Transaction(transactionId, accountNumber, "DEPOSIT", amount, newBalance);
-        allTransactions.add(transaction);
-        account.addTransaction(transaction);
-        
+        awaitDurable(logTicket);
         return true;
     }
     
@@ -51,22 +112,31 @@ public class TransactionManager {
             throw new InvalidAmountException("Account not found: " + accountNumber);
         }
         
-        if (amount <= 0) {
-            throw new InvalidAmountException("Withdrawal amount must be greater than 0");
-        }
-        
-        double previousBalance = account.getBalance();
-        boolean success = account.withdraw(amount);
-        double newBalance = account.getBalance();
-        
-        if (success) {
-            // Create and record the transaction
-            String transactionId = generateTransactionId();
-            Transaction transaction = new Transaction(transactionId, accountNumber, "WITHDRAWAL", amount, newBalance);
-            allTransactions.add(transaction);
-            account.addTransaction(transaction);
+        long amountInCents = toPositiveCents(amount, "Withdrawal amount must be greater than 0");
+        boolean success;
+        long logTicket = 0;
+        ReentrantLock lock = account.getLock();
+        lock.lock();
+        try {
+            success = account.withdrawInCents(amountInCents);
+            long newBalance = account.getBalanceInCents();
+            
+            if (success) {
+                // Create and record the transaction
+                String transactionId = generateTransactionId();
+                Transaction transaction = new Transaction(transactionId, accountNumber, "WITHDRAWAL", amountInCents, newBalance, LocalDateTime.now());
+                try {
+                    logTicket = recordTransaction(account, transaction);
+                } catch (RuntimeException e) {
+                    account.reverseWithdrawalInCents(amountInCents);
+                    throw e;
+                }
+            }
+        } finally {
+            lock.unlock();
         }
         
+        awaitDurable(logTicket);
         return success;
     }
     
@@ -83,46 +153,519 @@ public class TransactionManager {
             throw new InvalidAmountException("Destination account not found: " + toAccountNumber);
         }
         
-        if (amount <= 0) {
-            throw new InvalidAmountException("Transfer amount must be greater than 0");
+        if (fromAccount == toAccount) {
+            throw new InvalidAmountException("Source and destination accounts must be different");
         }
         
-        // Perform withdrawal from source account
-        double previousFromBalance = fromAccount.getBalance();
-        fromAccount.withdraw(amount);
-        double newFromBalance = fromAccount.getBalance();
-        
-        // Perform deposit to destination account
-        double previousToBalance = toAccount.getBalance();
-        toAccount.deposit(amount);
-        double newToBalance = toAccount.getBalance();
+        long amountInCents = toPositiveCents(amount, "Transfer amount must be greater than 0");
         
-        // Record withdrawal transaction
-        String withdrawalTransactionId = generateTransactionId();
-        Transaction withdrawalTransaction = new Transaction(withdrawalTransactionId, fromAccountNumber, "TRANSFER_OUT", amount, newFromBalance);
-        allTransactions.add(withdrawalTransaction);
-        fromAccount.addTransaction(withdrawalTransaction);
+        long logTicket;
         
-        // Record deposit transaction
-        String depositTransactionId = generateTransactionId();
-        Transaction depositTransaction = new Transaction(depositTransactionId, toAccountNumber, "TRANSFER_IN", amount, newToBalance);
-        allTransactions.add(depositTransaction);
-        toAccount.addTransaction(depositTransaction);
+        // Always lock in account-number order so opposite transfers cannot deadlock
+        boolean fromFirst = fromAccountNumber.compareTo(toAccountNumber) < 0;
+        ReentrantLock firstLock = (fromFirst ? fromAccount : toAccount).getLock();
+        ReentrantLock secondLock = (fromFirst ? toAccount : fromAccount).getLock();
+        firstLock.lock();
+        try {
+            secondLock.lock();
+            try {
+                // Perform withdrawal from source account; throws before anything has changed
+                fromAccount.transferOutInCents(amountInCents);
+                
+                // Perform deposit to destination account, undoing the withdrawal if it fails.
+                // Transfers carry no fee, so crediting the amount back undoes it exactly, and the
+                // compare-and-set keeps any lock-free posting that landed in between.
+                try {
+                    toAccount.depositInCents(amountInCents);
+                } catch (InvalidAmountException | RuntimeException e) {
+                    fromAccount.depositLockFree(amountInCents);
+                    throw e;
+                }
+                
+                LocalDateTime timestamp = LocalDateTime.now();
+                Transaction withdrawalTransaction = new Transaction(generateTransactionId(), fromAccountNumber, "TRANSFER_OUT",
+                        amountInCents, fromAccount.getBalanceInCents(), timestamp);
+                Transaction depositTransaction = new Transaction(generateTransactionId(), toAccountNumber, "TRANSFER_IN",
+                        amountInCents, toAccount.getBalanceInCents(), timestamp);
+                try {
+                    logTicket = recordTransfer(fromAccount, withdrawalTransaction, toAccount, depositTransaction);
+                } catch (RuntimeException e) {
+                    toAccount.reverseDepositInCents(amountInCents);
+                    fromAccount.depositLockFree(amountInCents);
+                    throw e;
+                }
+            } finally {
+                secondLock.unlock();
+            }
+        } finally {
+            firstLock.unlock();
+        }
         
+        awaitDurable(logTicket);
         return true;
     }
     
+    /**
+     * Credits the interest a savings account has accrued and records it as an INTEREST
+     * transaction. Accrual itself happens lazily on the account; this only moves it into the
+     * balance, e.g. at month end.
+     * @return the amount credited in cents; 0 if under a cent has accrued or the account earns no interest
+     */
+    public long creditInterest(String accountNumber) throws InvalidAmountException {
+        Account account = accountManager.getAccount(accountNumber);
+        if (account == null) {
+            throw new InvalidAmountException("Account not found: " + accountNumber);
+        }
+        if (!(account instanceof SavingsAccount)) {
+            return 0;
+        }
+        
+        long credited;
+        long logTicket = 0;
+        ReentrantLock lock = account.getLock();
+        lock.lock();
+        try {
+            credited = ((SavingsAccount) account).creditAccruedInterest();
+            if (credited > 0) {
+                Transaction transaction = new Transaction(generateTransactionId(), accountNumber, "INTEREST", credited,
+                        account.getBalanceInCents(), LocalDateTime.now());
+                try {
+                    logTicket = recordTransaction(account, transaction);
+                } catch (RuntimeException e) {
+                    ((SavingsAccount) account).reverseInterestCredit(credited);
+                    throw e;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        
+        awaitDurable(logTicket);
+        return credited;
+    }
+    
+    /**
+     * Applies many deposits and withdrawals at once. Requests are grouped by account; each group
+     * resolves its account once, takes its lock once, applies its postings in input order and
+     * appends the resulting transactions to the ledger in one step. A failed posting does not
+     * stop the others. If the log refuses a posting, it and the group's later postings are
+     * undone and fail with the log's exception.
+     * @param requests the postings to apply
+     * @return one result per request, in the same order as the requests
+     */
+    public List<PostingResult> applyBatch(List<PostingRequest> requests) {
+        PostingResult[] results = new PostingResult[requests.size()];
+        long logTicket = 0;
+        Map<String, List<Integer>> indexesByAccount = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            indexesByAccount.computeIfAbsent(requests.get(i).getAccountNumber(), key -> new ArrayList<>()).add(i);
+        }
+        
+        for (Map.Entry<String, List<Integer>> group : indexesByAccount.entrySet()) {
+            String accountNumber = group.getKey();
+            List<Integer> indexes = group.getValue();
+            Account account = accountNumber == null ? null : accountManager.getAccount(accountNumber);
+            if (account == null) {
+                for (int index : indexes) {
+                    results[index] = PostingResult.failure(requests.get(index),
+                            new InvalidAmountException("Account not found: " + accountNumber));
+                }
+                continue;
+            }
+            logTicket = Math.max(logTicket, applyGroup(account, requests, indexes, results));
+        }
+        // One wait for the whole batch, after every account lock has been released
+        awaitDurable(logTicket);
+        return List.of(results);
+    }
+    
+    // Returns the log ticket of the group's last record, or 0 if nothing was logged
+    private long applyGroup(Account account, List<PostingRequest> requests, List<Integer> indexes, PostingResult[] results) {
+        int count = indexes.size();
+        long[] amountsInCents = new long[count];
+        long[] balancesAfterInCents = new long[count];
+        boolean[] applied = new boolean[count];
+        int appliedCount = 0;
+        
+        ReentrantLock lock = account.getLock();
+        lock.lock();
+        try {
+            for (int i = 0; i < count; i++) {
+                PostingRequest request = requests.get(indexes.get(i));
+                try {
+                    if (request.getType() == PostingRequest.Type.DEPOSIT) {
+                        amountsInCents[i] = toPositiveCents(request.getAmount(), "Deposit amount must be greater than 0");
+                        account.depositInCents(amountsInCents[i]);
+                    } else {
+                        amountsInCents[i] = toPositiveCents(request.getAmount(), "Withdrawal amount must be greater than 0");
+                        account.withdrawInCents(amountsInCents[i]);
+                    }
+                    balancesAfterInCents[i] = account.getBalanceInCents();
+                    applied[i] = true;
+                    appliedCount++;
+                } catch (InvalidAmountException | InsufficientFundsException | OverdraftExceededException e) {
+                    results[indexes.get(i)] = PostingResult.failure(request, e);
+                }
+            }
+            
+            // One id range and one timestamp for the whole group, then a single ledger append
+            long nextId = nextTransactionId.getAndAdd(appliedCount);
+            LocalDateTime timestamp = LocalDateTime.now();
+            List<Transaction> batch = new ArrayList<>(appliedCount);
+            int[] batchPositions = new int[appliedCount];
+            for (int i = 0; i < count; i++) {
+                if (!applied[i]) {
+                    continue;
+                }
+                PostingRequest request = requests.get(indexes.get(i));
+                batchPositions[batch.size()] = i;
+                batch.add(new Transaction(formatTransactionId(nextId++), account.getAccountNumber(),
+                        request.getType().name(), amountsInCents[i], balancesAfterInCents[i], timestamp));
+            }
+            
+            // A log that refuses one record refuses every later one too, so what it accepted is a prefix
+            long logTicket = 0;
+            int logged = 0;
+            try {
+                for (Transaction transaction : batch) {
+                    logTicket = log(transaction);
+                    logged++;
+                }
+            } catch (RuntimeException e) {
+                for (int j = logged; j < batch.size(); j++) {
+                    int i = batchPositions[j];
+                    PostingRequest request = requests.get(indexes.get(i));
+                    if (request.getType() == PostingRequest.Type.DEPOSIT) {
+                        account.reverseDepositInCents(amountsInCents[i]);
+                    } else {
+                        account.reverseWithdrawalInCents(amountsInCents[i]);
+                    }
+                    results[indexes.get(i)] = PostingResult.failure(request, e);
+                }
+            }
+            for (int j = 0; j < logged; j++) {
+                int index = indexes.get(batchPositions[j]);
+                results[index] = PostingResult.success(requests.get(index), batch.get(j));
+            }
+            recordBatch(account, batch.subList(0, logged));
+            return logTicket;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    // Amounts are validated after conversion so sub-cent values are rejected too
+    private static long toPositiveCents(double amount, String message) throws InvalidAmountException {
+        if (!(amount > 0)) {
+            throw new InvalidAmountException(message);
+        }
+        long amountInCents = Money.fromDollars(amount);
+        if (amountInCents <= 0) {
+            throw new InvalidAmountException(message);
+        }
+        return amountInCents;
+    }
+    
+    /**
+     * @return true once the transaction log has failed, after which every posting is refused
+     */
+    public boolean isFenced() {
+        return logFailure != null;
+    }
+    
+    // Waits for the log to make a record durable; a ticket of 0 means nothing was logged
+    void awaitDurable(long logTicket) {
+        if (transactionLog != null && logTicket > 0) {
+            try {
+                transactionLog.awaitDurable(logTicket);
+            } catch (UncheckedIOException e) {
+                fence(e);
+                throw e;
+            }
+        }
+    }
+    
+    private long log(Transaction transaction) {
+        if (transactionLog == null) {
+            return 0;
+        }
+        checkNotFenced();
+        try {
+            return transactionLog.append(transaction);
+        } catch (UncheckedIOException e) {
+            fence(e);
+            throw e;
+        }
+    }
+    
+    // Appends a group that the log writes all-or-nothing; the caller undoes its postings if this throws
+    private long logAll(List<Transaction> transactions) {
+        if (transactionLog == null) {
+            return 0;
+        }
+        checkNotFenced();
+        try {
+            return transactionLog.appendAll(transactions);
+        } catch (UncheckedIOException e) {
+            fence(e);
+            throw e;
+        }
+    }
+    
+    // Also called by PostingPipeline before it applies a posting
+    void checkNotFenced() {
+        UncheckedIOException failure = logFailure;
+        if (failure != null) {
+            throw new UncheckedIOException("Transaction log failed; recover from it before posting again", failure.getCause());
+        }
+    }
+    
+    private void fence(UncheckedIOException failure) {
+        if (logFailure == null) {
+            logFailure = failure;
+        }
+    }
+    
+    // Used after replaying a persisted ledger so new ids continue after the last one recovered
+    void advanceTransactionIds(long lastUsedSequence) {
+        nextTransactionId.accumulateAndGet(lastUsedSequence + 1, Math::max);
+    }
+    
+    // Used after replaying ledger segments: the index's rows become the start of the ledger, read in
+    // place from the mapped segments, with the per-account row lists and totals the scan built.
+    // Nothing is applied or logged again; balances are restored separately.
+    void restoreHistory(LedgerIndex index) {
+        if (rows.size() != 0) {
+            // Not a fresh manager: the recovered rows can only follow what it already holds
+            restoreHistory(index.decodeAll());
+            return;
+        }
+        rows.restore(index);
+        index.forEachLedger(rows, (accountNumber, ledger) -> {
+            ledgersByAccount.put(accountNumber, ledger);
+            Account account = accountManager.getAccount(accountNumber);
+            if (account != null) {
+                ledger.bind(account);
+            }
+        });
+        timeIndex.rowsAdded();
+    }
+    
+    // Used after replaying a persisted ledger: adds the recovered transactions, oldest first, to the
+    // in-memory history without applying or logging them again; balances are restored separately
+    void restoreHistory(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        int first = rows.appendAll(transactions);
+        for (int i = 0; i < transactions.size(); i++) {
+            String accountNumber = transactions.get(i).getAccountNumber();
+            AccountLedger ledger = ledgerFor(accountNumber);
+            ledger.append(first + i);
+            Account account = accountManager.getAccount(accountNumber);
+            if (account != null) {
+                ledger.bind(account);
+            }
+        }
+        timeIndex.rowsAdded();
+    }
+    
+    // Used after recovering from a snapshot: the account's totals start from the saved ones, which cover
+    // its transactions up to the given sequence, and its history from the rows replayed after the snapshot
+    void restoreTotals(String accountNumber, AccountSummary saved, long savedThroughSequence) {
+        AccountLedger ledger = ledgerFor(accountNumber);
+        Account account = accountManager.getAccount(accountNumber);
+        if (account != null) {
+            ledger.bind(account);
+        }
+        ledger.restoreTotals(saved, savedThroughSequence);
+    }
+    
+    // Sequence of the newest transaction in the account's totals; read with the account's lock held,
+    // together with the totals, it marks exactly what they cover
+    long getLastSequence(String accountNumber) {
+        AccountLedger ledger = ledgersByAccount.get(accountNumber);
+        return ledger == null ? 0 : ledger.lastSequence();
+    }
+    
+    // Highest sequence handed out so far; snapshots save it so ids stay unique once old segments are gone
+    long getLastTransactionSequence() {
+        return nextTransactionId.get() - 1;
+    }
+    
+    // Must be called while holding the account's lock so per-account order matches balance order.
+    // Logs first, so a record the log refuses leaves the ledger untouched for the caller to undo its posting.
+    private long recordTransaction(Account account, Transaction transaction) {
+        long logTicket = log(transaction);
+        ledgerFor(account).append(rows.append(transaction));
+        timeIndex.rowsAdded();
+        return logTicket;
+    }
+    
+    // Used by PostingPipeline, whose single recorder per partition already orders each account's postings;
+    // it holds the account's lock here too
+    long recordPosting(Account account, Transaction transaction) {
+        return recordTransaction(account, transaction);
+    }
+    
+    // Must be called while holding both accounts' locks; both legs are logged as one group and appended
+    // to the global ledger as consecutive rows that become visible together
+    private long recordTransfer(Account fromAccount, Transaction withdrawalTransaction, Account toAccount, Transaction depositTransaction) {
+        List<Transaction> legs = List.of(withdrawalTransaction, depositTransaction);
+        long logTicket = logAll(legs);
+        int first = rows.appendAll(legs);
+        ledgerFor(fromAccount).append(first);
+        ledgerFor(toAccount).append(first + 1);
+        timeIndex.rowsAdded();
+        return logTicket;
+    }
+    
+    // Must be called while holding the account's lock, after the batch has been logged; the batch keeps its order in both ledgers
+    private void recordBatch(Account account, List<Transaction> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        ledgerFor(account).appendRange(rows.appendAll(batch), batch.size());
+        timeIndex.rowsAdded();
+    }
+    
+    // The account's ledger, created on first use; the account's own history then reads from it
+    private AccountLedger ledgerFor(Account account) {
+        AccountLedger ledger = ledgerFor(account.getAccountNumber());
+        ledger.bind(account);
+        return ledger;
+    }
+    
+    private AccountLedger ledgerFor(String accountNumber) {
+        return ledgersByAccount.computeIfAbsent(accountNumber, key -> new AccountLedger(rows));
+    }
+    
+    /**
+     * Returns the transactions of one account, oldest first
+     * @param accountNumber the account to look up
+     * @return a copy of the account's history in time order, empty if there is none
+     */
     public List<Transaction> getTransactionsForAccount(String accountNumber) {
-        return allTransactions.stream()
-                .filter(transaction -> transaction.getAccountNumber().equals(accountNumber))
-                .collect(Collectors.toList());
+        AccountLedger ledger = ledgersByAccount.get(accountNumber);
+        if (ledger == null) {
+            return Collections.emptyList();
+        }
+        return ledger.copyTransactions();
+    }
+    
+    /**
+     * Returns part of one account's history, copying only that part. Positions count from the
+     * account's oldest transaction and never change, since the history is append-only.
+     * @param fromIndex position of the first transaction to return
+     * @param toIndex position after the last one; clamped to the history's current size
+     * @return a copy of the range in time order, empty if it holds no transactions
+     */
+    public List<Transaction> getTransactionsForAccount(String accountNumber, int fromIndex, int toIndex) {
+        AccountLedger ledger = ledgersByAccount.get(accountNumber);
+        if (ledger == null) {
+            return Collections.emptyList();
+        }
+        return ledger.copyRange(fromIndex, toIndex);
+    }
+    
+    /**
+     * Returns one account's transactions within a period, in time order, e.g. for a monthly
+     * statement. Costs two binary searches over the account's history plus the matches.
+     * @param from start of the period, inclusive
+     * @param to end of the period, exclusive
+     * @return a copy of the matching transactions, oldest first
+     */
+    public List<Transaction> getTransactionsForAccount(String accountNumber, LocalDateTime from, LocalDateTime to) {
+        checkPeriod(from, to);
+        AccountLedger ledger = ledgersByAccount.get(accountNumber);
+        if (ledger == null) {
+            return Collections.emptyList();
+        }
+        return ledger.copyTimeRange(from, to);
+    }
+    
+    /**
+     * Returns the transactions of every account within a period, in time order. Transactions
+     * recorded at the same instant, such as a transfer's two legs, keep their recording order.
+     * Costs one index seek plus the matches, however long the ledger is.
+     * @param from start of the period, inclusive
+     * @param to end of the period, exclusive
+     * @return a copy of the matching transactions, oldest first
+     */
+    public List<Transaction> getTransactionsBetween(LocalDateTime from, LocalDateTime to) {
+        checkPeriod(from, to);
+        return timeIndex.range(from, to);
+    }
+    
+    /**
+     * Returns the transactions of one type, across every account, within a period
+     * @param type a transaction type such as "DEPOSIT" or "TRANSFER_OUT"
+     * @param from start of the period, inclusive
+     * @param to end of the period, exclusive
+     * @return a copy of the matching transactions, oldest first, empty for an unknown type
+     */
+    public List<Transaction> getTransactionsByType(String type, LocalDateTime from, LocalDateTime to) {
+        checkPeriod(from, to);
+        return timeIndex.rangeOfType(type, from, to);
+    }
+    
+    private static void checkPeriod(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Period start and end are required");
+        }
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Period end must not be before its start");
+        }
+    }
+    
+    /**
+     * Returns a counter that grows with every transaction recorded for the account. Anything
+     * rendered from the account's history at one version is out of date at any later one.
+     * @return the account's version, 0 if it has no transactions
+     */
+    public long getAccountVersion(String accountNumber) {
+        AccountLedger ledger = ledgersByAccount.get(accountNumber);
+        return ledger == null ? 0 : ledger.version();
+    }
+    
+    /**
+     * @return the number of transactions in one account's history, which after recovery from a
+     *         snapshot starts at the snapshot
+     */
+    public int getTransactionCount(String accountNumber) {
+        AccountLedger ledger = ledgersByAccount.get(accountNumber);
+        return ledger == null ? 0 : ledger.size();
+    }
+    
+    /**
+     * Returns the running totals for one account without walking its history. After recovery
+     * from a snapshot they still cover the account's whole history, while the history itself
+     * starts at the snapshot; see {@link SnapshotManager#getHistoryBeforeRecovery}.
+     * @param accountNumber the account to look up
+     * @return a snapshot of the account's totals, all zero if it has no transactions
+     */
+    public AccountSummary getAccountSummary(String accountNumber) {
+        AccountLedger ledger = ledgersByAccount.get(accountNumber);
+        return ledger == null ? new AccountSummary() : ledger.snapshotSummary();
+    }
+    
+    // Live view of the accounts with at least one transaction, for exporters that walk every ledger
+    Set<String> getAccountsWithHistory() {
+        return ledgersByAccount.keySet();
+    }
+    
+    AccountLedger getLedger(String accountNumber) {
+        return ledgersByAccount.get(accountNumber);
     }
     
+    /**
+     * Copies the whole ledger; {@link LedgerExporter} streams it to a file instead
+     */
     public List<Transaction> getAllTransactions() {
-        return new ArrayList<>(allTransactions);
+        return rows.rows(0, rows.size());
     }
     
     public int getTotalTransactions() {
-        return allTransactions.size();
+        return rows.size();
     }
 }
\ No newline at end of file
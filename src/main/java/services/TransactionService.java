@@ -0,0 +1,176 @@
+package services;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous front end to {@link TransactionManager} for many concurrent callers. Each
+ * request runs on its own virtual thread, so a caller waiting on a busy account parks
+ * without holding a platform thread.
+ *
+ * Requests for the same account run one at a time, in the order they reach the account.
+ * Each account accepts at most {@code maxPendingPerAccount} unfinished requests; the next
+ * one fails with {@link RejectedExecutionException} instead of queueing. A transfer counts
+ * against both of its accounts and waits for both in account-number order. An account's
+ * lane is dropped once it has nothing pending, so accounts that go quiet, or never existed,
+ * hold no memory here.
+ */
+public class TransactionService implements AutoCloseable {
+    public static final int DEFAULT_MAX_PENDING_PER_ACCOUNT = 1024;
+
+    private final TransactionManager transactionManager;
+    private final ExecutorService executor;
+    private final int maxPendingPerAccount;
+    private final Map<String, AccountLane> lanes;
+
+    public TransactionService(TransactionManager transactionManager) {
+        this(transactionManager, Executors.newVirtualThreadPerTaskExecutor(), DEFAULT_MAX_PENDING_PER_ACCOUNT);
+    }
+
+    /**
+     * @param transactionManager the manager that performs the postings
+     * @param executor runs each request; closed together with this service
+     * @param maxPendingPerAccount how many unfinished requests one account may have
+     */
+    public TransactionService(TransactionManager transactionManager, ExecutorService executor, int maxPendingPerAccount) {
+        if (maxPendingPerAccount <= 0) {
+            throw new IllegalArgumentException("Max pending per account must be greater than 0");
+        }
+        this.transactionManager = transactionManager;
+        this.executor = executor;
+        this.maxPendingPerAccount = maxPendingPerAccount;
+        this.lanes = new ConcurrentHashMap<>();
+    }
+
+    public CompletableFuture<Boolean> deposit(String accountNumber, double amount) {
+        return submit(() -> transactionManager.deposit(accountNumber, amount), accountNumber);
+    }
+
+    public CompletableFuture<Boolean> withdraw(String accountNumber, double amount) {
+        return submit(() -> transactionManager.withdraw(accountNumber, amount), accountNumber);
+    }
+
+    /**
+     * Queues a transfer. Self-transfers are passed through so the manager reports them.
+     */
+    public CompletableFuture<Boolean> transfer(String fromAccountNumber, String toAccountNumber, double amount) {
+        Posting posting = () -> transactionManager.transfer(fromAccountNumber, toAccountNumber, amount);
+        if (fromAccountNumber.equals(toAccountNumber)) {
+            return submit(posting, fromAccountNumber);
+        }
+        // Same order as TransactionManager's locks, so two opposite transfers cannot wait on each other
+        boolean fromFirst = fromAccountNumber.compareTo(toAccountNumber) < 0;
+        return submit(posting, fromFirst ? fromAccountNumber : toAccountNumber, fromFirst ? toAccountNumber : fromAccountNumber);
+    }
+
+    /**
+     * Returns how many requests for an account have been accepted but not finished
+     */
+    public int getPendingCount(String accountNumber) {
+        AccountLane lane = lanes.get(accountNumber);
+        return lane == null ? 0 : lane.pending.get();
+    }
+
+    /**
+     * Returns how many accounts currently have accepted but unfinished requests
+     */
+    public int getActiveAccountCount() {
+        return lanes.size();
+    }
+
+    /**
+     * Stops accepting requests and waits for the accepted ones to finish
+     */
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private CompletableFuture<Boolean> submit(Posting posting, String... accountNumbers) {
+        AccountLane[] reserved = new AccountLane[accountNumbers.length];
+        for (int i = 0; i < accountNumbers.length; i++) {
+            AccountLane lane = reserve(accountNumbers[i]);
+            if (lane.pending.get() > maxPendingPerAccount) {
+                release(accountNumbers[i]);
+                release(accountNumbers, i);
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "Too many pending requests for account " + accountNumbers[i]));
+            }
+            reserved[i] = lane;
+        }
+
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> run(posting, accountNumbers, reserved, result));
+        } catch (RejectedExecutionException e) {
+            release(accountNumbers, accountNumbers.length);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    // The future completes only after the account is free again, so callbacks never run inside its turn
+    private void run(Posting posting, String[] accountNumbers, AccountLane[] reserved, CompletableFuture<Boolean> result) {
+        boolean success = false;
+        Exception failure = null;
+        int acquired = 0;
+        try {
+            for (AccountLane lane : reserved) {
+                lane.turn.acquire();
+                acquired++;
+            }
+            success = posting.post();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            for (int i = 0; i < acquired; i++) {
+                reserved[i].turn.release();
+            }
+            release(accountNumbers, accountNumbers.length);
+        }
+        if (failure != null) {
+            result.completeExceptionally(failure);
+        } else {
+            result.complete(success);
+        }
+    }
+
+    // Counts are only changed inside the map's per-key operations, so a lane is never removed while reserved
+    private AccountLane reserve(String accountNumber) {
+        return lanes.compute(accountNumber, (key, lane) -> {
+            AccountLane reserved = lane == null ? new AccountLane() : lane;
+            reserved.pending.incrementAndGet();
+            return reserved;
+        });
+    }
+
+    private void release(String accountNumber) {
+        lanes.computeIfPresent(accountNumber, (key, lane) -> lane.pending.decrementAndGet() == 0 ? null : lane);
+    }
+
+    private void release(String[] accountNumbers, int count) {
+        for (int i = 0; i < count; i++) {
+            release(accountNumbers[i]);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Posting {
+        boolean post() throws Exception;
+    }
+
+    // Fair single-permit semaphore: waiters take their turn in arrival order and never pin a carrier thread
+    private static final class AccountLane {
+        private final Semaphore turn = new Semaphore(1, true);
+        private final AtomicInteger pending = new AtomicInteger();
+    }
+}
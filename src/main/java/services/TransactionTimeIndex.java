@@ -0,0 +1,232 @@
+package services;
+
+import models.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Every row of a {@link ColumnarTransactionStore} ordered by timestamp, overall and per
+ * transaction type, so a date-range query seeks to its first match in O(log n) and then reads
+ * only the k matches. Each index is a sorted array of row numbers, four bytes per transaction;
+ * rows sharing a timestamp, such as a transfer's two legs or a batch, keep their recording order.
+ *
+ * Postings only append to the store. Rows are indexed in order, by whichever thread drains
+ * next, and a query drains before reading. So that a query after a burst of postings does not
+ * sort the whole burst while other queries wait, a posting that finds {@link #DRAIN_THRESHOLD}
+ * rows unindexed drains them itself, unless a query or another posting is already draining.
+ * The backlog therefore stays near that size. A drained run is sorted and merged in from the
+ * back, moving only the entries newer than its oldest row, which is few while the clock runs
+ * forward.
+ */
+class TransactionTimeIndex {
+    static final int DRAIN_THRESHOLD = 1024;
+
+    private static final int TYPE_COUNT = ColumnarTransactionStore.INTEREST + 1;
+
+    private final ColumnarTransactionStore store;
+    // Guards everything below; postings only ever try it
+    private final ReentrantLock lock = new ReentrantLock();
+    // Rows below this are indexed; read without the lock by postings deciding whether to drain
+    private volatile int indexed;
+    private final SortedRows byTime = new SortedRows();
+    private final SortedRows[] byType = new SortedRows[TYPE_COUNT];
+
+    TransactionTimeIndex(ColumnarTransactionStore store) {
+        this.store = store;
+        for (int code = 0; code < TYPE_COUNT; code++) {
+            byType[code] = new SortedRows();
+        }
+    }
+
+    // Called after every append to the store
+    void rowsAdded() {
+        if (store.size() - indexed >= DRAIN_THRESHOLD) {
+            tryDrain();
+        }
+    }
+
+    /**
+     * @return transactions with from <= timestamp < to, oldest first
+     */
+    List<Transaction> range(LocalDateTime from, LocalDateTime to) {
+        lock.lock();
+        try {
+            drainPending(Integer.MAX_VALUE);
+            return byTime.range(from, to);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return transactions of one type with from <= timestamp < to, oldest first
+     */
+    List<Transaction> rangeOfType(String type, LocalDateTime from, LocalDateTime to) {
+        int code = ColumnarTransactionStore.findTypeCode(type);
+        if (code < 0) {
+            return new ArrayList<>();
+        }
+        lock.lock();
+        try {
+            drainPending(Integer.MAX_VALUE);
+            return byType[code].range(from, to);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called by postings. If the lock is busy, a later posting or query drains instead; a posting
+    // drains at most twice the threshold, so one caller never pays for a stream of others' inserts.
+    private void tryDrain() {
+        if (lock.tryLock()) {
+            try {
+                drainPending(2 * DRAIN_THRESHOLD);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Called with lock held
+    private void drainPending(int limit) {
+        int from = indexed;
+        int to = (int) Math.min(store.size(), (long) from + limit);
+        if (to == from) {
+            return;
+        }
+        int count = to - from;
+        int[] rows = new int[count];
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            rows[i] = from + i;
+            keys[i] = store.getEpochNanos(from + i);
+        }
+        sort(rows, keys, count);
+        byTime.insertAll(rows, keys, count);
+        int[] counts = new int[TYPE_COUNT];
+        int[][] typeRows = new int[TYPE_COUNT][];
+        long[][] typeKeys = new long[TYPE_COUNT][];
+        for (int i = 0; i < count; i++) {
+            int code = store.getTypeCode(rows[i]);
+            if (typeRows[code] == null) {
+                typeRows[code] = new int[count];
+                typeKeys[code] = new long[count];
+            }
+            typeRows[code][counts[code]] = rows[i];
+            typeKeys[code][counts[code]++] = keys[i];
+        }
+        for (int code = 0; code < TYPE_COUNT; code++) {
+            if (counts[code] > 0) {
+                byType[code].insertAll(typeRows[code], typeKeys[code], counts[code]);
+            }
+        }
+        indexed = to;
+    }
+
+    // Stable bottom-up merge sort by key, so rows with the same timestamp stay in row order.
+    // A run already in order, as rows usually are, costs one comparison per pair of runs.
+    private static void sort(int[] rows, long[] keys, int count) {
+        int[] rowBuffer = null;
+        long[] keyBuffer = null;
+        for (int width = 1; width < count; width *= 2) {
+            for (int start = 0; start + width < count; start += 2 * width) {
+                int middle = start + width;
+                int end = Math.min(start + 2 * width, count);
+                if (keys[middle - 1] <= keys[middle]) {
+                    continue;
+                }
+                if (rowBuffer == null) {
+                    rowBuffer = new int[count];
+                    keyBuffer = new long[count];
+                }
+                System.arraycopy(rows, start, rowBuffer, start, middle - start);
+                System.arraycopy(keys, start, keyBuffer, start, middle - start);
+                int left = start;
+                int right = middle;
+                int out = start;
+                while (left < middle && right < end) {
+                    if (keys[right] < keyBuffer[left]) {
+                        rows[out] = rows[right];
+                        keys[out++] = keys[right++];
+                    } else {
+                        rows[out] = rowBuffer[left];
+                        keys[out++] = keyBuffer[left++];
+                    }
+                }
+                while (left < middle) {
+                    rows[out] = rowBuffer[left];
+                    keys[out++] = keyBuffer[left++];
+                }
+            }
+        }
+    }
+
+    // Row numbers ordered by (timestamp, row); timestamps are read back from the store
+    private final class SortedRows {
+        private int[] rows = new int[16];
+        private int size;
+
+        // Every row inserted is newer than every row already held, so equal timestamps go after them
+        void insertAll(int[] sorted, long[] keys, int count) {
+            if (rows.length - size < count) {
+                rows = Arrays.copyOf(rows, Math.max(rows.length * 2, size + count));
+            }
+            int kept = firstAfter(keys[0]);
+            int left = size - 1;
+            int right = count - 1;
+            int out = size + count - 1;
+            while (right >= 0) {
+                if (left >= kept && store.getEpochNanos(rows[left]) > keys[right]) {
+                    rows[out--] = rows[left--];
+                } else {
+                    rows[out--] = sorted[right--];
+                }
+            }
+            size += count;
+        }
+
+        List<Transaction> range(LocalDateTime from, LocalDateTime to) {
+            int start = firstNotBefore(ColumnarTransactionStore.toEpochNanosBound(from));
+            int end = firstNotBefore(ColumnarTransactionStore.toEpochNanosBound(to));
+            List<Transaction> result = new ArrayList<>(Math.max(0, end - start));
+            for (int i = start; i < end; i++) {
+                result.add(store.row(rows[i]));
+            }
+            return result;
+        }
+
+        // Position of the first row at or after the given time, or the size if there is none
+        private int firstNotBefore(long epochNanos) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (store.getEpochNanos(rows[middle]) < epochNanos) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // Position of the first row strictly after the given time
+        private int firstAfter(long epochNanos) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (store.getEpochNanos(rows[middle]) <= epochNanos) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
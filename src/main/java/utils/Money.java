@@ -0,0 +1,93 @@
+package utils;
+
+/**
+ * Fixed-point money arithmetic on long minor units (cents). Amounts are plain longs,
+ * so the hot path does exact integer math with no rounding drift and no allocation.
+ */
+public final class Money {
+    public static final long CENTS_PER_DOLLAR = 100;
+    public static final long BASIS_POINTS_PER_UNIT = 10_000;
+    
+    private Money() {
+    }
+    
+    /**
+     * Converts a dollar amount to cents, rounding to the nearest cent
+     * @param dollars the amount in dollars
+     * @return the amount in cents
+     */
+    public static long fromDollars(double dollars) {
+        if (Double.isNaN(dollars) || Double.isInfinite(dollars)) {
+            throw new ArithmeticException("Amount is not a finite number: " + dollars);
+        }
+        return Math.round(dollars * CENTS_PER_DOLLAR);
+    }
+    
+    /**
+     * Converts cents back to dollars for display and legacy double APIs
+     * @param cents the amount in cents
+     * @return the amount in dollars
+     */
+    public static double toDollars(long cents) {
+        return cents / (double) CENTS_PER_DOLLAR;
+    }
+    
+    public static long add(long cents, long otherCents) {
+        return Math.addExact(cents, otherCents);
+    }
+    
+    public static long subtract(long cents, long otherCents) {
+        return Math.subtractExact(cents, otherCents);
+    }
+    
+    /**
+     * Converts a fractional rate such as 0.035 to basis points (350)
+     * @param rate the rate as a fraction
+     * @return the rate in basis points
+     */
+    public static long toBasisPoints(double rate) {
+        return Math.round(rate * BASIS_POINTS_PER_UNIT);
+    }
+    
+    /**
+     * Applies a rate in basis points to an amount, rounding half away from zero
+     * @param cents the amount in cents
+     * @param basisPoints the rate in basis points
+     * @return the resulting amount in cents
+     */
+    public static long applyRate(long cents, long basisPoints) {
+        long product = Math.multiplyExact(cents, basisPoints);
+        long half = BASIS_POINTS_PER_UNIT / 2;
+        return product >= 0
+                ? (product + half) / BASIS_POINTS_PER_UNIT
+                : -((-product + half) / BASIS_POINTS_PER_UNIT);
+    }
+    
+    /**
+     * Formats cents as a plain decimal string such as "1234.50" or "-0.05"
+     * @param cents the amount in cents
+     * @return the formatted amount without a currency symbol
+     */
+    public static String format(long cents) {
+        return append(new StringBuilder(24), cents).toString();
+    }
+    
+    /**
+     * Appends cents in the same form as {@link #format}, without building an intermediate string
+     * @param builder where to append the amount
+     * @param cents the amount in cents
+     * @return the builder
+     */
+    public static StringBuilder append(StringBuilder builder, long cents) {
+        if (cents < 0) {
+            builder.append('-');
+        }
+        long units = Math.abs(cents / CENTS_PER_DOLLAR);
+        long fraction = Math.abs(cents % CENTS_PER_DOLLAR);
+        builder.append(units).append('.');
+        if (fraction < 10) {
+            builder.append('0');
+        }
+        return builder.append(fraction);
+    }
+}
@@ -21,8 +21,18 @@ public class ValidationUtils {
             return false;
         }
         
-        // Simple validation: should start with "ACC" followed by digits
-        return accountNumber.matches("^ACC\\d+$");
+        // Simple validation: should start with "ACC" followed by digits; checked by hand rather than
+        // with String.matches, which compiles a regular expression on every call
+        if (accountNumber.length() <= 3 || !accountNumber.startsWith("ACC")) {
+            return false;
+        }
+        for (int i = 3; i < accountNumber.length(); i++) {
+            char c = accountNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
     }
     
     /**
@@ -55,4 +65,26 @@ public class ValidationUtils {
                 transactionType.equals("TRANSFER_IN") || 
                 transactionType.equals("TRANSFER_OUT"));
     }
+    
+    /**
+     * Reads the number of a generated id such as ACC007 without compiling a regular expression
+     * @param id the id to read
+     * @param prefix the expected prefix, e.g. "ACC"
+     * @return the number after the prefix, or -1 if the rest of the id is not 1 to 9 digits
+     */
+    public static int idNumber(String id, String prefix) {
+        int digits = id.length() - prefix.length();
+        if (digits < 1 || digits > 9 || !id.startsWith(prefix)) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = prefix.length(); i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            number = number * 10 + (c - '0');
+        }
+        return number;
+    }
 }
\ No newline at end of file
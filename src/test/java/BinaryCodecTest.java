@@ -0,0 +1,136 @@
+import models.*;
+import services.*;
+import exceptions.*;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinaryCodecTest {
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 30, 0, 123_456_789);
+    
+    @Test
+    void testTransactionsRoundTripThroughReusedBuffer() {
+        List<Transaction> transactions = List.of(
+                new Transaction("TXN001", "ACC001", "DEPOSIT", 150_000, 250_000, START),
+                new Transaction("TXN1234567", "ACC042", "WITHDRAWAL", 2_500, -97_500, START.plusSeconds(3)),
+                // Ids outside the generated form, an unknown type and a clock that stepped back
+                new Transaction("T-0001", "SAVINGS/Ümit", "REFUND", 1, 0, START.minusDays(2)),
+                new Transaction("TXN0001", "ACC7", "TRANSFER_OUT", Long.MAX_VALUE, Long.MIN_VALUE, START));
+        
+        BinaryCodec encoder = new BinaryCodec();
+        BinaryCodec decoder = new BinaryCodec();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256);
+        for (int round = 0; round < 2; round++) {
+            buffer.clear();
+            for (Transaction transaction : transactions) {
+                assertTrue(encoder.encode(buffer, transaction));
+            }
+            buffer.flip();
+            for (Transaction expected : transactions) {
+                assertSameTransaction(expected, decoder.decodeTransaction(buffer));
+            }
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+    
+    @Test
+    void testGeneratedIdsAndSmallAmountsStayCompact() {
+        BinaryCodec codec = new BinaryCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        codec.encode(buffer, new Transaction("TXN001", "ACC001", "DEPOSIT", 1_000, 1_000, START));
+        int start = buffer.position();
+        codec.encode(buffer, new Transaction("TXN002", "ACC001", "DEPOSIT", 1_000, 2_000, START.plusNanos(250_000_000)));
+        // type 1, ids 1 + 1, amounts 2 + 2, timestamp delta 2 + sub-millisecond nanos 3
+        assertEquals(12, buffer.position() - start);
+    }
+    
+    @Test
+    void testRowThatDoesNotFitLeavesBufferUnchanged() {
+        BinaryCodec encoder = new BinaryCodec();
+        BinaryCodec decoder = new BinaryCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(24);
+        Transaction first = new Transaction("TXN001", "ACC001", "DEPOSIT", 1_000, 1_000, START);
+        Transaction second = new Transaction("TXN002", "ACC001", "DEPOSIT", 1_000, 2_000, START.plusSeconds(1));
+        assertTrue(encoder.encode(buffer, first));
+        int used = buffer.position();
+        assertFalse(encoder.encode(buffer, second));
+        assertEquals(used, buffer.position());
+        
+        // The failed row did not move the encoder's timestamp, so it can be written to a fresh buffer
+        buffer.flip();
+        assertSameTransaction(first, decoder.decodeTransaction(buffer));
+        buffer.clear();
+        assertTrue(encoder.encode(buffer, second));
+        
+        // A cut-short row decodes to null without consuming anything
+        buffer.flip().limit(buffer.limit() - 1);
+        assertNull(decoder.decodeTransaction(buffer));
+        assertEquals(0, buffer.position());
+        buffer.limit(buffer.limit() + 1);
+        assertSameTransaction(second, decoder.decodeTransaction(buffer));
+    }
+    
+    @Test
+    void testAccountsAndCustomersRoundTrip() {
+        List<Account> accounts = new ArrayList<>();
+        accounts.add(new SavingsAccount("ACC001", 1500.25, new RegularCustomer("John Smith", "CUST001")));
+        accounts.add(new CheckingAccount("ACC002", 0, new PremiumCustomer("Zoë Ångström", "VIP-7")));
+        accounts.get(1).setBalanceInCents(-42_00);
+        
+        BinaryCodec codec = new BinaryCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(128);
+        for (Account account : accounts) {
+            assertTrue(codec.encode(buffer, account));
+        }
+        assertTrue(codec.encode(buffer, accounts.get(0).getCustomer()));
+        buffer.flip();
+        for (Account expected : accounts) {
+            Account actual = codec.decodeAccount(buffer);
+            assertEquals(expected.getClass(), actual.getClass());
+            assertEquals(expected.getAccountNumber(), actual.getAccountNumber());
+            assertEquals(expected.getBalanceInCents(), actual.getBalanceInCents());
+            assertEquals(expected.getCustomer().getClass(), actual.getCustomer().getClass());
+            assertEquals(expected.getCustomer().getCustomerId(), actual.getCustomer().getCustomerId());
+            assertEquals(expected.getCustomer().getName(), actual.getCustomer().getName());
+        }
+        Customer customer = codec.decodeCustomer(buffer);
+        assertTrue(customer instanceof RegularCustomer);
+        assertEquals("CUST001", customer.getCustomerId());
+        assertFalse(buffer.hasRemaining());
+    }
+    
+    @Test
+    void testSavingsAccrualRoundTrips() {
+        TestClock clock = new TestClock(Instant.parse("2024-01-01T09:00:00Z"));
+        SavingsAccount savings = new SavingsAccount("ACC001", 10_000.0, new RegularCustomer("John Smith", "CUST001"), clock);
+        clock.advance(Duration.ofDays(30));
+        assertEquals(1643, savings.getAccruedInterestInCents());
+        
+        BinaryCodec codec = new BinaryCodec();
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        assertTrue(codec.encode(buffer, savings));
+        buffer.flip();
+        SavingsAccount decoded = (SavingsAccount) codec.decodeAccount(buffer);
+        
+        assertEquals(LocalDate.of(2024, 1, 31), decoded.getLastAccrualDate());
+        assertEquals(savings.getAccruedUnits(), decoded.getAccruedUnits());
+    }
+    
+    private static void assertSameTransaction(Transaction expected, Transaction actual) {
+        assertNotNull(actual);
+        assertEquals(expected.getTransactionId(), actual.getTransactionId());
+        assertEquals(expected.getAccountNumber(), actual.getAccountNumber());
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getAmountInCents(), actual.getAmountInCents());
+        assertEquals(expected.getBalanceAfterInCents(), actual.getBalanceAfterInCents());
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,177 @@
+import models.*;
+import services.*;
+import exceptions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkImporterTest {
+    @TempDir
+    Path tempDir;
+    
+    @Test
+    void testCsvImportAddsValidRowsAndRejectsTheRest() throws Exception {
+        Path input = write("accounts.csv",
+                "customer_name,customer_id,customer_type,account_type,balance,account_number,branch",
+                "John Smith,CUST001,REGULAR,SAVINGS,500.00,ACC100,North",
+                "John Smith,CUST001,regular,checking,25.50,,North",
+                "\"Doe, Jane\",CUST002,PREMIUM,SAVINGS,1000,ACC101,South",
+                "",
+                "No Balance,CUST003,REGULAR,SAVINGS,-5,ACC102,East",
+                "Bad Number,CUST004,REGULAR,SAVINGS,10,ACCOUNT7,East",
+                "Bad Type,CUST005,REGULAR,LOAN,10,ACC103,East",
+                ",CUST006,REGULAR,SAVINGS,10,ACC104,East");
+        AccountManager accountManager = new AccountManager();
+        Path rejects = tempDir.resolve("rejects.csv");
+        
+        BulkImporter.Report report = new BulkImporter(accountManager).importFile(input, rejects);
+        
+        assertEquals(7, report.getRowsRead());
+        assertEquals(3, report.getAccountsImported());
+        assertEquals(4, report.getRowsRejected());
+        assertEquals(2, report.getCustomersCreated());
+        assertTrue(report.getRowsPerSecond() > 0);
+        
+        Account savings = accountManager.getAccount("ACC100");
+        assertTrue(savings instanceof SavingsAccount);
+        assertEquals(500.0, savings.getBalance(), 0.001);
+        assertTrue(accountManager.getAccount("ACC101").getCustomer() instanceof PremiumCustomer);
+        assertEquals("Doe, Jane", accountManager.getAccount("ACC101").getCustomer().getName());
+        
+        // The row without a number got a generated one and shares its customer with ACC100
+        Account generated = accountManager.getAllAccounts().values().stream()
+                .filter(account -> account instanceof CheckingAccount).findFirst().orElseThrow();
+        assertEquals(25.50, generated.getBalance(), 0.001);
+        assertSame(savings.getCustomer(), generated.getCustomer());
+        assertEquals("ACC102", accountManager.generateAccountNumber());
+        
+        List<String> rejected = Files.readAllLines(rejects);
+        assertEquals("line,reason,record", rejected.get(0));
+        assertEquals(5, rejected.size());
+        assertTrue(rejected.contains("6,\"Balance must be greater than 0\",\"No Balance,CUST003,REGULAR,SAVINGS,-5,ACC102,East\""));
+        assertTrue(rejected.contains("7,\"Invalid account number\",\"Bad Number,CUST004,REGULAR,SAVINGS,10,ACCOUNT7,East\""));
+        assertTrue(rejected.stream().anyMatch(line -> line.startsWith("8,\"Account type must be")));
+        assertTrue(rejected.stream().anyMatch(line -> line.startsWith("9,\"Missing customer name\"")));
+    }
+    
+    @Test
+    void testNdjsonImport() throws Exception {
+        Path input = write("accounts.ndjson",
+                "{\"account_number\":\"ACC200\",\"account_type\":\"SAVINGS\",\"balance\":150.25,\"customer_id\":\"CUST010\",\"customer_name\":\"Ana \\\"A\\\" M\\u00fcller\",\"customer_type\":\"PREMIUM\",\"note\":null}",
+                "  { \"account_type\" : \"CHECKING\", \"balance\" : \"40\", \"customer_id\" : \"CUST011\", \"customer_name\" : \"Bo\", \"customer_type\" : \"REGULAR\" }  ",
+                "{\"account_number\":\"ACC900\",\"account_type\":\"SAVINGS\",\"balance\":10,\"customer_id\":\"CUST012\",\"customer_name\":\"Cy\",\"customer_type\":\"REGULAR\",\"tags\":[1]}",
+                "{\"account_number\":\"ACC202\"");
+        AccountManager accountManager = new AccountManager();
+        Path rejects = tempDir.resolve("rejects.csv");
+        
+        BulkImporter.Report report = new BulkImporter(accountManager, 2, 1).importFile(input, rejects);
+        
+        assertEquals(4, report.getRowsRead());
+        assertEquals(2, report.getAccountsImported());
+        assertEquals(2, report.getRowsRejected());
+        assertEquals("Ana \"A\" Müller", accountManager.getAccount("ACC200").getCustomer().getName());
+        assertEquals(150.25, accountManager.getAccount("ACC200").getBalance(), 0.001);
+        assertNull(accountManager.getAccount("ACC900"));
+        
+        List<String> rejected = Files.readAllLines(rejects);
+        assertTrue(rejected.stream().anyMatch(line -> line.startsWith("3,\"Nested value")));
+        assertTrue(rejected.stream().anyMatch(line -> line.startsWith("4,\"Expected")));
+    }
+    
+    @Test
+    void testTakenAccountNumbersAndConflictingCustomersAreRejected() throws Exception {
+        AccountManager accountManager = new AccountManager();
+        RegularCustomer existing = new RegularCustomer("John Smith", "CUST001");
+        accountManager.addAccount(new SavingsAccount("ACC001", 100.0, existing));
+        Path input = write("accounts.csv",
+                "account_number,account_type,balance,customer_id,customer_name,customer_type",
+                "ACC001,SAVINGS,10,CUST002,Jane Doe,REGULAR",
+                "ACC002,CHECKING,10,CUST001,John Smith,REGULAR",
+                "ACC002,CHECKING,20,CUST001,John Smith,REGULAR",
+                "ACC003,CHECKING,10,CUST001,John Smith,PREMIUM",
+                "ACC004,CHECKING,10,CUST001,Johnny Smith,REGULAR");
+        Path rejects = tempDir.resolve("rejects.csv");
+        
+        BulkImporter.Report report = new BulkImporter(accountManager, 1, 16).importFile(input, rejects);
+        
+        assertEquals(1, report.getAccountsImported());
+        assertEquals(4, report.getRowsRejected());
+        assertEquals(0, report.getCustomersCreated());
+        assertEquals(100.0, accountManager.getAccount("ACC001").getBalance(), 0.001);
+        assertEquals(10.0, accountManager.getAccount("ACC002").getBalance(), 0.001);
+        assertSame(existing, accountManager.getAccount("ACC002").getCustomer());
+        List<String> rejected = Files.readAllLines(rejects);
+        assertTrue(rejected.contains("2,\"Account number ACC001 already exists\",\"ACC001,SAVINGS,10,CUST002,Jane Doe,REGULAR\""));
+        assertTrue(rejected.stream().anyMatch(line -> line.startsWith("4,\"Account number ACC002 already exists\"")));
+        assertEquals(2, rejected.stream().filter(line -> line.contains("already exists with a different name or type")).count());
+    }
+    
+    @Test
+    void testCustomerOfRejectedRowIsNotCreated() throws Exception {
+        AccountManager accountManager = new AccountManager();
+        accountManager.addAccount(new SavingsAccount("ACC001", 100.0, new RegularCustomer("John Smith", "CUST001")));
+        Path input = write("accounts.csv",
+                "account_number,account_type,balance,customer_id,customer_name,customer_type",
+                "ACC001,SAVINGS,10,CUST002,Jane Doe,REGULAR",
+                "ACC002,CHECKING,20,CUST002,Janet Doe,PREMIUM");
+        
+        // One worker and one line per chunk, so the rows are added in file order
+        BulkImporter.Report report = new BulkImporter(accountManager, 1, 1).importFile(input, tempDir.resolve("rejects.csv"));
+        
+        assertEquals(1, report.getAccountsImported());
+        assertEquals(1, report.getRowsRejected());
+        assertEquals(1, report.getCustomersCreated());
+        Customer customer = accountManager.getAccount("ACC002").getCustomer();
+        assertEquals("Janet Doe", customer.getName());
+        assertTrue(customer instanceof PremiumCustomer);
+    }
+    
+    @Test
+    void testLargeFileIsImportedAcrossManyChunks() throws Exception {
+        Path input = tempDir.resolve("large.csv");
+        int rows = 20_000;
+        try (BufferedWriter out = Files.newBufferedWriter(input)) {
+            out.write("account_number,account_type,balance,customer_id,customer_name,customer_type\n");
+            for (int i = 0; i < rows; i++) {
+                String balance = i % 100 == 0 ? "0" : (i % 1000) + ".25";
+                out.write("ACC" + (10_000 + i) + "," + (i % 2 == 0 ? "SAVINGS" : "CHECKING") + "," + balance
+                        + ",CUST" + (i % 500) + ",Customer " + (i % 500) + "," + (i % 500 % 7 == 0 ? "PREMIUM" : "REGULAR") + "\n");
+            }
+        }
+        AccountManager accountManager = new AccountManager();
+        
+        BulkImporter.Report report = new BulkImporter(accountManager, 4, 128).importFile(input, tempDir.resolve("rejects.csv"));
+        
+        assertEquals(rows, report.getRowsRead());
+        assertEquals(rows / 100, report.getRowsRejected());
+        assertEquals(rows - rows / 100, report.getAccountsImported());
+        assertEquals(report.getAccountsImported(), accountManager.getTotalAccounts());
+        // Customers only named on rejected rows are not created
+        assertEquals(495, report.getCustomersCreated());
+        assertEquals(rows / 100 + 1, Files.readAllLines(tempDir.resolve("rejects.csv")).size());
+        assertSame(accountManager.getAccount("ACC10005").getCustomer(), accountManager.getAccount("ACC10505").getCustomer());
+        assertEquals(5.25, accountManager.getAccount("ACC10005").getBalance(), 0.001);
+    }
+    
+    @Test
+    void testCsvHeaderMustNameRequiredColumns() throws Exception {
+        Path input = write("accounts.csv", "account_number,account_type,balance", "ACC001,SAVINGS,10");
+        AccountManager accountManager = new AccountManager();
+        
+        IOException e = assertThrows(IOException.class,
+                () -> new BulkImporter(accountManager).importFile(input, tempDir.resolve("rejects.csv")));
+        assertTrue(e.getMessage().contains("customer_id"));
+        assertEquals(0, accountManager.getTotalAccounts());
+    }
+    
+    private Path write(String name, String... lines) throws IOException {
+        return Files.write(tempDir.resolve(name), List.of(lines));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,98 @@
+import models.*;
+import services.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ColumnarTransactionStoreTest {
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_456_789);
+    
+    private ColumnarTransactionStore store;
+    
+    @BeforeEach
+    void setUp() {
+        // Two rows a page, so a handful of rows spans several pages
+        store = new ColumnarTransactionStore(2);
+    }
+    
+    @Test
+    void testRowsReadBackAsTransactions() {
+        store.append(new Transaction("TXN001", "ACC001", "DEPOSIT", 25075, 125075, TIMESTAMP));
+        store.append(new Transaction("TXN002", "ACC002", "WITHDRAWAL", 2010, 47990, TIMESTAMP));
+        int row = store.append(new Transaction("TXN003", "ACC001", "TRANSFER_OUT", 1, 125074, TIMESTAMP.plusSeconds(1)));
+        
+        assertEquals(2, row);
+        assertEquals(3, store.size());
+        Transaction first = store.row(0);
+        assertEquals("TXN001", first.getTransactionId());
+        assertEquals("ACC001", first.getAccountNumber());
+        assertEquals("DEPOSIT", first.getType());
+        assertEquals(25075, first.getAmountInCents());
+        assertEquals(1250.75, first.getBalanceAfter(), 0.001);
+        assertEquals(TIMESTAMP, first.getTimestamp());
+        assertEquals("2024-03-01 09:30:15", first.getFormattedTimestamp());
+        
+        Transaction last = store.row(2);
+        assertEquals("TRANSFER_OUT", last.getType());
+        assertEquals(1, last.getAmountInCents());
+        assertEquals(TIMESTAMP.plusSeconds(1), store.getTimestamp(2));
+    }
+    
+    @Test
+    void testRowsOfTheSameRowAreEqual() {
+        store.append(new Transaction("TXN001", "ACC001", "DEPOSIT", 100, 100, TIMESTAMP));
+        store.append(new Transaction("TXN002", "ACC001", "DEPOSIT", 100, 200, TIMESTAMP));
+        
+        assertEquals(store.row(1), store.row(1));
+        assertEquals(store.row(1).hashCode(), store.row(1).hashCode());
+        assertNotEquals(store.row(0), store.row(1));
+        assertEquals(store.rows(0, 2), List.of(store.row(0), store.row(1)));
+        
+        ColumnarTransactionStore other = new ColumnarTransactionStore(2);
+        other.append(new Transaction("TXN001", "ACC001", "DEPOSIT", 100, 100, TIMESTAMP));
+        assertNotEquals(store.row(0), other.row(0));
+    }
+    
+    @Test
+    void testTransactionIdsKeepTheirSequence() {
+        store.append(new Transaction("TXN099", "ACC001", "DEPOSIT", 100, 100, TIMESTAMP));
+        store.append(new Transaction("TXN1000", "ACC001", "DEPOSIT", 100, 200, TIMESTAMP));
+        
+        assertEquals("TXN099", store.getTransactionId(0));
+        assertEquals(99, store.getSequence(0));
+        assertEquals("TXN1000", store.row(1).getTransactionId());
+    }
+    
+    @Test
+    void testAppendAllIsAllOrNothing() {
+        store.append(new Transaction("TXN001", "ACC001", "DEPOSIT", 100, 100, TIMESTAMP));
+        List<Transaction> legs = List.of(
+                new Transaction("TXN002", "ACC001", "TRANSFER_OUT", 50, 50, TIMESTAMP),
+                new Transaction("TXN003", "ACC002", "TRANSFER_IN", 50, 50, TIMESTAMP));
+        
+        assertEquals(1, store.appendAll(legs));
+        assertEquals(3, store.size());
+        assertEquals("ACC002", store.getAccountNumber(2));
+        
+        List<Transaction> bad = List.of(
+                new Transaction("TXN004", "ACC001", "DEPOSIT", 1, 51, TIMESTAMP),
+                new Transaction("TXN005", "ACC001", "REFUND", 1, 52, TIMESTAMP));
+        assertThrows(IllegalArgumentException.class, () -> store.appendAll(bad));
+        assertEquals(3, store.size());
+    }
+    
+    @Test
+    void testInvalidRowAndTypeRejected() {
+        assertThrows(IndexOutOfBoundsException.class, () -> store.row(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.rows(0, 1));
+        assertTrue(store.rows(0, 0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> ColumnarTransactionStore.typeCode("REFUND"));
+        assertThrows(IllegalArgumentException.class,
+                () -> store.append(new Transaction("TXN001", "ACC001", "DEPOSIT", 1, 1, LocalDateTime.of(1500, 1, 1, 0, 0))));
+        assertEquals(0, store.size());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,191 @@
+import models.*;
+import services.*;
+import exceptions.*;
+import utils.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTransactionTest {
+    private static final int THREADS = 8;
+    private static final int POSTINGS_PER_THREAD = 2_000;
+    
+    private AccountManager accountManager;
+    private TransactionManager transactionManager;
+    private RegularCustomer customer;
+    
+    @BeforeEach
+    void setUp() {
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        customer = new RegularCustomer("John Smith", "CUST001");
+    }
+    
+    @Test
+    void testConcurrentDepositsOnSameAccountAreNotLost() throws Exception {
+        CheckingAccount account = new CheckingAccount("ACC001", 0.0, customer);
+        accountManager.addAccount(account);
+        
+        runConcurrently(threadIndex -> {
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                transactionManager.deposit("ACC001", 1.0);
+            }
+            return null;
+        });
+        
+        assertEquals(THREADS * POSTINGS_PER_THREAD * 100L, account.getBalanceInCents());
+        assertEquals(THREADS * POSTINGS_PER_THREAD, transactionManager.getTotalTransactions());
+        assertEquals(THREADS * POSTINGS_PER_THREAD, transactionManager.getTransactionsForAccount("ACC001").size());
+    }
+    
+    @Test
+    void testAccountHistoryMatchesBalanceOrder() throws Exception {
+        // Funded for every withdrawal running before any deposit, so no interleaving is refused
+        long openingBalance = THREADS / 2 * POSTINGS_PER_THREAD * 100L;
+        CheckingAccount account = new CheckingAccount("ACC001", Money.toDollars(openingBalance), customer);
+        accountManager.addAccount(account);
+        
+        runConcurrently(threadIndex -> {
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                if (threadIndex % 2 == 0) {
+                    transactionManager.deposit("ACC001", 2.0);
+                } else {
+                    transactionManager.withdraw("ACC001", 1.0);
+                }
+            }
+            return null;
+        });
+        
+        // Replaying the per-account history must reproduce every recorded balance
+        long balance = openingBalance;
+        for (Transaction transaction : transactionManager.getTransactionsForAccount("ACC001")) {
+            balance += transaction.getType().equals("DEPOSIT") ? transaction.getAmountInCents() : -transaction.getAmountInCents();
+            assertEquals(balance, transaction.getBalanceAfterInCents());
+        }
+        assertEquals(balance, account.getBalanceInCents());
+        assertEquals(THREADS * POSTINGS_PER_THREAD, transactionManager.getTransactionCount("ACC001"));
+    }
+    
+    @Test
+    void testConcurrentPostingsToDifferentAccounts() throws Exception {
+        for (int i = 0; i < THREADS; i++) {
+            accountManager.addAccount(new SavingsAccount(String.format("ACC%03d", i + 1), 1000.0, customer));
+        }
+        
+        runConcurrently(threadIndex -> {
+            String accountNumber = String.format("ACC%03d", threadIndex + 1);
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                transactionManager.deposit(accountNumber, 3.0);
+                transactionManager.withdraw(accountNumber, 1.0);
+            }
+            return null;
+        });
+        
+        for (int i = 0; i < THREADS; i++) {
+            String accountNumber = String.format("ACC%03d", i + 1);
+            // Each cycle adds $3 and removes $1 plus the $2 savings withdrawal fee
+            assertEquals(100_000, accountManager.getAccount(accountNumber).getBalanceInCents());
+            assertEquals(2 * POSTINGS_PER_THREAD, transactionManager.getAccountSummary(accountNumber).getTransactionCount());
+        }
+    }
+    
+    @Test
+    void testOppositeTransfersConserveMoneyWithoutDeadlock() throws Exception {
+        int accountCount = 4;
+        for (int i = 0; i < accountCount; i++) {
+            accountManager.addAccount(new CheckingAccount(String.format("ACC%03d", i + 1), 1000.0, customer));
+        }
+        
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> runConcurrently(threadIndex -> {
+            Random random = new Random(threadIndex);
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                int from = random.nextInt(accountCount);
+                int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+                try {
+                    transactionManager.transfer(String.format("ACC%03d", from + 1), String.format("ACC%03d", to + 1), 1 + random.nextInt(400));
+                } catch (OverdraftExceededException expected) {
+                    // Rejected transfers must leave both accounts untouched
+                }
+            }
+            return null;
+        }));
+        
+        long total = 0;
+        for (int i = 0; i < accountCount; i++) {
+            String accountNumber = String.format("ACC%03d", i + 1);
+            total += accountManager.getAccount(accountNumber).getBalanceInCents();
+            assertEquals(transactionManager.getTransactionsForAccount(accountNumber).size(),
+                    transactionManager.getAccountSummary(accountNumber).getTransactionCount());
+        }
+        assertEquals(accountCount * 100_000L, total);
+        assertEquals(0, transactionManager.getTotalTransactions() % 2);
+    }
+    
+    @Test
+    void testLockFreeAndLockedUpdatesMixWithoutLoss() throws Exception {
+        CheckingAccount account = new CheckingAccount("ACC001", 0.0, customer);
+        
+        runConcurrently(threadIndex -> {
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                if (threadIndex % 2 == 0) {
+                    account.depositLockFree(100);
+                } else {
+                    account.depositInCents(100);
+                }
+            }
+            return null;
+        });
+        
+        assertEquals(THREADS * POSTINGS_PER_THREAD * 100L, account.getBalanceInCents());
+    }
+    
+    @Test
+    void testLockFreeWithdrawalsNeverBreakSavingsMinimum() throws Exception {
+        SavingsAccount account = new SavingsAccount("ACC001", 1100.0, customer);
+        
+        runConcurrently(threadIndex -> {
+            for (int i = 0; i < POSTINGS_PER_THREAD; i++) {
+                try {
+                    account.withdrawLockFree(100);
+                } catch (InsufficientFundsException e) {
+                    // expected once the balance reaches the minimum
+                }
+            }
+            return null;
+        });
+        
+        // $1000 above the $100 minimum drains in $3 steps ($1 plus the $2 fee)
+        assertEquals(10_000 + 100_000 % 300, account.getBalanceInCents());
+    }
+    
+    private interface Worker {
+        Void run(int threadIndex) throws Exception;
+    }
+    
+    private void runConcurrently(Worker worker) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int threadIndex = t;
+                Callable<Void> task = () -> worker.run(threadIndex);
+                futures.add(executor.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
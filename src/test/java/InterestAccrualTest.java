@@ -0,0 +1,84 @@
+import models.*;
+import services.*;
+import exceptions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+    
+public class InterestAccrualTest {
+    private static final LocalDate OPENED = LocalDate.of(2024, 1, 1);
+    
+    private TestClock clock;
+    private AccountManager accountManager;
+    private TransactionManager transactionManager;
+    
+    @BeforeEach
+    void setUp() {
+        clock = new TestClock(OPENED.atTime(9, 0).toInstant(ZoneOffset.UTC));
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+    }
+    
+    @Test
+    void testInterestAccruesDailyAtCustomerRate() {
+        SavingsAccount account = new SavingsAccount("ACC001", 10_000.0, new PremiumCustomer("Jane Doe", "CUST002"), clock);
+        assertEquals(0, account.getAccruedInterestInCents());
+        
+        // 3.5% a year on $10,000 is 9.589 cents a day; the fraction carries over between days
+        clock.advance(Duration.ofDays(10));
+        assertEquals(958, account.getAccruedInterestInCents());
+        assertEquals(1_000_000, account.getBalanceInCents());
+        assertEquals(OPENED.plusDays(10), account.getLastAccrualDate());
+    }
+    
+    @Test
+    void testPostingSplitsAccrualAtTheOldBalance() throws Exception {
+        SavingsAccount account = new SavingsAccount("ACC001", 10_000.0, new RegularCustomer("John Smith", "CUST001"), clock);
+        accountManager.addAccount(account);
+        
+        // 2% a year: 5 days on $10,000, then 5 days on $20,000
+        clock.advance(Duration.ofDays(5));
+        transactionManager.deposit("ACC001", 10_000.0);
+        clock.advance(Duration.ofDays(5));
+        assertEquals(821, account.getAccruedInterestInCents());
+    }
+    
+    @Test
+    void testDormantAccountIsNotTouchedUntilUsed() {
+        SavingsAccount account = new SavingsAccount("ACC001", 10_000.0, new RegularCustomer("John Smith", "CUST001"), clock);
+        clock.advance(Duration.ofDays(30));
+        assertEquals(OPENED, account.getLastAccrualDate());
+        
+        account.getBalance();
+        assertEquals(OPENED.plusDays(30), account.getLastAccrualDate());
+        assertEquals(1643, account.getAccruedInterestInCents());
+    }
+    
+    @Test
+    void testCreditingInterestRecordsTransaction() throws Exception {
+        SavingsAccount account = new SavingsAccount("ACC001", 10_000.0, new RegularCustomer("John Smith", "CUST001"), clock);
+        accountManager.addAccount(account);
+        accountManager.addAccount(new CheckingAccount("ACC002", 500.0, new RegularCustomer("Jane Doe", "CUST002")));
+        assertEquals(0, transactionManager.creditInterest("ACC001"));
+        
+        clock.advance(Duration.ofDays(31));
+        assertEquals(1698, transactionManager.creditInterest("ACC001"));
+        assertEquals(1_001_698, account.getBalanceInCents());
+        assertEquals(0, account.getAccruedInterestInCents());
+        
+        Transaction credit = transactionManager.getTransactionsForAccount("ACC001").get(0);
+        assertEquals("INTEREST", credit.getType());
+        assertEquals(1698, credit.getAmountInCents());
+        assertEquals(1_001_698, credit.getBalanceAfterInCents());
+        assertEquals(16.98, transactionManager.getAccountSummary("ACC001").getTotalInterest(), 0.001);
+        
+        // Checking accounts earn nothing; unknown accounts are rejected like any posting
+        assertEquals(0, transactionManager.creditInterest("ACC002"));
+        assertThrows(InvalidAmountException.class, () -> transactionManager.creditInterest("ACC999"));
+    }
+}
\ No newline at end of file
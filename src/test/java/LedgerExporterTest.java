@@ -0,0 +1,147 @@
+import models.*;
+import services.*;
+import exceptions.*;
+import utils.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LedgerExporterTest {
+    private static final int ACCOUNTS = 20;
+    
+    @TempDir
+    Path tempDir;
+    
+    private TransactionManager transactionManager;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        AccountManager accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        RegularCustomer customer = new RegularCustomer("John Smith", "CUST001");
+        for (int i = 1; i <= ACCOUNTS; i++) {
+            accountManager.addAccount(new CheckingAccount(String.format("ACC%03d", i), 1000.0, customer));
+        }
+        // Enough postings per account to span several pages of a history
+        for (int round = 0; round < 300; round++) {
+            for (int i = 1; i <= ACCOUNTS; i++) {
+                String accountNumber = String.format("ACC%03d", i);
+                if (round % 3 == 2) {
+                    transactionManager.withdraw(accountNumber, 0.5);
+                } else {
+                    transactionManager.deposit(accountNumber, 1.25);
+                }
+            }
+        }
+    }
+    
+    @Test
+    void testCsvExportWritesEveryTransactionOnce() throws Exception {
+        Path file = tempDir.resolve("ledger.csv");
+        
+        // Small buffers so the partitions interleave many times
+        LedgerExporter.Report report = new LedgerExporter(transactionManager, 4, 1024).export(file, LedgerExporter.Format.CSV);
+        
+        List<String> lines = Files.readAllLines(file);
+        assertEquals("transaction_id,account_number,type,amount,balance_after,timestamp", lines.get(0));
+        assertEquals(transactionManager.getTotalTransactions(), report.getRowsWritten());
+        assertEquals(ACCOUNTS, report.getAccountsExported());
+        assertEquals(Files.size(file), report.getBytesWritten());
+        assertEquals(report.getRowsWritten() + 1, lines.size());
+        
+        Set<String> expected = new HashSet<>();
+        for (Transaction transaction : transactionManager.getAllTransactions()) {
+            expected.add(transaction.getTransactionId() + "," + transaction.getAccountNumber() + "," + transaction.getType() + ","
+                    + Money.format(transaction.getAmountInCents()) + "," + Money.format(transaction.getBalanceAfterInCents())
+                    + "," + transaction.getTimestamp());
+        }
+        assertEquals(expected, new HashSet<>(lines.subList(1, lines.size())));
+        
+        // Each account's rows keep their recording order
+        List<String> ids = new ArrayList<>();
+        for (String line : lines) {
+            if (line.contains(",ACC007,")) {
+                ids.add(line.substring(0, line.indexOf(',')));
+            }
+        }
+        List<String> recorded = new ArrayList<>();
+        for (Transaction transaction : transactionManager.getTransactionsForAccount("ACC007")) {
+            recorded.add(transaction.getTransactionId());
+        }
+        assertEquals(recorded, ids);
+    }
+    
+    @Test
+    void testExportFiltersByAccountTypeAndPeriod() throws Exception {
+        LedgerExporter exporter = new LedgerExporter(transactionManager, 3, LedgerExporter.DEFAULT_BUFFER_BYTES);
+        Path file = tempDir.resolve("extract.csv");
+        
+        LedgerExporter.Report report = exporter.export(file, LedgerExporter.Format.CSV, "ACC003", "WITHDRAWAL", null, null);
+        assertEquals(100, report.getRowsWritten());
+        assertEquals(1, report.getAccountsExported());
+        assertTrue(Files.readAllLines(file).stream().skip(1).allMatch(line -> line.contains(",ACC003,WITHDRAWAL,0.50,")));
+        
+        List<Transaction> history = transactionManager.getTransactionsForAccount("ACC005");
+        LocalDateTime from = history.get(100).getTimestamp();
+        LocalDateTime to = history.get(200).getTimestamp();
+        int expected = transactionManager.getTransactionsBetween(from, to).size();
+        report = exporter.export(file, LedgerExporter.Format.CSV, null, null, from, to);
+        assertEquals(expected, report.getRowsWritten());
+        assertTrue(expected > 0);
+        
+        report = exporter.export(file, LedgerExporter.Format.CSV, "ACC999", null, null, null);
+        assertEquals(0, report.getRowsWritten());
+        assertEquals(1, Files.readAllLines(file).size());
+        
+        assertThrows(IllegalArgumentException.class,
+                () -> exporter.export(file, LedgerExporter.Format.CSV, null, null, to, from));
+    }
+    
+    @Test
+    void testNdjsonExport() throws Exception {
+        Path file = tempDir.resolve("ledger.ndjson");
+        
+        LedgerExporter.Report report = new LedgerExporter(transactionManager, 2, 4096)
+                .export(file, LedgerExporter.Format.NDJSON, "ACC001", null, null, null);
+        
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(300, report.getRowsWritten());
+        assertEquals(300, lines.size());
+        Transaction first = transactionManager.getTransactionsForAccount("ACC001").get(0);
+        assertEquals("{\"transaction_id\":\"" + first.getTransactionId() + "\",\"account_number\":\"ACC001\",\"type\":\"DEPOSIT\","
+                + "\"amount\":1.25,\"balance_after\":1001.25,\"timestamp\":\"" + first.getTimestamp() + "\"}", lines.get(0));
+    }
+    
+    @Test
+    void testExportWhilePostingContinues() throws Exception {
+        Path file = tempDir.resolve("live.csv");
+        Thread poster = new Thread(() -> {
+            try {
+                for (int i = 0; i < 2_000; i++) {
+                    transactionManager.deposit(String.format("ACC%03d", i % ACCOUNTS + 1), 1.0);
+                }
+            } catch (InvalidAmountException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        int before = transactionManager.getTotalTransactions();
+        poster.start();
+        LedgerExporter.Report report = new LedgerExporter(transactionManager, 4, 1024).export(file, LedgerExporter.Format.CSV);
+        poster.join();
+        
+        // Every row written is whole, and nothing recorded before the export started is missing
+        assertTrue(report.getRowsWritten() >= before);
+        assertEquals(report.getRowsWritten() + 1, Files.readAllLines(file).size());
+        assertTrue(Files.readAllLines(file).stream().skip(1).allMatch(line -> line.split(",").length == 6));
+    }
+}
\ No newline at end of file
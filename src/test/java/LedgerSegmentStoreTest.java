@@ -0,0 +1,178 @@
+import models.*;
+import services.*;
+import exceptions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LedgerSegmentStoreTest {
+    private static final int ROWS_PER_SEGMENT = 8;
+    
+    @TempDir
+    Path tempDir;
+    
+    private final RegularCustomer customer = new RegularCustomer("John Smith", "CUST001");
+    
+    @Test
+    void testReplayRebuildsBalancesAndHistories() throws Exception {
+        AccountManager accountManager = newAccounts();
+        TransactionManager transactionManager;
+        try (LedgerSegmentStore store = new LedgerSegmentStore(tempDir, ROWS_PER_SEGMENT)) {
+            transactionManager = new TransactionManager(accountManager, store);
+            postSampleActivity(transactionManager);
+            assertEquals(22, store.getRowCount());
+        }
+        // Three segments: 8 + 8 + 6 rows
+        assertEquals(3, LedgerSegmentStore.segmentFiles(tempDir).size());
+        
+        LedgerIndex index;
+        try (LedgerSegmentStore reopened = new LedgerSegmentStore(tempDir, ROWS_PER_SEGMENT)) {
+            index = reopened.replay();
+        }
+        
+        assertEquals(22, index.getRowCount());
+        assertEquals(2, index.getAccountCount());
+        assertEquals(22, index.getLastSequence());
+        for (String accountNumber : List.of("ACC001", "ACC002")) {
+            assertEquals(accountManager.getAccount(accountNumber).getBalanceInCents(), index.getBalanceInCents(accountNumber));
+            assertEquals(ids(transactionManager.getTransactionsForAccount(accountNumber)), ids(index.getTransactionsForAccount(accountNumber)));
+            assertEquals(transactionManager.getAccountSummary(accountNumber).toString(), index.getAccountSummary(accountNumber).toString());
+        }
+        assertFalse(index.containsAccount("ACC999"));
+        assertTrue(index.getTransactionsForAccount("ACC999").isEmpty());
+    }
+    
+    @Test
+    void testRestoreIntoFreshManagersAndContinue() throws Exception {
+        AccountManager accountManager = newAccounts();
+        TransactionManager original;
+        try (LedgerSegmentStore store = new LedgerSegmentStore(tempDir, ROWS_PER_SEGMENT)) {
+            original = new TransactionManager(accountManager, store);
+            postSampleActivity(original);
+        }
+        
+        AccountManager restoredAccounts = newAccounts();
+        try (LedgerSegmentStore store = new LedgerSegmentStore(tempDir, ROWS_PER_SEGMENT)) {
+            TransactionManager restored = new TransactionManager(restoredAccounts, store);
+            assertEquals(2, store.replay().restoreInto(restoredAccounts, restored));
+            assertEquals(accountManager.getAccount("ACC001").getBalance(), restoredAccounts.getAccount("ACC001").getBalance(), 0.001);
+            assertEquals(accountManager.getAccount("ACC002").getBalance(), restoredAccounts.getAccount("ACC002").getBalance(), 0.001);
+            
+            // The recovered rows come back as history too, for statements and range queries
+            assertEquals(22, restored.getTotalTransactions());
+            for (String accountNumber : List.of("ACC001", "ACC002")) {
+                assertEquals(ids(original.getTransactionsForAccount(accountNumber)), ids(restored.getTransactionsForAccount(accountNumber)));
+                assertEquals(original.getTransactionCount(accountNumber), restoredAccounts.getAccount(accountNumber).getTransactions().size());
+                assertEquals(original.getAccountSummary(accountNumber).getNetChangeInCents(),
+                        restored.getAccountSummary(accountNumber).getNetChangeInCents());
+            }
+            assertEquals(22, restored.getTransactionsBetween(LocalDateTime.MIN, LocalDateTime.MAX).size());
+            assertEquals(3, restored.getTransactionsByType("TRANSFER_OUT", LocalDateTime.MIN, LocalDateTime.MAX).size());
+            
+            // New postings follow the recovered rows in every index
+            restored.deposit("ACC001", 1.0);
+            List<Transaction> all = restored.getAllTransactions();
+            assertEquals("TXN023", all.get(all.size() - 1).getTransactionId());
+            assertEquals(23, store.getRowCount());
+            assertEquals(original.getTransactionCount("ACC001") + 1, restoredAccounts.getAccount("ACC001").getTransactions().size());
+            assertEquals(original.getAccountSummary("ACC001").getTotalCreditsInCents() + 100,
+                    restored.getAccountSummary("ACC001").getTotalCreditsInCents());
+            List<Transaction> between = restored.getTransactionsBetween(LocalDateTime.MIN, LocalDateTime.MAX);
+            assertEquals(23, between.size());
+            assertEquals("TXN023", between.get(22).getTransactionId());
+        }
+        
+        try (LedgerSegmentStore store = new LedgerSegmentStore(tempDir, ROWS_PER_SEGMENT)) {
+            LedgerIndex index = store.replay();
+            assertEquals(23, index.getRowCount());
+            assertEquals(restoredAccounts.getAccount("ACC001").getBalanceInCents(), index.getBalanceInCents("ACC001"));
+        }
+    }
+    
+    @Test
+    void testReplayStopsAtDamagedRow() throws Exception {
+        AccountManager accountManager = newAccounts();
+        try (LedgerSegmentStore store = new LedgerSegmentStore(tempDir, ROWS_PER_SEGMENT)) {
+            postSampleActivity(new TransactionManager(accountManager, store));
+        }
+        // Flip a byte in the fourth row of the last segment, as a torn write would leave it
+        Path lastSegment = LedgerSegmentStore.segmentFiles(tempDir).get(2);
+        try (FileChannel channel = FileChannel.open(lastSegment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), 3 * 64 + 20);
+        }
+        
+        try (LedgerSegmentStore store = new LedgerSegmentStore(tempDir, ROWS_PER_SEGMENT)) {
+            assertEquals(19, store.replay().getRowCount());
+            // New rows overwrite the damaged one
+            assertEquals(19, store.getRowCount());
+        }
+    }
+    
+    @Test
+    void testTransferCutBetweenItsLegsIsLeftOut() throws Exception {
+        AccountManager accountManager = newAccounts();
+        try (LedgerSegmentStore store = new LedgerSegmentStore(tempDir, ROWS_PER_SEGMENT)) {
+            TransactionManager transactionManager = new TransactionManager(accountManager, store);
+            for (int i = 0; i < ROWS_PER_SEGMENT - 1; i++) {
+                transactionManager.deposit("ACC001", 1.0);
+            }
+            // The first leg fills the first segment and the second leg opens the next one
+            transactionManager.transfer("ACC001", "ACC002", 5.0);
+        }
+        // Clear the second leg, as a crash right after the first leg would leave it
+        Path secondSegment = LedgerSegmentStore.segmentFiles(tempDir).get(1);
+        try (FileChannel channel = FileChannel.open(secondSegment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[64]), 0);
+        }
+        
+        try (LedgerSegmentStore store = new LedgerSegmentStore(tempDir, ROWS_PER_SEGMENT)) {
+            LedgerIndex index = store.replay();
+            assertEquals(ROWS_PER_SEGMENT - 1, index.getRowCount());
+            assertEquals(100_700, index.getBalanceInCents("ACC001"));
+            assertFalse(index.containsAccount("ACC002"));
+            // The next row takes the first leg's place
+            assertEquals(ROWS_PER_SEGMENT - 1, store.getRowCount());
+            store.append(new Transaction("TXN009", "ACC001", "DEPOSIT", 100, 100_800, LocalDateTime.now()));
+        }
+        try (LedgerSegmentStore store = new LedgerSegmentStore(tempDir, ROWS_PER_SEGMENT)) {
+            LedgerIndex index = store.replay();
+            assertEquals(ROWS_PER_SEGMENT, index.getRowCount());
+            assertEquals(100_800, index.getBalanceInCents("ACC001"));
+        }
+    }
+    
+    private AccountManager newAccounts() {
+        AccountManager accountManager = new AccountManager();
+        accountManager.addAccount(new SavingsAccount("ACC001", 1000.0, customer));
+        accountManager.addAccount(new CheckingAccount("ACC002", 500.0, customer));
+        return accountManager;
+    }
+    
+    // 10 deposits, 5 withdrawals and 3 transfers (two rows each) = 21 rows, plus one batch deposit
+    private void postSampleActivity(TransactionManager transactionManager) throws Exception {
+        for (int i = 0; i < 10; i++) {
+            transactionManager.deposit(i % 2 == 0 ? "ACC001" : "ACC002", 10.0 + i);
+        }
+        for (int i = 0; i < 5; i++) {
+            transactionManager.withdraw(i % 2 == 0 ? "ACC001" : "ACC002", 3.0);
+        }
+        for (int i = 0; i < 3; i++) {
+            transactionManager.transfer("ACC001", "ACC002", 7.5);
+        }
+        transactionManager.applyBatch(List.of(PostingRequest.deposit("ACC002", 1.25)));
+    }
+    
+    private static List<String> ids(List<Transaction> transactions) {
+        return transactions.stream()
+                .map(t -> t.getTransactionId() + " " + t.getType() + " " + t.getAmountInCents() + " " + t.getBalanceAfterInCents())
+                .toList();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,47 @@
+import utils.Money;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyTest {
+    
+    @Test
+    void testDollarConversionRoundsToNearestCent() {
+        assertEquals(1050, Money.fromDollars(10.50));
+        assertEquals(30, Money.fromDollars(0.1 + 0.2));
+        assertEquals(1999, Money.fromDollars(19.99));
+        assertEquals(-250, Money.fromDollars(-2.50));
+        assertEquals(12.34, Money.toDollars(1234), 0.0);
+    }
+    
+    @Test
+    void testRepeatedAdditionIsExact() {
+        long balance = 0;
+        for (int i = 0; i < 1000; i++) {
+            balance = Money.add(balance, Money.fromDollars(0.10));
+        }
+        assertEquals(10_000, balance);
+    }
+    
+    @Test
+    void testApplyRateRoundsHalfAwayFromZero() {
+        assertEquals(35, Money.applyRate(1000, 350));   // 3.5% of $10.00
+        assertEquals(1, Money.applyRate(15, 350));      // 0.525 cents
+        assertEquals(-1, Money.applyRate(-15, 350));
+        assertEquals(350, Money.toBasisPoints(0.035));
+    }
+    
+    @Test
+    void testFormat() {
+        assertEquals("0.00", Money.format(0));
+        assertEquals("1234.05", Money.format(123405));
+        assertEquals("-0.05", Money.format(-5));
+        assertEquals("-12.30", Money.format(-1230));
+    }
+    
+    @Test
+    void testOverflowAndNonFiniteRejected() {
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.fromDollars(Double.NaN));
+    }
+}
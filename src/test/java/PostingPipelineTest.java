@@ -0,0 +1,129 @@
+import models.*;
+import services.*;
+import exceptions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PostingPipelineTest {
+    private static final int PRODUCERS = 4;
+    private static final int POSTINGS_PER_PRODUCER = 5_000;
+    
+    private AccountManager accountManager;
+    private TransactionManager transactionManager;
+    private PostingPipeline pipeline;
+    private RegularCustomer customer;
+    
+    @BeforeEach
+    void setUp() {
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        // A small ring so producers lap it many times
+        pipeline = new PostingPipeline(accountManager, transactionManager, 2, 64);
+        customer = new RegularCustomer("John Smith", "CUST001");
+    }
+    
+    @AfterEach
+    void tearDown() {
+        pipeline.close();
+    }
+    
+    @Test
+    void testConcurrentProducersAcrossPartitions() throws Exception {
+        for (int i = 1; i <= 8; i++) {
+            accountManager.addAccount(new CheckingAccount(String.format("ACC%03d", i), 0.0, customer));
+        }
+        AtomicInteger posted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        PostingPipeline.PostingListener listener = new PostingPipeline.PostingListener() {
+            @Override
+            public void onPosted(Transaction transaction) {
+                posted.incrementAndGet();
+            }
+            
+            @Override
+            public void onRejected(Exception error) {
+                rejected.incrementAndGet();
+            }
+        };
+        
+        ExecutorService executor = Executors.newFixedThreadPool(PRODUCERS);
+        try {
+            List<Future<?>> producers = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                producers.add(executor.submit(() -> {
+                    for (int i = 0; i < POSTINGS_PER_PRODUCER; i++) {
+                        pipeline.publish(String.format("ACC%03d", i % 8 + 1), PostingRequest.Type.DEPOSIT, 100, listener);
+                    }
+                }));
+            }
+            for (Future<?> producer : producers) {
+                producer.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        pipeline.close();
+        
+        int total = PRODUCERS * POSTINGS_PER_PRODUCER;
+        assertEquals(total, posted.get());
+        assertEquals(0, rejected.get());
+        assertEquals(total, transactionManager.getTotalTransactions());
+        for (int i = 1; i <= 8; i++) {
+            String accountNumber = String.format("ACC%03d", i);
+            List<Transaction> history = transactionManager.getTransactionsForAccount(accountNumber);
+            assertEquals(total / 8, history.size());
+            assertEquals(total / 8 * 100L, accountManager.getAccount(accountNumber).getBalanceInCents());
+            // Recorded in the same order the writer changed the balance
+            for (int j = 0; j < history.size(); j++) {
+                assertEquals((j + 1) * 100L, history.get(j).getBalanceAfterInCents());
+            }
+        }
+    }
+    
+    @Test
+    void testSubmitReportsFailuresPerPosting() {
+        accountManager.addAccount(new SavingsAccount("ACC001", 150.0, customer));
+        
+        CompletableFuture<PostingResult> deposit = pipeline.submit(PostingRequest.deposit("ACC001", 25.0));
+        CompletableFuture<PostingResult> tooLarge = pipeline.submit(PostingRequest.withdrawal("ACC001", 500.0));
+        CompletableFuture<PostingResult> missing = pipeline.submit(PostingRequest.deposit("ACC999", 10.0));
+        CompletableFuture<PostingResult> negative = pipeline.submit(PostingRequest.deposit("ACC001", -1.0));
+        
+        assertTrue(deposit.join().isSuccess());
+        assertEquals(175.0, deposit.join().getTransaction().getBalanceAfter(), 0.01);
+        assertInstanceOf(InsufficientFundsException.class, tooLarge.join().getError());
+        assertInstanceOf(InvalidAmountException.class, missing.join().getError());
+        assertInstanceOf(InvalidAmountException.class, negative.join().getError());
+        assertEquals(175.0, accountManager.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(1, transactionManager.getTotalTransactions());
+    }
+    
+    @Test
+    void testCloseDrainsAndRejectsNewPostings() {
+        accountManager.addAccount(new CheckingAccount("ACC001", 0.0, customer));
+        List<CompletableFuture<PostingResult>> results = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            results.add(pipeline.submit(PostingRequest.deposit("ACC001", 1.0)));
+        }
+        
+        pipeline.close();
+        
+        for (CompletableFuture<PostingResult> result : results) {
+            assertTrue(result.isDone());
+        }
+        assertEquals(1000.0, accountManager.getAccount("ACC001").getBalance(), 0.01);
+        assertThrows(RejectedExecutionException.class, () -> pipeline.submit(PostingRequest.deposit("ACC001", 1.0)));
+    }
+}
\ No newline at end of file
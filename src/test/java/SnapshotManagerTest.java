@@ -0,0 +1,266 @@
+import models.*;
+import services.*;
+import exceptions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SnapshotManagerTest {
+    private static final int ROWS_PER_SEGMENT = 8;
+    
+    @TempDir
+    Path tempDir;
+    
+    private final RegularCustomer customer = new RegularCustomer("John Smith", "CUST001");
+    private final PremiumCustomer premiumCustomer = new PremiumCustomer("Jane Doe", "CUST002");
+    
+    @Test
+    void testRecoverLoadsSnapshotAndReplaysOnlyTail() throws Exception {
+        AccountManager accountManager = newAccounts();
+        TransactionManager transactionManager;
+        try (LedgerSegmentStore ledger = new LedgerSegmentStore(ledgerDir(), ROWS_PER_SEGMENT)) {
+            transactionManager = new TransactionManager(accountManager, ledger);
+            postActivity(transactionManager, 20);
+            Path snapshot = newSnapshots(accountManager, transactionManager, ledger, SnapshotManager.SegmentRetention.KEEP).snapshot();
+            assertTrue(snapshot.getFileName().toString().contains("20"));
+            postActivity(transactionManager, 5);
+        }
+        
+        AccountManager restoredAccounts = new AccountManager();
+        try (LedgerSegmentStore ledger = new LedgerSegmentStore(ledgerDir(), ROWS_PER_SEGMENT)) {
+            TransactionManager restored = new TransactionManager(restoredAccounts, ledger);
+            SnapshotManager snapshots = newSnapshots(restoredAccounts, restored, ledger, SnapshotManager.SegmentRetention.KEEP);
+            SnapshotManager.Recovery recovery = snapshots.recover();
+            assertNotNull(recovery.getSnapshotFile());
+            assertEquals(3, recovery.getAccountsLoaded());
+            assertEquals(5, recovery.getTailRowsReplayed());
+            assertBalancesMatch(accountManager, restoredAccounts);
+            
+            // Types, customers and counters come back with the balances
+            assertTrue(restoredAccounts.getAccount("ACC001") instanceof SavingsAccount);
+            assertTrue(restoredAccounts.getAccount("ACC002") instanceof CheckingAccount);
+            assertTrue(restoredAccounts.getAccount("ACC003").getCustomer() instanceof PremiumCustomer);
+            assertSame(restoredAccounts.getAccount("ACC001").getCustomer(), restoredAccounts.getAccount("ACC002").getCustomer());
+            assertEquals("ACC004", restoredAccounts.generateAccountNumber());
+            // Only the tail's rows come back as history; the rest is read from the segments on request.
+            // The totals still cover everything.
+            assertEquals(5, restored.getTotalTransactions());
+            assertHistoryAndTotalsMatch(transactionManager, restored, snapshots);
+            restored.deposit("ACC001", 1.0);
+            List<Transaction> all = restored.getAllTransactions();
+            assertEquals("TXN026", all.get(all.size() - 1).getTransactionId());
+        }
+    }
+    
+    @Test
+    void testSnapshotArchivesSegmentsNoLongerNeeded() throws Exception {
+        AccountManager accountManager = newAccounts();
+        TransactionManager transactionManager;
+        try (LedgerSegmentStore ledger = new LedgerSegmentStore(ledgerDir(), ROWS_PER_SEGMENT)) {
+            transactionManager = new TransactionManager(accountManager, ledger);
+            SnapshotManager snapshots = new SnapshotManager(snapshotDir(), accountManager, transactionManager, ledger,
+                    1, SnapshotManager.SegmentRetention.ARCHIVE);
+            postActivity(transactionManager, 20);
+            snapshots.snapshot();
+            // Rows 0-15 fill the first two segments, which the snapshot at row 20 covers
+            assertEquals(1, LedgerSegmentStore.segmentFiles(ledgerDir()).size());
+            assertEquals(2, LedgerSegmentStore.segmentFiles(snapshots.getArchiveDirectory()).size());
+            
+            postActivity(transactionManager, 10);
+            snapshots.snapshot();
+            assertEquals(1, SnapshotManager.snapshotFiles(snapshotDir()).size());
+            assertEquals(3, LedgerSegmentStore.segmentFiles(snapshots.getArchiveDirectory()).size());
+            postActivity(transactionManager, 3);
+        }
+        
+        AccountManager restoredAccounts = new AccountManager();
+        try (LedgerSegmentStore ledger = new LedgerSegmentStore(ledgerDir(), ROWS_PER_SEGMENT)) {
+            assertEquals(33, ledger.getRowCount());
+            TransactionManager restored = new TransactionManager(restoredAccounts, ledger);
+            SnapshotManager snapshots = newSnapshots(restoredAccounts, restored, ledger, SnapshotManager.SegmentRetention.ARCHIVE);
+            SnapshotManager.Recovery recovery = snapshots.recover();
+            assertEquals(3, recovery.getTailRowsReplayed());
+            assertBalancesMatch(accountManager, restoredAccounts);
+            // Older history comes from the three archived segments and the one still in place
+            assertHistoryAndTotalsMatch(transactionManager, restored, snapshots);
+        }
+    }
+    
+    @Test
+    void testDamagedSnapshotFallsBackToPreviousOne() throws Exception {
+        AccountManager accountManager = newAccounts();
+        try (LedgerSegmentStore ledger = new LedgerSegmentStore(ledgerDir(), ROWS_PER_SEGMENT)) {
+            TransactionManager transactionManager = new TransactionManager(accountManager, ledger);
+            SnapshotManager snapshots = newSnapshots(accountManager, transactionManager, ledger, SnapshotManager.SegmentRetention.DELETE);
+            postActivity(transactionManager, 6);
+            snapshots.snapshot();
+            postActivity(transactionManager, 6);
+            Path newest = snapshots.snapshot();
+            postActivity(transactionManager, 2);
+            try (FileChannel channel = FileChannel.open(newest, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[] {(byte) 0xFF}), channel.size() - 20);
+            }
+        }
+        
+        AccountManager restoredAccounts = new AccountManager();
+        try (LedgerSegmentStore ledger = new LedgerSegmentStore(ledgerDir(), ROWS_PER_SEGMENT)) {
+            TransactionManager restored = new TransactionManager(restoredAccounts, ledger);
+            SnapshotManager.Recovery recovery = newSnapshots(restoredAccounts, restored, ledger, SnapshotManager.SegmentRetention.DELETE).recover();
+            assertNotEquals(SnapshotManager.snapshotFiles(snapshotDir()).get(1), recovery.getSnapshotFile());
+            assertEquals(8, recovery.getTailRowsReplayed());
+            assertBalancesMatch(accountManager, restoredAccounts);
+        }
+    }
+    
+    @Test
+    void testBackgroundSnapshotsDoNotStopPostings() throws Exception {
+        AccountManager accountManager = newAccounts();
+        TransactionManager transactionManager;
+        try (LedgerSegmentStore ledger = new LedgerSegmentStore(ledgerDir(), ROWS_PER_SEGMENT)) {
+            transactionManager = new TransactionManager(accountManager, ledger);
+            try (SnapshotManager snapshots = newSnapshots(accountManager, transactionManager, ledger, SnapshotManager.SegmentRetention.DELETE)) {
+                snapshots.start(Duration.ofMillis(1));
+                CountDownLatch start = new CountDownLatch(1);
+                List<Thread> threads = new ArrayList<>();
+                for (String accountNumber : List.of("ACC001", "ACC002", "ACC003")) {
+                    Thread thread = new Thread(() -> {
+                        try {
+                            start.await();
+                            for (int i = 0; i < 2_000; i++) {
+                                transactionManager.deposit(accountNumber, 1.0);
+                            }
+                        } catch (Exception e) {
+                            throw new RuntimeException(e);
+                        }
+                    });
+                    thread.start();
+                    threads.add(thread);
+                }
+                start.countDown();
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                snapshots.snapshot();
+                assertNull(snapshots.getLastFailure());
+                assertTrue(snapshots.getSnapshotCount() > 1);
+            }
+        }
+        
+        AccountManager restoredAccounts = new AccountManager();
+        try (LedgerSegmentStore ledger = new LedgerSegmentStore(ledgerDir(), ROWS_PER_SEGMENT)) {
+            TransactionManager restored = new TransactionManager(restoredAccounts, ledger);
+            SnapshotManager snapshots = newSnapshots(restoredAccounts, restored, ledger, SnapshotManager.SegmentRetention.DELETE);
+            snapshots.recover();
+            assertBalancesMatch(accountManager, restoredAccounts);
+            assertEquals(100_000 + 2_000 * 100, restoredAccounts.getAccount("ACC001").getBalanceInCents());
+            // Each snapshot read the totals while postings went on; none counts a posting twice or misses one
+            for (String accountNumber : List.of("ACC001", "ACC002", "ACC003")) {
+                assertEquals(transactionManager.getAccountSummary(accountNumber).toString(),
+                        restored.getAccountSummary(accountNumber).toString());
+            }
+            assertEquals(2_000, restored.getAccountSummary("ACC001").getTransactionCount());
+            // The retention policy deleted the segments before the snapshot
+            assertThrows(IOException.class, () -> snapshots.getHistoryBeforeRecovery("ACC001"));
+        }
+    }
+    
+    @Test
+    void testAccruedInterestSurvivesRecovery() throws Exception {
+        TestClock clock = new TestClock(Instant.parse("2024-01-01T09:00:00Z"));
+        AccountManager accountManager = new AccountManager();
+        SavingsAccount savings = new SavingsAccount("ACC001", 10_000.0, customer, clock);
+        accountManager.addAccount(savings);
+        try (LedgerSegmentStore ledger = new LedgerSegmentStore(ledgerDir(), ROWS_PER_SEGMENT)) {
+            TransactionManager transactionManager = new TransactionManager(accountManager, ledger);
+            clock.advance(Duration.ofDays(30));
+            transactionManager.deposit("ACC001", 100.0);
+            newSnapshots(accountManager, transactionManager, ledger, SnapshotManager.SegmentRetention.KEEP).snapshot();
+        }
+        
+        // The restarted account is registered first so it runs on the same clock
+        AccountManager restoredAccounts = new AccountManager();
+        SavingsAccount restoredSavings = new SavingsAccount("ACC001", 0, customer, clock);
+        restoredAccounts.addAccount(restoredSavings);
+        try (LedgerSegmentStore ledger = new LedgerSegmentStore(ledgerDir(), ROWS_PER_SEGMENT)) {
+            TransactionManager restored = new TransactionManager(restoredAccounts, ledger);
+            newSnapshots(restoredAccounts, restored, ledger, SnapshotManager.SegmentRetention.KEEP).recover();
+            
+            assertEquals(savings.getLastAccrualDate(), restoredSavings.getLastAccrualDate());
+            assertEquals(savings.getAccruedUnits(), restoredSavings.getAccruedUnits());
+            // 2% a year on $10,000 for the 30 days before the restart
+            assertEquals(1643, restored.creditInterest("ACC001"));
+            assertEquals(1_010_000 + 1643, restoredSavings.getBalanceInCents());
+        }
+    }
+    
+    private SnapshotManager newSnapshots(AccountManager accountManager, TransactionManager transactionManager,
+                                         LedgerSegmentStore ledger, SnapshotManager.SegmentRetention retention) throws Exception {
+        return new SnapshotManager(snapshotDir(), accountManager, transactionManager, ledger,
+                SnapshotManager.DEFAULT_SNAPSHOTS_TO_KEEP, retention);
+    }
+    
+    private Path ledgerDir() {
+        return tempDir.resolve("ledger");
+    }
+    
+    private Path snapshotDir() {
+        return tempDir.resolve("snapshots");
+    }
+    
+    private AccountManager newAccounts() {
+        AccountManager accountManager = new AccountManager();
+        accountManager.addAccount(new SavingsAccount("ACC001", 1000.0, customer));
+        accountManager.addAccount(new CheckingAccount("ACC002", 500.0, customer));
+        accountManager.addAccount(new SavingsAccount("ACC003", 20000.0, premiumCustomer));
+        return accountManager;
+    }
+    
+    // One row per posting: deposits and withdrawals alternating over the three accounts
+    private void postActivity(TransactionManager transactionManager, int postings) throws Exception {
+        for (int i = 0; i < postings; i++) {
+            String accountNumber = "ACC00" + (i % 3 + 1);
+            if (i % 4 == 3) {
+                transactionManager.withdraw(accountNumber, 2.5);
+            } else {
+                transactionManager.deposit(accountNumber, 10.0 + i);
+            }
+        }
+    }
+    
+    // Older history plus the manager's history is the whole history, and the totals match it
+    private static void assertHistoryAndTotalsMatch(TransactionManager expected, TransactionManager actual,
+                                                    SnapshotManager snapshots) throws Exception {
+        for (String accountNumber : List.of("ACC001", "ACC002", "ACC003")) {
+            List<Transaction> history = new ArrayList<>(snapshots.getHistoryBeforeRecovery(accountNumber));
+            history.addAll(actual.getTransactionsForAccount(accountNumber));
+            assertEquals(ids(expected.getTransactionsForAccount(accountNumber)), ids(history), accountNumber);
+            assertEquals(expected.getAccountSummary(accountNumber).toString(), actual.getAccountSummary(accountNumber).toString());
+        }
+    }
+    
+    private static List<String> ids(List<Transaction> transactions) {
+        return transactions.stream()
+                .map(t -> t.getTransactionId() + " " + t.getType() + " " + t.getAmountInCents() + " " + t.getBalanceAfterInCents())
+                .toList();
+    }
+    
+    private static void assertBalancesMatch(AccountManager expected, AccountManager actual) {
+        assertEquals(expected.getTotalAccounts(), actual.getTotalAccounts());
+        for (Account account : expected.getAllAccounts().values()) {
+            assertEquals(account.getBalanceInCents(), actual.getAccount(account.getAccountNumber()).getBalanceInCents(),
+                    account.getAccountNumber());
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+import models.*;
+import services.*;
+import exceptions.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementCacheTest {
+    private AccountManager accountManager;
+    private TransactionManager transactionManager;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        accountManager.addAccount(new SavingsAccount("ACC001", 1000.0, new RegularCustomer("John Smith", "CUST001")));
+        accountManager.addAccount(new SavingsAccount("ACC002", 500.0, new RegularCustomer("Jane Doe", "CUST002")));
+    }
+    
+    @Test
+    void testLookupOnlyHitsAtTheRenderedVersion() {
+        StatementCache cache = new StatementCache();
+        assertNull(cache.get("ACC001", "statement", 1));
+        cache.put("ACC001", "statement", 1, "rendered at 1");
+        assertEquals("rendered at 1", cache.get("ACC001", "statement", 1));
+        assertNull(cache.get("ACC001", "summary", 1));
+        
+        // A newer version drops the stale entry for good
+        assertNull(cache.get("ACC001", "statement", 2));
+        assertEquals(0, cache.getEntryCount());
+        assertNull(cache.get("ACC001", "statement", 1));
+        
+        // Text rendered late from an older version does not replace newer text
+        cache.put("ACC001", "statement", 3, "rendered at 3");
+        cache.put("ACC001", "statement", 2, "rendered at 2");
+        assertEquals("rendered at 3", cache.get("ACC001", "statement", 3));
+        
+        assertEquals(2, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+        assertEquals(2.0 / 6, cache.getHitRatio(), 1e-9);
+    }
+    
+    @Test
+    void testLeastRecentlyUsedTextIsEvictedToStayWithinSize() {
+        StatementCache cache = new StatementCache(30);
+        cache.put("ACC001", "statement", 1, "a".repeat(10));
+        cache.put("ACC002", "statement", 1, "b".repeat(10));
+        cache.put("ACC003", "statement", 1, "c".repeat(10));
+        assertNotNull(cache.get("ACC001", "statement", 1));
+        
+        cache.put("ACC004", "statement", 1, "d".repeat(15));
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals(25, cache.getCharacterCount());
+        assertNotNull(cache.get("ACC001", "statement", 1));
+        assertNull(cache.get("ACC002", "statement", 1));
+        assertNull(cache.get("ACC003", "statement", 1));
+        
+        // Text bigger than the whole cache is never kept
+        cache.put("ACC005", "statement", 1, "e".repeat(31));
+        assertNull(cache.get("ACC005", "statement", 1));
+        assertEquals(2, cache.getEntryCount());
+    }
+    
+    @Test
+    void testPostingInvalidatesCachedStatement() throws Exception {
+        StatementCache cache = new StatementCache();
+        StatementGenerator cached = new StatementGenerator(accountManager, transactionManager, cache);
+        StatementGenerator uncached = new StatementGenerator(accountManager, transactionManager, null);
+        transactionManager.deposit("ACC001", 100);
+        
+        String first = cached.generateStatement("ACC001");
+        assertEquals(uncached.generateStatement("ACC001"), first);
+        assertEquals(first, cached.generateStatement("ACC001"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        
+        long version = transactionManager.getAccountVersion("ACC001");
+        transactionManager.deposit("ACC001", 50);
+        assertEquals(version + 1, transactionManager.getAccountVersion("ACC001"));
+        String second = cached.generateStatement("ACC001");
+        assertNotEquals(first, second);
+        assertTrue(second.contains("Total Deposits: $150.00"));
+        assertEquals(uncached.generateStatement("ACC001"), second);
+        
+        // Other accounts are unaffected by the posting
+        assertEquals(0, transactionManager.getAccountVersion("ACC002"));
+    }
+    
+    @Test
+    void testBalanceInHeaderIsNeverStale() throws Exception {
+        StatementCache cache = new StatementCache();
+        StatementGenerator generator = new StatementGenerator(accountManager, transactionManager, cache);
+        transactionManager.deposit("ACC001", 100);
+        generator.generateStatement("ACC001");
+        
+        // Changed without recording a transaction, so the version stays the same
+        accountManager.getAccount("ACC001").deposit(25);
+        String statement = generator.generateStatement("ACC001");
+        assertEquals(1, cache.getHitCount());
+        assertTrue(statement.contains("Current Balance: $1125.00"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,118 @@
+import models.*;
+import services.*;
+import exceptions.*;
+import utils.Money;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementGeneratorTest {
+    private AccountManager accountManager;
+    private TransactionManager transactionManager;
+    private StatementGenerator statementGenerator;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        statementGenerator = new StatementGenerator(accountManager, transactionManager);
+        accountManager.addAccount(new SavingsAccount("ACC001", 1000.0, new RegularCustomer("John Smith", "CUST001")));
+        for (int i = 1; i <= 25; i++) {
+            transactionManager.deposit("ACC001", i);
+        }
+    }
+    
+    @Test
+    void testStreamedStatementMatchesGeneratedOne() throws Exception {
+        String statement = statementGenerator.generateStatement("ACC001");
+        assertTrue(statement.startsWith("GENERATE ACCOUNT STATEMENT\n\nAccount: John Smith (SavingsAccount)\nCurrent Balance: $1325.00\n"));
+        // Newest first
+        assertTrue(statement.indexOf("TXN025 | DEPOSIT | +$25.00 | $1325.00") < statement.indexOf("TXN001 | DEPOSIT | +$1.00 | $1001.00"));
+        assertTrue(statement.contains("Total Deposits: $325.00"));
+        assertFalse(statement.contains("next page cursor"));
+        
+        StringWriter writer = new StringWriter();
+        statementGenerator.writeStatement("ACC001", writer);
+        assertEquals(statement, writer.toString());
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        statementGenerator.writeStatement("ACC001", bytes);
+        assertEquals(statement, bytes.toString(StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    void testPagesWalkHistoryNewestFirst() throws Exception {
+        List<String> ids = new ArrayList<>();
+        List<Integer> cursors = new ArrayList<>();
+        int cursor = StatementGenerator.LATEST;
+        do {
+            StringWriter page = new StringWriter();
+            cursor = statementGenerator.writeStatementPage("ACC001", cursor, 10, page);
+            cursors.add(cursor);
+            ids.addAll(transactionIds(page.toString()));
+            assertTrue(page.toString().contains("Summary:"));
+            // New postings between pages do not shift the older pages
+            transactionManager.deposit("ACC001", 1.0);
+        } while (cursor > 0);
+        
+        assertEquals(List.of(15, 5, 0), cursors);
+        assertEquals(25, ids.size());
+        assertEquals("TXN025", ids.get(0));
+        assertEquals("TXN001", ids.get(24));
+    }
+    
+    @Test
+    void testFirstPageCopiesOnlyItsRows() throws Exception {
+        StringWriter page = new StringWriter();
+        assertEquals(22, statementGenerator.writeStatementPage("ACC001", StatementGenerator.LATEST, 3, page));
+        assertEquals(List.of("TXN025", "TXN024", "TXN023"), transactionIds(page.toString()));
+        assertTrue(page.toString().contains("22 older transactions; next page cursor: 22"));
+        
+        assertEquals(2, transactionManager.getTransactionsForAccount("ACC001", 20, 22).size());
+        assertEquals(0, transactionManager.getTransactionsForAccount("ACC001", 30, 40).size());
+        assertEquals(25, transactionManager.getTransactionCount("ACC001"));
+    }
+    
+    @Test
+    void testMissingAccountAndInvalidPages() throws Exception {
+        StringWriter writer = new StringWriter();
+        assertEquals(0, statementGenerator.writeStatementPage("ACC999", StatementGenerator.LATEST, 10, writer));
+        assertEquals(statementGenerator.generateStatement("ACC999"), writer.toString());
+        assertTrue(writer.toString().startsWith("Error: Account not found"));
+        
+        assertThrows(IllegalArgumentException.class, () -> statementGenerator.writeStatementPage("ACC001", -1, 10, new StringWriter()));
+        assertThrows(IllegalArgumentException.class, () -> statementGenerator.writeStatementPage("ACC001", 10, 0, new StringWriter()));
+    }
+    
+    @Test
+    void testInterestIsShownAsCredit() throws Exception {
+        TestClock clock = new TestClock(Instant.parse("2024-01-01T09:00:00Z"));
+        accountManager.addAccount(new SavingsAccount("ACC002", 10_000.0, new RegularCustomer("Jane Doe", "CUST002"), clock));
+        clock.advance(Duration.ofDays(30));
+        long credited = transactionManager.creditInterest("ACC002");
+        assertTrue(credited > 0);
+        
+        String statement = statementGenerator.generateStatement("ACC002");
+        assertTrue(statement.contains(" | INTEREST | +$" + Money.format(credited) + " | $"), statement);
+        assertTrue(statement.contains("Net Change: $" + Money.format(credited)), statement);
+    }
+    
+    private static List<String> transactionIds(String statement) {
+        List<String> ids = new ArrayList<>();
+        for (String line : statement.split("\n")) {
+            if (line.startsWith("TXN")) {
+                ids.add(line.substring(0, line.indexOf(' ')));
+            }
+        }
+        return ids;
+    }
+}
\ No newline at end of file
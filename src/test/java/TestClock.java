@@ -0,0 +1,35 @@
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * UTC clock that stands still until a test moves it on
+ */
+final class TestClock extends Clock {
+    private Instant now;
+    
+    TestClock(Instant now) {
+        this.now = now;
+    }
+    
+    void advance(Duration duration) {
+        now = now.plus(duration);
+    }
+    
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+    
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException();
+    }
+    
+    @Override
+    public Instant instant() {
+        return now;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,360 @@
+import models.*;
+import services.*;
+import exceptions.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionJournalTest {
+    @TempDir
+    Path tempDir;
+    
+    private final RegularCustomer customer = new RegularCustomer("John Smith", "CUST001");
+    
+    @Test
+    void testJournalMatchesLedger() throws Exception {
+        Path path = tempDir.resolve("journal.dat");
+        AccountManager accountManager = new AccountManager();
+        accountManager.addAccount(new SavingsAccount("ACC001", 1000.0, customer));
+        accountManager.addAccount(new CheckingAccount("ACC002", 500.0, customer));
+        
+        try (TransactionJournal journal = new TransactionJournal(path)) {
+            TransactionManager transactionManager = new TransactionManager(accountManager, journal);
+            transactionManager.deposit("ACC001", 250.0);
+            transactionManager.withdraw("ACC002", 100.0);
+            transactionManager.transfer("ACC001", "ACC002", 50.0);
+            transactionManager.applyBatch(List.of(PostingRequest.deposit("ACC002", 5.0)));
+            
+            // Every call returned only after its record was forced
+            assertEquals(5, journal.getDurableCount());
+            assertEquals(toText(transactionManager.getAllTransactions()), toText(TransactionJournal.readAll(path)));
+        }
+    }
+    
+    @Test
+    void testConcurrentPostingsShareCommits() throws Exception {
+        Path path = tempDir.resolve("journal.dat");
+        AccountManager accountManager = new AccountManager();
+        for (int i = 1; i <= 8; i++) {
+            accountManager.addAccount(new CheckingAccount(String.format("ACC%03d", i), 0.0, customer));
+        }
+        int postingsPerThread = 200;
+        
+        try (TransactionJournal journal = new TransactionJournal(path, 64, Duration.ofMillis(2))) {
+            TransactionManager transactionManager = new TransactionManager(accountManager, journal);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 1; t <= 8; t++) {
+                    String accountNumber = String.format("ACC%03d", t);
+                    futures.add(executor.submit(() -> {
+                        for (int i = 0; i < postingsPerThread; i++) {
+                            transactionManager.deposit(accountNumber, 1.0);
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            
+            assertEquals(8 * postingsPerThread, journal.getDurableCount());
+            assertTrue(journal.getForceCount() < 8 * postingsPerThread);
+        }
+        assertEquals(8 * postingsPerThread, TransactionJournal.readAll(path).size());
+    }
+    
+    @Test
+    void testTornTailIsIgnoredAndCutOnReopen() throws Exception {
+        Path path = tempDir.resolve("journal.dat");
+        AccountManager accountManager = new AccountManager();
+        accountManager.addAccount(new CheckingAccount("ACC001", 0.0, customer));
+        
+        try (TransactionJournal journal = new TransactionJournal(path)) {
+            TransactionManager transactionManager = new TransactionManager(accountManager, journal);
+            transactionManager.deposit("ACC001", 10.0);
+            transactionManager.deposit("ACC001", 20.0);
+        }
+        Files.write(path, new byte[] {1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+        assertEquals(2, TransactionJournal.readAll(path).size());
+        
+        try (TransactionJournal journal = new TransactionJournal(path)) {
+            journal.awaitDurable(journal.append(new Transaction("TXN003", "ACC001", "WITHDRAWAL", 500, 2500, LocalDateTime.now())));
+        }
+        List<Transaction> replayed = TransactionJournal.readAll(path);
+        assertEquals(3, replayed.size());
+        assertEquals("TXN003", replayed.get(2).getTransactionId());
+        assertEquals(25.0, replayed.get(2).getBalanceAfter(), 0.01);
+    }
+    
+    @Test
+    void testTransferLegsAreCommittedTogether() throws Exception {
+        Path path = tempDir.resolve("journal.dat");
+        AccountManager accountManager = new AccountManager();
+        accountManager.addAccount(new CheckingAccount("ACC001", 100.0, customer));
+        accountManager.addAccount(new CheckingAccount("ACC002", 0.0, customer));
+        
+        // One record per batch, yet the transfer's two legs still go out in a single commit
+        try (TransactionJournal journal = new TransactionJournal(path, 1, Duration.ZERO)) {
+            TransactionManager transactionManager = new TransactionManager(accountManager, journal);
+            transactionManager.deposit("ACC001", 10.0);
+            transactionManager.transfer("ACC001", "ACC002", 25.0);
+            
+            assertEquals(3, journal.getDurableCount());
+            assertEquals(2, journal.getForceCount());
+        }
+        assertEquals(List.of("DEPOSIT", "TRANSFER_OUT", "TRANSFER_IN"),
+                TransactionJournal.readAll(path).stream().map(Transaction::getType).toList());
+        
+        // A crash between the legs' bytes leaves the first leg alone at the end: it is not replayed
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - TransactionJournal.RECORD_SIZE / 2);
+        }
+        assertEquals(List.of("DEPOSIT"), TransactionJournal.readAll(path).stream().map(Transaction::getType).toList());
+        new TransactionJournal(path).close();
+        assertEquals(TransactionJournal.RECORD_SIZE, Files.size(path));
+    }
+    
+    @Test
+    void testFailedCommitFencesTheManager() throws Exception {
+        Path path = tempDir.resolve("journal.dat");
+        AccountManager accountManager = new AccountManager();
+        CheckingAccount account = new CheckingAccount("ACC001", 100.0, customer);
+        accountManager.addAccount(account);
+        accountManager.addAccount(new CheckingAccount("ACC002", 0.0, customer));
+        FailingForceChannel channel = new FailingForceChannel(
+                FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        
+        try (TransactionJournal journal = new TransactionJournal(channel, 16, Duration.ZERO)) {
+            TransactionManager transactionManager = new TransactionManager(accountManager, journal);
+            transactionManager.deposit("ACC001", 10.0);
+            channel.failForce = true;
+            
+            assertThrows(UncheckedIOException.class, () -> transactionManager.deposit("ACC001", 20.0));
+            assertTrue(transactionManager.isFenced());
+            long balance = account.getBalanceInCents();
+            
+            // The client's retry, and every other posting, is refused before it changes anything
+            assertThrows(UncheckedIOException.class, () -> transactionManager.deposit("ACC001", 20.0));
+            assertThrows(UncheckedIOException.class, () -> transactionManager.transfer("ACC001", "ACC002", 5.0));
+            assertFalse(transactionManager.applyBatch(List.of(PostingRequest.deposit("ACC001", 20.0))).get(0).isSuccess());
+            try (PostingPipeline pipeline = new PostingPipeline(accountManager, transactionManager, 1, 4)) {
+                PostingResult result = pipeline.submit(PostingRequest.deposit("ACC001", 20.0)).get(10, TimeUnit.SECONDS);
+                assertInstanceOf(UncheckedIOException.class, result.getError());
+            }
+            assertEquals(balance, account.getBalanceInCents());
+            assertEquals(2, transactionManager.getTotalTransactions());
+        }
+        
+        // The failed batch was taken back off the file, so a manager recovered from it holds the first deposit only
+        List<Transaction> journaled = TransactionJournal.readAll(path);
+        assertEquals(1, journaled.size());
+        assertEquals(11_000, journaled.get(0).getBalanceAfterInCents());
+    }
+    
+    @Test
+    void testPostingRefusedByClosedJournalLeavesBalanceUnchanged() throws Exception {
+        Path path = tempDir.resolve("journal.dat");
+        AccountManager accountManager = new AccountManager();
+        SavingsAccount savings = new SavingsAccount("ACC001", 1000.0, customer);
+        CheckingAccount checking = new CheckingAccount("ACC002", 500.0, customer);
+        accountManager.addAccount(savings);
+        accountManager.addAccount(checking);
+        TransactionJournal journal = new TransactionJournal(path);
+        TransactionManager transactionManager = new TransactionManager(accountManager, journal);
+        transactionManager.deposit("ACC001", 10.0);
+        journal.close();
+        
+        assertThrows(UncheckedIOException.class, () -> transactionManager.deposit("ACC001", 250.0));
+        assertThrows(UncheckedIOException.class, () -> transactionManager.withdraw("ACC001", 100.0));
+        assertThrows(UncheckedIOException.class, () -> transactionManager.transfer("ACC001", "ACC002", 50.0));
+        List<PostingResult> results = transactionManager.applyBatch(List.of(
+                PostingRequest.deposit("ACC002", 5.0), PostingRequest.withdrawal("ACC002", 20.0)));
+        
+        assertFalse(results.get(0).isSuccess());
+        assertInstanceOf(UncheckedIOException.class, results.get(1).getError());
+        assertEquals(101_000, savings.getBalanceInCents());
+        assertEquals(50_000, checking.getBalanceInCents());
+        assertEquals(1, transactionManager.getTotalTransactions());
+        assertEquals(0, transactionManager.getTransactionCount("ACC002"));
+        assertEquals(1, TransactionJournal.readAll(path).size());
+    }
+    
+    @Test
+    void testPipelineNotifiesAfterCommit() throws Exception {
+        Path path = tempDir.resolve("journal.dat");
+        AccountManager accountManager = new AccountManager();
+        accountManager.addAccount(new CheckingAccount("ACC001", 0.0, customer));
+        
+        try (TransactionJournal journal = new TransactionJournal(path)) {
+            TransactionManager transactionManager = new TransactionManager(accountManager, journal);
+            try (PostingPipeline pipeline = new PostingPipeline(accountManager, transactionManager, 1, 64)) {
+                PostingResult result = pipeline.submit(PostingRequest.deposit("ACC001", 12.5)).join();
+                
+                assertTrue(result.isSuccess());
+                assertEquals(1, journal.getDurableCount());
+            }
+        }
+        assertEquals(1250, TransactionJournal.readAll(path).get(0).getAmountInCents());
+    }
+    
+    @Test
+    void testPipelineRejectsPostingsRefusedByClosedJournal() throws Exception {
+        Path path = tempDir.resolve("journal.dat");
+        AccountManager accountManager = new AccountManager();
+        CheckingAccount account = new CheckingAccount("ACC001", 100.0, customer);
+        accountManager.addAccount(account);
+        TransactionJournal journal = new TransactionJournal(path);
+        TransactionManager transactionManager = new TransactionManager(accountManager, journal);
+        journal.close();
+        
+        try (PostingPipeline pipeline = new PostingPipeline(accountManager, transactionManager, 1, 4)) {
+            // More postings than slots: the recorder must keep freeing them after each refusal
+            List<CompletableFuture<PostingResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(pipeline.submit(i % 2 == 0 ? PostingRequest.deposit("ACC001", 5.0) : PostingRequest.withdrawal("ACC001", 3.0)));
+            }
+            for (CompletableFuture<PostingResult> future : futures) {
+                PostingResult result = future.get(10, TimeUnit.SECONDS);
+                assertInstanceOf(UncheckedIOException.class, result.getError());
+            }
+        }
+        assertEquals(10_000, account.getBalanceInCents());
+        assertEquals(0, transactionManager.getTotalTransactions());
+    }
+    
+    // Passes everything through to a real file channel, but fails force once asked to, like a failing device
+    private static final class FailingForceChannel extends FileChannel {
+        private final FileChannel file;
+        private volatile boolean failForce;
+        
+        FailingForceChannel(FileChannel file) {
+            this.file = file;
+        }
+        
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failForce) {
+                throw new IOException("Simulated device error");
+            }
+            file.force(metaData);
+        }
+        
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return file.read(dst);
+        }
+        
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return file.read(dsts, offset, length);
+        }
+        
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return file.read(dst, position);
+        }
+        
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return file.write(src);
+        }
+        
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return file.write(srcs, offset, length);
+        }
+        
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return file.write(src, position);
+        }
+        
+        @Override
+        public long position() throws IOException {
+            return file.position();
+        }
+        
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            file.position(newPosition);
+            return this;
+        }
+        
+        @Override
+        public long size() throws IOException {
+            return file.size();
+        }
+        
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            file.truncate(size);
+            return this;
+        }
+        
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return file.transferTo(position, count, target);
+        }
+        
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return file.transferFrom(src, position, count);
+        }
+        
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return file.map(mode, position, size);
+        }
+        
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return file.lock(position, size, shared);
+        }
+        
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return file.tryLock(position, size, shared);
+        }
+        
+        @Override
+        protected void implCloseChannel() throws IOException {
+            file.close();
+        }
+    }
+    
+    private static List<String> toText(List<Transaction> transactions) {
+        List<String> text = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            text.add(transaction.getTransactionId() + " " + transaction.getAccountNumber() + " " + transaction.getType()
+                    + " " + transaction.getAmountInCents() + " " + transaction.getBalanceAfterInCents()
+                    + " " + transaction.getTimestamp().withNano(transaction.getTimestamp().getNano() / 1_000_000 * 1_000_000));
+        }
+        return text;
+    }
+}
\ No newline at end of file
@@ -3,6 +3,9 @@ import services.*;
 import exceptions.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.time.LocalDateTime;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TransactionManagerTest {
@@ -190,4 +193,207 @@ public class TransactionManagerTest {
         assertEquals(2, transactionManager.getTransactionsForAccount("ACC001").size());
         assertEquals(0, transactionManager.getTransactionsForAccount("ACC999").size());
     }
+    
+    @Test
+    void testGetTransactionsForAccountKeepsTimeOrder() throws InvalidAmountException, InsufficientFundsException, OverdraftExceededException {
+        SavingsAccount savings = new SavingsAccount("ACC001", 1000.0, customer);
+        CheckingAccount checking = new CheckingAccount("ACC002", 500.0, premiumCustomer);
+        accountManager.addAccount(savings);
+        accountManager.addAccount(checking);
+        
+        transactionManager.deposit("ACC001", 100.0);
+        transactionManager.deposit("ACC002", 50.0);
+        transactionManager.transfer("ACC001", "ACC002", 25.0);
+        transactionManager.withdraw("ACC001", 10.0);
+        
+        List<Transaction> history = transactionManager.getTransactionsForAccount("ACC001");
+        assertEquals(3, history.size());
+        assertEquals("DEPOSIT", history.get(0).getType());
+        assertEquals("TRANSFER_OUT", history.get(1).getType());
+        assertEquals("WITHDRAWAL", history.get(2).getType());
+        
+        List<Transaction> checkingHistory = transactionManager.getTransactionsForAccount("ACC002");
+        assertEquals(2, checkingHistory.size());
+        assertEquals("TRANSFER_IN", checkingHistory.get(1).getType());
+    }
+    
+    @Test
+    void testAccountSummaryTracksRunningTotals() throws InvalidAmountException, InsufficientFundsException, OverdraftExceededException {
+        SavingsAccount savings = new SavingsAccount("ACC001", 1000.0, customer);
+        CheckingAccount checking = new CheckingAccount("ACC002", 500.0, premiumCustomer);
+        accountManager.addAccount(savings);
+        accountManager.addAccount(checking);
+        
+        transactionManager.deposit("ACC001", 200.0);
+        transactionManager.withdraw("ACC001", 50.0);
+        transactionManager.transfer("ACC001", "ACC002", 100.0);
+        transactionManager.transfer("ACC002", "ACC001", 30.0);
+        
+        AccountSummary summary = transactionManager.getAccountSummary("ACC001");
+        assertEquals(200.0, summary.getTotalDeposits(), 0.01);
+        assertEquals(50.0, summary.getTotalWithdrawals(), 0.01);
+        assertEquals(30.0, summary.getTotalTransfersIn(), 0.01);
+        assertEquals(100.0, summary.getTotalTransfersOut(), 0.01);
+        assertEquals(4, summary.getTransactionCount());
+        assertEquals(230.0 - 150.0, summary.getNetChange(), 0.01);
+        
+        assertEquals(0, transactionManager.getAccountSummary("ACC999").getTransactionCount());
+    }
+    
+    @Test
+    void testFailedTransferLeavesBothAccountsUnchanged() {
+        SavingsAccount fromAccount = new SavingsAccount("ACC001", 150.0, customer);
+        CheckingAccount toAccount = new CheckingAccount("ACC002", 500.0, premiumCustomer);
+        accountManager.addAccount(fromAccount);
+        accountManager.addAccount(toAccount);
+        
+        assertThrows(InsufficientFundsException.class, () -> {
+            transactionManager.transfer("ACC001", "ACC002", 100.0); // Would leave less than the minimum balance
+        });
+        assertThrows(InvalidAmountException.class, () -> {
+            transactionManager.transfer("ACC002", "ACC002", 10.0);
+        });
+        
+        assertEquals(150.0, fromAccount.getBalance(), 0.01);
+        assertEquals(500.0, toAccount.getBalance(), 0.01);
+        assertEquals(0, transactionManager.getTotalTransactions());
+    }
+    
+    @Test
+    void testTransferUndoesWithdrawalWhenDepositFails() {
+        CheckingAccount fromAccount = new CheckingAccount("ACC001", 500.0, customer);
+        CheckingAccount toAccount = new CheckingAccount("ACC002", 0.0, premiumCustomer);
+        toAccount.setBalanceInCents(Long.MAX_VALUE - 100); // A $2 deposit would overflow
+        accountManager.addAccount(fromAccount);
+        accountManager.addAccount(toAccount);
+        
+        assertThrows(ArithmeticException.class, () -> transactionManager.transfer("ACC001", "ACC002", 2.0));
+        
+        assertEquals(50_000, fromAccount.getBalanceInCents());
+        assertEquals(Long.MAX_VALUE - 100, toAccount.getBalanceInCents());
+        assertEquals(0, transactionManager.getTotalTransactions());
+    }
+    
+    @Test
+    void testApplyBatchReportsEachPostingInRequestOrder() {
+        accountManager.addAccount(new SavingsAccount("ACC001", 1000.0, customer));
+        accountManager.addAccount(new CheckingAccount("ACC002", 100.0, customer));
+        
+        List<PostingResult> results = transactionManager.applyBatch(List.of(
+                PostingRequest.deposit("ACC001", 200.0),
+                PostingRequest.withdrawal("ACC002", 50.0),
+                PostingRequest.withdrawal("ACC001", 5000.0),
+                PostingRequest.deposit("ACC999", 10.0),
+                PostingRequest.deposit("ACC002", -5.0),
+                PostingRequest.withdrawal("ACC001", 100.0)));
+        
+        assertEquals(6, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertTrue(results.get(1).isSuccess());
+        assertInstanceOf(InsufficientFundsException.class, results.get(2).getError());
+        assertInstanceOf(InvalidAmountException.class, results.get(3).getError());
+        assertInstanceOf(InvalidAmountException.class, results.get(4).getError());
+        assertTrue(results.get(5).isSuccess());
+        assertNull(results.get(2).getTransaction());
+        
+        // Savings withdrawals carry the $2 fee; the recorded balance follows each posting
+        assertEquals(1200.0, results.get(0).getTransaction().getBalanceAfter(), 0.01);
+        assertEquals(1098.0, results.get(5).getTransaction().getBalanceAfter(), 0.01);
+        assertEquals(1098.0, accountManager.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(50.0, accountManager.getAccount("ACC002").getBalance(), 0.01);
+        assertEquals(3, transactionManager.getTotalTransactions());
+        assertEquals(2, transactionManager.getTransactionsForAccount("ACC001").size());
+        assertEquals(2, accountManager.getAccount("ACC001").getTransactions().size());
+        assertEquals(200.0, transactionManager.getAccountSummary("ACC001").getTotalDeposits(), 0.01);
+    }
+    
+    @Test
+    void testApplyBatchAssignsUniqueTransactionIds() throws InvalidAmountException {
+        accountManager.addAccount(new CheckingAccount("ACC001", 0.0, customer));
+        accountManager.addAccount(new CheckingAccount("ACC002", 0.0, customer));
+        
+        transactionManager.deposit("ACC001", 1.0);
+        transactionManager.applyBatch(List.of(
+                PostingRequest.deposit("ACC001", 1.0),
+                PostingRequest.deposit("ACC002", 1.0),
+                PostingRequest.deposit("ACC001", 1.0)));
+        transactionManager.deposit("ACC002", 1.0);
+        
+        long distinctIds = transactionManager.getAllTransactions().stream()
+                .map(Transaction::getTransactionId)
+                .distinct()
+                .count();
+        assertEquals(5, distinctIds);
+    }
+    
+    @Test
+    void testDateRangeQueriesReturnOnlyThePeriod() throws Exception {
+        accountManager.addAccount(new SavingsAccount("ACC001", 1000.0, customer));
+        accountManager.addAccount(new CheckingAccount("ACC002", 1000.0, premiumCustomer));
+        for (int i = 1; i <= 6; i++) {
+            // Apart in time, so each period bound falls between two postings
+            transactionManager.deposit("ACC001", i);
+            Thread.sleep(2);
+            transactionManager.withdraw("ACC002", i);
+            Thread.sleep(2);
+        }
+        transactionManager.transfer("ACC001", "ACC002", 10.0);
+        
+        List<Transaction> all = transactionManager.getAllTransactions();
+        LocalDateTime from = all.get(4).getTimestamp();
+        LocalDateTime to = all.get(10).getTimestamp();
+        
+        List<Transaction> first = transactionManager.getTransactionsForAccount("ACC001", from, to);
+        assertEquals(List.of("TXN005", "TXN007", "TXN009"), ids(first));
+        
+        List<Transaction> both = transactionManager.getTransactionsBetween(from, to);
+        assertEquals(List.of("TXN005", "TXN006", "TXN007", "TXN008", "TXN009", "TXN010"), ids(both));
+        
+        List<Transaction> withdrawals = transactionManager.getTransactionsByType("WITHDRAWAL", from, to);
+        assertEquals(List.of("TXN006", "TXN008", "TXN010"), ids(withdrawals));
+        assertTrue(transactionManager.getTransactionsByType("INTEREST", from, to).isEmpty());
+        
+        // Both legs of a transfer share a timestamp and keep their order
+        LocalDateTime transferTime = all.get(12).getTimestamp();
+        List<Transaction> transfer = transactionManager.getTransactionsBetween(transferTime, transferTime.plusNanos(1));
+        assertEquals(List.of("TRANSFER_OUT", "TRANSFER_IN"), transfer.stream().map(Transaction::getType).toList());
+        
+        assertTrue(transactionManager.getTransactionsForAccount("ACC999", from, to).isEmpty());
+        assertTrue(transactionManager.getTransactionsBetween(to, to).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> transactionManager.getTransactionsBetween(to, from));
+    }
+    
+    @Test
+    void testDateRangeQueriesIncludeBatchPostings() {
+        accountManager.addAccount(new SavingsAccount("ACC001", 1000.0, customer));
+        transactionManager.applyBatch(List.of(
+                PostingRequest.deposit("ACC001", 10.0),
+                PostingRequest.withdrawal("ACC001", 5.0),
+                PostingRequest.deposit("ACC001", 20.0)));
+        
+        LocalDateTime time = transactionManager.getAllTransactions().get(0).getTimestamp();
+        assertEquals(List.of("TXN001", "TXN002", "TXN003"),
+                ids(transactionManager.getTransactionsBetween(time, time.plusSeconds(1))));
+        assertEquals(List.of("TXN001", "TXN003"),
+                ids(transactionManager.getTransactionsByType("DEPOSIT", time, time.plusSeconds(1))));
+        assertEquals(3, transactionManager.getTransactionsForAccount("ACC001", time.minusSeconds(1), time.plusSeconds(1)).size());
+    }
+    
+    @Test
+    void testDateRangeQueriesSeeBurstsDrainedByPostings() throws InvalidAmountException {
+        accountManager.addAccount(new CheckingAccount("ACC001", 0.0, customer));
+        LocalDateTime from = LocalDateTime.now().minusSeconds(1);
+        // Several times the index's drain threshold, so postings drain it part way
+        for (int i = 0; i < 5000; i++) {
+            transactionManager.deposit("ACC001", 1.0);
+        }
+        
+        List<Transaction> range = transactionManager.getTransactionsBetween(from, LocalDateTime.now().plusSeconds(1));
+        assertEquals(ids(transactionManager.getTransactionsForAccount("ACC001")), ids(range));
+        assertEquals(5000, transactionManager.getTransactionsByType("DEPOSIT", from, LocalDateTime.now().plusSeconds(1)).size());
+    }
+    
+    private static List<String> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::getTransactionId).toList();
+    }
 }
\ No newline at end of file
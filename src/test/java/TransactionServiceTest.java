@@ -0,0 +1,136 @@
+import models.*;
+import services.*;
+import exceptions.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TransactionServiceTest {
+    private static final int REQUESTS = 10_000;
+    
+    private AccountManager accountManager;
+    private TransactionManager transactionManager;
+    private TransactionService transactionService;
+    private RegularCustomer customer;
+    
+    @BeforeEach
+    void setUp() {
+        accountManager = new AccountManager();
+        transactionManager = new TransactionManager(accountManager);
+        transactionService = new TransactionService(transactionManager, Executors.newVirtualThreadPerTaskExecutor(), REQUESTS);
+        customer = new RegularCustomer("John Smith", "CUST001");
+    }
+    
+    @AfterEach
+    void tearDown() {
+        transactionService.close();
+    }
+    
+    @Test
+    void testThousandsOfInFlightDepositsOnOneAccount() {
+        CheckingAccount account = new CheckingAccount("ACC001", 0.0, customer);
+        accountManager.addAccount(account);
+        
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            results.add(transactionService.deposit("ACC001", 1.0));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+        
+        assertEquals(REQUESTS * 100L, account.getBalanceInCents());
+        assertEquals(REQUESTS, transactionManager.getTotalTransactions());
+        assertEquals(0, transactionService.getPendingCount("ACC001"));
+    }
+    
+    @Test
+    void testFailedPostingCompletesExceptionally() {
+        SavingsAccount account = new SavingsAccount("ACC001", 150.0, customer);
+        accountManager.addAccount(account);
+        
+        CompletableFuture<Boolean> result = transactionService.withdraw("ACC001", 100.0);
+        
+        ExecutionException e = assertThrows(ExecutionException.class, result::get);
+        assertInstanceOf(InsufficientFundsException.class, e.getCause());
+        assertEquals(150.0, account.getBalance(), 0.01);
+    }
+    
+    @Test
+    void testFinishedAccountsReleaseTheirLanes() {
+        accountManager.addAccount(new CheckingAccount("ACC001", 0.0, customer));
+        
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            results.add(transactionService.deposit("ACC001", 1.0));
+            results.add(transactionService.deposit("MISSING" + i, 1.0));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).exceptionally(e -> null).join();
+        
+        assertEquals(REQUESTS * 100L, accountManager.getAccount("ACC001").getBalanceInCents());
+        assertEquals(0, transactionService.getActiveAccountCount());
+        assertEquals(0, transactionService.getPendingCount("ACC001"));
+    }
+    
+    @Test
+    void testOppositeTransfersCompleteWithoutDeadlock() {
+        accountManager.addAccount(new CheckingAccount("ACC001", 1000.0, customer));
+        accountManager.addAccount(new CheckingAccount("ACC002", 1000.0, customer));
+        
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            List<CompletableFuture<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < REQUESTS / 2; i++) {
+                results.add(transactionService.transfer("ACC001", "ACC002", 1.0));
+                results.add(transactionService.transfer("ACC002", "ACC001", 1.0));
+            }
+            CompletableFuture.allOf(results.toArray(new CompletableFuture[0])).join();
+        });
+        
+        assertEquals(1000.0, accountManager.getAccount("ACC001").getBalance(), 0.01);
+        assertEquals(1000.0, accountManager.getAccount("ACC002").getBalance(), 0.01);
+        assertEquals(REQUESTS * 2, transactionManager.getTotalTransactions());
+    }
+    
+    @Test
+    void testRequestsBeyondPerAccountBoundAreRejected() throws Exception {
+        accountManager.addAccount(new CheckingAccount("ACC001", 0.0, customer));
+        accountManager.addAccount(new CheckingAccount("ACC002", 0.0, customer));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        
+        try (TransactionService boundedService = new TransactionService(transactionManager, executor, 2)) {
+            CompletableFuture<Boolean> first = boundedService.deposit("ACC001", 1.0);
+            CompletableFuture<Boolean> second = boundedService.deposit("ACC001", 1.0);
+            CompletableFuture<Boolean> third = boundedService.deposit("ACC001", 1.0);
+            CompletableFuture<Boolean> otherAccount = boundedService.deposit("ACC002", 1.0);
+            
+            ExecutionException e = assertThrows(ExecutionException.class, third::get);
+            assertInstanceOf(RejectedExecutionException.class, e.getCause());
+            assertEquals(2, boundedService.getPendingCount("ACC001"));
+            
+            release.countDown();
+            assertTrue(first.get());
+            assertTrue(second.get());
+            assertTrue(otherAccount.get());
+        }
+        
+        assertEquals(2.0, accountManager.getAccount("ACC001").getBalance(), 0.01);
+    }
+}
\ No newline at end of file